@@ -0,0 +1,15 @@
+package com.minishop.messaging;
+
+/**
+ * Error al codificar, publicar o recibir un mensaje
+ */
+public class MessagingException extends RuntimeException {
+    
+    public MessagingException(String message) {
+        super(message);
+    }
+    
+    public MessagingException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,99 @@
+package com.minishop.messaging.codec;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.minishop.messaging.MessagingException;
+import io.nats.client.Message;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Tipo de evento de cada subject, con su ObjectWriter y un ObjectReader por
+ * formato ya construidos al registrarlo: publicar y recibir un evento
+ * registrado no consulta cachés ni resuelve tipos en cada mensaje.
+ */
+public class EventTypeRegistry {
+
+    private static final List<String> CONTENT_TYPES = List.of(MessageCodec.JSON, MessageCodec.CBOR, MessageCodec.SMILE);
+
+    private final MessageCodec codec;
+    private final ConcurrentMap<String, EventType> types = new ConcurrentHashMap<>();
+
+    public EventTypeRegistry(MessageCodec codec) {
+        this.codec = codec;
+    }
+
+    public EventTypeRegistry register(String subject, Class<?> type) {
+        Map<String, ObjectReader> readers = new LinkedHashMap<>();
+        for (String contentType : CONTENT_TYPES) {
+            readers.put(contentType, codec.readerFor(type, contentType));
+        }
+        types.put(subject, new EventType(type, codec.writerFor(type), readers));
+        return this;
+    }
+
+    /**
+     * Tipo registrado para el subject, o null
+     */
+    public Class<?> typeFor(String subject) {
+        EventType eventType = types.get(subject);
+        return eventType != null ? eventType.type : null;
+    }
+
+    /**
+     * Codifica con el writer del tipo registrado; subjects sin registrar usan el codec
+     */
+    public byte[] encode(String subject, Object value) {
+        EventType eventType = types.get(subject);
+        if (eventType == null || value == null || !eventType.type.isInstance(value)) {
+            return codec.encode(value);
+        }
+        try {
+            return eventType.writer.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new MessagingException("Error serializing " + eventType.type.getSimpleName() + " for " + subject, e);
+        }
+    }
+
+    /**
+     * Decodifica el mensaje al tipo registrado para su subject, directamente desde los bytes
+     */
+    public Object decode(Message message) {
+        EventType eventType = types.get(message.getSubject());
+        if (eventType == null) {
+            throw new MessagingException("No event type registered for " + message.getSubject());
+        }
+        String contentType = MessageCodec.contentType(message);
+        ObjectReader reader = eventType.readers.get(contentType);
+        try {
+            // Content-Type con parámetros u otra grafía: el codec lo normaliza
+            return (reader != null ? reader : codec.readerFor(eventType.type, contentType)).readValue(codec.payload(message));
+        } catch (IOException e) {
+            throw new MessagingException("Error deserializing " + message.getSubject() + " to " + eventType.type.getSimpleName(), e);
+        }
+    }
+
+    public Map<String, Class<?>> getTypes() {
+        Map<String, Class<?>> registered = new LinkedHashMap<>();
+        types.forEach((subject, eventType) -> registered.put(subject, eventType.type));
+        return Collections.unmodifiableMap(registered);
+    }
+
+    private static final class EventType {
+        private final Class<?> type;
+        private final ObjectWriter writer;
+        private final Map<String, ObjectReader> readers;
+
+        EventType(Class<?> type, ObjectWriter writer, Map<String, ObjectReader> readers) {
+            this.type = type;
+            this.writer = writer;
+            this.readers = readers;
+        }
+    }
+}
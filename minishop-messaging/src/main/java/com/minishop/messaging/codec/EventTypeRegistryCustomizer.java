@@ -0,0 +1,10 @@
+package com.minishop.messaging.codec;
+
+/**
+ * Registra los tipos de evento de un servicio; se aplican todos los beans de este tipo
+ */
+@FunctionalInterface
+public interface EventTypeRegistryCustomizer {
+
+    void customize(EventTypeRegistry registry);
+}
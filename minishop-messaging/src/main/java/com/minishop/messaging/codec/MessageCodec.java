@@ -0,0 +1,226 @@
+package com.minishop.messaging.codec;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.minishop.messaging.MessagingException;
+import io.nats.client.Message;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Codifica y decodifica mensajes directamente entre objetos y byte[], sin
+ * pasar por String. Además de JSON admite CBOR y Smile (binarios, más
+ * compactos): el formato de cada mensaje va en la cabecera Content-Type y un
+ * mensaje sin cabecera es JSON, así conviven servicios con y sin binario.
+ * Los ObjectReader/ObjectWriter son inmutables y seguros entre hilos: se
+ * crean una vez por tipo y formato y se reutilizan. Los payloads grandes
+ * pueden ir comprimidos (cabecera Content-Encoding: deflate).
+ */
+public class MessageCodec {
+
+    public static final String CONTENT_TYPE_HEADER = "Content-Type";
+    public static final String JSON = "application/json";
+    public static final String CBOR = "application/cbor";
+    public static final String SMILE = "application/x-jackson-smile";
+
+    private final Map<String, Format> formats;
+    private final Format json;
+    private final Format defaultFormat;
+    private final PayloadCompressor compressor;
+
+    public MessageCodec(ObjectMapper objectMapper) {
+        this(objectMapper, JSON);
+    }
+
+    public MessageCodec(ObjectMapper objectMapper, String contentType) {
+        this(objectMapper, contentType, PayloadCompressor.disabled());
+    }
+
+    /**
+     * @param contentType formato con el que se publica; se decodifican los tres
+     * @param compressor compresión de los payloads que superan su umbral
+     */
+    public MessageCodec(ObjectMapper objectMapper, String contentType, PayloadCompressor compressor) {
+        // Los mappers binarios copian la configuración y los módulos del de JSON (fechas, etc.)
+        this.json = new Format(JSON, objectMapper);
+        this.formats = Map.of(
+            JSON, json,
+            CBOR, new Format(CBOR, new BinaryMapper(objectMapper, new CBORFactory())),
+            SMILE, new Format(SMILE, new BinaryMapper(objectMapper, new SmileFactory())));
+        this.defaultFormat = format(contentType);
+        this.compressor = compressor;
+    }
+
+    /**
+     * Content-Type con el que se codifican los mensajes publicados
+     */
+    public String getContentType() {
+        return defaultFormat.contentType;
+    }
+
+    public boolean isJson() {
+        return defaultFormat == json;
+    }
+
+    public byte[] encode(Object value) {
+        if (value == null) {
+            return new byte[0];
+        }
+        try {
+            return writerFor(value.getClass()).writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new MessagingException("Error serializing " + value.getClass().getSimpleName()
+                + " to " + defaultFormat.contentType, e);
+        }
+    }
+
+    /**
+     * Writer cacheado para un tipo en el formato de publicación
+     */
+    public ObjectWriter writerFor(Class<?> type) {
+        return defaultFormat.writerFor(type);
+    }
+
+    public <T> T decode(byte[] data, Class<T> type) {
+        return decode(data, JSON, type);
+    }
+
+    public <T> T decode(byte[] data, String contentType, Class<T> type) {
+        try {
+            return readerFor(type, contentType).readValue(data);
+        } catch (IOException e) {
+            throw new MessagingException("Error deserializing message to " + type.getSimpleName(), e);
+        }
+    }
+
+    public <T> T decode(Message message, Class<T> type) {
+        return decode(payload(message), contentType(message), type);
+    }
+
+    /**
+     * Comprime el payload si supera el umbral y ocupa menos comprimido;
+     * devuelve el mismo array cuando no lo comprime
+     */
+    public byte[] compress(byte[] data) {
+        if (!compressor.shouldCompress(data.length)) {
+            return data;
+        }
+        byte[] compressed = compressor.compress(data);
+        return compressed.length < data.length ? compressed : data;
+    }
+
+    /**
+     * Cuerpo del mensaje, descomprimido si llegó con Content-Encoding: deflate
+     */
+    public byte[] payload(Message message) {
+        if (message.hasHeaders()
+            && PayloadCompressor.DEFLATE.equals(message.getHeaders().getFirst(PayloadCompressor.CONTENT_ENCODING_HEADER))) {
+            return compressor.decompress(message.getData());
+        }
+        return message.getData();
+    }
+
+    /**
+     * Reader JSON cacheado para un tipo, incluidos tipos genéricos (List&lt;OrderEvent&gt;...)
+     */
+    public ObjectReader readerFor(Type type) {
+        return json.readerFor(type);
+    }
+
+    public ObjectReader readerFor(Type type, String contentType) {
+        return format(contentType).readerFor(type);
+    }
+
+    /**
+     * Factoría de parsers en streaming para el formato, p. ej. para leer un solo campo
+     */
+    public JsonFactory factoryFor(String contentType) {
+        return format(contentType).mapper.getFactory();
+    }
+
+    /**
+     * Contenido legible del mensaje para trazas: tal cual si es JSON, convertido a JSON si es binario
+     */
+    public String toText(Message message) {
+        String contentType = contentType(message);
+        Format format = format(contentType);
+        byte[] data = payload(message);
+        if (format == json) {
+            return new String(data, StandardCharsets.UTF_8);
+        }
+        try {
+            return format.readerFor(JsonNode.class).readTree(data).toString();
+        } catch (IOException e) {
+            throw new MessagingException("Error reading " + contentType + " message", e);
+        }
+    }
+
+    /**
+     * Content-Type de un mensaje recibido; JSON si no trae cabecera
+     */
+    public static String contentType(Message message) {
+        if (!message.hasHeaders()) {
+            return JSON;
+        }
+        String contentType = message.getHeaders().getFirst(CONTENT_TYPE_HEADER);
+        return contentType != null ? contentType : JSON;
+    }
+
+    private Format format(String contentType) {
+        if (contentType == null || contentType.isBlank()) {
+            return json;
+        }
+        // Se ignoran parámetros como "; charset=utf-8"
+        int separator = contentType.indexOf(';');
+        String mediaType = (separator < 0 ? contentType : contentType.substring(0, separator)).trim().toLowerCase(Locale.ROOT);
+        Format format = formats.get(mediaType);
+        if (format == null) {
+            throw new MessagingException("Unsupported content type: " + contentType);
+        }
+        return format;
+    }
+
+    /**
+     * copyWith() no admite subclases como JsonMapper: se usa el constructor de copia
+     */
+    private static final class BinaryMapper extends ObjectMapper {
+        BinaryMapper(ObjectMapper source, JsonFactory factory) {
+            super(source, factory);
+        }
+    }
+
+    private static final class Format {
+        private final String contentType;
+        private final ObjectMapper mapper;
+        private final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+        private final ConcurrentMap<Type, ObjectReader> readers = new ConcurrentHashMap<>();
+
+        Format(String contentType, ObjectMapper mapper) {
+            this.contentType = contentType;
+            this.mapper = mapper;
+        }
+
+        ObjectWriter writerFor(Class<?> type) {
+            return writers.computeIfAbsent(type, mapper::writerFor);
+        }
+
+        ObjectReader readerFor(Type type) {
+            return readers.computeIfAbsent(type, t -> {
+                JavaType javaType = mapper.getTypeFactory().constructType(t);
+                return mapper.readerFor(javaType);
+            });
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.minishop.messaging.codec;
+
+import com.minishop.messaging.MessagingException;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresión Deflate de los payloads que superan un umbral. Los Deflater e
+ * Inflater se reutilizan desde un pool (no ThreadLocal: con hilos virtuales
+ * habría uno por hilo) porque crearlos reserva memoria nativa.
+ */
+public class PayloadCompressor {
+
+    public static final String CONTENT_ENCODING_HEADER = "Content-Encoding";
+    public static final String DEFLATE = "deflate";
+
+    private static final int CHUNK = 8192;
+    // Límite por defecto al descomprimir: muy por encima de cualquier evento
+    public static final int DEFAULT_MAX_DECOMPRESSED_SIZE = 16 * 1024 * 1024;
+
+    private final int threshold;
+    private final int level;
+    private final int maxDecompressedSize;
+    private final Queue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+    private final Queue<Inflater> inflaters = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param threshold tamaño mínimo en bytes para comprimir; 0 o menos, nunca
+     * @param level nivel de Deflater (1 = más rápido, 9 = más compacto)
+     */
+    public PayloadCompressor(int threshold, int level) {
+        this(threshold, level, DEFAULT_MAX_DECOMPRESSED_SIZE);
+    }
+
+    /**
+     * @param maxDecompressedSize bytes máximos de un payload descomprimido; un mensaje
+     *                            pequeño que se infle por encima (zip bomb) se rechaza
+     */
+    public PayloadCompressor(int threshold, int level, int maxDecompressedSize) {
+        this.threshold = threshold;
+        this.level = level;
+        this.maxDecompressedSize = maxDecompressedSize;
+    }
+
+    /**
+     * Sin compresión al publicar; sigue descomprimiendo lo que llegue comprimido
+     */
+    public static PayloadCompressor disabled() {
+        return new PayloadCompressor(0, Deflater.BEST_SPEED);
+    }
+
+    public boolean shouldCompress(int length) {
+        return threshold > 0 && length >= threshold;
+    }
+
+    public byte[] compress(byte[] data) {
+        Deflater deflater = deflaters.poll();
+        if (deflater == null) {
+            deflater = new Deflater(level);
+        }
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            // Los eventos JSON suelen quedar por debajo de la mitad
+            byte[] buffer = new byte[Math.max(64, data.length / 2)];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+            return Arrays.copyOf(buffer, length);
+        } finally {
+            deflater.reset();
+            deflaters.offer(deflater);
+        }
+    }
+
+    public byte[] decompress(byte[] data) {
+        Inflater inflater = inflaters.poll();
+        if (inflater == null) {
+            inflater = new Inflater();
+        }
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream((int) Math.min(data.length * 3L, maxDecompressedSize));
+            byte[] chunk = new byte[CHUNK];
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(chunk);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new MessagingException("Truncated deflate payload");
+                }
+                // Se corta en cuanto se pasa, sin llegar a reservar el resto
+                if (out.size() + inflated > maxDecompressedSize) {
+                    throw new MessagingException("Deflate payload of " + data.length + " bytes inflates beyond "
+                        + maxDecompressedSize + " bytes");
+                }
+                out.write(chunk, 0, inflated);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new MessagingException("Invalid deflate payload", e);
+        } finally {
+            inflater.reset();
+            inflaters.offer(inflater);
+        }
+    }
+
+    public int getThreshold() {
+        return threshold;
+    }
+
+    public int getMaxDecompressedSize() {
+        return maxDecompressedSize;
+    }
+}
@@ -0,0 +1,30 @@
+package com.minishop.messaging.config;
+
+import com.minishop.messaging.codec.MessageCodec;
+import com.minishop.messaging.codec.PayloadCompressor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Formato y compresión de los mensajes publicados
+ */
+@ConfigurationProperties(prefix = "messaging.codec")
+public class CodecProperties {
+    
+    // application/json, application/cbor o application/x-jackson-smile
+    private String contentType = MessageCodec.JSON;
+    // Bytes a partir de los que el payload se comprime con Deflate (0 = nunca)
+    private int compressionThreshold = 0;
+    // 1 = más rápido ... 9 = más compacto
+    private int compressionLevel = 1;
+    // Bytes máximos de un payload al descomprimirlo; por encima el mensaje falla
+    private int maxDecompressedSize = PayloadCompressor.DEFAULT_MAX_DECOMPRESSED_SIZE;
+    
+    public String getContentType() { return contentType; }
+    public void setContentType(String contentType) { this.contentType = contentType; }
+    public int getCompressionThreshold() { return compressionThreshold; }
+    public void setCompressionThreshold(int compressionThreshold) { this.compressionThreshold = compressionThreshold; }
+    public int getCompressionLevel() { return compressionLevel; }
+    public void setCompressionLevel(int compressionLevel) { this.compressionLevel = compressionLevel; }
+    public int getMaxDecompressedSize() { return maxDecompressedSize; }
+    public void setMaxDecompressedSize(int maxDecompressedSize) { this.maxDecompressedSize = maxDecompressedSize; }
+}
@@ -0,0 +1,35 @@
+package com.minishop.messaging.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Descarte de eventos repetidos (mismo ce-id) en los consumidores
+ */
+@ConfigurationProperties(prefix = "messaging.dedup")
+public class DedupProperties {
+    
+    private boolean enabled = false;
+    // Tiempo que se recuerda un id
+    private long windowMinutes = 60;
+    // Cubos en que se divide la ventana: los ids caducan por cubos
+    private int buckets = 6;
+    // Ids esperados por ventana; la memoria de los filtros depende de esto y de fpp
+    private long expectedIds = 1_000_000;
+    // Probabilidad de tomar un evento nuevo por repetido
+    private double fpp = 1e-6;
+    // Ids recientes guardados de forma exacta
+    private int recentIds = 65536;
+    
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+    public long getWindowMinutes() { return windowMinutes; }
+    public void setWindowMinutes(long windowMinutes) { this.windowMinutes = windowMinutes; }
+    public int getBuckets() { return buckets; }
+    public void setBuckets(int buckets) { this.buckets = buckets; }
+    public long getExpectedIds() { return expectedIds; }
+    public void setExpectedIds(long expectedIds) { this.expectedIds = expectedIds; }
+    public double getFpp() { return fpp; }
+    public void setFpp(double fpp) { this.fpp = fpp; }
+    public int getRecentIds() { return recentIds; }
+    public void setRecentIds(int recentIds) { this.recentIds = recentIds; }
+}
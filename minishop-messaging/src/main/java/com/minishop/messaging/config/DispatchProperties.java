@@ -0,0 +1,23 @@
+package com.minishop.messaging.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Carriles de procesamiento de los listeners: orden por clave, paralelo entre claves
+ */
+@ConfigurationProperties(prefix = "messaging.dispatch")
+public class DispatchProperties {
+    
+    // 0 = un carril por núcleo disponible
+    private int lanes = 0;
+    private int queueCapacity = 1024;
+    
+    public int getLanes() { return lanes; }
+    public void setLanes(int lanes) { this.lanes = lanes; }
+    public int getQueueCapacity() { return queueCapacity; }
+    public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
+    
+    public int resolveLanes() {
+        return lanes > 0 ? lanes : Runtime.getRuntime().availableProcessors();
+    }
+}
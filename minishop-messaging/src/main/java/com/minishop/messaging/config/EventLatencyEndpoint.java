@@ -0,0 +1,58 @@
+package com.minishop.messaging.config;
+
+import com.minishop.messaging.metrics.EventLatencyRecorder;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Endpoint de actuator con los percentiles de latencia desde el origen de
+ * los eventos hasta cada salto, en milisegundos (/actuator/latency)
+ */
+@Endpoint(id = "latency")
+public class EventLatencyEndpoint {
+    
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    
+    private final EventLatencyRecorder latencyRecorder;
+    
+    public EventLatencyEndpoint(EventLatencyRecorder latencyRecorder) {
+        this.latencyRecorder = latencyRecorder;
+    }
+    
+    @ReadOperation
+    public Map<String, Object> latency() {
+        Map<String, Object> hops = new LinkedHashMap<>();
+        for (String hop : new TreeSet<>(latencyRecorder.getHops())) {
+            Histogram raw = latencyRecorder.snapshot(hop);
+            if (raw == null) {
+                continue;
+            }
+            Map<String, Object> latency = new LinkedHashMap<>();
+            latency.put("count", raw.getTotalCount());
+            latency.put("expectedIntervalMs", latencyRecorder.expectedIntervalMicros(hop) / 1000.0);
+            latency.put("raw", percentiles(raw));
+            latency.put("corrected", percentiles(latencyRecorder.correctedSnapshot(hop)));
+            hops.put(hop, latency);
+        }
+        return Map.of("hops", hops);
+    }
+    
+    private static Map<String, Object> percentiles(Histogram histogram) {
+        Map<String, Object> percentiles = new LinkedHashMap<>();
+        for (double percentile : PERCENTILES) {
+            percentiles.put("p" + (percentile == (long) percentile ? Long.toString((long) percentile) : Double.toString(percentile)),
+                millis(histogram.getValueAtPercentile(percentile)));
+        }
+        percentiles.put("max", millis(histogram.getMaxValue()));
+        return percentiles;
+    }
+    
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
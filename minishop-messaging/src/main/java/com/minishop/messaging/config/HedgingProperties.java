@@ -0,0 +1,31 @@
+package com.minishop.messaging.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Peticiones con cobertura: solo para los subjects indicados
+ */
+@ConfigurationProperties(prefix = "messaging.hedging")
+public class HedgingProperties {
+    
+    // Subjects de request/reply con cobertura (vacío = ninguno)
+    private List<String> subjects = new ArrayList<>();
+    // Percentil de latencia del subject tras el que se envía la segunda petición
+    private double percentile = 0.95;
+    // Fracción máxima de peticiones que se pueden duplicar
+    private double maxExtraLoad = 0.05;
+    // Respuestas observadas antes de empezar a cubrir un subject
+    private int minSamples = 50;
+    
+    public List<String> getSubjects() { return subjects; }
+    public void setSubjects(List<String> subjects) { this.subjects = subjects; }
+    public double getPercentile() { return percentile; }
+    public void setPercentile(double percentile) { this.percentile = percentile; }
+    public double getMaxExtraLoad() { return maxExtraLoad; }
+    public void setMaxExtraLoad(double maxExtraLoad) { this.maxExtraLoad = maxExtraLoad; }
+    public int getMinSamples() { return minSamples; }
+    public void setMinSamples(int minSamples) { this.minSamples = minSamples; }
+}
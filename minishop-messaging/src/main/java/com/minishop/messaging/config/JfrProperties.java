@@ -0,0 +1,32 @@
+package com.minishop.messaging.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Grabaciones JFR bajo demanda (/actuator/jfr)
+ */
+@ConfigurationProperties(prefix = "messaging.jfr")
+public class JfrProperties {
+    
+    // Registra /actuator/jfr; además hay que exponerlo y protegerlo
+    private boolean enabled = false;
+    // Duración de la grabación si no se indica (s)
+    private long defaultDuration = 30;
+    // Duración máxima que se acepta (s)
+    private long maxDuration = 300;
+    // Tamaño máximo de la grabación; se descarta lo más antiguo (bytes)
+    private long maxSize = 100 * 1024 * 1024;
+    // Configuración JFR: "default" (~1% de sobrecarga) o "profile" (~2%, más muestras)
+    private String settings = "profile";
+    
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+    public long getDefaultDuration() { return defaultDuration; }
+    public void setDefaultDuration(long defaultDuration) { this.defaultDuration = defaultDuration; }
+    public long getMaxDuration() { return maxDuration; }
+    public void setMaxDuration(long maxDuration) { this.maxDuration = maxDuration; }
+    public long getMaxSize() { return maxSize; }
+    public void setMaxSize(long maxSize) { this.maxSize = maxSize; }
+    public String getSettings() { return settings; }
+    public void setSettings(String settings) { this.settings = settings; }
+}
@@ -0,0 +1,118 @@
+package com.minishop.messaging.config;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Endpoint de actuator que graba JFR durante un tiempo acotado y devuelve
+ * el fichero .jfr (/actuator/jfr?duration=60&settings=profile), sin
+ * reiniciar la instancia ni conectar agentes. Incluye los eventos
+ * minishop.* de publicación, consumo, órdenes y notificaciones.
+ * Una grabación a la vez; la petición espera a que termine.
+ * Solo con messaging.jfr.enabled, y hay que exponerlo y protegerlo aparte:
+ * retiene un hilo de Tomcat hasta max-duration.
+ */
+@WebEndpoint(id = "jfr")
+public class JfrRecordingEndpoint {
+    
+    // Solo las configuraciones que trae el JDK: nada de rutas del servidor
+    private static final Set<String> SETTINGS = Set.of("default", "profile");
+    // Entorno y propiedades del sistema y de seguridad: pueden llevar credenciales
+    private static final List<String> SENSITIVE_EVENTS = List.of("jdk.InitialEnvironmentVariable", "jdk.InitialSystemProperty",
+        "jdk.InitialSecurityProperty");
+    
+    private final JfrProperties properties;
+    private final AtomicBoolean recording = new AtomicBoolean();
+    
+    public JfrRecordingEndpoint(JfrProperties properties) {
+        this.properties = properties;
+    }
+    
+    /**
+     * @param duration segundos de grabación, hasta messaging.jfr.max-duration
+     * @param settings configuración JFR, "default" o "profile"
+     */
+    @ReadOperation
+    public WebEndpointResponse<Resource> record(@Nullable Long duration, @Nullable String settings) {
+        if (!FlightRecorder.isAvailable()) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_SERVICE_UNAVAILABLE);
+        }
+        long seconds = Math.max(1, Math.min(duration != null ? duration : properties.getDefaultDuration(),
+            properties.getMaxDuration()));
+        String name = settings != null ? settings : properties.getSettings();
+        if (!SETTINGS.contains(name)) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(name);
+        } catch (IOException | ParseException e) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_SERVICE_UNAVAILABLE);
+        }
+        if (!recording.compareAndSet(false, true)) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_TOO_MANY_REQUESTS);
+        }
+        try {
+            Path file = Files.createTempFile("minishop-", ".jfr");
+            System.out.println("[MESSAGING] JFR recording for " + seconds + " s (" + configuration.getName() + ")");
+            try (Recording jfr = new Recording(configuration)) {
+                jfr.setName("minishop-on-demand");
+                jfr.setMaxSize(properties.getMaxSize());
+                jfr.setToDisk(true);
+                SENSITIVE_EVENTS.forEach(jfr::disable);
+                jfr.start();
+                Thread.sleep(Duration.ofSeconds(seconds).toMillis());
+                jfr.stop();
+                jfr.dump(file);
+            }
+            return new WebEndpointResponse<>(new TemporaryFileResource(file), WebEndpointResponse.STATUS_OK);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_SERVICE_UNAVAILABLE);
+        } catch (IOException e) {
+            System.err.println("[MESSAGING] JFR recording failed: " + e.getMessage());
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_INTERNAL_SERVER_ERROR);
+        } finally {
+            recording.set(false);
+        }
+    }
+    
+    /**
+     * El fichero se borra al terminar de enviarlo
+     */
+    private static final class TemporaryFileResource extends FileSystemResource {
+        
+        TemporaryFileResource(Path file) {
+            super(file);
+        }
+        
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return Files.newInputStream(getFile().toPath(), StandardOpenOption.DELETE_ON_CLOSE);
+        }
+        
+        @Override
+        public boolean isFile() {
+            // Sin acceso directo al fichero: se envía por getInputStream y se borra al cerrarlo
+            return false;
+        }
+    }
+}
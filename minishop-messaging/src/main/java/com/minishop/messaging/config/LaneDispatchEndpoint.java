@@ -0,0 +1,60 @@
+package com.minishop.messaging.config;
+
+import com.minishop.messaging.listener.KeyedLaneDispatcher;
+import com.minishop.messaging.listener.NatsListenerContainer;
+import com.minishop.messaging.listener.NatsListenerRegistrar;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Endpoint de actuator con la profundidad de cola de cada carril y el
+ * estado de cada listener (/actuator/lanes)
+ */
+@Endpoint(id = "lanes")
+public class LaneDispatchEndpoint {
+    
+    private final KeyedLaneDispatcher laneDispatcher;
+    private final NatsListenerRegistrar listenerRegistrar;
+    
+    public LaneDispatchEndpoint(KeyedLaneDispatcher laneDispatcher, NatsListenerRegistrar listenerRegistrar) {
+        this.laneDispatcher = laneDispatcher;
+        this.listenerRegistrar = listenerRegistrar;
+    }
+    
+    @ReadOperation
+    public Map<String, Object> lanes() {
+        int[] depths = laneDispatcher.getQueueDepths();
+        Map<String, Object> lanes = new LinkedHashMap<>();
+        lanes.put("name", laneDispatcher.getName());
+        lanes.put("lanes", laneDispatcher.getLaneCount());
+        lanes.put("queueDepths", depths);
+        lanes.put("pending", Arrays.stream(depths).sum());
+        
+        List<Map<String, Object>> listeners = new ArrayList<>();
+        for (NatsListenerContainer container : listenerRegistrar.getContainers()) {
+            Map<String, Object> listener = new LinkedHashMap<>();
+            listener.put("id", container.getId());
+            listener.put("subject", container.getSubject());
+            listener.put("queue", container.getQueue());
+            listener.put("processed", container.getProcessed());
+            listener.put("errors", container.getErrors());
+            listener.put("filtered", container.getFiltered());
+            listener.put("expired", container.getExpired());
+            listener.put("duplicates", container.getDuplicates());
+            listener.put("dropped", container.getDropped());
+            listener.put("slowConsumerEvents", container.getSlowConsumerEvents());
+            if (container.getWorkers() >= 0) {
+                listener.put("workers", container.getWorkers());
+            }
+            listeners.add(listener);
+        }
+        lanes.put("listeners", listeners);
+        return lanes;
+    }
+}
@@ -0,0 +1,16 @@
+package com.minishop.messaging.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Latencia extremo a extremo de los eventos por salto (/actuator/latency)
+ */
+@ConfigurationProperties(prefix = "messaging.latency")
+public class LatencyProperties {
+    
+    // Intervalo esperado entre eventos (ms) para corregir la omisión coordinada; 0 = el intervalo medio observado
+    private long expectedInterval = 0;
+    
+    public long getExpectedInterval() { return expectedInterval; }
+    public void setExpectedInterval(long expectedInterval) { this.expectedInterval = expectedInterval; }
+}
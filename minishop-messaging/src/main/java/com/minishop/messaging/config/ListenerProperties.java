@@ -0,0 +1,30 @@
+package com.minishop.messaging.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Valores por defecto de los {@code @NatsListener}
+ */
+@ConfigurationProperties(prefix = "messaging.listener")
+public class ListenerProperties {
+    
+    private long pendingMessages = 65536;
+    private long pendingBytes = 64 * 1024 * 1024;
+    // Tiempo máximo para vaciar los mensajes pendientes al parar (ms)
+    private long drainTimeout = 10000;
+    // Cada cuánto se revisan descartes (slow consumer) y se ajustan los listeners adaptativos (ms)
+    private long controlInterval = 1000;
+    // Listeners adaptativos: se añaden hilos si el backlog no se vaciaría en este tiempo (ms)
+    private long drainTarget = 500;
+    
+    public long getPendingMessages() { return pendingMessages; }
+    public void setPendingMessages(long pendingMessages) { this.pendingMessages = pendingMessages; }
+    public long getPendingBytes() { return pendingBytes; }
+    public void setPendingBytes(long pendingBytes) { this.pendingBytes = pendingBytes; }
+    public long getDrainTimeout() { return drainTimeout; }
+    public void setDrainTimeout(long drainTimeout) { this.drainTimeout = drainTimeout; }
+    public long getControlInterval() { return controlInterval; }
+    public void setControlInterval(long controlInterval) { this.controlInterval = controlInterval; }
+    public long getDrainTarget() { return drainTarget; }
+    public void setDrainTarget(long drainTarget) { this.drainTarget = drainTarget; }
+}
@@ -0,0 +1,391 @@
+package com.minishop.messaging.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.minishop.messaging.codec.EventTypeRegistry;
+import com.minishop.messaging.codec.EventTypeRegistryCustomizer;
+import com.minishop.messaging.codec.MessageCodec;
+import com.minishop.messaging.codec.PayloadCompressor;
+import com.minishop.messaging.core.AsyncNatsPublisher;
+import com.minishop.messaging.core.MessagingObserver;
+import com.minishop.messaging.core.MessagingThreads;
+import com.minishop.messaging.core.NatsConnectionFactory;
+import com.minishop.messaging.core.NatsConnectionPool;
+import com.minishop.messaging.core.NatsTemplate;
+import com.minishop.messaging.core.EventDeduplicator;
+import com.minishop.messaging.core.Outbox;
+import com.minishop.messaging.core.PublishSpool;
+import com.minishop.messaging.core.PublishSpools;
+import com.minishop.messaging.core.RequestHedging;
+import com.minishop.messaging.listener.KeyedLaneDispatcher;
+import com.minishop.messaging.listener.NatsListenerRegistrar;
+import com.minishop.messaging.metrics.EventLatencyRecorder;
+import com.minishop.messaging.metrics.MessagingMetrics;
+import com.minishop.messaging.metrics.MicrometerMessagingObserver;
+import com.minishop.messaging.tracing.SpanFileExporter;
+import com.minishop.messaging.tracing.Tracer;
+import com.minishop.messaging.web.DeadlineFilter;
+import com.minishop.messaging.web.TraceFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.nats.client.Connection;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Infraestructura de mensajería compartida por los servicios
+ */
+@AutoConfiguration(after = JacksonAutoConfiguration.class)
+@EnableConfigurationProperties({NatsProperties.class, DispatchProperties.class, ListenerProperties.class,
+    CodecProperties.class, HedgingProperties.class, LatencyProperties.class, OutboxProperties.class,
+    DedupProperties.class, TracingProperties.class,
+    JfrProperties.class})
+public class MessagingAutoConfiguration {
+    
+    /**
+     * Estático: los BeanPostProcessor se crean antes que el resto de beans
+     */
+    @Bean
+    public static NatsListenerRegistrar natsListenerRegistrar() {
+        return new NatsListenerRegistrar();
+    }
+    
+    /**
+     * Hilos virtuales con spring.threads.virtual.enabled=true (Java 21), igual que Tomcat y @Scheduled
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public MessagingThreads messagingThreads(Environment environment) {
+        return new MessagingThreads(Threading.VIRTUAL.isActive(environment));
+    }
+    
+    @Bean
+    @ConditionalOnMissingBean
+    public NatsConnectionFactory natsConnectionFactory(NatsProperties natsProperties, Environment environment,
+                                                       MessagingThreads messagingThreads) {
+        return new NatsConnectionFactory(natsProperties, environment.getProperty("spring.application.name", "minishop"),
+            messagingThreads);
+    }
+    
+    /**
+     * Se cierra con el contexto, después de vaciar los listeners
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    public Connection natsConnection(NatsConnectionFactory natsConnectionFactory) throws Exception {
+        return natsConnectionFactory.connect();
+    }
+    
+    /**
+     * Con nats.connection.publish-connections > 0, se publica por conexiones
+     * propias y natsConnection queda para las suscripciones; con 0, todo va
+     * por natsConnection
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    public NatsConnectionPool natsConnectionPool(Connection natsConnection, NatsConnectionFactory natsConnectionFactory,
+                                                 NatsProperties natsProperties) throws Exception {
+        int size = natsProperties.getConnection().getPublishConnections();
+        if (size <= 0) {
+            return NatsConnectionPool.shared(natsConnection);
+        }
+        List<Connection> connections = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            connections.add(natsConnectionFactory.connect("pub-" + i));
+        }
+        return new NatsConnectionPool(connections, true);
+    }
+    
+    /**
+     * Con nats.spool.enabled, lo publicado sin conexión se guarda en disco
+     * (un directorio por servicio y, con publish-connections, uno por
+     * conexión de publicación) y se reenvía en orden por esa conexión al reconectar
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "nats.spool", name = "enabled")
+    public PublishSpools publishSpools(NatsConnectionPool natsConnectionPool, NatsConnectionFactory natsConnectionFactory,
+                                       NatsProperties natsProperties, Environment environment,
+                                       MessagingThreads messagingThreads) {
+        NatsProperties.Spool spool = natsProperties.getSpool();
+        Path directory = Path.of(spool.getDirectory(), environment.getProperty("spring.application.name", "minishop"));
+        List<PublishSpool> spools = new ArrayList<>();
+        List<Connection> connections = natsConnectionPool.getConnections();
+        // max-size es el total del servicio, repartido entre las conexiones
+        long maxSize = spool.getMaxSize() / connections.size();
+        for (int i = 0; i < connections.size(); i++) {
+            PublishSpool publishSpool = new PublishSpool(
+                natsConnectionPool.isShared() ? directory : directory.resolve("pub-" + i),
+                spool.getSegmentSize(), maxSize, spool.getFsync(), Duration.ofMillis(spool.getFsyncInterval()),
+                spool.getReplayRate(), connections.get(i), messagingThreads);
+            natsConnectionFactory.addConnectionListener(publishSpool);
+            spools.add(publishSpool);
+        }
+        return new PublishSpools(spools);
+    }
+    
+    /**
+     * Publica en messaging.codec.content-type y decodifica JSON, CBOR y Smile,
+     * comprimidos o no
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public MessageCodec messageCodec(ObjectProvider<ObjectMapper> objectMapper, CodecProperties codecProperties) {
+        return new MessageCodec(objectMapper.getIfAvailable(() -> JsonMapper.builder().findAndAddModules().build()),
+            codecProperties.getContentType(),
+            new PayloadCompressor(codecProperties.getCompressionThreshold(), codecProperties.getCompressionLevel(),
+                codecProperties.getMaxDecompressedSize()));
+    }
+    
+    /**
+     * Tipos de evento por subject que registra cada servicio
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public EventTypeRegistry eventTypeRegistry(MessageCodec messageCodec,
+                                               ObjectProvider<EventTypeRegistryCustomizer> customizers) {
+        EventTypeRegistry registry = new EventTypeRegistry(messageCodec);
+        customizers.orderedStream().forEach(customizer -> customizer.customize(registry));
+        return registry;
+    }
+    
+    /**
+     * Las respuestas de request() se decodifican en un pool propio, no en el hilo de E/S de jnats,
+     * y las peticiones a messaging.hedging.subjects llevan cobertura
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public NatsTemplate natsTemplate(Connection natsConnection, MessageCodec messageCodec,
+                                     EventTypeRegistry eventTypeRegistry, NatsProperties natsProperties,
+                                     MessagingThreads messagingThreads, HedgingProperties hedgingProperties,
+                                     ObjectProvider<MessagingObserver> messagingObserver,
+                                     ObjectProvider<PublishSpools> publishSpools,
+                                     NatsConnectionPool natsConnectionPool, Tracer tracer) {
+        return NatsTemplate.builder(natsConnection, messageCodec)
+            .eventTypes(eventTypeRegistry)
+            .requestTimeout(Duration.ofMillis(natsProperties.getProducer().getTimeout()))
+            .responseExecutor(messagingThreads.newWorkerExecutor("nats-reply", Runtime.getRuntime().availableProcessors()))
+            .hedging(new RequestHedging(hedgingProperties.getSubjects(), hedgingProperties.getPercentile(),
+                hedgingProperties.getMaxExtraLoad(), hedgingProperties.getMinSamples()))
+            .observer(messagingObserver.getIfAvailable(() -> MessagingObserver.NOOP))
+            .spools(publishSpools.getIfAvailable())
+            .publishers(natsConnectionPool)
+            .tracer(tracer)
+            .build();
+    }
+    
+    /**
+     * Publicación en segundo plano, por lotes y con cola acotada (nats.producer.*)
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public AsyncNatsPublisher asyncNatsPublisher(NatsTemplate natsTemplate, MessagingThreads messagingThreads,
+                                                 NatsProperties natsProperties) {
+        NatsProperties.Producer producer = natsProperties.getProducer();
+        return new AsyncNatsPublisher(natsTemplate, messagingThreads, producer.getMaxPending(), producer.getBatchSize(),
+            producer.getOverflowPolicy(), Duration.ofMillis(producer.getTimeout()));
+    }
+    
+    /**
+     * Con messaging.outbox.enabled, el servicio guarda sus cambios y eventos
+     * en un log local y un hilo los publica (un directorio por servicio)
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "messaging.outbox", name = "enabled")
+    public Outbox outbox(NatsTemplate natsTemplate, ObjectProvider<ObjectMapper> objectMapper,
+                         MessagingThreads messagingThreads, OutboxProperties outboxProperties,
+                         NatsProperties natsProperties, Environment environment) {
+        return new Outbox(
+            Path.of(outboxProperties.getDirectory(), environment.getProperty("spring.application.name", "minishop")),
+            objectMapper.getIfAvailable(() -> JsonMapper.builder().findAndAddModules().build()), natsTemplate,
+            messagingThreads, outboxProperties.getBatchSize(), outboxProperties.isFsync(),
+            Duration.ofMillis(natsProperties.getProducer().getTimeout()));
+    }
+    
+    /**
+     * Con messaging.tracing.enabled, spans de HTTP, publicaciones y listeners
+     * en traces/<servicio>/spans.jsonl; sin activar solo se propaga el
+     * traceparent recibido
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    public Tracer tracer(TracingProperties tracingProperties, MessagingThreads messagingThreads, Environment environment) {
+        if (!tracingProperties.isEnabled()) {
+            return Tracer.disabled();
+        }
+        String service = environment.getProperty("spring.application.name", "minishop");
+        SpanFileExporter exporter = new SpanFileExporter(Path.of(tracingProperties.getDirectory(), service),
+            tracingProperties.getMaxFileSize(), tracingProperties.getMaxFiles(), tracingProperties.getQueueCapacity(),
+            messagingThreads);
+        System.out.println("[MESSAGING] Tracing to " + exporter.getDirectory() + " (sample ratio "
+            + tracingProperties.getSampleRatio() + (tracingProperties.isParentBased() ? ", parent-based)" : ")"));
+        return new Tracer(service, exporter, tracingProperties.getSampleRatio(), tracingProperties.isParentBased());
+    }
+    
+    /**
+     * Con messaging.dedup.enabled, los listeners descartan los eventos cuyo
+     * ce-id ya recibieron dentro de la ventana
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "messaging.dedup", name = "enabled")
+    public EventDeduplicator eventDeduplicator(DedupProperties dedupProperties) {
+        EventDeduplicator deduplicator = new EventDeduplicator(Duration.ofMinutes(dedupProperties.getWindowMinutes()),
+            dedupProperties.getBuckets(), dedupProperties.getExpectedIds(), dedupProperties.getFpp(),
+            dedupProperties.getRecentIds());
+        System.out.println("[MESSAGING] Event dedup: " + dedupProperties.getWindowMinutes() + " min window, "
+            + deduplicator.getFilterBytes() / 1024 + " KB of filters for " + dedupProperties.getExpectedIds() + " ids");
+        return deduplicator;
+    }
+    
+    /**
+     * Latencia de los eventos desde su origen hasta cada salto (/actuator/latency)
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public EventLatencyRecorder eventLatencyRecorder(LatencyProperties latencyProperties) {
+        return new EventLatencyRecorder(latencyProperties.getExpectedInterval());
+    }
+    
+    /**
+     * Carriles compartidos por los listeners sin concurrencia propia
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public KeyedLaneDispatcher laneDispatcher(DispatchProperties dispatchProperties, MessagingThreads messagingThreads) {
+        return new KeyedLaneDispatcher("nats", dispatchProperties.resolveLanes(), dispatchProperties.getQueueCapacity(),
+            messagingThreads);
+    }
+    
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(Endpoint.class)
+    static class EndpointConfiguration {
+        
+        @Bean
+        @ConditionalOnMissingBean
+        public LaneDispatchEndpoint laneDispatchEndpoint(KeyedLaneDispatcher laneDispatcher,
+                                                         NatsListenerRegistrar natsListenerRegistrar) {
+            return new LaneDispatchEndpoint(laneDispatcher, natsListenerRegistrar);
+        }
+        
+        @Bean
+        @ConditionalOnMissingBean
+        public EventLatencyEndpoint eventLatencyEndpoint(EventLatencyRecorder eventLatencyRecorder) {
+            return new EventLatencyEndpoint(eventLatencyRecorder);
+        }
+        
+        // Desactivado por defecto: la grabación ocupa un hilo de Tomcat y el .jfr incluye el entorno del proceso
+        @Bean
+        @ConditionalOnMissingBean
+        @ConditionalOnProperty(prefix = "messaging.jfr", name = "enabled")
+        public JfrRecordingEndpoint jfrRecordingEndpoint(JfrProperties jfrProperties) {
+            return new JfrRecordingEndpoint(jfrProperties);
+        }
+    }
+    
+    /**
+     * Traza de las peticiones HTTP, para que el traceparent llegue a NATS
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(OncePerRequestFilter.class)
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    static class TracingWebConfiguration {
+        
+        @Bean
+        @ConditionalOnMissingBean
+        public TraceFilter traceFilter(Tracer tracer) {
+            return new TraceFilter(tracer);
+        }
+    }
+    
+    /**
+     * Plazo de las peticiones HTTP (X-Request-Timeout) propagado a las peticiones NATS
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(OncePerRequestFilter.class)
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    @ConditionalOnProperty(prefix = "messaging.deadline", name = "enabled", matchIfMissing = true)
+    static class DeadlineConfiguration {
+        
+        @Bean
+        @ConditionalOnMissingBean
+        public DeadlineFilter deadlineFilter() {
+            return new DeadlineFilter();
+        }
+        
+        @Configuration(proxyBeanMethods = false)
+        @ConditionalOnClass(MeterRegistry.class)
+        static class DeadlineMetricsConfiguration {
+            
+            @Bean
+            public MeterBinder deadlineFilterMetrics(DeadlineFilter deadlineFilter) {
+                return registry -> MessagingMetrics.deadlineCounter(registry, "http", deadlineFilter, DeadlineFilter::getRejected);
+            }
+        }
+    }
+    
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(MeterRegistry.class)
+    static class MetricsConfiguration {
+        
+        @Bean
+        @ConditionalOnMissingBean
+        public MessagingMetrics messagingMetrics(NatsTemplate natsTemplate, AsyncNatsPublisher asyncNatsPublisher,
+                                                 NatsListenerRegistrar natsListenerRegistrar) {
+            return new MessagingMetrics(natsTemplate, asyncNatsPublisher, natsListenerRegistrar);
+        }
+        
+        @Bean
+        public MeterBinder outboxMetrics(ObjectProvider<Outbox> outbox) {
+            return registry -> outbox.ifAvailable(o -> MessagingMetrics.outbox(registry, o));
+        }
+        
+        @Bean
+        public MeterBinder tracingMetrics(Tracer tracer) {
+            return registry -> {
+                if (tracer.getExporter() != null) {
+                    MessagingMetrics.tracing(registry, tracer.getExporter());
+                }
+            };
+        }
+        
+        @Bean
+        public MeterBinder dedupMetrics(ObjectProvider<EventDeduplicator> deduplicator) {
+            return registry -> deduplicator.ifAvailable(d -> MessagingMetrics.dedup(registry, d));
+        }
+        
+        /**
+         * Latencias, tamaños y pendientes por subject; sin registro de métricas no se mide nada
+         */
+        @Bean
+        @ConditionalOnMissingBean
+        public MessagingObserver messagingObserver(ObjectProvider<MeterRegistry> meterRegistry) {
+            MeterRegistry registry = meterRegistry.getIfAvailable();
+            return registry == null ? MessagingObserver.NOOP : new MicrometerMessagingObserver(registry);
+        }
+        
+        @Bean
+        public MeterFilter messagingSubjectCardinalityLimit() {
+            return MicrometerMessagingObserver.subjectCardinalityLimit();
+        }
+    }
+}
@@ -0,0 +1,380 @@
+package com.minishop.messaging.config;
+
+import com.minishop.messaging.core.AsyncNatsPublisher;
+import com.minishop.messaging.core.PublishSpool;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Clase de configuración para las propiedades de NATS
+ */
+@ConfigurationProperties(prefix = "nats")
+public class NatsProperties {
+    
+    private String url = "nats://localhost:4222";
+    private Connection connection = new Connection();
+    private Consumer consumer = new Consumer();
+    private Producer producer = new Producer();
+    private Cluster cluster = new Cluster();
+    private JetStream jetstream = new JetStream();
+    private Spool spool = new Spool();
+    
+    public String getUrl() {
+        return url;
+    }
+    
+    public void setUrl(String url) {
+        this.url = url;
+    }
+    
+    public Connection getConnection() {
+        return connection;
+    }
+    
+    public void setConnection(Connection connection) {
+        this.connection = connection;
+    }
+    
+    public Consumer getConsumer() {
+        return consumer;
+    }
+    
+    public void setConsumer(Consumer consumer) {
+        this.consumer = consumer;
+    }
+    
+    public Producer getProducer() {
+        return producer;
+    }
+    
+    public void setProducer(Producer producer) {
+        this.producer = producer;
+    }
+    
+    public Cluster getCluster() {
+        return cluster;
+    }
+    
+    public void setCluster(Cluster cluster) {
+        this.cluster = cluster;
+    }
+    
+    public JetStream getJetstream() {
+        return jetstream;
+    }
+    
+    public void setJetstream(JetStream jetstream) {
+        this.jetstream = jetstream;
+    }
+    
+    public Spool getSpool() {
+        return spool;
+    }
+    
+    public void setSpool(Spool spool) {
+        this.spool = spool;
+    }
+    
+    public static class Connection {
+        private int timeout = 2000;
+        private int maxReconnect = 60;
+        private int reconnectWait = 2000;
+        private long pingInterval = 120000;
+        private long cleanupInterval = 30000;
+        // Buffer de socket y cola de salida del cliente jnats
+        private int bufferSize = 64 * 1024;
+        private int outgoingQueueSize = 5000;
+        private int publishConnections = 0;
+        
+        public int getTimeout() {
+            return timeout;
+        }
+        
+        public void setTimeout(int timeout) {
+            this.timeout = timeout;
+        }
+        
+        public int getMaxReconnect() {
+            return maxReconnect;
+        }
+        
+        public void setMaxReconnect(int maxReconnect) {
+            this.maxReconnect = maxReconnect;
+        }
+        
+        public int getReconnectWait() {
+            return reconnectWait;
+        }
+        
+        public void setReconnectWait(int reconnectWait) {
+            this.reconnectWait = reconnectWait;
+        }
+        
+        public long getPingInterval() {
+            return pingInterval;
+        }
+        
+        public void setPingInterval(long pingInterval) {
+            this.pingInterval = pingInterval;
+        }
+        
+        public long getCleanupInterval() {
+            return cleanupInterval;
+        }
+        
+        public void setCleanupInterval(long cleanupInterval) {
+            this.cleanupInterval = cleanupInterval;
+        }
+        
+        public int getBufferSize() {
+            return bufferSize;
+        }
+        
+        public void setBufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+        }
+        
+        public int getOutgoingQueueSize() {
+            return outgoingQueueSize;
+        }
+        
+        public void setOutgoingQueueSize(int outgoingQueueSize) {
+            this.outgoingQueueSize = outgoingQueueSize;
+        }
+        
+        public int getPublishConnections() {
+            return publishConnections;
+        }
+        
+        public void setPublishConnections(int publishConnections) {
+            this.publishConnections = publishConnections;
+        }
+    }
+    
+    public static class Consumer {
+        private int maxDeliver = 3;
+        private long ackWait = 30000;
+        
+        public int getMaxDeliver() {
+            return maxDeliver;
+        }
+        
+        public void setMaxDeliver(int maxDeliver) {
+            this.maxDeliver = maxDeliver;
+        }
+        
+        public long getAckWait() {
+            return ackWait;
+        }
+        
+        public void setAckWait(long ackWait) {
+            this.ackWait = ackWait;
+        }
+    }
+    
+    public static class Producer {
+        private int maxPending = 1000;
+        private int timeout = 2000;
+        private int batchSize = 256;
+        private AsyncNatsPublisher.OverflowPolicy overflowPolicy = AsyncNatsPublisher.OverflowPolicy.BLOCK;
+        
+        public int getMaxPending() {
+            return maxPending;
+        }
+        
+        public void setMaxPending(int maxPending) {
+            this.maxPending = maxPending;
+        }
+        
+        public int getTimeout() {
+            return timeout;
+        }
+        
+        public void setTimeout(int timeout) {
+            this.timeout = timeout;
+        }
+        
+        public int getBatchSize() {
+            return batchSize;
+        }
+        
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+        
+        public AsyncNatsPublisher.OverflowPolicy getOverflowPolicy() {
+            return overflowPolicy;
+        }
+        
+        public void setOverflowPolicy(AsyncNatsPublisher.OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+        }
+    }
+    
+    public static class Cluster {
+        private boolean enabled = false;
+        private String[] servers;
+        private boolean preferLowestRtt = true;
+        private long probeTimeout = 500;
+        
+        public boolean isEnabled() {
+            return enabled;
+        }
+        
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+        
+        public String[] getServers() {
+            return servers;
+        }
+        
+        public void setServers(String[] servers) {
+            this.servers = servers;
+        }
+        
+        public boolean isPreferLowestRtt() {
+            return preferLowestRtt;
+        }
+        
+        public void setPreferLowestRtt(boolean preferLowestRtt) {
+            this.preferLowestRtt = preferLowestRtt;
+        }
+        
+        public long getProbeTimeout() {
+            return probeTimeout;
+        }
+        
+        public void setProbeTimeout(long probeTimeout) {
+            this.probeTimeout = probeTimeout;
+        }
+    }
+    
+    /**
+     * Consumidores durables JetStream para no perder eventos durante caídas
+     */
+    public static class JetStream {
+        private boolean enabled = false;
+        private String stream = "MINISHOP_EVENTS";
+        private String durablePrefix = "minishop";
+        private int batchSize = 256;
+        private long fetchWait = 1000;
+        private long maxAge = 604800000;
+        
+        public boolean isEnabled() {
+            return enabled;
+        }
+        
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+        
+        public String getStream() {
+            return stream;
+        }
+        
+        public void setStream(String stream) {
+            this.stream = stream;
+        }
+        
+        public String getDurablePrefix() {
+            return durablePrefix;
+        }
+        
+        public void setDurablePrefix(String durablePrefix) {
+            this.durablePrefix = durablePrefix;
+        }
+        
+        public int getBatchSize() {
+            return batchSize;
+        }
+        
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+        
+        public long getFetchWait() {
+            return fetchWait;
+        }
+        
+        public void setFetchWait(long fetchWait) {
+            this.fetchWait = fetchWait;
+        }
+        
+        public long getMaxAge() {
+            return maxAge;
+        }
+        
+        public void setMaxAge(long maxAge) {
+            this.maxAge = maxAge;
+        }
+    }
+    
+    /**
+     * Spool en disco para lo publicado mientras la conexión está caída
+     */
+    public static class Spool {
+        private boolean enabled = false;
+        private String directory = "spool";
+        private long maxSize = 256L * 1024 * 1024;
+        private int segmentSize = 16 * 1024 * 1024;
+        private PublishSpool.FsyncPolicy fsync = PublishSpool.FsyncPolicy.INTERVAL;
+        private long fsyncInterval = 1000;
+        private int replayRate = 0;
+        
+        public boolean isEnabled() {
+            return enabled;
+        }
+        
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+        
+        public String getDirectory() {
+            return directory;
+        }
+        
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+        
+        public long getMaxSize() {
+            return maxSize;
+        }
+        
+        public void setMaxSize(long maxSize) {
+            this.maxSize = maxSize;
+        }
+        
+        public int getSegmentSize() {
+            return segmentSize;
+        }
+        
+        public void setSegmentSize(int segmentSize) {
+            this.segmentSize = segmentSize;
+        }
+        
+        public PublishSpool.FsyncPolicy getFsync() {
+            return fsync;
+        }
+        
+        public void setFsync(PublishSpool.FsyncPolicy fsync) {
+            this.fsync = fsync;
+        }
+        
+        public long getFsyncInterval() {
+            return fsyncInterval;
+        }
+        
+        public void setFsyncInterval(long fsyncInterval) {
+            this.fsyncInterval = fsyncInterval;
+        }
+        
+        public int getReplayRate() {
+            return replayRate;
+        }
+        
+        public void setReplayRate(int replayRate) {
+            this.replayRate = replayRate;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.minishop.messaging.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Outbox local: cambios de estado y eventos en un mismo log, publicados en segundo plano
+ */
+@ConfigurationProperties(prefix = "messaging.outbox")
+public class OutboxProperties {
+    
+    private boolean enabled = false;
+    // Directorio del log y del checkpoint; cada servicio usa un subdirectorio con su nombre
+    private String directory = "outbox";
+    // Líneas del log publicadas entre flush y checkpoint
+    private int batchSize = 256;
+    // Forzar a disco cada línea antes de responder
+    private boolean fsync = false;
+    
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+    public String getDirectory() { return directory; }
+    public void setDirectory(String directory) { this.directory = directory; }
+    public int getBatchSize() { return batchSize; }
+    public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+    public boolean isFsync() { return fsync; }
+    public void setFsync(boolean fsync) { this.fsync = fsync; }
+}
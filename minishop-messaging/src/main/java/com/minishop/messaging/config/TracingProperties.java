@@ -0,0 +1,40 @@
+package com.minishop.messaging.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Trazas W3C (traceparent) de HTTP a NATS y spans en ficheros locales
+ */
+@ConfigurationProperties(prefix = "messaging.tracing")
+public class TracingProperties {
+    
+    // Sin activar, el traceparent recibido se sigue propagando pero no se crean spans
+    private boolean enabled = false;
+    // Fracción de trazas nuevas que se guardan (0..1)
+    private double sampleRatio = 0.1;
+    // Los spans con padre siguen su decisión de muestreo, para que las trazas lleguen completas
+    private boolean parentBased = true;
+    // Directorio de los spans; cada servicio usa un subdirectorio con su nombre
+    private String directory = "traces";
+    // Tamaño a partir del que rota spans.jsonl (bytes)
+    private long maxFileSize = 10 * 1024 * 1024;
+    // Ficheros conservados, contando el actual
+    private int maxFiles = 5;
+    // Spans pendientes de escribir; con la cola llena se descartan
+    private int queueCapacity = 8192;
+    
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+    public double getSampleRatio() { return sampleRatio; }
+    public void setSampleRatio(double sampleRatio) { this.sampleRatio = sampleRatio; }
+    public boolean isParentBased() { return parentBased; }
+    public void setParentBased(boolean parentBased) { this.parentBased = parentBased; }
+    public String getDirectory() { return directory; }
+    public void setDirectory(String directory) { this.directory = directory; }
+    public long getMaxFileSize() { return maxFileSize; }
+    public void setMaxFileSize(long maxFileSize) { this.maxFileSize = maxFileSize; }
+    public int getMaxFiles() { return maxFiles; }
+    public void setMaxFiles(int maxFiles) { this.maxFiles = maxFiles; }
+    public int getQueueCapacity() { return queueCapacity; }
+    public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
+}
@@ -0,0 +1,237 @@
+package com.minishop.messaging.core;
+
+import com.minishop.messaging.MessagingException;
+import com.minishop.messaging.tracing.TraceContext;
+import org.springframework.context.SmartLifecycle;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Publicación asíncrona para eventos fire-and-forget: el llamante solo
+ * encola y un hilo de vaciado serializa y publica por lotes, con un flush
+ * explícito al final de cada lote. La cola admite como mucho
+ * nats.producer.max-pending mensajes; al llenarse se aplica la política
+ * configurada (esperar, fallar o descartar el más antiguo).
+ */
+public class AsyncNatsPublisher implements SmartLifecycle {
+
+    /**
+     * Qué hacer cuando la cola de pendientes está llena
+     */
+    public enum OverflowPolicy {
+        /** Espera hueco hasta el timeout del productor y después falla */
+        BLOCK,
+        /** Falla inmediatamente con MessagingException */
+        FAIL_FAST,
+        /** Descarta el pendiente más antiguo para hacer sitio */
+        DROP_OLDEST
+    }
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final NatsTemplate natsTemplate;
+    private final MessagingThreads threads;
+    private final int maxPending;
+    private final int batchSize;
+    private final OverflowPolicy overflowPolicy;
+    private final Duration timeout;
+
+    private final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final Semaphore slots;
+    private final AtomicBoolean idle = new AtomicBoolean();
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    private volatile boolean running;
+    private volatile Thread drainer;
+
+    /**
+     * @param maxPending mensajes encolados como máximo
+     * @param batchSize mensajes publicados entre flush y flush
+     * @param timeout espera máxima con BLOCK y para vaciar la cola al parar
+     */
+    public AsyncNatsPublisher(NatsTemplate natsTemplate, MessagingThreads threads, int maxPending, int batchSize,
+                              OverflowPolicy overflowPolicy, Duration timeout) {
+        if (maxPending < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("maxPending and batchSize must be positive");
+        }
+        this.natsTemplate = natsTemplate;
+        this.threads = threads;
+        this.maxPending = maxPending;
+        this.batchSize = batchSize;
+        this.overflowPolicy = overflowPolicy;
+        this.timeout = timeout;
+        this.slots = new Semaphore(maxPending);
+    }
+
+    /**
+     * Encola un mensaje para publicarlo en segundo plano. Antes de arrancar
+     * o después de parar se publica en el hilo llamante.
+     *
+     * @throws MessagingException si la cola está llena y la política es FAIL_FAST, o BLOCK y vence el timeout
+     */
+    public void publish(String subject, Object message) {
+        if (!running) {
+            natsTemplate.publish(subject, message);
+            return;
+        }
+        acquireSlot(subject);
+        // El origen y la traza se toman aquí: el hilo de vaciado no los tiene
+        queue.offer(new Pending(subject, message, EventOrigin.current(), TraceContext.current()));
+        enqueued.increment();
+        // Solo se despierta al hilo de vaciado si está parado esperando trabajo
+        if (idle.get() && idle.compareAndSet(true, false)) {
+            LockSupport.unpark(drainer);
+        }
+    }
+
+    private void acquireSlot(String subject) {
+        if (slots.tryAcquire()) {
+            return;
+        }
+        switch (overflowPolicy) {
+            case FAIL_FAST:
+                rejected.increment();
+                throw new MessagingException("Publisher queue full (" + maxPending + " pending), rejected message to " + subject);
+            case DROP_OLDEST:
+                // El mensaje descartado cede su hueco; si el hilo de vaciado se lo llevó antes, se libera uno
+                while (!slots.tryAcquire()) {
+                    if (queue.poll() != null) {
+                        dropped.increment();
+                        return;
+                    }
+                    Thread.onSpinWait();
+                }
+                return;
+            default:
+                try {
+                    if (slots.tryAcquire(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                rejected.increment();
+                throw new MessagingException("Publisher queue full (" + maxPending + " pending) for "
+                    + timeout.toMillis() + " ms, rejected message to " + subject);
+        }
+    }
+
+    private void drain() {
+        while (running || !queue.isEmpty()) {
+            if (publishBatch() == 0) {
+                idle.set(true);
+                if (queue.isEmpty() && running) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                idle.set(false);
+            }
+        }
+    }
+
+    /**
+     * Publica hasta batchSize mensajes y vacía el buffer de la conexión
+     */
+    private int publishBatch() {
+        int count = 0;
+        Pending pending;
+        while (count < batchSize && (pending = queue.poll()) != null) {
+            slots.release();
+            count++;
+            try {
+                natsTemplate.publish(pending.subject, pending.message, pending.origin, pending.trace);
+            } catch (RuntimeException e) {
+                failed.increment();
+                System.err.println("[MESSAGING] Async publish to " + pending.subject + " failed: " + e.getMessage());
+            }
+        }
+        if (count > 0) {
+            batches.increment();
+            try {
+                natsTemplate.flushBuffer();
+            } catch (IOException | IllegalStateException e) {
+                System.err.println("[MESSAGING] Async publisher could not flush: " + e.getMessage());
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        drainer = threads.newThread("nats-publisher", this::drain);
+        drainer.start();
+    }
+
+    /**
+     * Publica lo pendiente antes de que se cierre la conexión
+     */
+    @Override
+    public void stop() {
+        running = false;
+        Thread thread = drainer;
+        if (thread == null) {
+            return;
+        }
+        LockSupport.unpark(thread);
+        try {
+            thread.join(timeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Lo que se encoló mientras el hilo de vaciado terminaba
+        while (!thread.isAlive() && publishBatch() > 0) {
+        }
+        if (!queue.isEmpty()) {
+            System.err.println("[MESSAGING] Async publisher stopped with " + queue.size() + " messages pending");
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Para después del servidor web y de los listeners, que aún pueden encolar mensajes
+     */
+    @Override
+    public int getPhase() {
+        return DEFAULT_PHASE - 4096;
+    }
+
+    public int getPending() { return maxPending - slots.availablePermits(); }
+    public int getMaxPending() { return maxPending; }
+    public OverflowPolicy getOverflowPolicy() { return overflowPolicy; }
+    public long getEnqueued() { return enqueued.sum(); }
+    public long getDropped() { return dropped.sum(); }
+    public long getRejected() { return rejected.sum(); }
+    public long getFailed() { return failed.sum(); }
+    public long getBatches() { return batches.sum(); }
+
+    private static final class Pending {
+        private final String subject;
+        private final Object message;
+        private final EventOrigin origin;
+        private final TraceContext trace;
+
+        Pending(String subject, Object message, EventOrigin origin, TraceContext trace) {
+            this.subject = subject;
+            this.message = message;
+            this.origin = origin;
+            this.trace = trace;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.minishop.messaging.core;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ordena los servidores de un cluster NATS por RTT: abre una conexión TCP a
+ * cada uno y mide hasta recibir su línea INFO (conexión más el primer
+ * mensaje del servidor). Los que no responden en probeTimeout van al final,
+ * en el orden configurado. Con la lista ordenada y sin aleatorizar, jnats
+ * prueba primero el nodo más cercano.
+ */
+public class ClusterServerSelector {
+
+    private static final int DEFAULT_PORT = 4222;
+
+    private final Duration probeTimeout;
+    private volatile Map<String, Long> lastRanking = Map.of();
+
+    public ClusterServerSelector(Duration probeTimeout) {
+        this.probeTimeout = probeTimeout;
+    }
+
+    /**
+     * Servidores de menor a mayor RTT, sin duplicados
+     */
+    public List<String> rank(Collection<String> servers) {
+        Map<String, Long> rtts = new LinkedHashMap<>();
+        for (String server : new LinkedHashSet<>(servers)) {
+            rtts.put(server, probe(server));
+        }
+        List<String> ranked = new ArrayList<>(rtts.keySet());
+        // Orden estable: a igual RTT (o sin respuesta) se respeta el configurado
+        ranked.sort(Comparator.comparingLong(rtts::get));
+        Map<String, Long> ranking = new LinkedHashMap<>();
+        ranked.forEach(server -> ranking.put(server, rtts.get(server)));
+        lastRanking = ranking;
+        return ranked;
+    }
+
+    /**
+     * Microsegundos hasta el INFO del servidor, o Long.MAX_VALUE si no responde
+     */
+    long probe(String server) {
+        URI uri = URI.create(server.contains("://") ? server : "nats://" + server);
+        int port = uri.getPort() > 0 ? uri.getPort() : DEFAULT_PORT;
+        int timeout = (int) probeTimeout.toMillis();
+        long start = System.nanoTime();
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(uri.getHost(), port), timeout);
+            socket.setSoTimeout(timeout);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            String line = reader.readLine();
+            if (line == null || !line.startsWith("INFO")) {
+                return Long.MAX_VALUE;
+            }
+            return (System.nanoTime() - start) / 1000;
+        } catch (IOException | IllegalArgumentException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * RTT en microsegundos de la última ordenación (Long.MAX_VALUE = sin respuesta)
+     */
+    public Map<String, Long> getLastRanking() {
+        return lastRanking;
+    }
+
+    /**
+     * Mismo host y puerto, con o sin esquema
+     */
+    static boolean sameServer(String a, String b) {
+        if (a == null || b == null) {
+            return false;
+        }
+        URI first = URI.create(a.contains("://") ? a : "nats://" + a);
+        URI second = URI.create(b.contains("://") ? b : "nats://" + b);
+        return first.getHost().equalsIgnoreCase(second.getHost())
+            && (first.getPort() > 0 ? first.getPort() : DEFAULT_PORT) == (second.getPort() > 0 ? second.getPort() : DEFAULT_PORT);
+    }
+
+    public static String describe(Map<String, Long> ranking) {
+        List<String> parts = new ArrayList<>();
+        ranking.forEach((server, rtt) -> parts.add(server + " " + (rtt == Long.MAX_VALUE ? "unreachable" : rtt + " us")));
+        return String.join(", ", parts);
+    }
+}
@@ -0,0 +1,89 @@
+package com.minishop.messaging.core;
+
+import io.nats.client.Message;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plazo de una petición compartido por todos sus saltos (REST → NATS →
+ * responder → NATS...). Entre procesos viaja como tiempo restante en
+ * milisegundos en la cabecera X-Request-Timeout, no como hora absoluta, para
+ * no depender de que los relojes estén sincronizados; cada salto lo convierte
+ * en un instante de su propio reloj al recibirlo.
+ * El plazo en curso es por hilo: lo fijan el filtro HTTP y los listeners.
+ */
+public final class Deadline {
+
+    public static final String HEADER = "X-Request-Timeout";
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long expiresAtNanos;
+
+    private Deadline(long expiresAtNanos) {
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    public static Deadline afterMillis(long millis) {
+        return new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    /**
+     * Plazo a partir del valor de la cabecera, contado desde receivedAtNanos;
+     * null si no hay cabecera o no es un número
+     */
+    public static Deadline parse(String header, long receivedAtNanos) {
+        if (header == null || header.isBlank()) {
+            return null;
+        }
+        try {
+            return new Deadline(receivedAtNanos + TimeUnit.MILLISECONDS.toNanos(Long.parseLong(header.trim())));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public static Deadline of(Message message, long receivedAtNanos) {
+        return parse(EventHeaders.get(message, HEADER), receivedAtNanos);
+    }
+
+    /**
+     * Plazo del hilo actual, o null si no hay
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Fija el plazo en curso del hilo y devuelve el anterior, que se
+     * restaura con {@link #restore} en un finally
+     */
+    public static Deadline enter(Deadline deadline) {
+        Deadline previous = CURRENT.get();
+        CURRENT.set(deadline);
+        return previous;
+    }
+
+    public static void restore(Deadline previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    public long remainingMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(expiresAtNanos - System.nanoTime());
+    }
+
+    public boolean isExpired() {
+        return expiresAtNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Valor de la cabecera para el siguiente salto
+     */
+    public String toHeader() {
+        return Long.toString(Math.max(0, remainingMillis()));
+    }
+}
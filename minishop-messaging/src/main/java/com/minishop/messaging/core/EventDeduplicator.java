@@ -0,0 +1,219 @@
+package com.minishop.messaging.core;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ids de evento (ce-id) ya procesados, para consumidores idempotentes, en
+ * memoria acotada. La ventana se reparte en cubos de tiempo con un filtro
+ * de Bloom cada uno: se inserta en el cubo actual, se consultan todos, y al
+ * pasar el tiempo de un cubo el más antiguo se vacía y pasa a ser el
+ * actual. Un "no" de los filtros es seguro y es el caso común; un "sí" se
+ * confirma en el conjunto exacto de los ids más recientes. Si el cubo que
+ * responde empezó después que el id más antiguo del conjunto, todo lo que
+ * contiene está en el conjunto y no encontrarlo ahí prueba un falso
+ * positivo: el evento se entrega. Si el cubo es anterior no se puede
+ * distinguir un duplicado antiguo de un falso positivo (probabilidad fpp) y
+ * se trata como duplicado: con fpp 1e-6 son unos 29 bits por id.
+ */
+public class EventDeduplicator {
+
+    private final Bucket[] buckets;
+    private final long bucketNanos;
+    private final int recentCapacity;
+    // Id -> momento en que se registró (nanoTime), en orden de inserción
+    private final LinkedHashMap<String, Long> recent;
+    private int current;
+    private long currentStart;
+
+    private final LongAdder checked = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder probableDuplicates = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    /**
+     * @param window tiempo durante el que se recuerda un id
+     * @param bucketCount cubos en que se divide la ventana (precisión de la caducidad)
+     * @param expectedIds ids esperados por ventana, repartidos entre los cubos; si un cubo recibe más
+     *                    de su parte, sube su tasa de falsos positivos
+     * @param fpp probabilidad de falso positivo de cada filtro
+     * @param recentCapacity ids recientes guardados de forma exacta
+     */
+    public EventDeduplicator(Duration window, int bucketCount, long expectedIds, double fpp, int recentCapacity) {
+        if (bucketCount < 1 || expectedIds < 1 || fpp <= 0 || fpp >= 1) {
+            throw new IllegalArgumentException("Invalid dedup sizing: buckets " + bucketCount + ", ids " + expectedIds + ", fpp " + fpp);
+        }
+        long perBucket = Math.max(1, expectedIds / bucketCount);
+        // m = -n ln p / (ln 2)^2 bits, k = m/n ln 2 funciones hash
+        long bits = (long) Math.ceil(-perBucket * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        int hashes = Math.max(1, (int) Math.round((double) bits / perBucket * Math.log(2)));
+        this.buckets = new Bucket[bucketCount];
+        this.currentStart = System.nanoTime();
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = new Bucket(bits, hashes, currentStart);
+        }
+        this.bucketNanos = Math.max(1, window.toNanos() / bucketCount);
+        this.recentCapacity = recentCapacity;
+        this.recent = new LinkedHashMap<>(recentCapacity * 4 / 3 + 1, 0.75f) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > EventDeduplicator.this.recentCapacity;
+            }
+        };
+    }
+
+    /**
+     * Registra el id y devuelve true si es la primera vez que se ve en la ventana
+     */
+    public synchronized boolean markSeen(String id) {
+        if (contains(id)) {
+            return false;
+        }
+        add(id);
+        return true;
+    }
+
+    /**
+     * Si el id ya se vio, sin registrarlo: para quien solo lo registra tras
+     * procesarlo con éxito (consumidores con ack y reentrega)
+     */
+    public synchronized boolean contains(String id) {
+        checked.increment();
+        rotate(System.nanoTime());
+        long h1 = hash(id);
+        long h2 = mix(h1);
+        boolean inRecent = false;
+        boolean hit = false;
+        for (Bucket bucket : buckets) {
+            if (!bucket.mightContain(h1, h2)) {
+                continue;
+            }
+            hit = true;
+            inRecent = inRecent || recent.containsKey(id);
+            if (inRecent || !coveredByRecent(bucket)) {
+                duplicates.increment();
+                if (!inRecent) {
+                    probableDuplicates.increment();
+                }
+                return true;
+            }
+            // Falso positivo demostrado en este cubo: se siguen mirando los demás
+        }
+        if (hit) {
+            falsePositives.increment();
+        }
+        return false;
+    }
+
+    /**
+     * Registra el id sin comprobarlo
+     */
+    public synchronized void add(String id) {
+        long now = System.nanoTime();
+        rotate(now);
+        long h1 = hash(id);
+        buckets[current].put(h1, mix(h1));
+        recent.putIfAbsent(id, now);
+    }
+
+    /**
+     * Todos los ids del cubo están en el conjunto exacto: el cubo empezó
+     * después del más antiguo que conserva, o el conjunto no ha descartado nada
+     */
+    private boolean coveredByRecent(Bucket bucket) {
+        if (recent.size() < recentCapacity) {
+            return true;
+        }
+        long oldest = recent.values().iterator().next();
+        return bucket.start - oldest >= 0;
+    }
+
+    /**
+     * Avanza los cubos que hayan vencido; tras una ventana entera sin uso se vacían todos
+     */
+    private void rotate(long now) {
+        long elapsed = now - currentStart;
+        if (elapsed < bucketNanos) {
+            return;
+        }
+        long steps = Math.min(buckets.length, elapsed / bucketNanos);
+        currentStart += (elapsed / bucketNanos) * bucketNanos;
+        for (long i = 0; i < steps; i++) {
+            current = (current + 1) % buckets.length;
+            buckets[current].clear(currentStart);
+        }
+    }
+
+    // FNV-1a de 64 bits sobre los caracteres del id
+    private static long hash(String id) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); i++) {
+            hash ^= id.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // Finalizador de splitmix64: segundo hash independiente a partir del primero
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+
+    /**
+     * Memoria de los filtros en bytes (sin el conjunto exacto)
+     */
+    public long getFilterBytes() {
+        return (long) buckets.length * buckets[0].words.length * Long.BYTES;
+    }
+
+    public int getHashes() { return buckets[0].hashes; }
+    public long getChecked() { return checked.sum(); }
+    public long getDuplicates() { return duplicates.sum(); }
+    public long getProbableDuplicates() { return probableDuplicates.sum(); }
+    public long getFalsePositives() { return falsePositives.sum(); }
+
+    /**
+     * Filtro de Bloom con k posiciones h1 + i*h2 (Kirsch-Mitzenmacher)
+     */
+    private static final class Bucket {
+        private final long[] words;
+        private final long bits;
+        private final int hashes;
+        // Desde cuándo recibe ids (nanoTime)
+        private long start;
+
+        Bucket(long bits, int hashes, long start) {
+            this.words = new long[(int) ((bits + 63) / 64)];
+            this.bits = (long) words.length * 64;
+            this.hashes = hashes;
+            this.start = start;
+        }
+
+        void put(long h1, long h2) {
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bits);
+                words[(int) (bit >>> 6)] |= 1L << bit;
+            }
+        }
+
+        boolean mightContain(long h1, long h2) {
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bits);
+                if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void clear(long start) {
+            Arrays.fill(words, 0);
+            this.start = start;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.minishop.messaging.core;
+
+import com.minishop.messaging.event.RoutableEvent;
+import io.nats.client.Message;
+import io.nats.client.NUID;
+import io.nats.client.impl.Headers;
+
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Cabeceras CloudEvents (modo binario: atributos en cabeceras "ce-") de los
+ * eventos publicados. Tipo, versión, clave y hora viajan fuera del cuerpo
+ * para enrutar, filtrar y repartir en carriles sin deserializarlo.
+ */
+public final class EventHeaders {
+
+    public static final String SPEC_VERSION = "ce-specversion";
+    public static final String ID = "ce-id";
+    public static final String SOURCE = "ce-source";
+    public static final String TYPE = "ce-type";
+    public static final String TIME = "ce-time";
+    public static final String SUBJECT = "ce-subject";
+    // Extensiones: partitioning (partitionkey) y versión del evento
+    public static final String PARTITION_KEY = "ce-partitionkey";
+    public static final String EVENT_VERSION = "ce-eventversion";
+
+    private EventHeaders() {
+    }
+
+    /**
+     * Añade las cabeceras del evento a las del mensaje
+     */
+    public static Headers apply(Headers headers, RoutableEvent event, String source) {
+        headers.put(SPEC_VERSION, "1.0");
+        headers.put(ID, stamp(event));
+        headers.put(TYPE, event.eventType());
+        headers.put(EVENT_VERSION, Integer.toString(event.eventVersion()));
+        if (source != null) {
+            headers.put(SOURCE, source);
+        }
+        if (event.eventKey() != null) {
+            headers.put(SUBJECT, event.eventKey());
+            headers.put(PARTITION_KEY, event.eventKey());
+        }
+        if (event.eventTime() != null) {
+            // RFC 3339 con zona: los eventos llevan hora local del servicio
+            headers.put(TIME, DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(event.eventTime().atZone(ZoneId.systemDefault())));
+        }
+        return headers;
+    }
+
+    /**
+     * Id del evento, que se asigna la primera vez: los reenvíos del mismo
+     * objeto (outbox, reintentos) salen con el mismo ce-id
+     */
+    public static String stamp(RoutableEvent event) {
+        String id = event.eventId();
+        if (id == null) {
+            id = NUID.nextGlobal();
+            event.assignEventId(id);
+        }
+        return id;
+    }
+
+    public static String id(Message message) {
+        return get(message, ID);
+    }
+
+    /**
+     * Tipo del evento, o null si el mensaje no trae cabeceras CloudEvents
+     */
+    public static String type(Message message) {
+        return get(message, TYPE);
+    }
+
+    public static String partitionKey(Message message) {
+        return get(message, PARTITION_KEY);
+    }
+
+    public static String get(Message message, String name) {
+        return message.hasHeaders() ? message.getHeaders().getFirst(name) : null;
+    }
+}
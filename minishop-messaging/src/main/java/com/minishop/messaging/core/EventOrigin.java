@@ -0,0 +1,99 @@
+package com.minishop.messaging.core;
+
+import io.nats.client.Message;
+
+import java.time.Instant;
+
+/**
+ * Instante de la acción que originó una cadena de eventos (p. ej. el
+ * POST /orders), en microsegundos desde epoch. Viaja en la cabecera
+ * ce-origintime y los eventos derivados la heredan: los listeners la dejan
+ * como origen en curso del hilo mientras se ejecuta el handler, y lo que
+ * publique el handler la lleva. Entre servicios es hora de reloj, así que
+ * la latencia medida en otro servicio incluye el desfase entre relojes.
+ */
+public final class EventOrigin {
+
+    // Extensión CloudEvents (modo binario), junto a las de EventHeaders
+    public static final String HEADER = "ce-origintime";
+
+    private static final ThreadLocal<EventOrigin> CURRENT = new ThreadLocal<>();
+
+    private final long epochMicros;
+
+    private EventOrigin(long epochMicros) {
+        this.epochMicros = epochMicros;
+    }
+
+    public static EventOrigin now() {
+        return new EventOrigin(nowMicros());
+    }
+
+    /**
+     * Origen guardado antes (p. ej. en el outbox)
+     */
+    public static EventOrigin ofEpochMicros(long epochMicros) {
+        return new EventOrigin(epochMicros);
+    }
+
+    /**
+     * Origen del mensaje, o null si no trae cabecera o no es un número
+     */
+    public static EventOrigin of(Message message) {
+        String header = EventHeaders.get(message, HEADER);
+        if (header == null || header.isBlank()) {
+            return null;
+        }
+        try {
+            return new EventOrigin(Long.parseLong(header.trim()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Origen del hilo actual, o null si no hay
+     */
+    public static EventOrigin current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Fija el origen en curso del hilo y devuelve el anterior, que se
+     * restaura con {@link #restore} en un finally
+     */
+    public static EventOrigin enter(EventOrigin origin) {
+        EventOrigin previous = CURRENT.get();
+        CURRENT.set(origin);
+        return previous;
+    }
+
+    public static void restore(EventOrigin previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    public long getEpochMicros() {
+        return epochMicros;
+    }
+
+    /**
+     * Microsegundos transcurridos desde el origen; 0 si el reloj de este
+     * servicio va por detrás del que lo fijó
+     */
+    public long elapsedMicros() {
+        return Math.max(0, nowMicros() - epochMicros);
+    }
+
+    public String toHeader() {
+        return Long.toString(epochMicros);
+    }
+
+    private static long nowMicros() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000 + now.getNano() / 1_000;
+    }
+}
@@ -0,0 +1,58 @@
+package com.minishop.messaging.core;
+
+import io.nats.client.Consumer;
+
+import java.util.function.IntSupplier;
+
+/**
+ * Recibe lo que hace la mensajería para medirlo: cada publicación, petición
+ * y mensaje consumido con su subject y duración, y cada suscripción para
+ * leer sus pendientes. La implementación con Micrometer está en
+ * {@code metrics}; sin Micrometer se usa {@link #NOOP}.
+ */
+public interface MessagingObserver {
+
+    MessagingObserver NOOP = new MessagingObserver() {
+    };
+
+    /**
+     * Publicación (codificación incluida)
+     */
+    default void published(String subject, int bytes, long nanos, boolean success) {
+    }
+
+    /**
+     * Petición desde el envío hasta la respuesta decodificada, el fallo o el timeout
+     */
+    default void requested(String subject, long nanos, boolean success) {
+    }
+
+    /**
+     * Mensaje entregado a un handler
+     *
+     * @param subject subject de la suscripción (el patrón, no el del mensaje)
+     * @param decodeNanos decodificación de los argumentos, -1 si la hace el propio handler
+     */
+    default void consumed(String listener, String subject, long decodeNanos, long handlerNanos, boolean success) {
+    }
+
+    /**
+     * Suscripción nueva, para exponer sus mensajes y bytes pendientes
+     */
+    default void subscribed(String listener, String subject, Consumer consumer) {
+    }
+
+    /**
+     * La suscripción superó sus límites de pendientes y jnats descartó mensajes
+     *
+     * @param dropped mensajes descartados desde el aviso anterior
+     */
+    default void slowConsumer(String listener, String subject, long dropped) {
+    }
+
+    /**
+     * Listener con hilos adaptativos, para exponer cuántos tiene en cada momento
+     */
+    default void adaptiveWorkers(String listener, String subject, IntSupplier workers) {
+    }
+}
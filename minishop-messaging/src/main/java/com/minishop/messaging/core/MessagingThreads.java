@@ -0,0 +1,88 @@
+package com.minishop.messaging.core;
+
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Origen de los hilos de la mensajería: carriles, consumidores y ejecutor
+ * interno de jnats. Con spring.threads.virtual.enabled=true en Java 21 son
+ * hilos virtuales; en otro caso, hilos de plataforma daemon como hasta ahora.
+ */
+public class MessagingThreads {
+    
+    private final boolean virtual;
+    private final ThreadFactory threadFactory;
+    private final List<ExecutorService> workers = new CopyOnWriteArrayList<>();
+    
+    public MessagingThreads(boolean virtual) {
+        this.virtual = virtual;
+        this.threadFactory = virtual
+            ? new VirtualThreadTaskExecutor("nats-").getVirtualThreadFactory()
+            : MessagingThreads::platformThread;
+    }
+    
+    public boolean isVirtual() {
+        return virtual;
+    }
+    
+    /**
+     * Crea (sin arrancar) un hilo con el nombre indicado
+     */
+    public Thread newThread(String name, Runnable task) {
+        Thread thread = threadFactory.newThread(task);
+        thread.setName(name);
+        return thread;
+    }
+    
+    /**
+     * Ejecutor para los hilos internos de jnats (lectura, escritura, Dispatchers).
+     * Null en modo plataforma: jnats usa su pool por defecto.
+     */
+    public ExecutorService newConnectionExecutor() {
+        if (!virtual) {
+            return null;
+        }
+        try {
+            // Executors.newThreadPerTaskExecutor es de Java 21; el módulo compila para 17
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                .invoke(null, threadFactory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads require Java 21", e);
+        }
+    }
+    
+    /**
+     * Ejecutor para trabajo de CPU fuera de los hilos de E/S de jnats (p. ej.
+     * decodificar respuestas): un hilo virtual por tarea, o un pool fijo de
+     * hilos de plataforma. Se apaga en close().
+     */
+    public ExecutorService newWorkerExecutor(String name, int platformThreads) {
+        ExecutorService executor;
+        if (virtual) {
+            executor = newConnectionExecutor();
+        } else {
+            AtomicInteger count = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(platformThreads,
+                task -> newThread(name + "-" + count.getAndIncrement(), task));
+        }
+        workers.add(executor);
+        return executor;
+    }
+    
+    public void close() {
+        workers.forEach(ExecutorService::shutdown);
+        workers.clear();
+    }
+    
+    private static Thread platformThread(Runnable task) {
+        Thread thread = new Thread(task);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
@@ -0,0 +1,261 @@
+package com.minishop.messaging.core;
+
+import com.minishop.messaging.config.NatsProperties;
+import io.nats.client.Connection;
+import io.nats.client.ConnectionListener;
+import io.nats.client.Consumer;
+import io.nats.client.ErrorListener;
+import io.nats.client.Nats;
+import io.nats.client.Options;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Crea la conexión NATS de cada servicio con una única configuración afinada:
+ * nombre de conexión para la monitorización del servidor, buffers y cola de
+ * salida configurables, limpieza de requests caducadas y trazas de eventos.
+ * Con hilos virtuales activos, los hilos internos de jnats también lo son.
+ * En modo cluster, los servidores se prueban del de menor RTT al de mayor;
+ * se sondean una sola vez por factoría y todas sus conexiones (la principal
+ * y las de publicación) usan el mismo orden. Cuando el cluster anuncia
+ * servidores nuevos o uno entra en lame duck, se vuelven a sondear (una vez
+ * por factoría, el lame duck al final) y las conexiones que no están en el
+ * primero del ranking se reconectan a él con forceReconnect.
+ */
+public class NatsConnectionFactory {
+    
+    private final NatsProperties natsProperties;
+    private final String connectionName;
+    private final String logPrefix;
+    private final MessagingThreads threads;
+    private final List<ExecutorService> executors = new CopyOnWriteArrayList<>();
+    private final List<ConnectionListener> listeners = new CopyOnWriteArrayList<>();
+    private final List<Connection> connections = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean rebalancing = new AtomicBoolean();
+    private final ClusterServerSelector serverSelector;
+    // Configurados, ordenados por RTT con la primera conexión
+    private List<String> clusterServers;
+    private boolean ranked;
+    
+    public NatsConnectionFactory(NatsProperties natsProperties, String connectionName) {
+        this(natsProperties, connectionName, new MessagingThreads(false));
+    }
+    
+    public NatsConnectionFactory(NatsProperties natsProperties, String connectionName, MessagingThreads threads) {
+        this.natsProperties = natsProperties;
+        this.connectionName = connectionName;
+        this.logPrefix = "[" + connectionName.toUpperCase() + "] ";
+        this.threads = threads;
+        NatsProperties.Cluster cluster = natsProperties.getCluster();
+        this.serverSelector = new ClusterServerSelector(Duration.ofMillis(cluster.getProbeTimeout()));
+        this.clusterServers = cluster.getServers() != null ? List.of(cluster.getServers()) : List.of();
+    }
+    
+    public Options options() {
+        return options(connectionName);
+    }
+    
+    /**
+     * @param name nombre de la conexión en la monitorización del servidor
+     */
+    public Options options(String name) {
+        NatsProperties.Connection connection = natsProperties.getConnection();
+        Options.Builder builder = new Options.Builder()
+            .connectionName(name)
+            .connectionTimeout(Duration.ofMillis(connection.getTimeout()))
+            .pingInterval(Duration.ofMillis(connection.getPingInterval()))
+            .maxReconnects(connection.getMaxReconnect())
+            .reconnectWait(Duration.ofMillis(connection.getReconnectWait()))
+            .requestCleanupInterval(Duration.ofMillis(connection.getCleanupInterval()))
+            .bufferSize(connection.getBufferSize())
+            .maxMessagesInOutgoingQueue(connection.getOutgoingQueueSize())
+            .connectionListener(this::connectionEvent)
+            .errorListener(new LoggingErrorListener());
+        
+        ExecutorService executor = threads.newConnectionExecutor();
+        if (executor != null) {
+            // jnats no apaga un ejecutor propio: se cierra en close()
+            executors.add(executor);
+            builder.executor(executor);
+        }
+        
+        NatsProperties.Cluster cluster = natsProperties.getCluster();
+        if (cluster.isEnabled() && !clusterServers.isEmpty()) {
+            if (cluster.isPreferLowestRtt()) {
+                builder.servers(rankedServers().toArray(new String[0])).noRandomize().serverPool(new RankedServerPool());
+            } else {
+                builder.servers(clusterServers.toArray(new String[0]));
+            }
+        } else {
+            builder.server(natsProperties.getUrl());
+        }
+        return builder.build();
+    }
+    
+    /**
+     * Sondea los servidores la primera vez; las conexiones siguientes reutilizan el orden
+     */
+    private synchronized List<String> rankedServers() {
+        if (!ranked) {
+            clusterServers = serverSelector.rank(clusterServers);
+            ranked = true;
+            System.out.println(logPrefix + "NATS servers by RTT: " + ClusterServerSelector.describe(serverSelector.getLastRanking()));
+        }
+        return clusterServers;
+    }
+    
+    public Connection connect() throws IOException, InterruptedException {
+        return Nats.connect(options());
+    }
+    
+    /**
+     * Conexión adicional del servicio, p. ej. las de publicación "orders-service-pub-0"
+     */
+    public Connection connect(String nameSuffix) throws IOException, InterruptedException {
+        return Nats.connect(options(connectionName + "-" + nameSuffix));
+    }
+    
+    /**
+     * Recibe también los eventos de las conexiones creadas por esta factoría (p. ej. el spool de publicación)
+     */
+    public void addConnectionListener(ConnectionListener listener) {
+        listeners.add(listener);
+    }
+    
+    /**
+     * Apaga los ejecutores creados para las conexiones, ya cerradas
+     */
+    public void close() {
+        executors.forEach(ExecutorService::shutdown);
+        executors.clear();
+    }
+    
+    private void connectionEvent(Connection conn, ConnectionListener.Events type) {
+        switch (type) {
+            case CONNECTED:
+                connections.add(conn);
+                System.out.println(logPrefix + "Connected to NATS server: " + conn.getConnectedUrl());
+                break;
+            case DISCONNECTED:
+                System.out.println(logPrefix + "Disconnected from NATS server");
+                break;
+            case RECONNECTED:
+                System.out.println(logPrefix + "Reconnected to NATS server: " + conn.getConnectedUrl());
+                break;
+            case CLOSED:
+                connections.remove(conn);
+                System.out.println(logPrefix + "Connection to NATS server closed");
+                break;
+            case LAME_DUCK:
+                System.out.println(logPrefix + "NATS server entered lame duck mode: " + conn.getConnectedUrl());
+                rebalance(conn, conn.getConnectedUrl());
+                break;
+            case DISCOVERED_SERVERS:
+                System.out.println(logPrefix + "Discovered new NATS servers: " + conn.getServers());
+                rebalance(conn, null);
+                break;
+            case RESUBSCRIBED:
+                System.out.println(logPrefix + "Resubscribed to NATS subjects");
+                break;
+            default:
+                System.out.println(logPrefix + "Unknown NATS connection event: " + type);
+                break;
+        }
+        listeners.forEach(listener -> listener.connectionEvent(conn, type));
+    }
+    
+    /**
+     * Cada conexión recibe el evento: la primera lanza el sondeo y las demás lo comparten
+     */
+    private void rebalance(Connection conn, String lameDuck) {
+        NatsProperties.Cluster cluster = natsProperties.getCluster();
+        if (!cluster.isEnabled() || !cluster.isPreferLowestRtt()) {
+            return;
+        }
+        Set<String> servers = new LinkedHashSet<>(getClusterServers());
+        conn.getServers().stream()
+            .filter(discovered -> servers.stream().noneMatch(known -> ClusterServerSelector.sameServer(known, discovered)))
+            .forEach(servers::add);
+        if (servers.isEmpty() || !rebalancing.compareAndSet(false, true)) {
+            return;
+        }
+        threads.newThread("nats-cluster-rebalance", () -> {
+            try {
+                rebalance(servers, lameDuck);
+            } finally {
+                rebalancing.set(false);
+            }
+        }).start();
+    }
+    
+    void rebalance(Set<String> servers, String lameDuck) {
+        List<String> ranking = new ArrayList<>(serverSelector.rank(servers));
+        // El lame duck cerrará sus conexiones: se queda como último recurso
+        if (lameDuck != null) {
+            List<String> leaving = ranking.stream().filter(server -> ClusterServerSelector.sameServer(server, lameDuck)).toList();
+            ranking.removeAll(leaving);
+            ranking.addAll(leaving);
+        }
+        synchronized (this) {
+            clusterServers = List.copyOf(ranking);
+        }
+        Map<String, Long> rtts = new LinkedHashMap<>();
+        ranking.forEach(server -> rtts.put(server, serverSelector.getLastRanking().get(server)));
+        System.out.println(logPrefix + "NATS servers by RTT: " + ClusterServerSelector.describe(rtts)
+            + (lameDuck != null ? " (lame duck: " + lameDuck + ")" : ""));
+        
+        String best = ranking.get(0);
+        for (Connection connection : connections) {
+            if (connection.getOptions().getServerPool() instanceof RankedServerPool pool) {
+                pool.prefer(ranking);
+            }
+            if (connection.getStatus() == Connection.Status.CONNECTED
+                && !ClusterServerSelector.sameServer(connection.getConnectedUrl(), best)) {
+                try {
+                    System.out.println(logPrefix + "Moving NATS connection from " + connection.getConnectedUrl() + " to " + best);
+                    connection.forceReconnect();
+                } catch (IOException e) {
+                    System.err.println(logPrefix + "Could not move NATS connection to " + best + ": " + e.getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Servidores del cluster en el orden en que se probarán
+     */
+    public synchronized List<String> getClusterServers() {
+        return clusterServers;
+    }
+    
+    private class LoggingErrorListener implements ErrorListener {
+        
+        @Override
+        public void errorOccurred(Connection conn, String error) {
+            System.err.println(logPrefix + "NATS error: " + error);
+        }
+        
+        @Override
+        public void exceptionOccurred(Connection conn, Exception exp) {
+            System.err.println(logPrefix + "NATS exception: " + exp);
+        }
+        
+        @Override
+        public void slowConsumerDetected(Connection conn, Consumer consumer) {
+            System.err.println(logPrefix + "NATS slow consumer detected, dropped so far: " + consumer.getDroppedCount());
+        }
+    }
+}
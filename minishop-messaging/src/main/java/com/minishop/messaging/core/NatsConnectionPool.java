@@ -0,0 +1,83 @@
+package com.minishop.messaging.core;
+
+import io.nats.client.Connection;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Conexiones NATS para publicar, aparte de la que usan las suscripciones.
+ * Cada conexión tiene su propio hilo de escritura, así que con varias la
+ * publicación escala con los núcleos en lugar de quedarse en un solo
+ * escritor, y publicar mucho no retrasa lo que reciben los listeners.
+ * La conexión se elige por clave: los mensajes de una misma clave van
+ * siempre por la misma y mantienen su orden.
+ */
+public class NatsConnectionPool implements AutoCloseable {
+
+    private final Connection[] connections;
+    // Las conexiones se cierran con el pool; la compartida la cierra su bean
+    private final boolean owned;
+    private final AtomicInteger roundRobin = new AtomicInteger();
+
+    public NatsConnectionPool(List<Connection> connections, boolean owned) {
+        if (connections.isEmpty()) {
+            throw new IllegalArgumentException("A connection pool needs at least one connection");
+        }
+        this.connections = connections.toArray(new Connection[0]);
+        this.owned = owned;
+    }
+
+    /**
+     * Sin conexiones dedicadas: todo se publica por la conexión compartida
+     */
+    public static NatsConnectionPool shared(Connection connection) {
+        return new NatsConnectionPool(List.of(connection), false);
+    }
+
+    /**
+     * Conexión para una clave; sin clave se reparte en turno rotatorio
+     */
+    public Connection connectionFor(String key) {
+        if (connections.length == 1) {
+            return connections[0];
+        }
+        if (key == null) {
+            return connections[Math.floorMod(roundRobin.getAndIncrement(), connections.length)];
+        }
+        int hash = key.hashCode();
+        return connections[Math.floorMod(hash ^ (hash >>> 16), connections.length)];
+    }
+
+    /**
+     * Vacía el buffer de salida de todas las conexiones
+     */
+    public void flushBuffers() throws IOException {
+        for (Connection connection : connections) {
+            connection.flushBuffer();
+        }
+    }
+
+    public int size() {
+        return connections.length;
+    }
+
+    public List<Connection> getConnections() {
+        return List.of(connections);
+    }
+
+    public boolean isShared() {
+        return !owned;
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        if (!owned) {
+            return;
+        }
+        for (Connection connection : connections) {
+            connection.close();
+        }
+    }
+}
@@ -0,0 +1,430 @@
+package com.minishop.messaging.core;
+
+import com.minishop.messaging.codec.EventTypeRegistry;
+import com.minishop.messaging.codec.MessageCodec;
+import com.minishop.messaging.codec.PayloadCompressor;
+import com.minishop.messaging.event.RoutableEvent;
+import com.minishop.messaging.jfr.EventPublishEvent;
+import com.minishop.messaging.tracing.Span;
+import com.minishop.messaging.tracing.TraceContext;
+import com.minishop.messaging.tracing.Tracer;
+import io.nats.client.Connection;
+import io.nats.client.Dispatcher;
+import io.nats.client.Message;
+import io.nats.client.MessageHandler;
+import io.nats.client.impl.Headers;
+import io.nats.client.impl.NatsMessage;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Operaciones NATS comunes a todos los servicios: publicar, pedir/responder
+ * y suscribir, con la codificación y las métricas básicas incluidas
+ */
+public class NatsTemplate {
+    
+    private final Connection connection;
+    private final MessageCodec codec;
+    private final EventTypeRegistry eventTypes;
+    private final Duration requestTimeout;
+    private final Executor responseExecutor;
+    private final RequestHedging hedging;
+    private final MessagingObserver observer;
+    private final PublishSpools spools;
+    private final NatsConnectionPool publishers;
+    private final Tracer tracer;
+    private final String source;
+    
+    private final LongAdder published = new LongAdder();
+    private final LongAdder publishedBytes = new LongAdder();
+    private final LongAdder publishErrors = new LongAdder();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder requestErrors = new LongAdder();
+    private final LongAdder expiredRequests = new LongAdder();
+    
+    /**
+     * Plantilla con los valores por defecto: sin cobertura, sin spool, sin
+     * trazas y publicando por la misma conexión que las suscripciones
+     */
+    public static Builder builder(Connection connection, MessageCodec codec) {
+        return new Builder(connection, codec);
+    }
+    
+    private NatsTemplate(Builder builder) {
+        this.connection = builder.connection;
+        this.codec = builder.codec;
+        this.eventTypes = builder.eventTypes != null ? builder.eventTypes : new EventTypeRegistry(codec);
+        this.requestTimeout = builder.requestTimeout;
+        this.responseExecutor = builder.responseExecutor;
+        this.hedging = builder.hedging;
+        this.observer = builder.observer;
+        this.spools = builder.spools;
+        this.publishers = builder.publishers != null ? builder.publishers : NatsConnectionPool.shared(connection);
+        this.tracer = builder.tracer;
+        // ce-source: el nombre de conexión es el del servicio
+        this.source = connection.getOptions() != null ? connection.getOptions().getConnectionName() : null;
+    }
+    
+    /**
+     * Publica un mensaje en un subject específico, con el origen y la traza en curso del hilo si los hay
+     */
+    public void publish(String subject, Object message) {
+        publish(subject, message, EventOrigin.current(), TraceContext.current());
+    }
+    
+    /**
+     * Publica con un origen explícito, para quien publica desde otro hilo que el que lo tenía
+     */
+    public void publish(String subject, Object message, EventOrigin origin) {
+        publish(subject, message, origin, TraceContext.current());
+    }
+    
+    /**
+     * Publica con origen y traza explícitos (publicación diferida: cola asíncrona, outbox)
+     */
+    public void publish(String subject, Object message, EventOrigin origin, TraceContext trace) {
+        long start = System.nanoTime();
+        Span span = tracer.start("publish " + subject, Span.Kind.PRODUCER, trace);
+        EventPublishEvent jfr = new EventPublishEvent();
+        jfr.begin();
+        try {
+            if (message instanceof RoutableEvent) {
+                // Antes de codificar: el id viaja en el cuerpo y en ce-id
+                EventHeaders.stamp((RoutableEvent) message);
+            }
+            byte[] encoded = eventTypes.encode(subject, message);
+            byte[] data = codec.compress(encoded);
+            if (span.isRecording()) {
+                span.tag("messaging.subject", subject).tag("messaging.key", eventKey(message))
+                    .tag("messaging.bytes", data.length);
+            }
+            Headers headers = headers(message, data != encoded, null, origin, span.context());
+            Connection publisher = publisherFor(subject, message);
+            PublishSpool spool = spools != null ? spools.spoolFor(publisher) : null;
+            boolean spooled = spool != null && spool.shouldSpool();
+            if (spooled) {
+                // Se reenvía en orden por la misma conexión al reconectar
+                spool.append(subject, headers, data);
+            } else if (headers == null) {
+                publisher.publish(subject, data);
+            } else {
+                publisher.publish(NatsMessage.builder().subject(subject).headers(headers).data(data).build());
+            }
+            published.increment();
+            publishedBytes.add(data.length);
+            observer.published(subject, data.length, System.nanoTime() - start, true);
+            jfr.record(subject, eventKey(message), eventType(message), data.length, spooled, true);
+        } catch (RuntimeException e) {
+            publishErrors.increment();
+            observer.published(subject, 0, System.nanoTime() - start, false);
+            jfr.record(subject, eventKey(message), eventType(message), 0, false, false);
+            span.error(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+    
+    /**
+     * Los eventos de una misma entidad (ce-partitionkey) y, sin clave, los de un mismo subject salen por la misma conexión
+     */
+    private Connection publisherFor(String subject, Object message) {
+        String key = eventKey(message);
+        return publishers.connectionFor(key != null ? key : subject);
+    }
+    
+    private static String eventKey(Object message) {
+        return message instanceof RoutableEvent ? ((RoutableEvent) message).eventKey() : null;
+    }
+    
+    private static String eventType(Object message) {
+        return message instanceof RoutableEvent ? ((RoutableEvent) message).eventType() : null;
+    }
+    
+    /**
+     * Vacía el buffer de salida de las conexiones de publicación
+     */
+    public void flushBuffer() throws IOException {
+        publishers.flushBuffers();
+    }
+    
+    /**
+     * Publica un mensaje y espera respuesta sin bloquear ningún hilo, con el
+     * timeout del productor
+     */
+    public <T> CompletableFuture<T> request(String subject, Object message, Class<T> responseType) {
+        return request(subject, message, responseType, requestTimeout);
+    }
+    
+    /**
+     * Petición con timeout propio. Todas las peticiones comparten la
+     * suscripción al inbox de respuestas de jnats: las peticiones en curso no
+     * ocupan hilos y su número no depende del tamaño de ningún pool.
+     * Si el hilo tiene un plazo en curso ({@link Deadline}), el timeout no lo
+     * supera, el responder lo recibe en X-Request-Timeout y, si ya venció,
+     * la petición falla sin enviarse.
+     */
+    public <T> CompletableFuture<T> request(String subject, Object message, Class<T> responseType, Duration timeout) {
+        requests.increment();
+        long start = System.nanoTime();
+        Deadline deadline = Deadline.current();
+        if (deadline != null && deadline.isExpired()) {
+            expiredRequests.increment();
+            requestErrors.increment();
+            return CompletableFuture.failedFuture(new TimeoutException("Deadline expired before request to " + subject));
+        }
+        Duration attemptTimeout = deadline != null && deadline.remainingMillis() < timeout.toMillis()
+            ? Duration.ofMillis(Math.max(1, deadline.remainingMillis()))
+            : timeout;
+        Span span = tracer.start("request " + subject, Span.Kind.CLIENT, TraceContext.current());
+        span.tag("messaging.subject", subject);
+        CompletableFuture<Message> reply;
+        try {
+            byte[] encoded = codec.encode(message);
+            byte[] data = codec.compress(encoded);
+            boolean compressed = data != encoded;
+            TraceContext trace = span.context();
+            reply = send(subject, message, data, compressed, deadline, attemptTimeout, trace);
+            if (hedging.isHedged(subject)) {
+                reply = hedge(subject, reply, () -> send(subject, message, data, compressed, deadline, attemptTimeout, trace));
+            }
+        } catch (RuntimeException e) {
+            // Sin enviar (no se pudo codificar o la conexión está cerrada): el futuro falla igual que una respuesta fallida
+            requestErrors.increment();
+            observer.requested(subject, System.nanoTime() - start, false);
+            span.error(e).end();
+            return CompletableFuture.failedFuture(e);
+        }
+        // jnats solo revisa sus timeouts en cada limpieza periódica: orTimeout falla la petición a su hora
+        // y completa el futuro, que jnats retira en la siguiente limpieza
+        return reply
+            .orTimeout(attemptTimeout.toMillis(), TimeUnit.MILLISECONDS)
+            .thenApplyAsync(response -> codec.decode(response, responseType), responseExecutor)
+            .whenComplete((response, error) -> {
+                if (error != null) {
+                    requestErrors.increment();
+                }
+                observer.requested(subject, System.nanoTime() - start, error == null);
+                span.error(error).end();
+            });
+    }
+    
+    private CompletableFuture<Message> send(String subject, Object message, byte[] data, boolean compressed,
+                                            Deadline deadline, Duration timeout, TraceContext trace) {
+        // Cabeceras por intento: el plazo restante de una segunda petición es menor
+        Headers headers = headers(message, compressed, deadline, null, trace);
+        long start = System.nanoTime();
+        // Las peticiones no tienen orden que mantener: se reparten entre las conexiones
+        Connection requester = publishers.connectionFor(null);
+        CompletableFuture<Message> reply = headers == null
+            ? requester.requestWithTimeout(subject, data, timeout)
+            : requester.requestWithTimeout(NatsMessage.builder().subject(subject).headers(headers).data(data).build(), timeout);
+        if (hedging.isHedged(subject)) {
+            reply.thenRun(() -> hedging.record(subject, System.nanoTime() - start));
+        }
+        return reply;
+    }
+    
+    /**
+     * Si la primera petición no ha respondido tras el percentil observado del
+     * subject y queda presupuesto, envía una segunda; gana la primera
+     * respuesta y solo se falla cuando fallan todos los intentos
+     */
+    private CompletableFuture<Message> hedge(String subject, CompletableFuture<Message> primary,
+                                             Supplier<CompletableFuture<Message>> resend) {
+        Duration delay = hedging.hedgeDelay(subject);
+        if (delay == null) {
+            return primary;
+        }
+        CompletableFuture<Message> result = new CompletableFuture<>();
+        AtomicInteger attempts = new AtomicInteger(1);
+        primary.whenComplete((reply, error) -> complete(result, attempts, reply, error, false));
+        CompletableFuture.delayedExecutor(delay.toNanos(), TimeUnit.NANOSECONDS, responseExecutor).execute(() -> {
+            if (result.isDone() || !hedging.tryHedge()) {
+                return;
+            }
+            attempts.incrementAndGet();
+            resend.get().whenComplete((reply, error) -> complete(result, attempts, reply, error, true));
+        });
+        return result;
+    }
+    
+    private void complete(CompletableFuture<Message> result, AtomicInteger attempts, Message reply, Throwable error,
+                          boolean hedge) {
+        if (error == null) {
+            if (result.complete(reply) && hedge) {
+                hedging.hedgeWon();
+            }
+        } else if (attempts.decrementAndGet() == 0) {
+            result.completeExceptionally(error);
+        }
+    }
+    
+    /**
+     * Suscribe un handler en su propio Dispatcher; sin grupo de cola cada
+     * réplica recibe todos los mensajes
+     */
+    public Dispatcher subscribe(String subject, String queueGroup, MessageHandler handler) {
+        Dispatcher dispatcher = connection.createDispatcher(handler);
+        if (queueGroup == null || queueGroup.isBlank()) {
+            dispatcher.subscribe(subject);
+        } else {
+            dispatcher.subscribe(subject, queueGroup);
+        }
+        return dispatcher;
+    }
+    
+    /**
+     * Deserializa un mensaje NATS según su Content-Type
+     */
+    public <T> T decode(Message message, Class<T> targetType) {
+        return codec.decode(message, targetType);
+    }
+    
+    /**
+     * Deserializa un mensaje al tipo registrado para su subject
+     */
+    public Object decode(Message message) {
+        return eventTypes.decode(message);
+    }
+    
+    /**
+     * Cabeceras del mensaje: formato si es binario, compresión, atributos
+     * CloudEvents si es un evento, plazo restante si es una petición con
+     * plazo y traceparent si hay traza. Null para JSON sin nada de eso, que
+     * se publica sin cabeceras.
+     */
+    private Headers headers(Object message, boolean compressed, Deadline deadline, EventOrigin origin, TraceContext trace) {
+        boolean routable = message instanceof RoutableEvent;
+        if (codec.isJson() && !routable && !compressed && deadline == null && origin == null && trace == null) {
+            return null;
+        }
+        Headers headers = new Headers();
+        if (!codec.isJson()) {
+            headers.put(MessageCodec.CONTENT_TYPE_HEADER, codec.getContentType());
+        }
+        if (compressed) {
+            headers.put(PayloadCompressor.CONTENT_ENCODING_HEADER, PayloadCompressor.DEFLATE);
+        }
+        if (routable) {
+            EventHeaders.apply(headers, (RoutableEvent) message, source);
+        }
+        if (deadline != null) {
+            headers.put(Deadline.HEADER, deadline.toHeader());
+        }
+        if (origin != null) {
+            headers.put(EventOrigin.HEADER, origin.toHeader());
+        }
+        if (trace != null) {
+            headers.put(TraceContext.HEADER, trace.toHeader());
+        }
+        return headers;
+    }
+    
+    public Connection getConnection() { return connection; }
+    public MessageCodec getCodec() { return codec; }
+    public EventTypeRegistry getEventTypes() { return eventTypes; }
+    public RequestHedging getHedging() { return hedging; }
+    public MessagingObserver getObserver() { return observer; }
+    public PublishSpools getSpools() { return spools; }
+    public NatsConnectionPool getPublishers() { return publishers; }
+    public Tracer getTracer() { return tracer; }
+    public long getPublished() { return published.sum(); }
+    public long getPublishedBytes() { return publishedBytes.sum(); }
+    public long getPublishErrors() { return publishErrors.sum(); }
+    public long getRequests() { return requests.sum(); }
+    public long getRequestErrors() { return requestErrors.sum(); }
+    public long getExpiredRequests() { return expiredRequests.sum(); }
+
+    public static final class Builder {
+        
+        private final Connection connection;
+        private final MessageCodec codec;
+        private EventTypeRegistry eventTypes;
+        private Duration requestTimeout = Duration.ofSeconds(2);
+        private Executor responseExecutor = Runnable::run;
+        private RequestHedging hedging = RequestHedging.disabled();
+        private MessagingObserver observer = MessagingObserver.NOOP;
+        private PublishSpools spools;
+        private NatsConnectionPool publishers;
+        private Tracer tracer = Tracer.disabled();
+        
+        private Builder(Connection connection, MessageCodec codec) {
+            this.connection = connection;
+            this.codec = codec;
+        }
+        
+        /**
+         * Tipos de evento por subject; por defecto un registro vacío
+         */
+        public Builder eventTypes(EventTypeRegistry eventTypes) {
+            this.eventTypes = eventTypes;
+            return this;
+        }
+        
+        public Builder requestTimeout(Duration requestTimeout) {
+            this.requestTimeout = requestTimeout;
+            return this;
+        }
+        
+        /**
+         * Dónde se decodifican las respuestas, para no ocupar el hilo de E/S de jnats
+         */
+        public Builder responseExecutor(Executor responseExecutor) {
+            this.responseExecutor = responseExecutor;
+            return this;
+        }
+        
+        /**
+         * Segundas peticiones para los subjects con cobertura
+         */
+        public Builder hedging(RequestHedging hedging) {
+            this.hedging = hedging;
+            return this;
+        }
+        
+        /**
+         * Latencias y errores por subject (métricas)
+         */
+        public Builder observer(MessagingObserver observer) {
+            this.observer = observer;
+            return this;
+        }
+        
+        /**
+         * Donde van las publicaciones de cada conexión caída; sin ellos quedan en el buffer de reconexión de jnats
+         */
+        public Builder spools(PublishSpools spools) {
+            this.spools = spools;
+            return this;
+        }
+        
+        /**
+         * Conexiones por las que se publica y se pide, por clave; la principal queda para las suscripciones
+         */
+        public Builder publishers(NatsConnectionPool publishers) {
+            this.publishers = publishers;
+            return this;
+        }
+        
+        /**
+         * Spans de publicaciones y peticiones; el traceparent viaja en las cabeceras
+         */
+        public Builder tracer(Tracer tracer) {
+            this.tracer = tracer;
+            return this;
+        }
+        
+        public NatsTemplate build() {
+            return new NatsTemplate(this);
+        }
+    }
+}
@@ -0,0 +1,516 @@
+package com.minishop.messaging.core;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.minishop.messaging.MessagingException;
+import com.minishop.messaging.event.RoutableEvent;
+import com.minishop.messaging.tracing.TraceContext;
+import org.springframework.context.SmartLifecycle;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Outbox transaccional local: cada cambio de estado se guarda junto a sus
+ * eventos en una sola línea de un log de solo añadir, así que o quedan los
+ * dos o ninguno, y quien lo llama (la petición HTTP) solo paga esa
+ * escritura. Un hilo de reenvío publica los eventos en orden y por lotes y
+ * avanza un checkpoint; tras un reinicio sigue desde el checkpoint. Si la
+ * publicación falla se reintenta, así que la entrega es al menos una vez.
+ * <p>
+ * El log es también el almacén del estado: {@link #replayState} lo recorre
+ * para reconstruirlo al arrancar, y {@link #compact} lo reescribe como una
+ * instantánea del estado más lo pendiente de publicar, para que ni el disco
+ * ni el arranque crezcan con el historial. Un registro que no se puede
+ * publicar (JSON ilegible o que no encaja en el tipo registrado del subject)
+ * se mueve a outbox.dead en lugar de bloquear a los que vienen detrás.
+ */
+public class Outbox implements SmartLifecycle {
+
+    private static final String LOG = "outbox.log";
+    private static final String CHECKPOINT = "outbox.checkpoint";
+    private static final String DEAD = "outbox.dead";
+    private static final String COMPACT = ".compact";
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long RETRY_PARK_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int READ_CHUNK = 64 * 1024;
+
+    private final Path directory;
+    private final ObjectMapper mapper;
+    private final ObjectWriter writer;
+    private final NatsTemplate natsTemplate;
+    private final MessagingThreads threads;
+    private final int batchSize;
+    private final boolean fsync;
+    private final Duration timeout;
+    // Solo se reemplaza al compactar, antes de arrancar el reenvío
+    private FileChannel log;
+    private final AtomicBoolean idle = new AtomicBoolean();
+
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder relayed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+
+    // Bytes del log con líneas completas; el reenvío no lee más allá
+    private volatile long written;
+    // Solo lo avanza el hilo de reenvío
+    private volatile long checkpoint;
+    private volatile boolean running;
+    private volatile Thread relay;
+
+    /**
+     * @param batchSize líneas del log publicadas entre flush y checkpoint
+     * @param fsync forzar a disco cada línea antes de devolver el control
+     * @param timeout espera máxima para publicar lo pendiente al parar
+     */
+    public Outbox(Path directory, ObjectMapper mapper, NatsTemplate natsTemplate, MessagingThreads threads,
+                  int batchSize, boolean fsync, Duration timeout) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        this.directory = directory;
+        this.mapper = mapper;
+        // Una línea por registro aunque el ObjectMapper de la aplicación indente
+        this.writer = mapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+        this.natsTemplate = natsTemplate;
+        this.threads = threads;
+        this.batchSize = batchSize;
+        this.fsync = fsync;
+        this.timeout = timeout;
+        try {
+            Files.createDirectories(directory);
+            recoverCompaction();
+            this.log = FileChannel.open(directory.resolve(LOG), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+            this.written = recoverLog();
+            this.checkpoint = Math.min(readCheckpoint(), written);
+        } catch (IOException e) {
+            throw new MessagingException("Unable to open outbox in " + directory, e);
+        }
+        if (checkpoint < written) {
+            System.out.println("[MESSAGING] Outbox " + directory + " has " + (written - checkpoint)
+                + " bytes of events from a previous run");
+        }
+    }
+
+    /**
+     * Guarda un cambio de estado y sus eventos en una sola escritura; el
+     * origen y la traza en curso del hilo viajan con los eventos
+     *
+     * @param state cambio de estado para {@link #replayState}, o null si solo hay eventos
+     * @throws MessagingException si no se puede escribir: ni el estado ni los eventos quedan guardados
+     */
+    public void append(Object state, List<OutboxEvent> events) {
+        ObjectNode record = mapper.createObjectNode();
+        if (state != null) {
+            record.set("state", mapper.valueToTree(state));
+        }
+        EventOrigin origin = EventOrigin.current();
+        TraceContext trace = TraceContext.current();
+        ArrayNode array = record.putArray("events");
+        for (OutboxEvent event : events) {
+            ObjectNode node = array.addObject();
+            node.put("subject", event.getSubject());
+            if (origin != null) {
+                node.put("origin", origin.getEpochMicros());
+            }
+            if (trace != null) {
+                // El span de publicación del relay cuelga del que guardó el evento
+                node.put("traceparent", trace.toHeader());
+            }
+            if (event.getPayload() instanceof RoutableEvent) {
+                // El id queda guardado: si el relay reenvía tras un fallo, sale con el mismo ce-id
+                EventHeaders.stamp((RoutableEvent) event.getPayload());
+            }
+            node.set("payload", mapper.valueToTree(event.getPayload()));
+        }
+        byte[] line;
+        try {
+            line = writer.writeValueAsBytes(record);
+        } catch (IOException e) {
+            throw new MessagingException("Unable to serialize outbox record", e);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(line.length + 1).put(line).put((byte) '\n').flip();
+        synchronized (this) {
+            long position = written;
+            try {
+                while (buffer.hasRemaining()) {
+                    position += log.write(buffer, position);
+                }
+                if (fsync) {
+                    log.force(false);
+                }
+            } catch (IOException e) {
+                // Lo escrito a medias se sobrescribe con la siguiente línea
+                throw new MessagingException("Unable to append to outbox " + directory, e);
+            }
+            written = position;
+        }
+        appended.increment();
+        if (idle.get() && idle.compareAndSet(true, false)) {
+            LockSupport.unpark(relay);
+        }
+    }
+
+    /**
+     * Recorre en orden los cambios de estado guardados, para reconstruir el estado al arrancar
+     *
+     * @return cambios aplicados
+     */
+    public <T> int replayState(Class<T> type, Consumer<T> apply) {
+        int count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(directory.resolve(LOG), StandardCharsets.UTF_8)) {
+            String line;
+            long read = 0;
+            while ((line = reader.readLine()) != null && read < written) {
+                read += line.getBytes(StandardCharsets.UTF_8).length + 1;
+                JsonNode state = mapper.readTree(line).get("state");
+                if (state != null && !state.isNull()) {
+                    apply.accept(mapper.treeToValue(state, type));
+                    count++;
+                }
+            }
+        } catch (IOException e) {
+            throw new MessagingException("Unable to read outbox " + directory, e);
+        }
+        return count;
+    }
+
+    /**
+     * Reescribe el log como una línea de estado por elemento de la instantánea
+     * seguida de las líneas aún no publicadas, que se conservan enteras:
+     * al volver a aplicarlas tras la instantánea el estado acaba igual. Solo
+     * antes de {@link #start}, con el estado recién reconstruido y sin
+     * escrituras en curso. Se cambia el log y después el checkpoint; si se
+     * cae entre medias, el siguiente arranque termina el cambio.
+     *
+     * @param snapshot cambios de estado que reproducen el estado actual
+     * @return bytes que ocupa ahora el log
+     */
+    public synchronized long compact(Collection<?> snapshot) {
+        if (relay != null) {
+            throw new IllegalStateException("The outbox can only be compacted before it starts");
+        }
+        Path compacted = directory.resolve(LOG + COMPACT);
+        Path compactedCheckpoint = directory.resolve(CHECKPOINT + COMPACT);
+        long before = written;
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Object state : snapshot) {
+                ObjectNode record = mapper.createObjectNode();
+                record.set("state", mapper.valueToTree(state));
+                ByteBuffer line = ByteBuffer.wrap((writer.writeValueAsString(record) + "\n").getBytes(StandardCharsets.UTF_8));
+                while (line.hasRemaining()) {
+                    out.write(line);
+                }
+            }
+            long snapshotBytes = out.position();
+            long position = checkpoint;
+            while (position < written) {
+                position += log.transferTo(position, written - position, out);
+            }
+            out.force(true);
+            writeDurably(compactedCheckpoint, Long.toString(snapshotBytes));
+            log.close();
+            Files.move(compacted, directory.resolve(LOG), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(compactedCheckpoint, directory.resolve(CHECKPOINT), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+            forceDirectory();
+            log = FileChannel.open(directory.resolve(LOG), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            written = log.size();
+            checkpoint = snapshotBytes;
+        } catch (IOException e) {
+            throw new MessagingException("Unable to compact outbox " + directory, e);
+        }
+        System.out.println("[MESSAGING] Outbox " + directory + " compacted from " + before + " to " + written
+            + " bytes (" + snapshot.size() + " state records, " + (written - checkpoint) + " bytes pending)");
+        return written;
+    }
+
+    /**
+     * Termina o deshace una compactación interrumpida: si el log compactado
+     * no llegó a moverse se descarta; si se movió, falta su checkpoint
+     */
+    private void recoverCompaction() throws IOException {
+        Path compacted = directory.resolve(LOG + COMPACT);
+        Path compactedCheckpoint = directory.resolve(CHECKPOINT + COMPACT);
+        if (Files.exists(compacted)) {
+            Files.delete(compacted);
+            Files.deleteIfExists(compactedCheckpoint);
+        } else if (Files.exists(compactedCheckpoint)) {
+            Files.move(compactedCheckpoint, directory.resolve(CHECKPOINT), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+            forceDirectory();
+        }
+    }
+
+    /**
+     * Escribe el fichero entero y lo fuerza a disco antes de renombrarlo
+     */
+    private static void writeDurably(Path path, String value) throws IOException {
+        try (FileChannel out = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer bytes = ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+            while (bytes.hasRemaining()) {
+                out.write(bytes);
+            }
+            out.force(true);
+        }
+    }
+
+    /**
+     * Persiste los renombrados del directorio; en sistemas que no permiten
+     * abrir un directorio (Windows) los renombrados quedan como estén
+     */
+    private void forceDirectory() {
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            System.err.println("[MESSAGING] Unable to sync outbox directory " + directory + ": " + e.getMessage());
+        }
+    }
+
+    private void run() {
+        while (running || checkpoint < written) {
+            int count;
+            try {
+                count = relayBatch();
+            } catch (RuntimeException e) {
+                failed.increment();
+                System.err.println("[MESSAGING] Outbox relay failed, retrying: " + e.getMessage());
+                if (!running) {
+                    return;
+                }
+                LockSupport.parkNanos(this, RETRY_PARK_NANOS);
+                continue;
+            }
+            if (count == 0) {
+                idle.set(true);
+                if (checkpoint >= written && running) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                idle.set(false);
+            }
+        }
+    }
+
+    /**
+     * Publica hasta batchSize líneas desde el checkpoint, vacía el buffer de
+     * la conexión y avanza el checkpoint hasta la última línea publicada
+     */
+    private int relayBatch() {
+        long end = written;
+        long start = checkpoint;
+        if (start >= end) {
+            return 0;
+        }
+        int count = 0;
+        long position = start;
+        try {
+            int chunk = READ_CHUNK;
+            while (count == 0 && position < end) {
+                ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(chunk, end - position));
+                while (buffer.hasRemaining()) {
+                    if (log.read(buffer, position + buffer.position()) < 0) {
+                        break;
+                    }
+                }
+                byte[] bytes = buffer.array();
+                int lineStart = 0;
+                for (int i = 0; i < buffer.position() && count < batchSize; i++) {
+                    if (bytes[i] == '\n') {
+                        publish(bytes, lineStart, i - lineStart);
+                        lineStart = i + 1;
+                        position = start + lineStart;
+                        count++;
+                    }
+                }
+                // Una línea más larga que el trozo leído
+                chunk *= 2;
+            }
+        } catch (IOException e) {
+            throw new MessagingException("Unable to read outbox " + directory, e);
+        } finally {
+            if (position > start) {
+                flush();
+                checkpoint = position;
+                writeCheckpoint(position);
+                relayed.add(count);
+            }
+        }
+        return count;
+    }
+
+    private void publish(byte[] bytes, int offset, int length) {
+        // Todos los eventos se leen antes de publicar el primero: un registro se publica entero o va a outbox.dead
+        JsonNode record;
+        List<JsonNode> events = new ArrayList<>();
+        List<Object> payloads = new ArrayList<>();
+        try {
+            record = mapper.readTree(bytes, offset, length);
+            for (JsonNode event : record.path("events")) {
+                String subject = event.get("subject").asText();
+                events.add(event);
+                payloads.add(payload(subject, event.get("payload")));
+            }
+        } catch (IOException | RuntimeException e) {
+            // Reintentarlo no lo arreglaría, y pararía los eventos que vienen detrás
+            deadLetter(bytes, offset, length, e);
+            return;
+        }
+        for (int i = 0; i < events.size(); i++) {
+            JsonNode event = events.get(i);
+            JsonNode origin = event.get("origin");
+            natsTemplate.publish(event.get("subject").asText(), payloads.get(i),
+                origin != null ? EventOrigin.ofEpochMicros(origin.asLong()) : null,
+                TraceContext.parse(event.path("traceparent").asText(null)));
+        }
+    }
+
+    /**
+     * El payload vuelve a su tipo registrado para que el evento lleve las mismas cabeceras que al publicarlo directamente
+     */
+    private Object payload(String subject, JsonNode payload) throws IOException {
+        Class<?> type = natsTemplate.getEventTypes().typeFor(subject);
+        return type != null ? mapper.treeToValue(payload, type) : payload;
+    }
+
+    private void deadLetter(byte[] bytes, int offset, int length, Exception cause) {
+        failed.increment();
+        deadLettered.increment();
+        System.err.println("[MESSAGING] Moving unpublishable outbox record to " + DEAD + ": " + cause.getMessage());
+        try {
+            Files.write(directory.resolve(DEAD), Arrays.copyOfRange(bytes, offset, offset + length + 1),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("[MESSAGING] Unable to write " + DEAD + ", dropping the record: " + e.getMessage());
+        }
+    }
+
+    private void flush() {
+        try {
+            natsTemplate.flushBuffer();
+        } catch (IOException | IllegalStateException e) {
+            System.err.println("[MESSAGING] Outbox relay could not flush: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Descarta una última línea a medias (caída durante la escritura)
+     */
+    private long recoverLog() throws IOException {
+        long size = log.size();
+        long position = size;
+        ByteBuffer one = ByteBuffer.allocate(1);
+        while (position > 0) {
+            one.clear();
+            log.read(one, position - 1);
+            if (one.get(0) == '\n') {
+                break;
+            }
+            position--;
+        }
+        if (position < size) {
+            System.err.println("[MESSAGING] Outbox " + directory + ": dropping " + (size - position)
+                + " bytes of an incomplete record");
+            log.truncate(position);
+        }
+        return position;
+    }
+
+    private long readCheckpoint() throws IOException {
+        Path path = directory.resolve(CHECKPOINT);
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        String value = Files.readString(path).trim();
+        return value.isEmpty() ? 0 : Long.parseLong(value);
+    }
+
+    private void writeCheckpoint(long position) {
+        Path path = directory.resolve(CHECKPOINT);
+        Path temp = directory.resolve(CHECKPOINT + ".tmp");
+        try {
+            Files.writeString(temp, Long.toString(position));
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // Tras un reinicio se volverán a publicar los eventos desde el checkpoint anterior
+            System.err.println("[MESSAGING] Unable to write outbox checkpoint: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        relay = threads.newThread("outbox-relay", this::run);
+        relay.start();
+    }
+
+    /**
+     * Publica lo pendiente antes de que se cierre la conexión
+     */
+    @Override
+    public void stop() {
+        running = false;
+        Thread thread = relay;
+        if (thread == null) {
+            return;
+        }
+        LockSupport.unpark(thread);
+        try {
+            thread.join(timeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (checkpoint < written) {
+            System.err.println("[MESSAGING] Outbox stopped with " + (written - checkpoint)
+                + " bytes of events pending; they will be published on the next start");
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Igual que el publicador asíncrono: para después del servidor web
+     */
+    @Override
+    public int getPhase() {
+        return DEFAULT_PHASE - 4096;
+    }
+
+    public void close() throws IOException {
+        log.close();
+    }
+
+    public Path getDirectory() { return directory; }
+    public long getAppended() { return appended.sum(); }
+    public long getRelayed() { return relayed.sum(); }
+    public long getFailed() { return failed.sum(); }
+    public long getDeadLettered() { return deadLettered.sum(); }
+    public long getLagBytes() { return written - checkpoint; }
+}
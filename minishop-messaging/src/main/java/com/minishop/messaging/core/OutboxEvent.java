@@ -0,0 +1,18 @@
+package com.minishop.messaging.core;
+
+/**
+ * Evento que se guarda en el outbox junto al cambio de estado que lo produjo
+ */
+public class OutboxEvent {
+
+    private final String subject;
+    private final Object payload;
+
+    public OutboxEvent(String subject, Object payload) {
+        this.subject = subject;
+        this.payload = payload;
+    }
+
+    public String getSubject() { return subject; }
+    public Object getPayload() { return payload; }
+}
@@ -0,0 +1,474 @@
+package com.minishop.messaging.core;
+
+import com.minishop.messaging.MessagingException;
+import io.nats.client.Connection;
+import io.nats.client.ConnectionListener;
+import io.nats.client.impl.Headers;
+import io.nats.client.impl.NatsMessage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Spool en disco para lo que se publica mientras su conexión no está
+ * CONNECTED: en lugar de llenar el buffer de reconexión de jnats (en
+ * memoria) o fallar, los mensajes ya codificados se añaden a ficheros
+ * mapeados en memoria de solo añadir. Al reconectar se reenvían en orden,
+ * y mientras quede algo por reenviar lo nuevo también va al spool para no
+ * adelantarse. Sobrevive a un reinicio: lo pendiente se reenvía al arrancar.
+ * <p>
+ * Segmento: 8 bytes con la posición de lectura y registros
+ * [longitud][CRC32][subject, cabeceras, datos]. La longitud se escribe la
+ * última, así que un registro a medias (caída durante la escritura) se
+ * descarta al recuperar. La entrega es al menos una vez: tras una caída en
+ * mitad del reenvío puede repetirse algún mensaje (ce-id lo identifica).
+ * Un registro dañado se salta al reenviar para no atascar lo que viene detrás.
+ * Cada conexión de publicación tiene el suyo ({@link PublishSpools}): solo
+ * atiende a los eventos de esa conexión y reenvía por ella.
+ */
+public class PublishSpool implements ConnectionListener, AutoCloseable {
+
+    /**
+     * Cuándo se fuerzan a disco los registros: en cada uno, cada
+     * fsyncInterval, o cuando decida el sistema operativo
+     */
+    public enum FsyncPolicy {
+        ALWAYS,
+        INTERVAL,
+        NEVER
+    }
+
+    private static final int SEGMENT_HEADER = 8;
+    private static final int RECORD_HEADER = 8;
+    private static final String SUFFIX = ".spool";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalNanos;
+    private final long replayIntervalNanos;
+    private final Connection connection;
+    private final MessagingThreads threads;
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final AtomicBoolean replaying = new AtomicBoolean();
+    private final AtomicLong spooled = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong corrupt = new AtomicLong();
+    private final AtomicLong pendingRecords = new AtomicLong();
+
+    // Queda algo por reenviar: lo nuevo va detrás, al spool
+    private volatile boolean pending;
+    private long nextSequence;
+    private long lastForceNanos = System.nanoTime();
+
+    /**
+     * @param maxSize bytes de disco como máximo; lleno, publicar falla
+     * @param replayRate mensajes por segundo al reenviar, 0 = sin límite
+     */
+    public PublishSpool(Path directory, int segmentSize, long maxSize, FsyncPolicy fsyncPolicy, Duration fsyncInterval,
+                        int replayRate, Connection connection, MessagingThreads threads) {
+        if (segmentSize <= SEGMENT_HEADER + RECORD_HEADER) {
+            throw new IllegalArgumentException("segmentSize too small: " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = (int) Math.max(1, maxSize / segmentSize);
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalNanos = fsyncInterval.toNanos();
+        this.replayIntervalNanos = replayRate > 0 ? TimeUnit.SECONDS.toNanos(1) / replayRate : 0;
+        this.connection = connection;
+        this.threads = threads;
+        try {
+            Files.createDirectories(directory);
+            recover();
+        } catch (IOException e) {
+            throw new MessagingException("Unable to open publish spool in " + directory, e);
+        }
+        if (pending) {
+            System.out.println("[MESSAGING] Publish spool " + directory + " has " + pendingRecords.get()
+                + " messages from a previous run");
+            startReplay();
+        }
+    }
+
+    /**
+     * Lo que se publique ahora debe ir al spool: desconectado o con mensajes anteriores aún sin reenviar
+     */
+    public boolean shouldSpool() {
+        return pending || connection.getStatus() != Connection.Status.CONNECTED;
+    }
+
+    /**
+     * Añade un mensaje ya codificado
+     *
+     * @throws MessagingException si el spool está lleno o no se puede escribir
+     */
+    public void append(String subject, Headers headers, byte[] data) {
+        byte[] record = encode(subject, headers, data);
+        if (RECORD_HEADER + record.length > segmentSize - SEGMENT_HEADER) {
+            throw new MessagingException("Message to " + subject + " (" + record.length + " bytes) does not fit a spool segment");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        synchronized (this) {
+            Segment segment = segments.peekLast();
+            if (segment == null || !segment.fits(record.length)) {
+                segment = newSegment(subject);
+            }
+            segment.append(record, (int) crc.getValue());
+            pending = true;
+            pendingRecords.incrementAndGet();
+            force(segment);
+        }
+        spooled.incrementAndGet();
+        // Publicado justo al reconectar, después de que el reenvío terminara
+        if (connection.getStatus() == Connection.Status.CONNECTED) {
+            startReplay();
+        }
+    }
+
+    @Override
+    public void connectionEvent(Connection conn, Events type) {
+        // La factoría avisa de todas sus conexiones
+        if (conn != connection) {
+            return;
+        }
+        if ((type == Events.RECONNECTED || type == Events.CONNECTED) && pending) {
+            startReplay();
+        }
+    }
+
+    private void startReplay() {
+        if (replaying.compareAndSet(false, true)) {
+            threads.newThread("nats-spool-replay", this::replay).start();
+        }
+    }
+
+    /**
+     * Reenvía en orden hasta vaciar el spool o perder la conexión; el
+     * siguiente RECONNECTED retoma desde el último mensaje reenviado
+     */
+    private void replay() {
+        long start = System.nanoTime();
+        long count = 0;
+        try {
+            long next = System.nanoTime();
+            while (connection.getStatus() == Connection.Status.CONNECTED) {
+                Record record = next();
+                if (record == null) {
+                    break;
+                }
+                if (record.message == null) {
+                    skip(record);
+                    continue;
+                }
+                connection.publish(record.message);
+                commit(record);
+                count++;
+                if (replayIntervalNanos > 0) {
+                    next += replayIntervalNanos;
+                    long wait = next - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(this, wait);
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("[MESSAGING] Publish spool replay stopped: " + e);
+        } finally {
+            replaying.set(false);
+        }
+        if (count > 0) {
+            System.out.println("[MESSAGING] Publish spool replayed " + count + " messages in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms, " + pendingRecords.get() + " left");
+        }
+        // Un RECONNECTED pudo llegar mientras este reenvío terminaba
+        if (pending && connection.getStatus() == Connection.Status.CONNECTED) {
+            startReplay();
+        }
+    }
+
+    /**
+     * Siguiente mensaje por reenviar; si no queda ninguno, lo nuevo vuelve a publicarse directamente
+     */
+    private synchronized Record next() {
+        Segment segment;
+        while ((segment = segments.peekFirst()) != null) {
+            if (segment.readPosition < segment.writePosition) {
+                return segment.read();
+            }
+            // Consumido por completo, también el último: el siguiente append crea uno nuevo
+            segments.pollFirst();
+            segment.delete();
+        }
+        pending = false;
+        // Los registros saltados con el resto de un segmento no se pueden contar uno a uno
+        pendingRecords.set(0);
+        return null;
+    }
+
+    private synchronized void commit(Record record) {
+        record.segment.advance(record.end);
+        pendingRecords.decrementAndGet();
+        replayed.incrementAndGet();
+    }
+
+    private synchronized void skip(Record record) {
+        record.segment.advance(record.end);
+        if (pendingRecords.get() > 0) {
+            pendingRecords.decrementAndGet();
+        }
+        corrupt.incrementAndGet();
+    }
+
+    private Segment newSegment(String subject) {
+        if (segments.size() >= maxSegments) {
+            throw new MessagingException("Publish spool full (" + (long) maxSegments * segmentSize
+                + " bytes), rejected message to " + subject);
+        }
+        try {
+            return addSegment(directory.resolve(String.format("%020d", nextSequence++) + SUFFIX));
+        } catch (IOException e) {
+            throw new MessagingException("Unable to create publish spool segment in " + directory, e);
+        }
+    }
+
+    private Segment addSegment(Path path) throws IOException {
+        Segment segment = new Segment(path, segmentSize);
+        segments.addLast(segment);
+        return segment;
+    }
+
+    private void force(Segment segment) {
+        if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+            segment.buffer.force();
+        } else if (fsyncPolicy == FsyncPolicy.INTERVAL && System.nanoTime() - lastForceNanos >= fsyncIntervalNanos) {
+            segment.buffer.force();
+            lastForceNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Abre los segmentos de una ejecución anterior en orden y borra los ya reenviados
+     */
+    private void recover() throws IOException {
+        List<Path> paths;
+        try (Stream<Path> files = Files.list(directory)) {
+            paths = files.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+        }
+        for (Path path : paths) {
+            String name = path.getFileName().toString();
+            nextSequence = Math.max(nextSequence, Long.parseLong(name.substring(0, name.length() - SUFFIX.length())) + 1);
+            Segment segment = addSegment(path);
+            int records = segment.recover();
+            if (records == 0) {
+                segments.pollLast();
+                segment.delete();
+            }
+            pendingRecords.addAndGet(records);
+        }
+        pending = !segments.isEmpty();
+    }
+
+    private static byte[] encode(String subject, Headers headers, byte[] data) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length + 64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(subject);
+            int pairs = 0;
+            if (headers != null) {
+                for (String key : headers.keySet()) {
+                    pairs += headers.get(key).size();
+                }
+            }
+            out.writeShort(pairs);
+            if (headers != null) {
+                for (String key : headers.keySet()) {
+                    for (String value : headers.get(key)) {
+                        out.writeUTF(key);
+                        out.writeUTF(value);
+                    }
+                }
+            }
+            out.writeInt(data.length);
+            out.write(data);
+        } catch (IOException e) {
+            throw new MessagingException("Unable to encode spooled message to " + subject, e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static NatsMessage decode(byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        String subject = in.readUTF();
+        int pairs = in.readUnsignedShort();
+        Headers headers = pairs > 0 ? new Headers() : null;
+        for (int i = 0; i < pairs; i++) {
+            headers.add(in.readUTF(), in.readUTF());
+        }
+        byte[] data = new byte[in.readInt()];
+        in.readFully(data);
+        return NatsMessage.builder().subject(subject).headers(headers).data(data).build();
+    }
+
+    @Override
+    public synchronized void close() {
+        for (Segment segment : segments) {
+            segment.close();
+        }
+    }
+
+    public Path getDirectory() { return directory; }
+    public Connection getConnection() { return connection; }
+    public boolean isPending() { return pending; }
+    public long getSpooled() { return spooled.get(); }
+    public long getReplayed() { return replayed.get(); }
+    public long getCorrupt() { return corrupt.get(); }
+    public long getPendingRecords() { return pendingRecords.get(); }
+
+    public synchronized long getSizeBytes() {
+        return (long) segments.size() * segmentSize;
+    }
+
+    private static final class Record {
+        private final Segment segment;
+        private final int end;
+        // Null si el registro está dañado: se salta hasta end
+        private final NatsMessage message;
+
+        Record(Segment segment, int end, NatsMessage message) {
+            this.segment = segment;
+            this.end = end;
+            this.message = message;
+        }
+    }
+
+    /**
+     * Fichero de tamaño fijo mapeado entero en memoria
+     */
+    private static final class Segment {
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int writePosition;
+        private int readPosition;
+
+        Segment(Path path, int size) throws IOException {
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            // Un fichero nuevo crece hasta size relleno de ceros: longitud 0 = fin de los registros
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            long stored = buffer.getLong(0);
+            this.readPosition = stored >= SEGMENT_HEADER && stored <= size ? (int) stored : SEGMENT_HEADER;
+            this.writePosition = readPosition;
+        }
+
+        boolean fits(int length) {
+            return writePosition + RECORD_HEADER + length <= buffer.capacity();
+        }
+
+        void append(byte[] record, int crc) {
+            buffer.putInt(writePosition + 4, crc);
+            buffer.put(writePosition + RECORD_HEADER, record);
+            // La longitud confirma el registro
+            buffer.putInt(writePosition, record.length);
+            writePosition += RECORD_HEADER + record.length;
+        }
+
+        Record read() {
+            int length = buffer.getInt(readPosition);
+            if (length <= 0 || readPosition + RECORD_HEADER + length > writePosition) {
+                // Sin una longitud válida no se sabe dónde empieza el siguiente: se salta el resto del segmento
+                return corrupt(writePosition, "invalid length " + length);
+            }
+            int end = readPosition + RECORD_HEADER + length;
+            byte[] record = new byte[length];
+            buffer.get(readPosition + RECORD_HEADER, record);
+            CRC32 crc = new CRC32();
+            crc.update(record);
+            if ((int) crc.getValue() != buffer.getInt(readPosition + 4)) {
+                return corrupt(end, "checksum mismatch");
+            }
+            try {
+                return new Record(this, end, decode(record));
+            } catch (IOException e) {
+                return corrupt(end, e.toString());
+            }
+        }
+
+        private Record corrupt(int end, String reason) {
+            System.err.println("[MESSAGING] Skipping corrupt record in publish spool " + path + " at " + readPosition
+                + " (" + reason + "), " + (end - readPosition) + " bytes dropped");
+            return new Record(this, end, null);
+        }
+
+        void advance(int position) {
+            readPosition = position;
+            buffer.putLong(0, position);
+        }
+
+        /**
+         * Recorre los registros válidos desde la posición de lectura y devuelve cuántos quedan por reenviar
+         */
+        int recover() {
+            int position = readPosition;
+            int records = 0;
+            CRC32 crc = new CRC32();
+            while (position + RECORD_HEADER <= buffer.capacity()) {
+                int length = buffer.getInt(position);
+                if (length <= 0 || position + RECORD_HEADER + length > buffer.capacity()) {
+                    break;
+                }
+                byte[] record = new byte[length];
+                buffer.get(position + RECORD_HEADER, record);
+                crc.reset();
+                crc.update(record);
+                if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                    // Escritura a medias: lo que sigue se sobrescribe
+                    break;
+                }
+                position += RECORD_HEADER + length;
+                records++;
+            }
+            writePosition = position;
+            return records;
+        }
+
+        void close() {
+            buffer.force();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("[MESSAGING] Unable to close spool segment " + path + ": " + e.getMessage());
+            }
+        }
+
+        void delete() {
+            try {
+                channel.close();
+                // El mapeo se libera cuando se recoge el buffer; en Linux el fichero se puede borrar antes
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                System.err.println("[MESSAGING] Unable to delete spool segment " + path + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.minishop.messaging.core;
+
+import io.nats.client.Connection;
+
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Un {@link PublishSpool} por conexión de publicación. Lo que va por una
+ * conexión caída se guarda en el spool de esa conexión y se reenvía por ella
+ * al reconectar, así que los mensajes de una clave siguen en orden y las
+ * demás conexiones publican con normalidad.
+ */
+public class PublishSpools implements AutoCloseable {
+
+    private final List<PublishSpool> spools;
+
+    public PublishSpools(List<PublishSpool> spools) {
+        this.spools = List.copyOf(spools);
+    }
+
+    /**
+     * Spool de la conexión, o null si no tiene
+     */
+    public PublishSpool spoolFor(Connection connection) {
+        for (PublishSpool spool : spools) {
+            if (spool.getConnection() == connection) {
+                return spool;
+            }
+        }
+        return null;
+    }
+
+    public List<PublishSpool> getSpools() { return spools; }
+    public long getSpooled() { return sum(PublishSpool::getSpooled); }
+    public long getReplayed() { return sum(PublishSpool::getReplayed); }
+    public long getCorrupt() { return sum(PublishSpool::getCorrupt); }
+    public long getPendingRecords() { return sum(PublishSpool::getPendingRecords); }
+    public long getSizeBytes() { return sum(PublishSpool::getSizeBytes); }
+
+    private long sum(ToLongFunction<PublishSpool> value) {
+        return spools.stream().mapToLong(value).sum();
+    }
+
+    @Override
+    public void close() {
+        for (PublishSpool spool : spools) {
+            spool.close();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.minishop.messaging.core;
+
+import io.nats.client.impl.NatsServerPool;
+import io.nats.client.impl.ServerPoolEntry;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Pool de servidores de jnats que se puede reordenar con un ranking nuevo.
+ * jnats prueba los servidores en el orden de la lista (sin aleatorizar) y
+ * rota el que intenta al final; tras prefer() el siguiente intento, p. ej. el
+ * de forceReconnect(), va al primero del ranking.
+ */
+class RankedServerPool extends NatsServerPool {
+
+    /**
+     * Ordena los servidores conocidos como el ranking; los que no aparecen van al final
+     */
+    void prefer(List<String> ranking) {
+        listLock.lock();
+        try {
+            List<ServerPoolEntry> entries = new ArrayList<>(entryList);
+            entries.sort(Comparator.comparingInt(entry -> position(ranking, entry.nuri.toString())));
+            entryList = entries;
+        } finally {
+            listLock.unlock();
+        }
+    }
+
+    private static int position(List<String> ranking, String server) {
+        for (int i = 0; i < ranking.size(); i++) {
+            if (ClusterServerSelector.sameServer(ranking.get(i), server)) {
+                return i;
+            }
+        }
+        return ranking.size();
+    }
+}
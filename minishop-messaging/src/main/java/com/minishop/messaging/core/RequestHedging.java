@@ -0,0 +1,153 @@
+package com.minishop.messaging.core;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Peticiones con cobertura (hedged requests) para los subjects que se
+ * indiquen: si la respuesta tarda más que el percentil observado de ese
+ * subject (p95 por defecto), se envía una segunda petición, que el grupo de
+ * cola puede llevar a otra réplica, y gana la primera respuesta.
+ * Las segundas peticiones están limitadas a una fracción de las peticiones
+ * (presupuesto de carga extra), y sin muestras suficientes no se cubre.
+ */
+public class RequestHedging {
+
+    // El presupuesto se lleva en milésimas de petición para usar un AtomicLong
+    private static final long UNIT = 1000;
+
+    private final Set<String> subjects;
+    private final double percentile;
+    private final long budgetPerRequest;
+    private final long maxCredits;
+    private final int minSamples;
+    private final int windowSize;
+    private final ConcurrentMap<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+    private final AtomicLong credits = new AtomicLong();
+
+    private final LongAdder hedged = new LongAdder();
+    private final LongAdder won = new LongAdder();
+    private final LongAdder denied = new LongAdder();
+
+    /**
+     * @param subjects subjects con cobertura
+     * @param percentile percentil de latencia tras el que se envía la segunda petición
+     * @param maxExtraLoad fracción máxima de peticiones que se pueden duplicar
+     * @param minSamples latencias observadas necesarias antes de cubrir un subject
+     */
+    public RequestHedging(Collection<String> subjects, double percentile, double maxExtraLoad, int minSamples) {
+        this.subjects = Set.copyOf(subjects);
+        this.percentile = percentile;
+        this.budgetPerRequest = Math.round(maxExtraLoad * UNIT);
+        // Ráfaga máxima: 10 segundas peticiones seguidas
+        this.maxCredits = 10 * UNIT;
+        this.minSamples = minSamples;
+        this.windowSize = Math.max(256, minSamples);
+    }
+
+    public static RequestHedging disabled() {
+        return new RequestHedging(Set.of(), 0.95, 0, Integer.MAX_VALUE);
+    }
+
+    public boolean isHedged(String subject) {
+        return subjects.contains(subject);
+    }
+
+    /**
+     * Espera tras la que cubrir una petición a este subject, o null si aún no
+     * hay muestras suficientes. Cada llamada suma su parte al presupuesto.
+     */
+    public Duration hedgeDelay(String subject) {
+        credits.getAndUpdate(current -> Math.min(maxCredits, current + budgetPerRequest));
+        LatencyWindow window = latencies.get(subject);
+        if (window == null) {
+            return null;
+        }
+        long nanos = window.percentile(percentile, minSamples);
+        return nanos < 0 ? null : Duration.ofNanos(nanos);
+    }
+
+    /**
+     * Consume presupuesto para una segunda petición; false si se agotó
+     */
+    public boolean tryHedge() {
+        long current;
+        do {
+            current = credits.get();
+            if (current < UNIT) {
+                denied.increment();
+                return false;
+            }
+        } while (!credits.compareAndSet(current, current - UNIT));
+        hedged.increment();
+        return true;
+    }
+
+    /**
+     * Latencia de un intento que obtuvo respuesta, medida desde su propio envío
+     */
+    public void record(String subject, long nanos) {
+        if (isHedged(subject)) {
+            latencies.computeIfAbsent(subject, s -> new LatencyWindow(windowSize)).record(nanos);
+        }
+    }
+
+    /**
+     * La segunda petición respondió antes que la primera
+     */
+    public void hedgeWon() {
+        won.increment();
+    }
+
+    public Set<String> getSubjects() { return subjects; }
+    public long getHedged() { return hedged.sum(); }
+    public long getWon() { return won.sum(); }
+    public long getDenied() { return denied.sum(); }
+
+    /**
+     * Últimas latencias de un subject en un anillo; el percentil se recalcula
+     * cada 32 muestras y no en cada petición
+     */
+    private static final class LatencyWindow {
+        private static final int RECOMPUTE_EVERY = 32;
+
+        private final long[] samples;
+        private long count;
+        private volatile long cached = -1;
+
+        LatencyWindow(int size) {
+            this.samples = new long[size];
+        }
+
+        synchronized void record(long nanos) {
+            samples[(int) (count % samples.length)] = nanos;
+            count++;
+            if (count % RECOMPUTE_EVERY == 0) {
+                cached = -1;
+            }
+        }
+
+        long percentile(double percentile, int minSamples) {
+            long value = cached;
+            if (value >= 0) {
+                return value;
+            }
+            synchronized (this) {
+                if (count < minSamples) {
+                    return -1;
+                }
+                long[] sorted = Arrays.copyOf(samples, (int) Math.min(count, samples.length));
+                Arrays.sort(sorted);
+                value = sorted[(int) Math.min(sorted.length - 1, Math.floor(percentile * sorted.length))];
+                cached = value;
+                return value;
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.minishop.messaging.event;
+
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+
+/**
+ * Contenido del campo data de los eventos. En el mensaje va acompañado de
+ * "type" para decodificarlo a su clase concreta en lugar de a un Map; un
+ * type ausente o desconocido (productores antiguos) se lee como {@link UntypedPayload}.
+ */
+@JsonSubTypes({
+    @JsonSubTypes.Type(value = OrderDto.class, name = "order"),
+    @JsonSubTypes.Type(value = ProductDto.class, name = "product"),
+    @JsonSubTypes.Type(value = OrderEvent.class, name = "order-event"),
+    @JsonSubTypes.Type(value = UntypedPayload.class, name = "untyped")
+})
+public interface EventPayload {
+}
@@ -1,17 +1,18 @@
-package com.minishop.ordersservice.dto;
+package com.minishop.messaging.event;
 
 import java.time.LocalDateTime;
 
 /**
- * DTO para mensajes de notificación
+ * Solicitud de notificación (notifications.send) que atiende notifications-service
  */
-public class NotificationMessage {
+public class NotificationMessage implements RoutableEvent {
     private String userId;
     private String message;
     private String type;
     private LocalDateTime timestamp;
     private String channel;
     private Object metadata;
+    private String eventId;
     
     public NotificationMessage() {
         this.timestamp = LocalDateTime.now();
@@ -73,6 +74,39 @@ public class NotificationMessage {
         this.metadata = metadata;
     }
     
+    public String getEventId() {
+        return eventId;
+    }
+    
+    public void setEventId(String eventId) {
+        this.eventId = eventId;
+    }
+    
+    @Override
+    public String eventId() {
+        return eventId;
+    }
+    
+    @Override
+    public void assignEventId(String id) {
+        this.eventId = id;
+    }
+    
+    @Override
+    public String eventType() {
+        return "notification." + type;
+    }
+    
+    @Override
+    public String eventKey() {
+        return userId;
+    }
+    
+    @Override
+    public LocalDateTime eventTime() {
+        return timestamp;
+    }
+    
     @Override
     public String toString() {
         return "NotificationMessage{" +
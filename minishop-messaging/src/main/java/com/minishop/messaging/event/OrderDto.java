@@ -0,0 +1,43 @@
+package com.minishop.messaging.event;
+
+/**
+ * Orden tal como la expone orders-service y viaja en {@link OrderEvent#getData()}
+ */
+public class OrderDto implements EventPayload {
+    private Long id;
+    private String productName;
+    private int quantity;
+    
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getProductName() {
+        return productName;
+    }
+    
+    public void setProductName(String productName) {
+        this.productName = productName;
+    }
+    
+    public int getQuantity() {
+        return quantity;
+    }
+    
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+    
+    @Override
+    public String toString() {
+        return "OrderDto{" +
+                "id=" + id +
+                ", productName='" + productName + '\'' +
+                ", quantity=" + quantity +
+                '}';
+    }
+}
@@ -1,17 +1,21 @@
-package com.minishop.ordersservice.dto;
+package com.minishop.messaging.event;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
 
 import java.time.LocalDateTime;
 
 /**
- * DTO para eventos de órdenes
+ * Evento de órdenes (orders.*) publicado por orders-service
  */
-public class OrderEvent {
+public class OrderEvent implements EventPayload, RoutableEvent {
     private String orderId;
     private String userId;
     private String status;
     private String action;
     private LocalDateTime timestamp;
-    private Object data;
+    @JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "type", defaultImpl = UntypedPayload.class)
+    private EventPayload data;
+    private String eventId;
     
     public OrderEvent() {
         this.timestamp = LocalDateTime.now();
@@ -65,14 +69,47 @@ public class OrderEvent {
         this.timestamp = timestamp;
     }
     
-    public Object getData() {
+    public EventPayload getData() {
         return data;
     }
     
-    public void setData(Object data) {
+    public void setData(EventPayload data) {
         this.data = data;
     }
     
+    public String getEventId() {
+        return eventId;
+    }
+    
+    public void setEventId(String eventId) {
+        this.eventId = eventId;
+    }
+    
+    @Override
+    public String eventId() {
+        return eventId;
+    }
+    
+    @Override
+    public void assignEventId(String id) {
+        this.eventId = id;
+    }
+    
+    @Override
+    public String eventType() {
+        return "order." + action;
+    }
+    
+    @Override
+    public String eventKey() {
+        return orderId;
+    }
+    
+    @Override
+    public LocalDateTime eventTime() {
+        return timestamp;
+    }
+    
     @Override
     public String toString() {
         return "OrderEvent{" +
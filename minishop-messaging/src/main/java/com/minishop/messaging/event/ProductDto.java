@@ -0,0 +1,43 @@
+package com.minishop.messaging.event;
+
+/**
+ * Producto tal como lo expone products-service y viaja en {@link ProductEvent#getData()}
+ */
+public class ProductDto implements EventPayload {
+    private Long id;
+    private String name;
+    private double price;
+    
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public void setName(String name) {
+        this.name = name;
+    }
+    
+    public double getPrice() {
+        return price;
+    }
+    
+    public void setPrice(double price) {
+        this.price = price;
+    }
+    
+    @Override
+    public String toString() {
+        return "ProductDto{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                ", price=" + price +
+                '}';
+    }
+}
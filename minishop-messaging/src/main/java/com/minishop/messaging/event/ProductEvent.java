@@ -1,17 +1,21 @@
-package com.minishop.productsservice.dto;
+package com.minishop.messaging.event;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
 
 import java.time.LocalDateTime;
 
 /**
- * DTO para eventos de productos
+ * Evento de productos (products.*) publicado por products-service
  */
-public class ProductEvent {
+public class ProductEvent implements RoutableEvent {
     private String productId;
     private String name;
     private Double price;
     private String action;
     private LocalDateTime timestamp;
-    private Object data;
+    @JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "type", defaultImpl = UntypedPayload.class)
+    private EventPayload data;
+    private String eventId;
     
     public ProductEvent() {
         this.timestamp = LocalDateTime.now();
@@ -65,14 +69,47 @@ public class ProductEvent {
         this.timestamp = timestamp;
     }
     
-    public Object getData() {
+    public EventPayload getData() {
         return data;
     }
     
-    public void setData(Object data) {
+    public void setData(EventPayload data) {
         this.data = data;
     }
     
+    public String getEventId() {
+        return eventId;
+    }
+    
+    public void setEventId(String eventId) {
+        this.eventId = eventId;
+    }
+    
+    @Override
+    public String eventId() {
+        return eventId;
+    }
+    
+    @Override
+    public void assignEventId(String id) {
+        this.eventId = id;
+    }
+    
+    @Override
+    public String eventType() {
+        return "product." + action;
+    }
+    
+    @Override
+    public String eventKey() {
+        return productId;
+    }
+    
+    @Override
+    public LocalDateTime eventTime() {
+        return timestamp;
+    }
+    
     @Override
     public String toString() {
         return "ProductEvent{" +
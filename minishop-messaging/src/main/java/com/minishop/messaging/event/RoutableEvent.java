@@ -0,0 +1,38 @@
+package com.minishop.messaging.event;
+
+import java.time.LocalDateTime;
+
+/**
+ * Evento que viaja con cabeceras CloudEvents (ce-type, ce-partitionkey...)
+ * para que los consumidores lo enruten y filtren sin leer el cuerpo.
+ * Los métodos no son getters: no se serializan en el JSON.
+ */
+public interface RoutableEvent {
+
+    /**
+     * Tipo del evento, p. ej. "order.CREATE"
+     */
+    String eventType();
+
+    /**
+     * Clave de la entidad (orderId, productId...): orden y partición
+     */
+    String eventKey();
+
+    LocalDateTime eventTime();
+
+    default int eventVersion() {
+        return 1;
+    }
+
+    /**
+     * Id único del evento (ce-id), asignado al publicarlo por primera vez y
+     * que se conserva en los reenvíos para que el consumidor los descarte
+     */
+    default String eventId() {
+        return null;
+    }
+
+    default void assignEventId(String id) {
+    }
+}
@@ -0,0 +1,30 @@
+package com.minishop.messaging.event;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import com.fasterxml.jackson.annotation.JsonAnySetter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Payload sin tipo conocido: conserva sus campos tal cual llegaron
+ */
+public class UntypedPayload implements EventPayload {
+    
+    private final Map<String, Object> fields = new LinkedHashMap<>();
+    
+    @JsonAnyGetter
+    public Map<String, Object> getFields() {
+        return fields;
+    }
+    
+    @JsonAnySetter
+    public void setField(String name, Object value) {
+        fields.put(name, value);
+    }
+    
+    @Override
+    public String toString() {
+        return "UntypedPayload" + fields;
+    }
+}
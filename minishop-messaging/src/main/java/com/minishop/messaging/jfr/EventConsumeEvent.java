@@ -0,0 +1,54 @@
+package com.minishop.messaging.jfr;
+
+import com.minishop.messaging.core.EventHeaders;
+import io.nats.client.Message;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Procesado de un mensaje por un listener o un consumidor JetStream:
+ * decodificación e invocación del handler
+ */
+@Name("minishop.EventConsume")
+@Label("Event Consume")
+@Category({"Minishop", "Messaging"})
+@Description("Message handled by a listener or a JetStream consumer")
+@StackTrace(false)
+public class EventConsumeEvent extends Event {
+
+    @Label("Subject")
+    String subject;
+
+    @Label("Key")
+    @Description("Partition key of the event (ce-partitionkey)")
+    String key;
+
+    @Label("Event Type")
+    String eventType;
+
+    @Label("Consumer")
+    @Description("Listener id or JetStream durable name")
+    String consumer;
+
+    @Label("Success")
+    boolean success;
+
+    /**
+     * Las cabeceras solo se leen si hay una grabación que guarde el evento
+     */
+    public void record(Message message, String consumer, boolean success) {
+        end();
+        if (shouldCommit()) {
+            this.subject = message.getSubject();
+            this.key = EventHeaders.partitionKey(message);
+            this.eventType = EventHeaders.type(message);
+            this.consumer = consumer;
+            this.success = success;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.minishop.messaging.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Publicación de un mensaje por NatsTemplate: codificación, cabeceras y
+ * entrega a jnats (o al spool). Sin grabación en curso no cuesta nada más
+ * que crear el objeto.
+ */
+@Name("minishop.EventPublish")
+@Label("Event Publish")
+@Category({"Minishop", "Messaging"})
+@Description("Message published through NatsTemplate")
+@StackTrace(false)
+public class EventPublishEvent extends Event {
+
+    @Label("Subject")
+    String subject;
+
+    @Label("Key")
+    @Description("Partition key of the event (ce-partitionkey)")
+    String key;
+
+    @Label("Event Type")
+    String eventType;
+
+    @Label("Size")
+    @DataAmount
+    long bytes;
+
+    @Label("Spooled")
+    @Description("Written to the disk spool because the connection was down")
+    boolean spooled;
+
+    @Label("Success")
+    boolean success;
+
+    public void record(String subject, String key, String eventType, long bytes, boolean spooled, boolean success) {
+        end();
+        if (shouldCommit()) {
+            this.subject = subject;
+            this.key = key;
+            this.eventType = eventType;
+            this.bytes = bytes;
+            this.spooled = spooled;
+            this.success = success;
+            commit();
+        }
+    }
+}
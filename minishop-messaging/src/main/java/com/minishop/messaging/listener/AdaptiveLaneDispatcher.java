@@ -0,0 +1,242 @@
+package com.minishop.messaging.listener;
+
+import com.minishop.messaging.core.MessagingThreads;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Carriles por clave servidos por un número variable de hilos, entre
+ * minWorkers y maxWorkers. Hay maxWorkers carriles (la clave decide el
+ * carril y no cambia al ajustar) y cada carril lo procesa un solo hilo a la
+ * vez, así que el orden por clave se mantiene con cualquier número de hilos.
+ * {@link #adapt} ajusta los hilos según el backlog (carriles más pendientes
+ * de la suscripción) y la duración media de los handlers: crece si el
+ * backlog no se vaciaría en drainTarget y decrece tras varios intervalos
+ * sin backlog y con los hilos poco ocupados.
+ */
+public class AdaptiveLaneDispatcher implements LaneDispatcher {
+
+    // Tareas seguidas de un carril antes de ceder el hilo a otro carril
+    private static final int BATCH = 64;
+    // Intervalos ociosos seguidos antes de quitar un hilo
+    private static final int IDLE_TICKS_TO_SHRINK = 3;
+    private static final double BUSY = 0.8;
+    private static final double IDLE = 0.3;
+
+    private final String name;
+    private final int minWorkers;
+    private final int maxWorkers;
+    private final long drainTargetNanos;
+    private final Lane[] lanes;
+    private final ThreadPoolExecutor workers;
+    private final AtomicInteger roundRobin = new AtomicInteger();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder busyNanos = new LongAdder();
+    private volatile boolean closed;
+
+    // Estado del control: solo lo toca el hilo que llama a adapt
+    private long lastCompleted;
+    private long lastBusyNanos;
+    private long lastAdaptNanos = System.nanoTime();
+    private int idleTicks;
+
+    public AdaptiveLaneDispatcher(String name, int minWorkers, int maxWorkers, int queueCapacity, Duration drainTarget,
+                                  MessagingThreads threads) {
+        if (minWorkers < 1 || maxWorkers < minWorkers) {
+            throw new IllegalArgumentException("Workers must satisfy 1 <= min <= max: " + minWorkers + "-" + maxWorkers);
+        }
+        this.name = name;
+        this.minWorkers = minWorkers;
+        this.maxWorkers = maxWorkers;
+        this.drainTargetNanos = drainTarget.toNanos();
+        this.lanes = new Lane[maxWorkers];
+        for (int i = 0; i < maxWorkers; i++) {
+            lanes[i] = new Lane(queueCapacity);
+        }
+        AtomicInteger count = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(minWorkers, minWorkers, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            task -> threads.newThread(name + "-worker-" + count.getAndIncrement(), task));
+    }
+
+    @Override
+    public void dispatch(String key, Runnable task) throws InterruptedException {
+        if (closed) {
+            return;
+        }
+        Lane lane = lanes[laneFor(key)];
+        lane.queue.put(task);
+        lane.schedule();
+    }
+
+    int laneFor(String key) {
+        if (key == null) {
+            return Math.floorMod(roundRobin.getAndIncrement(), lanes.length);
+        }
+        int hash = key.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), lanes.length);
+    }
+
+    /**
+     * Ajusta los hilos con lo observado desde la llamada anterior
+     *
+     * @param subscriptionPending mensajes esperando en la suscripción, aún sin repartir
+     * @return hilos tras el ajuste
+     */
+    public int adapt(long subscriptionPending) {
+        long now = System.nanoTime();
+        long done = completed.sum() - lastCompleted;
+        long busy = busyNanos.sum() - lastBusyNanos;
+        long elapsed = Math.max(1, now - lastAdaptNanos);
+        lastCompleted += done;
+        lastBusyNanos += busy;
+        lastAdaptNanos = now;
+
+        int current = workers.getMaximumPoolSize();
+        long backlog = getQueued() + subscriptionPending;
+        double utilization = (double) busy / ((double) elapsed * current);
+        long meanNanos = done > 0 ? busy / done : 0;
+        long drainNanos = meanNanos * backlog / current;
+        // Sin tareas terminadas y todos los hilos ocupados: handlers atascados, la media no sirve
+        boolean saturated = done == 0 && workers.getActiveCount() >= current;
+
+        int target = current;
+        if (backlog > 0 && (drainNanos > drainTargetNanos || saturated)) {
+            // Ráfaga: se dobla para absorberla antes de que la suscripción llegue a su límite
+            target = Math.min(maxWorkers, current * 2);
+            idleTicks = 0;
+        } else if (backlog > 0 && utilization > BUSY) {
+            target = Math.min(maxWorkers, current + 1);
+            idleTicks = 0;
+        } else if (backlog == 0 && utilization < IDLE) {
+            if (++idleTicks >= IDLE_TICKS_TO_SHRINK) {
+                target = Math.max(minWorkers, current - 1);
+                idleTicks = 0;
+            }
+        } else {
+            idleTicks = 0;
+        }
+        if (target != current) {
+            resize(target);
+            System.out.println("[MESSAGING] Lanes " + name + ": workers " + current + " -> " + target
+                + " (backlog " + backlog + ", mean handler " + meanNanos / 1000 + " us, utilization "
+                + Math.round(utilization * 100) + "%)");
+        }
+        return target;
+    }
+
+    private void resize(int target) {
+        // El máximo nunca puede quedar por debajo del core
+        if (target > workers.getMaximumPoolSize()) {
+            workers.setMaximumPoolSize(target);
+            workers.setCorePoolSize(target);
+        } else {
+            workers.setCorePoolSize(target);
+            workers.setMaximumPoolSize(target);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    @Override
+    public int[] getQueueDepths() {
+        int[] depths = new int[lanes.length];
+        for (int i = 0; i < lanes.length; i++) {
+            depths[i] = lanes[i].queue.size();
+        }
+        return depths;
+    }
+
+    public int getWorkers() {
+        return workers.getCorePoolSize();
+    }
+
+    public int getMinWorkers() {
+        return minWorkers;
+    }
+
+    public int getMaxWorkers() {
+        return maxWorkers;
+    }
+
+    private long getQueued() {
+        long queued = 0;
+        for (Lane lane : lanes) {
+            queued += lane.queue.size();
+        }
+        return queued;
+    }
+
+    @Override
+    public void shutdown(Duration timeout) throws InterruptedException {
+        closed = true;
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while ((getQueued() > 0 || workers.getActiveCount() > 0) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        workers.shutdown();
+        workers.awaitTermination(Math.max(1, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        shutdown(Duration.ofSeconds(10));
+    }
+
+    private final class Lane {
+        private final BlockingQueue<Runnable> queue;
+        // Un carril está en la cola del pool o procesándose como mucho una vez
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        Lane(int queueCapacity) {
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        }
+
+        void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    workers.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    // Pool parado tras agotar el timeout de shutdown: lo que quede se pierde
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            Runnable task;
+            for (int i = 0; i < BATCH && (task = queue.poll()) != null; i++) {
+                long start = System.nanoTime();
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    // Un handler que falla no debe parar el carril
+                    System.err.println("[" + Thread.currentThread().getName() + "] Handler error: " + e.getMessage());
+                }
+                busyNanos.add(System.nanoTime() - start);
+                completed.increment();
+            }
+            scheduled.set(false);
+            // Lo que llegó tras el último poll (o lo que quedó por el lote) vuelve a la cola del pool
+            if (!queue.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.minishop.messaging.listener;
+
+import com.minishop.messaging.core.MessagingThreads;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reparte el trabajo de los handlers NATS en N carriles de un solo hilo.
+ * Cada mensaje va al carril que corresponde al hash de su clave (orderId,
+ * productId...): los mensajes de una misma clave se procesan en orden y los
+ * de claves distintas en paralelo. Las colas de los carriles están acotadas;
+ * si un carril se llena, quien despacha espera.
+ */
+public class KeyedLaneDispatcher implements LaneDispatcher {
+
+    private static final Runnable STOP = () -> { };
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(10);
+
+    private final String name;
+    private final Lane[] lanes;
+    private final AtomicInteger roundRobin = new AtomicInteger();
+    private volatile boolean closed;
+
+    public KeyedLaneDispatcher(String name, int laneCount, int queueCapacity) {
+        this(name, laneCount, queueCapacity, new MessagingThreads(false));
+    }
+
+    public KeyedLaneDispatcher(String name, int laneCount, int queueCapacity, MessagingThreads threads) {
+        if (laneCount < 1) {
+            throw new IllegalArgumentException("laneCount must be >= 1");
+        }
+        this.name = name;
+        this.lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(threads, name + "-lane-" + i, queueCapacity);
+        }
+    }
+
+    /**
+     * Encola la tarea en el carril de la clave. Sin clave no hay orden que
+     * preservar y se reparte en round-robin.
+     */
+    @Override
+    public void dispatch(String key, Runnable task) throws InterruptedException {
+        if (closed) {
+            // Parando: los carriles ya no consumen y un put podría bloquear para siempre
+            return;
+        }
+        lanes[laneFor(key)].queue.put(task);
+    }
+
+    int laneFor(String key) {
+        if (key == null) {
+            return Math.floorMod(roundRobin.getAndIncrement(), lanes.length);
+        }
+        int hash = key.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), lanes.length);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    @Override
+    public int[] getQueueDepths() {
+        int[] depths = new int[lanes.length];
+        for (int i = 0; i < lanes.length; i++) {
+            depths[i] = lanes[i].queue.size();
+        }
+        return depths;
+    }
+
+    /**
+     * Los carriles terminan lo encolado hasta el timeout. Un carril lleno que
+     * no admite la señal de parada dentro del plazo se interrumpe: su handler
+     * en curso recibe la interrupción y el resto de su cola se descarta.
+     */
+    @Override
+    public void shutdown(Duration timeout) throws InterruptedException {
+        closed = true;
+        long deadline = System.nanoTime() + timeout.toNanos();
+        for (Lane lane : lanes) {
+            if (!lane.queue.offer(STOP, Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                lane.interrupted = true;
+                lane.thread.interrupt();
+            }
+        }
+        for (Lane lane : lanes) {
+            lane.thread.join(Math.max(1, (deadline - System.nanoTime()) / 1_000_000));
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        shutdown(SHUTDOWN_TIMEOUT);
+    }
+
+    private static final class Lane {
+        private final BlockingQueue<Runnable> queue;
+        private final Thread thread;
+        // El handler puede tragarse la interrupción: el carril la comprueba entre tareas
+        private volatile boolean interrupted;
+
+        Lane(MessagingThreads threads, String threadName, int queueCapacity) {
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.thread = threads.newThread(threadName, this::run);
+            this.thread.start();
+        }
+
+        private void run() {
+            try {
+                while (!interrupted) {
+                    Runnable task = queue.take();
+                    if (task == STOP) {
+                        return;
+                    }
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        // Un handler que falla no debe parar el carril
+                        System.err.println("[" + Thread.currentThread().getName() + "] Handler error: " + e.getMessage());
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
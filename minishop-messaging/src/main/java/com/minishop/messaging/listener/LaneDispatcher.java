@@ -0,0 +1,33 @@
+package com.minishop.messaging.listener;
+
+import java.time.Duration;
+
+/**
+ * Reparto de los mensajes de un listener en carriles por clave: los de una
+ * misma clave se procesan en orden y los de claves distintas en paralelo
+ */
+public interface LaneDispatcher extends AutoCloseable {
+
+    /**
+     * Encola la tarea en el carril de la clave; sin clave, en cualquiera.
+     * Si el carril está lleno, espera.
+     */
+    void dispatch(String key, Runnable task) throws InterruptedException;
+
+    String getName();
+
+    int getLaneCount();
+
+    /**
+     * Mensajes pendientes en cada carril
+     */
+    int[] getQueueDepths();
+
+    /**
+     * Procesa lo ya encolado y se detiene
+     */
+    void shutdown(Duration timeout) throws InterruptedException;
+
+    @Override
+    void close() throws InterruptedException;
+}
@@ -0,0 +1,51 @@
+package com.minishop.messaging.listener;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Extrae la clave de partición de un mensaje JSON (o CBOR/Smile) sin deserializarlo entero
+ */
+public final class MessageKeys {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private MessageKeys() {
+    }
+
+    /**
+     * Devuelve el valor del campo de primer nivel indicado, o null si el
+     * mensaje no es un objeto JSON o no lo contiene
+     */
+    public static String extract(byte[] json, String field) {
+        return extract(JSON_FACTORY, json, field);
+    }
+
+    /**
+     * Igual que {@link #extract(byte[], String)} con el parser del formato del mensaje
+     */
+    public static String extract(JsonFactory factory, byte[] data, String field) {
+        if (field == null || data == null || data.length == 0) {
+            return null;
+        }
+        try (JsonParser parser = factory.createParser(data)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (field.equals(name)) {
+                    return value.isScalarValue() && value != JsonToken.VALUE_NULL ? parser.getText() : null;
+                }
+                parser.skipChildren();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return null;
+    }
+}
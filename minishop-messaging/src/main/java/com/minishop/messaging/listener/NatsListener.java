@@ -0,0 +1,74 @@
+package com.minishop.messaging.listener;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marca un método como handler de un subject NATS.
+ *
+ * Cada listener tiene su propio Dispatcher de jnats (un hilo que espera
+ * mensajes, sin sondeo) y entrega cada mensaje a un carril según su clave.
+ * Los atributos de texto admiten placeholders ${...} y expresiones #{...}.
+ *
+ * Parámetros admitidos en el método: {@code io.nats.client.Message},
+ * {@code io.nats.client.impl.Headers}, {@code byte[]}, {@code String} (el contenido como JSON) o cualquier tipo que
+ * se decodifique del mensaje según su Content-Type (por ejemplo
+ * {@code OrderEvent}), en cualquier orden.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface NatsListener {
+
+    /**
+     * Subject (o comodín) al que se suscribe
+     */
+    String subject();
+
+    /**
+     * Grupo de cola; vacío para recibir todos los mensajes en cada réplica
+     */
+    String queue() default "${messaging.queue-group:}";
+
+    /**
+     * Campo JSON de primer nivel que define el orden (orderId, productId...).
+     * Si el mensaje trae la cabecera ce-partitionkey se usa esta sin leer el cuerpo.
+     * Vacío: sin orden entre mensajes, se reparten en round-robin.
+     */
+    String key() default "";
+
+    /**
+     * Tipos de evento (cabecera ce-type, p. ej. "order.CREATE") que atiende
+     * el listener. Los demás se descartan sin leer el cuerpo. Vacío: todos.
+     * Los mensajes sin cabeceras CloudEvents se entregan siempre.
+     */
+    String[] types() default {};
+
+    /**
+     * Vacío: carriles compartidos (messaging.dispatch.*). "1": en el hilo del
+     * Dispatcher, estrictamente en orden de llegada. N mayor que 1: N carriles
+     * propios de este listener. "MIN-MAX" (p. ej. "1-8"): carriles propios con
+     * entre MIN y MAX hilos según el backlog y la duración de los handlers.
+     */
+    String concurrency() default "";
+
+    /**
+     * Mensajes pendientes en el Dispatcher antes de descartar (slow consumer).
+     * Vacío: messaging.listener.pending-messages.
+     */
+    String pendingMessages() default "";
+
+    /**
+     * Bytes pendientes en el Dispatcher antes de descartar (slow consumer).
+     * Vacío: messaging.listener.pending-bytes.
+     */
+    String pendingBytes() default "";
+
+    /**
+     * Permite desactivar el listener por configuración, p. ej. "${feature.enabled:true}"
+     */
+    String enabled() default "true";
+}
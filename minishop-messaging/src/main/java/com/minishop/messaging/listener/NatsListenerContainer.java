@@ -0,0 +1,461 @@
+package com.minishop.messaging.listener;
+
+import com.minishop.messaging.codec.MessageCodec;
+import com.minishop.messaging.core.Deadline;
+import com.minishop.messaging.core.EventDeduplicator;
+import com.minishop.messaging.core.EventHeaders;
+import com.minishop.messaging.core.EventOrigin;
+import com.minishop.messaging.core.MessagingObserver;
+import com.minishop.messaging.jfr.EventConsumeEvent;
+import com.minishop.messaging.tracing.Span;
+import com.minishop.messaging.tracing.TraceContext;
+import com.minishop.messaging.tracing.Tracer;
+import io.nats.client.Connection;
+import io.nats.client.Dispatcher;
+import io.nats.client.Message;
+import io.nats.client.impl.Headers;
+import io.nats.client.impl.NatsMessage;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Suscripción de un {@link NatsListener}: un Dispatcher de jnats que entrega
+ * cada mensaje al carril de su clave e invoca el método con los argumentos
+ * ya decodificados. Un handler que falla no afecta al resto.
+ * Si el mensaje es una petición, lo que devuelve el método es la respuesta;
+ * si su plazo (X-Request-Timeout) vence antes de atenderla, se descarta.
+ * Con deduplicador, un evento cuyo ce-id ya se recibió no se vuelve a entregar.
+ * Cada invocación es un span hijo del traceparent del mensaje.
+ */
+public class NatsListenerContainer {
+
+    private final String id;
+    private final Object bean;
+    private final Method method;
+    private final String subject;
+    private final String queue;
+    private final String key;
+    private final Set<String> types;
+    private final long pendingMessages;
+    private final long pendingBytes;
+    private final LaneDispatcher lanes;
+    private final boolean ownLanes;
+    private final MessageCodec codec;
+    private final MessagingObserver observer;
+    private final EventDeduplicator deduplicator;
+    private final Tracer tracer;
+    private final ArgumentResolver[] resolvers;
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong filtered = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong slowConsumerEvents = new AtomicLong();
+    private long lastDropped;
+
+    private Connection connection;
+    private Dispatcher dispatcher;
+
+    static Builder builder(String id, Object bean, Method method) {
+        return new Builder(id, bean, method);
+    }
+
+    private NatsListenerContainer(Builder builder) {
+        this.id = builder.id;
+        this.bean = builder.bean;
+        this.method = builder.method;
+        this.subject = builder.subject;
+        this.queue = builder.queue;
+        this.key = builder.key;
+        this.types = builder.types;
+        this.pendingMessages = builder.pendingMessages;
+        this.pendingBytes = builder.pendingBytes;
+        this.lanes = builder.lanes;
+        this.ownLanes = builder.ownLanes;
+        this.codec = builder.codec;
+        this.observer = builder.observer;
+        this.deduplicator = builder.deduplicator;
+        this.tracer = builder.tracer;
+        this.resolvers = resolvers(method, codec);
+        ReflectionUtils.makeAccessible(method);
+    }
+
+    void start(Connection connection) {
+        this.connection = connection;
+        dispatcher = connection.createDispatcher(this::onMessage);
+        dispatcher.setPendingLimits(pendingMessages, pendingBytes);
+        if (queue == null || queue.isBlank()) {
+            dispatcher.subscribe(subject);
+        } else {
+            dispatcher.subscribe(subject, queue);
+        }
+        observer.subscribed(id, subject, dispatcher);
+        if (lanes instanceof AdaptiveLaneDispatcher adaptive) {
+            observer.adaptiveWorkers(id, subject, adaptive::getWorkers);
+        }
+    }
+
+    /**
+     * Revisión periódica: avisa de los mensajes que jnats descartó por
+     * superar los límites de pendientes (slow consumer) desde la anterior y
+     * ajusta los hilos si el listener es adaptativo
+     */
+    void control() {
+        if (dispatcher == null) {
+            return;
+        }
+        long dropped = dispatcher.getDroppedCount();
+        long newlyDropped = dropped - lastDropped;
+        lastDropped = dropped;
+        if (newlyDropped > 0) {
+            slowConsumerEvents.incrementAndGet();
+            observer.slowConsumer(id, subject, newlyDropped);
+            System.err.println("[MESSAGING] Slow consumer " + id + " on " + subject + ": dropped " + newlyDropped
+                + " messages (pending " + dispatcher.getPendingMessageCount() + " msgs / " + dispatcher.getPendingByteCount()
+                + " bytes, limits " + pendingMessages + " / " + pendingBytes + ")");
+        }
+        if (lanes instanceof AdaptiveLaneDispatcher adaptive) {
+            adaptive.adapt(dispatcher.getPendingMessageCount());
+        }
+    }
+
+    private void onMessage(Message message) throws InterruptedException {
+        if (!accepts(message)) {
+            filtered.incrementAndGet();
+            return;
+        }
+        if (isDuplicate(message)) {
+            duplicates.incrementAndGet();
+            return;
+        }
+        // El plazo se cuenta desde la llegada: incluye la espera en el carril
+        Deadline deadline = Deadline.of(message, System.nanoTime());
+        if (lanes == null) {
+            invoke(message, deadline);
+            return;
+        }
+        lanes.dispatch(partitionKey(message), () -> invoke(message, deadline));
+    }
+
+    /**
+     * Evento ya procesado por este listener. Los repetidos vienen de reenvíos
+     * del productor (outbox, spool); el id se registra solo cuando el handler
+     * termina bien, así que un mensaje caducado, fallido o perdido al parar
+     * no bloquea el reenvío que lo recupera. Las peticiones no se deduplican:
+     * la cobertura (hedging) repite el mismo ce-id a propósito. Al llegar solo
+     * se descartan los ya procesados; invoke lo vuelve a mirar justo antes del
+     * handler, por si la copia anterior esperaba en el mismo carril.
+     */
+    boolean isDuplicate(Message message) {
+        String dedupKey = dedupKey(message);
+        return dedupKey != null && deduplicator.contains(dedupKey);
+    }
+
+    private String dedupKey(Message message) {
+        if (deduplicator == null || message.getReplyTo() != null) {
+            return null;
+        }
+        String eventId = EventHeaders.id(message);
+        return eventId != null ? id + "|" + eventId : null;
+    }
+
+    /**
+     * Filtra por la cabecera ce-type; sin cabecera no se puede saber sin leer el cuerpo y se entrega
+     */
+    boolean accepts(Message message) {
+        if (types.isEmpty()) {
+            return true;
+        }
+        String type = EventHeaders.type(message);
+        return type == null || types.contains(type);
+    }
+
+    private String partitionKey(Message message) {
+        if (key.isEmpty()) {
+            return null;
+        }
+        String headerKey = EventHeaders.partitionKey(message);
+        return headerKey != null ? headerKey
+            : MessageKeys.extract(codec.factoryFor(MessageCodec.contentType(message)), codec.payload(message), key);
+    }
+
+    void invoke(Message message) {
+        invoke(message, Deadline.of(message, System.nanoTime()));
+    }
+
+    void invoke(Message message, Deadline deadline) {
+        if (deadline != null && deadline.isExpired()) {
+            // Quien pidió ya no espera la respuesta: no se gasta trabajo en ella
+            expired.incrementAndGet();
+            return;
+        }
+        // El mismo ce-id lleva la misma clave: la copia anterior ya terminó en este carril
+        String dedupKey = dedupKey(message);
+        if (dedupKey != null && deduplicator.contains(dedupKey)) {
+            duplicates.incrementAndGet();
+            return;
+        }
+        Deadline previous = Deadline.enter(deadline);
+        // Lo que publique el handler hereda el origen del mensaje
+        EventOrigin previousOrigin = EventOrigin.enter(EventOrigin.of(message));
+        boolean request = message.getReplyTo() != null;
+        Span span = tracer.start((request ? "handle " : "process ") + subject,
+            request ? Span.Kind.SERVER : Span.Kind.CONSUMER, TraceContext.of(message));
+        if (span.isRecording()) {
+            span.tag("messaging.subject", message.getSubject()).tag("messaging.listener", id)
+                .tag("messaging.type", EventHeaders.type(message)).tag("messaging.key", EventHeaders.partitionKey(message));
+        }
+        TraceContext previousTrace = TraceContext.enter(span.context());
+        EventConsumeEvent jfr = new EventConsumeEvent();
+        jfr.begin();
+        boolean success = false;
+        long start = System.nanoTime();
+        long decodeNanos = -1;
+        try {
+            Object[] args = new Object[resolvers.length];
+            for (int i = 0; i < resolvers.length; i++) {
+                args[i] = resolvers[i].resolve(message);
+            }
+            decodeNanos = System.nanoTime() - start;
+            Object result = method.invoke(bean, args);
+            processed.incrementAndGet();
+            success = true;
+            if (dedupKey != null) {
+                deduplicator.add(dedupKey);
+            }
+            observer.consumed(id, subject, decodeNanos, System.nanoTime() - start - decodeNanos, true);
+            if (result != null && message.getReplyTo() != null) {
+                reply(message.getReplyTo(), result);
+            }
+        } catch (InvocationTargetException e) {
+            errors.incrementAndGet();
+            observer.consumed(id, subject, decodeNanos, System.nanoTime() - start - decodeNanos, false);
+            span.error(e.getTargetException());
+            System.err.println("[MESSAGING] Listener " + id + " failed on " + message.getSubject() + ": " + e.getTargetException());
+        } catch (Exception e) {
+            errors.incrementAndGet();
+            // Fallo al decodificar: no llegó a invocarse el handler
+            observer.consumed(id, subject, decodeNanos < 0 ? System.nanoTime() - start : decodeNanos, 0, false);
+            span.error(e);
+            System.err.println("[MESSAGING] Listener " + id + " could not handle message on " + message.getSubject() + ": " + e);
+        } finally {
+            jfr.record(message, id, success);
+            span.end();
+            Deadline.restore(previous);
+            EventOrigin.restore(previousOrigin);
+            TraceContext.restore(previousTrace);
+        }
+    }
+
+    private void reply(String replyTo, Object result) {
+        byte[] data = codec.encode(result);
+        if (codec.isJson()) {
+            connection.publish(replyTo, data);
+        } else {
+            connection.publish(NatsMessage.builder().subject(replyTo)
+                .headers(new Headers().put(MessageCodec.CONTENT_TYPE_HEADER, codec.getContentType())).data(data).build());
+        }
+    }
+
+    /**
+     * Deja de recibir, procesa lo pendiente y libera los carriles propios
+     */
+    void stop(Duration timeout) {
+        if (dispatcher != null) {
+            try {
+                dispatcher.drain(timeout).get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                // Conexión ya cerrada o timeout: no queda nada que vaciar
+                System.err.println("[MESSAGING] Listener " + id + " did not drain cleanly: " + e);
+            }
+        }
+        if (ownLanes) {
+            try {
+                lanes.shutdown(timeout);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public String getId() { return id; }
+    public String getSubject() { return subject; }
+    public String getQueue() { return queue; }
+    public long getProcessed() { return processed.get(); }
+    public long getErrors() { return errors.get(); }
+    public long getFiltered() { return filtered.get(); }
+
+    /**
+     * Peticiones descartadas sin procesar porque su plazo ya había vencido
+     */
+    public long getExpired() { return expired.get(); }
+
+    /**
+     * Eventos repetidos (mismo ce-id) descartados sin entregar
+     */
+    public long getDuplicates() { return duplicates.get(); }
+
+    /**
+     * Revisiones en las que jnats había descartado mensajes nuevos
+     */
+    public long getSlowConsumerEvents() { return slowConsumerEvents.get(); }
+
+    /**
+     * Hilos del listener si es adaptativo, o -1
+     */
+    public int getWorkers() {
+        return lanes instanceof AdaptiveLaneDispatcher adaptive ? adaptive.getWorkers() : -1;
+    }
+
+    /**
+     * Mensajes descartados por superar los límites de pendientes
+     */
+    public long getDropped() {
+        return dispatcher != null ? dispatcher.getDroppedCount() : 0;
+    }
+
+    private static ArgumentResolver[] resolvers(Method method, MessageCodec codec) {
+        Parameter[] parameters = method.getParameters();
+        ArgumentResolver[] resolvers = new ArgumentResolver[parameters.length];
+        boolean payload = false;
+        for (int i = 0; i < parameters.length; i++) {
+            Class<?> type = parameters[i].getType();
+            if (Message.class.isAssignableFrom(type)) {
+                resolvers[i] = message -> message;
+            } else if (type == Headers.class) {
+                resolvers[i] = Message::getHeaders;
+            } else if (type == byte[].class) {
+                resolvers[i] = codec::payload;
+            } else if (type == String.class) {
+                resolvers[i] = codec::toText;
+            } else if (!payload) {
+                // Un ObjectReader por formato, cacheado en el codec y seguro entre hilos
+                Type payloadType = parameters[i].getParameterizedType();
+                resolvers[i] = message -> codec.readerFor(payloadType, MessageCodec.contentType(message))
+                    .readValue(codec.payload(message));
+                payload = true;
+            } else {
+                throw new IllegalStateException("@NatsListener " + method + " declares more than one payload parameter");
+            }
+        }
+        return resolvers;
+    }
+
+    @FunctionalInterface
+    private interface ArgumentResolver {
+        Object resolve(Message message) throws Exception;
+    }
+
+    static final class Builder {
+
+        private final String id;
+        private final Object bean;
+        private final Method method;
+        private String subject;
+        private String queue = "";
+        private String key = "";
+        private Set<String> types = Set.of();
+        private long pendingMessages;
+        private long pendingBytes;
+        private LaneDispatcher lanes;
+        private boolean ownLanes;
+        private MessageCodec codec;
+        private MessagingObserver observer = MessagingObserver.NOOP;
+        private EventDeduplicator deduplicator;
+        private Tracer tracer = Tracer.disabled();
+
+        private Builder(String id, Object bean, Method method) {
+            this.id = id;
+            this.bean = bean;
+            this.method = method;
+        }
+
+        Builder subject(String subject) {
+            this.subject = subject;
+            return this;
+        }
+
+        /**
+         * Queue group; vacío para recibir todos los mensajes
+         */
+        Builder queue(String queue) {
+            this.queue = queue;
+            return this;
+        }
+
+        /**
+         * Campo del payload que elige el carril; vacío para no ordenar por clave
+         */
+        Builder key(String key) {
+            this.key = key;
+            return this;
+        }
+
+        /**
+         * ce-type aceptados; vacío para aceptarlos todos
+         */
+        Builder types(Set<String> types) {
+            this.types = types;
+            return this;
+        }
+
+        /**
+         * Límites del Dispatcher antes de descartar (slow consumer)
+         */
+        Builder pendingLimits(long pendingMessages, long pendingBytes) {
+            this.pendingMessages = pendingMessages;
+            this.pendingBytes = pendingBytes;
+            return this;
+        }
+
+        /**
+         * @param lanes carriles por clave, o null para invocar en el hilo del Dispatcher
+         * @param own si el contenedor los cierra al parar
+         */
+        Builder lanes(LaneDispatcher lanes, boolean own) {
+            this.lanes = lanes;
+            this.ownLanes = own;
+            return this;
+        }
+
+        Builder codec(MessageCodec codec) {
+            this.codec = codec;
+            return this;
+        }
+
+        Builder observer(MessagingObserver observer) {
+            this.observer = observer;
+            return this;
+        }
+
+        /**
+         * Ids ya recibidos; sin él se entrega todo
+         */
+        Builder deduplicator(EventDeduplicator deduplicator) {
+            this.deduplicator = deduplicator;
+            return this;
+        }
+
+        /**
+         * Spans de cada invocación; lo que publique el handler es hijo suyo
+         */
+        Builder tracer(Tracer tracer) {
+            this.tracer = tracer;
+            return this;
+        }
+
+        NatsListenerContainer build() {
+            return new NatsListenerContainer(this);
+        }
+    }
+}
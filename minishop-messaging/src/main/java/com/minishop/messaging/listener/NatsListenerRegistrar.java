@@ -0,0 +1,206 @@
+package com.minishop.messaging.listener;
+
+import com.minishop.messaging.codec.MessageCodec;
+import com.minishop.messaging.config.DispatchProperties;
+import com.minishop.messaging.config.ListenerProperties;
+import com.minishop.messaging.core.EventDeduplicator;
+import com.minishop.messaging.core.MessagingObserver;
+import com.minishop.messaging.core.MessagingThreads;
+import com.minishop.messaging.tracing.Tracer;
+import io.nats.client.Connection;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.config.BeanExpressionContext;
+import org.springframework.beans.factory.config.BeanExpressionResolver;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.util.StringUtils;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Detecta los métodos {@link NatsListener}, los suscribe cuando el contexto
+ * arranca y vacía sus suscripciones al parar. Cada
+ * messaging.listener.control-interval revisa los descartes por slow consumer
+ * y ajusta los listeners adaptativos.
+ */
+public class NatsListenerRegistrar implements BeanPostProcessor, BeanFactoryAware, SmartLifecycle {
+
+    private final List<Endpoint> endpoints = new CopyOnWriteArrayList<>();
+    private final List<NatsListenerContainer> containers = new CopyOnWriteArrayList<>();
+
+    private ConfigurableListableBeanFactory beanFactory;
+    private volatile boolean running;
+    private ScheduledExecutorService control;
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+        this.beanFactory = (ConfigurableListableBeanFactory) beanFactory;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        Class<?> targetClass = AopUtils.getTargetClass(bean);
+        if (!AnnotationUtils.isCandidateClass(targetClass, NatsListener.class)) {
+            return bean;
+        }
+        Map<Method, NatsListener> methods = MethodIntrospector.selectMethods(targetClass,
+            (MethodIntrospector.MetadataLookup<NatsListener>) method ->
+                AnnotatedElementUtils.findMergedAnnotation(method, NatsListener.class));
+        methods.forEach((method, listener) -> endpoints.add(
+            new Endpoint(beanName, bean, AopUtils.selectInvocableMethod(method, bean.getClass()), listener)));
+        return bean;
+    }
+
+    @Override
+    public void start() {
+        Connection connection = beanFactory.getBean(Connection.class);
+        KeyedLaneDispatcher sharedLanes = beanFactory.getBean(KeyedLaneDispatcher.class);
+        DispatchProperties dispatchProperties = beanFactory.getBean(DispatchProperties.class);
+        ListenerProperties listenerProperties = beanFactory.getBean(ListenerProperties.class);
+        MessageCodec codec = beanFactory.getBean(MessageCodec.class);
+        MessagingThreads threads = beanFactory.getBean(MessagingThreads.class);
+        MessagingObserver observer = beanFactory.getBeanProvider(MessagingObserver.class).getIfAvailable(() -> MessagingObserver.NOOP);
+        EventDeduplicator deduplicator = beanFactory.getBeanProvider(EventDeduplicator.class).getIfAvailable();
+        Tracer tracer = beanFactory.getBeanProvider(Tracer.class).getIfAvailable(Tracer::disabled);
+
+        for (Endpoint endpoint : endpoints) {
+            NatsListener listener = endpoint.listener;
+            String id = endpoint.beanName + "." + endpoint.method.getName();
+            if (!Boolean.parseBoolean(resolve(listener.enabled()))) {
+                System.out.println("[MESSAGING] Listener " + id + " disabled");
+                continue;
+            }
+
+            String concurrency = resolve(listener.concurrency()).trim();
+            LaneDispatcher lanes = sharedLanes;
+            boolean ownLanes = false;
+            if (concurrency.contains("-")) {
+                String[] range = concurrency.split("-", 2);
+                lanes = new AdaptiveLaneDispatcher(id, Integer.parseInt(range[0].trim()), Integer.parseInt(range[1].trim()),
+                    dispatchProperties.getQueueCapacity(), Duration.ofMillis(listenerProperties.getDrainTarget()), threads);
+                ownLanes = true;
+            } else if (!concurrency.isEmpty()) {
+                int lanesCount = Integer.parseInt(concurrency);
+                lanes = lanesCount > 1 ? new KeyedLaneDispatcher(id, lanesCount, dispatchProperties.getQueueCapacity(), threads) : null;
+                ownLanes = lanes != null;
+            }
+
+            NatsListenerContainer container = NatsListenerContainer.builder(id, endpoint.bean, endpoint.method)
+                .subject(resolve(listener.subject()))
+                .queue(resolve(listener.queue()))
+                .key(resolve(listener.key()))
+                .types(resolveTypes(listener.types()))
+                .pendingLimits(resolveLong(listener.pendingMessages(), listenerProperties.getPendingMessages()),
+                    resolveLong(listener.pendingBytes(), listenerProperties.getPendingBytes()))
+                .lanes(lanes, ownLanes)
+                .codec(codec)
+                .observer(observer)
+                .deduplicator(deduplicator)
+                .tracer(tracer)
+                .build();
+            container.start(connection);
+            containers.add(container);
+            System.out.println("[MESSAGING] Listening to: " + container.getSubject()
+                + (container.getQueue().isBlank() ? "" : " (queue " + container.getQueue() + ")") + " -> " + id);
+        }
+        if (!containers.isEmpty()) {
+            long interval = listenerProperties.getControlInterval();
+            control = Executors.newSingleThreadScheduledExecutor(task -> threads.newThread("nats-listener-control", task));
+            control.scheduleWithFixedDelay(this::control, interval, interval, TimeUnit.MILLISECONDS);
+        }
+        running = true;
+    }
+
+    private void control() {
+        for (NatsListenerContainer container : containers) {
+            try {
+                container.control();
+            } catch (RuntimeException e) {
+                // Un fallo en un listener no debe parar la revisión de los demás
+                System.err.println("[MESSAGING] Listener control failed for " + container.getId() + ": " + e);
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (control != null) {
+            control.shutdownNow();
+            control = null;
+        }
+        Duration timeout = Duration.ofMillis(beanFactory.getBean(ListenerProperties.class).getDrainTimeout());
+        for (NatsListenerContainer container : containers) {
+            container.stop(timeout);
+        }
+        containers.clear();
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public List<NatsListenerContainer> getContainers() {
+        return Collections.unmodifiableList(new ArrayList<>(containers));
+    }
+
+    private String resolve(String value) {
+        String resolved = beanFactory.resolveEmbeddedValue(value);
+        BeanExpressionResolver expressionResolver = beanFactory.getBeanExpressionResolver();
+        if (resolved == null || expressionResolver == null) {
+            return resolved;
+        }
+        Object evaluated = expressionResolver.evaluate(resolved, new BeanExpressionContext(beanFactory, null));
+        return evaluated != null ? evaluated.toString() : null;
+    }
+
+    private Set<String> resolveTypes(String[] types) {
+        Set<String> resolved = new LinkedHashSet<>();
+        for (String type : types) {
+            for (String value : StringUtils.commaDelimitedListToStringArray(resolve(type))) {
+                if (!value.isBlank()) {
+                    resolved.add(value.trim());
+                }
+            }
+        }
+        return resolved;
+    }
+
+    private long resolveLong(String value, long defaultValue) {
+        String resolved = resolve(value);
+        return resolved == null || resolved.isBlank() ? defaultValue : Long.parseLong(resolved.trim());
+    }
+
+    private static final class Endpoint {
+        private final String beanName;
+        private final Object bean;
+        private final Method method;
+        private final NatsListener listener;
+
+        Endpoint(String beanName, Object bean, Method method, NatsListener listener) {
+            this.beanName = beanName;
+            this.bean = bean;
+            this.method = method;
+            this.listener = listener;
+        }
+    }
+}
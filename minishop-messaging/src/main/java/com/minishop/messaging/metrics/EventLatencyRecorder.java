@@ -0,0 +1,115 @@
+package com.minishop.messaging.metrics;
+
+import com.minishop.messaging.core.EventOrigin;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Histogramas HdrHistogram de la latencia desde el origen de la cadena de
+ * eventos ({@link EventOrigin}) hasta cada salto (el controlador, cada
+ * handler...), en microsegundos con 3 cifras significativas.
+ * Registrar no bloquea (un Recorder por salto); las lecturas acumulan los
+ * intervalos en un histograma total. Además del histograma tal cual se
+ * ofrece el corregido por omisión coordinada: si un salto se atasca, los
+ * eventos que debieron llegar mientras tanto no se miden, y la corrección
+ * los rellena suponiendo que llegan cada expectedInterval.
+ */
+public class EventLatencyRecorder {
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final long expectedIntervalMicros;
+    private final ConcurrentMap<String, Hop> hops = new ConcurrentHashMap<>();
+
+    /**
+     * @param expectedIntervalMillis intervalo esperado entre eventos de un salto; 0 = el medio observado
+     */
+    public EventLatencyRecorder(long expectedIntervalMillis) {
+        this.expectedIntervalMicros = TimeUnit.MILLISECONDS.toMicros(expectedIntervalMillis);
+    }
+
+    /**
+     * Registra el salto con el origen en curso del hilo; sin origen no hace nada
+     */
+    public void record(String hop) {
+        EventOrigin origin = EventOrigin.current();
+        if (origin != null) {
+            record(hop, origin.elapsedMicros());
+        }
+    }
+
+    public void record(String hop, long micros) {
+        hops.computeIfAbsent(hop, name -> new Hop()).record(micros);
+    }
+
+    public Set<String> getHops() {
+        return hops.keySet();
+    }
+
+    /**
+     * Copia del histograma acumulado del salto, o null si no hay registros
+     */
+    public Histogram snapshot(String hop) {
+        Hop state = hops.get(hop);
+        return state == null ? null : state.snapshot();
+    }
+
+    /**
+     * Copia corregida por omisión coordinada
+     */
+    public Histogram correctedSnapshot(String hop) {
+        Histogram raw = snapshot(hop);
+        if (raw == null) {
+            return null;
+        }
+        long interval = expectedIntervalMicros(hop);
+        return interval > 0 ? raw.copyCorrectedForCoordinatedOmission(interval) : raw;
+    }
+
+    /**
+     * Intervalo usado para la corrección: el configurado o, si es 0, el
+     * medio entre los eventos registrados del salto
+     */
+    public long expectedIntervalMicros(String hop) {
+        if (expectedIntervalMicros > 0) {
+            return expectedIntervalMicros;
+        }
+        Hop state = hops.get(hop);
+        return state == null ? 0 : state.meanIntervalMicros();
+    }
+
+    private static final class Hop {
+        private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+        private final Histogram total = new Histogram(SIGNIFICANT_DIGITS);
+        private final AtomicLong count = new AtomicLong();
+        private volatile long firstNanos;
+        private volatile long lastNanos;
+        private Histogram interval;
+
+        void record(long micros) {
+            long now = System.nanoTime();
+            if (count.getAndIncrement() == 0) {
+                firstNanos = now;
+            }
+            lastNanos = now;
+            recorder.recordValue(micros);
+        }
+
+        synchronized Histogram snapshot() {
+            interval = recorder.getIntervalHistogram(interval);
+            total.add(interval);
+            return total.copy();
+        }
+
+        long meanIntervalMicros() {
+            long events = count.get();
+            return events < 2 ? 0 : TimeUnit.NANOSECONDS.toMicros(lastNanos - firstNanos) / (events - 1);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.minishop.messaging.metrics;
+
+import com.minishop.messaging.core.AsyncNatsPublisher;
+import com.minishop.messaging.core.EventDeduplicator;
+import com.minishop.messaging.core.NatsTemplate;
+import com.minishop.messaging.core.Outbox;
+import com.minishop.messaging.core.PublishSpools;
+import com.minishop.messaging.listener.NatsListenerContainer;
+import com.minishop.messaging.listener.NatsListenerRegistrar;
+import com.minishop.messaging.tracing.SpanFileExporter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.function.ToLongFunction;
+
+/**
+ * Contadores de mensajería publicados en Micrometer (/actuator/metrics)
+ */
+public class MessagingMetrics implements MeterBinder {
+    
+    private final NatsTemplate natsTemplate;
+    private final AsyncNatsPublisher asyncPublisher;
+    private final NatsListenerRegistrar listenerRegistrar;
+    
+    public MessagingMetrics(NatsTemplate natsTemplate, AsyncNatsPublisher asyncPublisher, NatsListenerRegistrar listenerRegistrar) {
+        this.natsTemplate = natsTemplate;
+        this.asyncPublisher = asyncPublisher;
+        this.listenerRegistrar = listenerRegistrar;
+    }
+    
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        counter(registry, "minishop.messaging.published", "Messages published", natsTemplate, NatsTemplate::getPublished);
+        counter(registry, "minishop.messaging.published.bytes", "Payload bytes published", natsTemplate, NatsTemplate::getPublishedBytes);
+        counter(registry, "minishop.messaging.publish.errors", "Publish failures", natsTemplate, NatsTemplate::getPublishErrors);
+        counter(registry, "minishop.messaging.requests", "Requests sent", natsTemplate, NatsTemplate::getRequests);
+        counter(registry, "minishop.messaging.request.errors", "Requests failed or timed out", natsTemplate, NatsTemplate::getRequestErrors);
+        Gauge.builder("minishop.messaging.publisher.pending", asyncPublisher, AsyncNatsPublisher::getPending)
+            .description("Messages queued in the async publisher")
+            .register(registry);
+        counter(registry, "minishop.messaging.publisher.batches", "Batches flushed by the async publisher", asyncPublisher, AsyncNatsPublisher::getBatches);
+        counter(registry, "minishop.messaging.publisher.dropped", "Oldest queued messages dropped by the async publisher", asyncPublisher, AsyncNatsPublisher::getDropped);
+        counter(registry, "minishop.messaging.publisher.rejected", "Messages rejected because the async publisher queue was full", asyncPublisher, AsyncNatsPublisher::getRejected);
+        counter(registry, "minishop.messaging.hedge.sent", "Second requests sent after the subject's latency percentile", natsTemplate,
+            template -> template.getHedging().getHedged());
+        counter(registry, "minishop.messaging.hedge.won", "Second requests whose reply arrived first", natsTemplate,
+            template -> template.getHedging().getWon());
+        counter(registry, "minishop.messaging.hedge.denied", "Second requests skipped because the extra-load budget was spent", natsTemplate,
+            template -> template.getHedging().getDenied());
+        PublishSpools spools = natsTemplate.getSpools();
+        if (spools != null) {
+            Gauge.builder("minishop.messaging.spool.pending", spools, PublishSpools::getPendingRecords)
+                .description("Messages in the publish spool waiting to be replayed")
+                .register(registry);
+            Gauge.builder("minishop.messaging.spool.size", spools, PublishSpools::getSizeBytes)
+                .description("Disk used by publish spool segments")
+                .baseUnit("bytes")
+                .register(registry);
+            counter(registry, "minishop.messaging.spool.spooled", "Messages written to the publish spool while disconnected", spools, PublishSpools::getSpooled);
+            counter(registry, "minishop.messaging.spool.replayed", "Spooled messages replayed after reconnecting", spools, PublishSpools::getReplayed);
+            counter(registry, "minishop.messaging.spool.corrupt", "Corrupt spool records skipped during replay", spools, PublishSpools::getCorrupt);
+        }
+        // Los listeners se crean al arrancar el contexto: se suman en cada lectura
+        counter(registry, "minishop.messaging.received", "Messages handled by listeners", listenerRegistrar,
+            registrar -> sum(registrar, NatsListenerContainer::getProcessed));
+        counter(registry, "minishop.messaging.handler.errors", "Listener invocations that failed", listenerRegistrar,
+            registrar -> sum(registrar, NatsListenerContainer::getErrors));
+        counter(registry, "minishop.messaging.filtered", "Messages skipped by listener event types without decoding", listenerRegistrar,
+            registrar -> sum(registrar, NatsListenerContainer::getFiltered));
+        counter(registry, "minishop.messaging.dropped", "Messages dropped by listener pending limits", listenerRegistrar,
+            registrar -> sum(registrar, NatsListenerContainer::getDropped));
+        // Trabajo evitado por plazos vencidos, por etapa (la etapa http la registra el filtro web)
+        deadlineCounter(registry, "request", natsTemplate, NatsTemplate::getExpiredRequests);
+        deadlineCounter(registry, "listener", listenerRegistrar, registrar -> sum(registrar, NatsListenerContainer::getExpired));
+    }
+    
+    /**
+     * Registros guardados y publicados por el outbox y lo que falta por publicar
+     */
+    public static void outbox(MeterRegistry registry, Outbox outbox) {
+        counter(registry, "minishop.messaging.outbox.appended", "State changes and events appended to the outbox", outbox, Outbox::getAppended);
+        counter(registry, "minishop.messaging.outbox.relayed", "Outbox records published by the relay", outbox, Outbox::getRelayed);
+        counter(registry, "minishop.messaging.outbox.failed", "Outbox relay failures and unreadable records", outbox, Outbox::getFailed);
+        counter(registry, "minishop.messaging.outbox.dead-lettered", "Outbox records that could not be published and were moved to outbox.dead", outbox, Outbox::getDeadLettered);
+        Gauge.builder("minishop.messaging.outbox.lag", outbox, Outbox::getLagBytes)
+            .description("Outbox bytes appended but not yet published")
+            .baseUnit("bytes")
+            .register(registry);
+    }
+    
+    /**
+     * Eventos comprobados y descartados por repetidos, y memoria de los filtros
+     */
+    public static void dedup(MeterRegistry registry, EventDeduplicator deduplicator) {
+        counter(registry, "minishop.messaging.dedup.checked", "Event ids checked against the dedup store", deduplicator, EventDeduplicator::getChecked);
+        counter(registry, "minishop.messaging.dedup.duplicates", "Events dropped because their id was already seen", deduplicator, EventDeduplicator::getDuplicates);
+        counter(registry, "minishop.messaging.dedup.probable", "Dropped events whose id was only in the Bloom filters, not in the exact recent set", deduplicator, EventDeduplicator::getProbableDuplicates);
+        counter(registry, "minishop.messaging.dedup.false-positives", "Bloom filter hits delivered because the exact recent set proved them false positives", deduplicator, EventDeduplicator::getFalsePositives);
+        Gauge.builder("minishop.messaging.dedup.filter.size", deduplicator, EventDeduplicator::getFilterBytes)
+            .description("Memory used by the dedup Bloom filters")
+            .baseUnit("bytes")
+            .register(registry);
+    }
+    
+    /**
+     * Spans escritos y descartados por el exportador a fichero
+     */
+    public static void tracing(MeterRegistry registry, SpanFileExporter exporter) {
+        counter(registry, "minishop.messaging.tracing.exported", "Spans written to the local span files", exporter, SpanFileExporter::getExported);
+        counter(registry, "minishop.messaging.tracing.dropped", "Spans dropped because the exporter queue was full or the file could not be written", exporter, SpanFileExporter::getDropped);
+    }
+    
+    public static <T> void deadlineCounter(MeterRegistry registry, String stage, T source, ToLongFunction<T> value) {
+        FunctionCounter.builder("minishop.messaging.deadline.expired", source, s -> value.applyAsLong(s))
+            .description("Requests dropped without doing their work because their deadline had expired")
+            .tag("stage", stage)
+            .register(registry);
+    }
+    
+    private static <T> void counter(MeterRegistry registry, String name, String description, T source, ToLongFunction<T> value) {
+        FunctionCounter.builder(name, source, s -> value.applyAsLong(s))
+            .description(description)
+            .register(registry);
+    }
+    
+    private static long sum(NatsListenerRegistrar registrar, ToLongFunction<NatsListenerContainer> value) {
+        return registrar.getContainers().stream().mapToLong(value).sum();
+    }
+}
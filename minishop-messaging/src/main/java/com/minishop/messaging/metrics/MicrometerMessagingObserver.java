@@ -0,0 +1,129 @@
+package com.minishop.messaging.metrics;
+
+import com.minishop.messaging.core.MessagingObserver;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.nats.client.Consumer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * Timers y contadores por subject de publicación, petición y consumo, y
+ * pendientes por suscripción. Los timers publican histograma para que
+ * Prometheus calcule percentiles por subject (histogram_quantile).
+ * Los medidores se cachean: registrar en cada mensaje costaría una búsqueda
+ * en el registro y la creación de Tags.
+ */
+public class MicrometerMessagingObserver implements MessagingObserver {
+
+    public static final String PREFIX = "minishop.messaging.";
+    // Subjects distintos admitidos por métrica antes de descartar los nuevos
+    public static final int MAX_SUBJECTS = 100;
+
+    private final MeterRegistry registry;
+    private final ConcurrentMap<String, Timer> publishTimers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, DistributionSummary> payloadSizes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Timer> requestTimers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Timer> handlerTimers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Timer> decodeTimers = new ConcurrentHashMap<>();
+
+    public MicrometerMessagingObserver(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Los subjects son configuración y su número es acotado; este filtro
+     * protege el registro si alguno lleva identificadores
+     */
+    public static MeterFilter subjectCardinalityLimit() {
+        return MeterFilter.maximumAllowableTags(PREFIX, "subject", MAX_SUBJECTS, MeterFilter.deny());
+    }
+
+    @Override
+    public void published(String subject, int bytes, long nanos, boolean success) {
+        publishTimers.computeIfAbsent(subject + outcome(success), key -> timer("publish",
+            "Publish latency including serialization", Tags.of("subject", subject, "outcome", outcome(success))))
+            .record(nanos, TimeUnit.NANOSECONDS);
+        if (success) {
+            payloadSizes.computeIfAbsent(subject, key -> DistributionSummary.builder(PREFIX + "publish.payload")
+                    .description("Published payload size")
+                    .baseUnit("bytes")
+                    .tags("subject", subject)
+                    .register(registry))
+                .record(bytes);
+        }
+    }
+
+    @Override
+    public void requested(String subject, long nanos, boolean success) {
+        requestTimers.computeIfAbsent(subject + outcome(success), key -> timer("request",
+            "Request/reply latency until the reply is decoded, fails or times out",
+            Tags.of("subject", subject, "outcome", outcome(success))))
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void consumed(String listener, String subject, long decodeNanos, long handlerNanos, boolean success) {
+        if (decodeNanos >= 0) {
+            decodeTimers.computeIfAbsent(listener, key -> timer("consume.decode",
+                "Time decoding message arguments before the handler",
+                Tags.of("listener", listener, "subject", subject)))
+                .record(decodeNanos, TimeUnit.NANOSECONDS);
+        }
+        handlerTimers.computeIfAbsent(listener + outcome(success), key -> timer("consume.handler",
+            "Handler duration per consumed message",
+            Tags.of("listener", listener, "subject", subject, "outcome", outcome(success))))
+            .record(handlerNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void subscribed(String listener, String subject, Consumer consumer) {
+        Tags tags = Tags.of("listener", listener, "subject", subject);
+        Gauge.builder(PREFIX + "subscription.pending.messages", consumer, Consumer::getPendingMessageCount)
+            .description("Messages received by the client and not yet handled")
+            .tags(tags)
+            .register(registry);
+        Gauge.builder(PREFIX + "subscription.pending.bytes", consumer, Consumer::getPendingByteCount)
+            .description("Bytes received by the client and not yet handled")
+            .baseUnit("bytes")
+            .tags(tags)
+            .register(registry);
+    }
+
+    @Override
+    public void slowConsumer(String listener, String subject, long dropped) {
+        Counter.builder(PREFIX + "subscription.dropped")
+            .description("Messages dropped by the client because the subscription exceeded its pending limits")
+            .tags("listener", listener, "subject", subject)
+            .register(registry)
+            .increment(dropped);
+    }
+
+    @Override
+    public void adaptiveWorkers(String listener, String subject, IntSupplier workers) {
+        Gauge.builder(PREFIX + "listener.workers", workers, IntSupplier::getAsInt)
+            .description("Handler threads of a listener with adaptive concurrency")
+            .tags("listener", listener, "subject", subject)
+            .register(registry);
+    }
+
+    private Timer timer(String name, String description, Tags tags) {
+        return Timer.builder(PREFIX + name)
+            .description(description)
+            .tags(tags)
+            .publishPercentileHistogram()
+            .register(registry);
+    }
+
+    private static String outcome(boolean success) {
+        return success ? "success" : "error";
+    }
+}
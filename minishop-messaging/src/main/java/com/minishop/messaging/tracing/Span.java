@@ -0,0 +1,91 @@
+package com.minishop.messaging.tracing;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Operación medida de una traza: petición HTTP, publicación, petición NATS
+ * o procesado de un mensaje. Solo los spans muestreados guardan atributos y
+ * se exportan; los demás existen para propagar el contexto.
+ */
+public final class Span {
+
+    public enum Kind { SERVER, CLIENT, PRODUCER, CONSUMER, INTERNAL }
+
+    private final Tracer tracer;
+    private final TraceContext context;
+    private final String parentSpanId;
+    private final Kind kind;
+    private final long startEpochMicros;
+    private final long startNanos;
+    private final Map<String, String> attributes;
+    private String name;
+    private String error;
+    private long durationMicros = -1;
+
+    Span(Tracer tracer, TraceContext context, String parentSpanId, String name, Kind kind) {
+        this.tracer = tracer;
+        this.context = context;
+        this.parentSpanId = parentSpanId;
+        this.name = name;
+        this.kind = kind;
+        boolean recording = isRecording();
+        Instant now = recording ? Instant.now() : null;
+        this.startEpochMicros = recording ? now.getEpochSecond() * 1_000_000 + now.getNano() / 1_000 : 0;
+        this.startNanos = recording ? System.nanoTime() : 0;
+        this.attributes = recording ? new LinkedHashMap<>() : null;
+    }
+
+    /**
+     * Se exporta al terminar
+     */
+    public boolean isRecording() {
+        return tracer != null && context != null && context.isSampled();
+    }
+
+    /**
+     * Contexto que heredan los hijos y que viaja en traceparent; null si no hay traza
+     */
+    public TraceContext context() {
+        return context;
+    }
+
+    public Span tag(String key, Object value) {
+        if (attributes != null && value != null) {
+            attributes.put(key, value.toString());
+        }
+        return this;
+    }
+
+    /**
+     * Nombre conocido solo al final (p. ej. la ruta HTTP tras resolverla)
+     */
+    public Span rename(String name) {
+        this.name = name;
+        return this;
+    }
+
+    public Span error(Throwable error) {
+        if (attributes != null && error != null) {
+            this.error = error.getClass().getSimpleName() + (error.getMessage() != null ? ": " + error.getMessage() : "");
+        }
+        return this;
+    }
+
+    public void end() {
+        if (!isRecording() || durationMicros >= 0) {
+            return;
+        }
+        durationMicros = (System.nanoTime() - startNanos) / 1_000;
+        tracer.export(this);
+    }
+
+    public String getName() { return name; }
+    public Kind getKind() { return kind; }
+    public String getParentSpanId() { return parentSpanId; }
+    public long getStartEpochMicros() { return startEpochMicros; }
+    public long getDurationMicros() { return durationMicros; }
+    public Map<String, String> getAttributes() { return attributes; }
+    public String getError() { return error; }
+}
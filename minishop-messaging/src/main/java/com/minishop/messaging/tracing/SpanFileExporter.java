@@ -0,0 +1,198 @@
+package com.minishop.messaging.tracing;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.minishop.messaging.MessagingException;
+import com.minishop.messaging.core.MessagingThreads;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Escribe los spans terminados en spans.jsonl, un objeto JSON por línea,
+ * desde un hilo propio: quien termina un span solo lo encola y, si la cola
+ * está llena, el span se descarta y se cuenta. Al superar maxFileBytes el
+ * fichero rota a spans.1.jsonl, spans.2.jsonl... y se conservan maxFiles.
+ * Los ficheros de todos los servicios juntos dan las trazas completas
+ * (se agrupan por traceId y se ordenan por start).
+ */
+public class SpanFileExporter implements AutoCloseable {
+
+    static final String FILE = "spans.jsonl";
+
+    private final Path directory;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final BlockingQueue<Entry> queue;
+    private final JsonFactory json = new JsonFactory();
+    private final Thread writer;
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream(512);
+
+    private final LongAdder exported = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile boolean running = true;
+    private OutputStream out;
+    private long fileBytes;
+
+    public SpanFileExporter(Path directory, long maxFileBytes, int maxFiles, int queueCapacity, MessagingThreads threads) {
+        this.directory = directory;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = Math.max(1, maxFiles);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        try {
+            Files.createDirectories(directory);
+            open();
+        } catch (IOException e) {
+            throw new MessagingException("Unable to open span file in " + directory, e);
+        }
+        this.writer = threads.newThread("span-exporter", this::run);
+        writer.start();
+    }
+
+    void export(String service, Span span) {
+        if (!queue.offer(new Entry(service, span))) {
+            dropped.increment();
+        }
+    }
+
+    private void run() {
+        List<Entry> batch = new ArrayList<>();
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch);
+                for (Entry entry : batch) {
+                    write(entry);
+                }
+                exported.add(batch.size());
+                out.flush();
+            } catch (InterruptedException e) {
+                running = false;
+            } catch (IOException e) {
+                dropped.add(batch.size());
+                System.err.println("[MESSAGING] Span exporter could not write to " + directory + ": " + e.getMessage());
+            }
+            batch.clear();
+        }
+    }
+
+    private void write(Entry entry) throws IOException {
+        Span span = entry.span;
+        TraceContext context = span.context();
+        // Línea en memoria, para saber su tamaño antes de decidir si rota el fichero
+        line.reset();
+        try (JsonGenerator generator = json.createGenerator(line, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            generator.writeStringField("traceId", context.getTraceId());
+            generator.writeStringField("spanId", context.getSpanId());
+            if (span.getParentSpanId() != null) {
+                generator.writeStringField("parentSpanId", span.getParentSpanId());
+            }
+            generator.writeStringField("name", span.getName());
+            generator.writeStringField("kind", span.getKind().name());
+            if (entry.service != null) {
+                generator.writeStringField("service", entry.service);
+            }
+            generator.writeNumberField("start", span.getStartEpochMicros());
+            generator.writeNumberField("duration", span.getDurationMicros());
+            if (!span.getAttributes().isEmpty()) {
+                generator.writeObjectFieldStart("attributes");
+                for (Map.Entry<String, String> attribute : span.getAttributes().entrySet()) {
+                    generator.writeStringField(attribute.getKey(), attribute.getValue());
+                }
+                generator.writeEndObject();
+            }
+            if (span.getError() != null) {
+                generator.writeStringField("error", span.getError());
+            }
+            generator.writeEndObject();
+        }
+        line.write('\n');
+        if (fileBytes > 0 && fileBytes + line.size() > maxFileBytes) {
+            rotate();
+        }
+        line.writeTo(out);
+        fileBytes += line.size();
+    }
+
+    /**
+     * spans.jsonl pasa a spans.1.jsonl y los anteriores suben un número; el último se borra
+     */
+    private void rotate() throws IOException {
+        out.close();
+        Files.deleteIfExists(rolled(maxFiles - 1));
+        for (int i = maxFiles - 2; i >= 1; i--) {
+            if (Files.exists(rolled(i))) {
+                Files.move(rolled(i), rolled(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (maxFiles > 1) {
+            Files.move(directory.resolve(FILE), rolled(1), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.deleteIfExists(directory.resolve(FILE));
+        }
+        open();
+    }
+
+    private void open() throws IOException {
+        Path file = directory.resolve(FILE);
+        out = new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND), 64 * 1024);
+        fileBytes = Files.size(file);
+    }
+
+    private Path rolled(int index) {
+        return directory.resolve("spans." + index + ".jsonl");
+    }
+
+    public Path getDirectory() { return directory; }
+    public long getExported() { return exported.sum(); }
+    public long getDropped() { return dropped.sum(); }
+    public int getQueued() { return queue.size(); }
+
+    /**
+     * Escribe lo que quede en la cola y cierra el fichero
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            writer.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            System.err.println("[MESSAGING] Span exporter could not close " + directory + ": " + e.getMessage());
+        }
+    }
+
+    private static final class Entry {
+        private final String service;
+        private final Span span;
+
+        Entry(String service, Span span) {
+            this.service = service;
+            this.span = span;
+        }
+    }
+}
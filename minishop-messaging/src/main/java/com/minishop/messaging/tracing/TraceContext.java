@@ -0,0 +1,126 @@
+package com.minishop.messaging.tracing;
+
+import com.minishop.messaging.core.EventHeaders;
+import io.nats.client.Message;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Contexto de traza W3C (cabecera traceparent: versión-traza-span-flags).
+ * Llega en la cabecera HTTP, viaja en las cabeceras NATS de cada mensaje y
+ * queda como contexto en curso del hilo mientras se atiende, igual que
+ * {@link com.minishop.messaging.core.EventOrigin}: lo que se publique
+ * desde ahí es un span hijo del que lo recibió.
+ */
+public final class TraceContext {
+
+    public static final String HEADER = "traceparent";
+
+    private static final ThreadLocal<TraceContext> CURRENT = new ThreadLocal<>();
+    private static final String INVALID_TRACE = "00000000000000000000000000000000";
+    private static final String INVALID_SPAN = "0000000000000000";
+
+    private final String traceId;
+    private final String spanId;
+    private final boolean sampled;
+
+    TraceContext(String traceId, String spanId, boolean sampled) {
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.sampled = sampled;
+    }
+
+    /**
+     * Contexto de una cabecera traceparent, o null si falta o no es válida
+     */
+    public static TraceContext parse(String header) {
+        if (header == null) {
+            return null;
+        }
+        String value = header.trim();
+        // Versiones futuras pueden añadir campos tras los cuatro de la 00
+        if (value.length() < 55 || value.charAt(2) != '-' || value.charAt(35) != '-' || value.charAt(52) != '-'
+            || (value.length() > 55 && value.charAt(55) != '-')) {
+            return null;
+        }
+        String version = value.substring(0, 2);
+        String traceId = value.substring(3, 35);
+        String spanId = value.substring(36, 52);
+        String flags = value.substring(53, 55);
+        if (!isHex(version) || version.equals("ff") || (version.equals("00") && value.length() != 55)
+            || !isHex(traceId) || traceId.equals(INVALID_TRACE) || !isHex(spanId) || spanId.equals(INVALID_SPAN)
+            || !isHex(flags)) {
+            return null;
+        }
+        return new TraceContext(traceId, spanId, (Integer.parseInt(flags, 16) & 1) == 1);
+    }
+
+    /**
+     * Contexto del mensaje, o null si no trae traceparent
+     */
+    public static TraceContext of(Message message) {
+        return parse(EventHeaders.get(message, HEADER));
+    }
+
+    /**
+     * Contexto del hilo actual, o null si no hay
+     */
+    public static TraceContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Fija el contexto en curso del hilo y devuelve el anterior, que se
+     * restaura con {@link #restore} en un finally
+     */
+    public static TraceContext enter(TraceContext context) {
+        TraceContext previous = CURRENT.get();
+        CURRENT.set(context);
+        return previous;
+    }
+
+    public static void restore(TraceContext previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    static String newTraceId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return hex(random.nextLong()) + hex(random.nextLong() | 1);
+    }
+
+    static String newSpanId() {
+        return hex(ThreadLocalRandom.current().nextLong() | 1);
+    }
+
+    public String getTraceId() { return traceId; }
+    public String getSpanId() { return spanId; }
+    public boolean isSampled() { return sampled; }
+
+    public String toHeader() {
+        return "00-" + traceId + "-" + spanId + (sampled ? "-01" : "-00");
+    }
+
+    @Override
+    public String toString() {
+        return toHeader();
+    }
+
+    private static String hex(long value) {
+        String hex = Long.toHexString(value);
+        return hex.length() == 16 ? hex : "0".repeat(16 - hex.length()) + hex;
+    }
+
+    private static boolean isHex(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
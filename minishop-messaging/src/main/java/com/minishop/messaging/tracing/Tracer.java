@@ -0,0 +1,85 @@
+package com.minishop.messaging.tracing;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Crea los spans del servicio y decide cuáles se muestrean. Una traza nueva
+ * se muestrea según sampleRatio, de forma determinista por traceId; un span
+ * con padre sigue la decisión del padre (parentBased) para que las trazas
+ * lleguen completas. Sin exportador solo propaga el contexto recibido.
+ */
+public class Tracer implements AutoCloseable {
+
+    private static final Tracer DISABLED = new Tracer(null, null, 0, true);
+
+    private final String service;
+    private final SpanFileExporter exporter;
+    private final long sampleThreshold;
+    private final boolean parentBased;
+    private final LongAdder started = new LongAdder();
+
+    /**
+     * @param exporter dónde se escriben los spans muestreados, o null para solo propagar
+     * @param sampleRatio fracción de trazas nuevas que se muestrean (0..1)
+     * @param parentBased si los spans con padre siguen su decisión en lugar de sampleRatio
+     */
+    public Tracer(String service, SpanFileExporter exporter, double sampleRatio, boolean parentBased) {
+        this.service = service;
+        this.exporter = exporter;
+        double ratio = Math.max(0, Math.min(1, sampleRatio));
+        this.sampleThreshold = ratio >= 1 ? Long.MAX_VALUE : (long) (ratio * Long.MAX_VALUE);
+        this.parentBased = parentBased;
+    }
+
+    /**
+     * Sin exportador: los mensajes siguen llevando el traceparent que se recibió
+     */
+    public static Tracer disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return exporter != null;
+    }
+
+    /**
+     * Span hijo de parent o, sin padre, raíz de una traza nueva. Hay que
+     * terminarlo con {@link Span#end()} en un finally.
+     */
+    public Span start(String name, Span.Kind kind, TraceContext parent) {
+        if (exporter == null) {
+            // Sin trazas propias: el contexto pasa tal cual
+            return new Span(null, parent, null, name, kind);
+        }
+        started.increment();
+        String traceId = parent != null ? parent.getTraceId() : TraceContext.newTraceId();
+        boolean sampled = parent != null && parentBased ? parent.isSampled() : sample(traceId);
+        TraceContext context = new TraceContext(traceId, TraceContext.newSpanId(), sampled);
+        return new Span(this, context, parent != null ? parent.getSpanId() : null, name, kind);
+    }
+
+    /**
+     * Decisión por los últimos 16 dígitos del traceId: todos los servicios
+     * con la misma fracción deciden lo mismo para una traza
+     */
+    private boolean sample(String traceId) {
+        if (sampleThreshold == Long.MAX_VALUE) {
+            return true;
+        }
+        return Long.parseUnsignedLong(traceId.substring(16), 16) >>> 1 < sampleThreshold;
+    }
+
+    void export(Span span) {
+        exporter.export(service, span);
+    }
+
+    public SpanFileExporter getExporter() { return exporter; }
+    public long getStarted() { return started.sum(); }
+
+    @Override
+    public void close() {
+        if (exporter != null) {
+            exporter.close();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.minishop.messaging.web;
+
+import com.minishop.messaging.core.Deadline;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Toma el plazo de la cabecera X-Request-Timeout de las peticiones HTTP y lo
+ * deja como plazo en curso del hilo, de modo que las peticiones NATS que
+ * haga el controlador lo heredan. Una petición que llega ya vencida se
+ * responde con 504 sin procesarla.
+ */
+public class DeadlineFilter extends OncePerRequestFilter {
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+        throws ServletException, IOException {
+        Deadline deadline = Deadline.parse(request.getHeader(Deadline.HEADER), System.nanoTime());
+        if (deadline == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        if (deadline.isExpired()) {
+            rejected.incrementAndGet();
+            response.sendError(HttpStatus.GATEWAY_TIMEOUT.value(), "Request deadline expired");
+            return;
+        }
+        Deadline previous = Deadline.enter(deadline);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            Deadline.restore(previous);
+        }
+    }
+
+    /**
+     * Peticiones HTTP rechazadas porque llegaron con el plazo vencido
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+}
@@ -0,0 +1,71 @@
+package com.minishop.messaging.web;
+
+import com.minishop.messaging.tracing.Span;
+import com.minishop.messaging.tracing.TraceContext;
+import com.minishop.messaging.tracing.Tracer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Abre un span por petición HTTP, hijo del traceparent que traiga, y lo
+ * deja como traza en curso del hilo: lo que publique o pida el controlador
+ * por NATS cuelga de él. La respuesta devuelve el traceparent para poder
+ * buscar la traza en los ficheros de spans. Las rutas de actuator no se trazan.
+ */
+public class TraceFilter extends OncePerRequestFilter implements Ordered {
+
+    // HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE de Spring MVC, que este módulo no incluye
+    private static final String ROUTE_ATTRIBUTE = "org.springframework.web.servlet.HandlerMapping.bestMatchingPattern";
+
+    private final Tracer tracer;
+
+    public TraceFilter(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+        throws ServletException, IOException {
+        Span span = tracer.start(request.getMethod(), Span.Kind.SERVER, TraceContext.parse(request.getHeader(TraceContext.HEADER)));
+        TraceContext previous = TraceContext.enter(span.context());
+        if (span.context() != null) {
+            response.setHeader(TraceContext.HEADER, span.context().toHeader());
+        }
+        try {
+            chain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            span.error(e);
+            throw e;
+        } finally {
+            if (span.isRecording()) {
+                // La ruta del controlador (/orders/{id}) solo se conoce tras atender la petición
+                Object route = request.getAttribute(ROUTE_ATTRIBUTE);
+                span.rename(request.getMethod() + " " + (route != null ? route : request.getRequestURI()))
+                    .tag("http.method", request.getMethod())
+                    .tag("http.target", request.getRequestURI())
+                    .tag("http.status", response.getStatus());
+            }
+            span.end();
+            TraceContext.restore(previous);
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith("/actuator");
+    }
+
+    /**
+     * Antes que el resto de filtros, para que su tiempo quede dentro del span
+     */
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
@@ -0,0 +1,122 @@
+package com.minishop.messaging.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.minishop.messaging.codec.EventTypeRegistry;
+import com.minishop.messaging.codec.MessageCodec;
+import com.minishop.messaging.event.OrderDto;
+import com.minishop.messaging.event.OrderEvent;
+import io.nats.client.Message;
+import io.nats.client.impl.NatsMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Codificación de eventos: el camino anterior (String intermedio y
+ * ObjectMapper por llamada) frente a MessageCodec (byte[] y readers/writers cacheados),
+ * y data como Map frente al OrderEvent tipado del registro de eventos
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+    private ObjectMapper objectMapper;
+    private MessageCodec codec;
+    private SampleEvent event;
+    private byte[] encoded;
+    private EventTypeRegistry registry;
+    private Message typedMessage;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        codec = new MessageCodec(objectMapper);
+        event = SampleEvent.sample();
+        encoded = codec.encode(event);
+        registry = new EventTypeRegistry(codec).register("orders.created", OrderEvent.class);
+        typedMessage = NatsMessage.builder().subject("orders.created")
+            .data(registry.encode("orders.created", typedSample())).build();
+    }
+
+    @Benchmark
+    public byte[] encodeViaString() throws Exception {
+        return objectMapper.writeValueAsString(event).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] encodeWithCodec() {
+        return codec.encode(event);
+    }
+
+    @Benchmark
+    public SampleEvent decodeViaString() throws Exception {
+        return objectMapper.readValue(new String(encoded, StandardCharsets.UTF_8), SampleEvent.class);
+    }
+
+    @Benchmark
+    public SampleEvent decodeWithCodec() {
+        return codec.decode(encoded, SampleEvent.class);
+    }
+
+    @Benchmark
+    public Object decodeTypedWithRegistry() {
+        return registry.decode(typedMessage);
+    }
+
+    private static OrderEvent typedSample() {
+        OrderEvent orderEvent = new OrderEvent("1042", "user-17", "PENDING", "CREATED");
+        orderEvent.setTimestamp(LocalDateTime.of(2024, 5, 1, 12, 30));
+        OrderDto order = new OrderDto();
+        order.setId(1042L);
+        order.setProductName("Teclado mecánico");
+        order.setQuantity(2);
+        orderEvent.setData(order);
+        return orderEvent;
+    }
+
+    public static class SampleEvent {
+        public String orderId;
+        public String userId;
+        public String status;
+        public String action;
+        public LocalDateTime timestamp;
+        public Map<String, Object> data;
+
+        static SampleEvent sample() {
+            SampleEvent event = new SampleEvent();
+            event.orderId = "1042";
+            event.userId = "user-17";
+            event.status = "PENDING";
+            event.action = "CREATED";
+            event.timestamp = LocalDateTime.of(2024, 5, 1, 12, 30);
+            Map<String, Object> data = new LinkedHashMap<>();
+            data.put("productId", "p-9");
+            data.put("productName", "Teclado mecánico");
+            data.put("quantity", 2);
+            data.put("totalPrice", 129.9);
+            event.data = data;
+            return event;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.minishop.messaging.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.minishop.messaging.codec.MessageCodec;
+import com.minishop.messaging.codec.PayloadCompressor;
+import com.minishop.messaging.event.OrderEvent;
+import com.minishop.messaging.event.UntypedPayload;
+import io.nats.client.Message;
+import io.nats.client.impl.Headers;
+import io.nats.client.impl.NatsMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de la compresión por umbral: un evento pequeño no debe pagar nada y
+ * uno grande debe ocupar bastante menos. El tamaño comprimido se imprime al
+ * preparar cada combinación.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressionBenchmark {
+
+    // Número de líneas en data: 0 ≈ 130 B, 40 ≈ 3,7 KB, 1000 ≈ 90 KB
+    @Param({"0", "40", "1000"})
+    public int items;
+
+    // 0 = compresión desactivada
+    @Param({"0", "4096"})
+    public int threshold;
+
+    private MessageCodec codec;
+    private OrderEvent event;
+    private Message received;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        codec = new MessageCodec(objectMapper, MessageCodec.JSON, new PayloadCompressor(threshold, 1));
+        event = new OrderEvent("1042", "user-17", "PENDING", "CREATE");
+        event.setTimestamp(LocalDateTime.of(2024, 5, 1, 12, 30));
+        UntypedPayload data = new UntypedPayload();
+        for (int i = 0; i < items; i++) {
+            data.setField("line-" + i, "{\"productId\":\"p-" + i + "\",\"productName\":\"Teclado mecánico\",\"quantity\":2}");
+        }
+        event.setData(data);
+
+        byte[] encoded = codec.encode(event);
+        byte[] wire = codec.compress(encoded);
+        NatsMessage.Builder builder = NatsMessage.builder().subject("orders.created").data(wire);
+        if (wire != encoded) {
+            builder.headers(new Headers().put(PayloadCompressor.CONTENT_ENCODING_HEADER, PayloadCompressor.DEFLATE));
+        }
+        received = builder.build();
+        System.out.printf("%n[SIZE] %d items, threshold %d: %d bytes -> %d bytes on the wire%n",
+            items, threshold, encoded.length, wire.length);
+    }
+
+    @Benchmark
+    public byte[] publish() {
+        return codec.compress(codec.encode(event));
+    }
+
+    @Benchmark
+    public OrderEvent receive() {
+        return codec.decode(received, OrderEvent.class);
+    }
+}
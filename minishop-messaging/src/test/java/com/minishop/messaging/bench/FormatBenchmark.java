@@ -0,0 +1,99 @@
+package com.minishop.messaging.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.minishop.messaging.codec.MessageCodec;
+import com.minishop.messaging.event.NotificationMessage;
+import com.minishop.messaging.event.OrderDto;
+import com.minishop.messaging.event.OrderEvent;
+import com.minishop.messaging.event.ProductDto;
+import com.minishop.messaging.event.ProductEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON frente a CBOR y Smile para los eventos publicados por los servicios.
+ * El tamaño de cada payload se imprime al preparar cada combinación.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormatBenchmark {
+
+    @Param({MessageCodec.JSON, MessageCodec.CBOR, MessageCodec.SMILE})
+    public String contentType;
+
+    @Param({"order", "product", "notification"})
+    public String event;
+
+    private MessageCodec codec;
+    private Object payload;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        codec = new MessageCodec(objectMapper, contentType);
+        payload = sample(event);
+        encoded = codec.encode(payload);
+        int json = new MessageCodec(objectMapper).encode(payload).length;
+        System.out.printf("%n[SIZE] %s %s: %d bytes (%d%% of JSON)%n",
+            event, contentType, encoded.length, encoded.length * 100 / json);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return codec.encode(payload);
+    }
+
+    @Benchmark
+    public Object decode() {
+        return codec.decode(encoded, contentType, payload.getClass());
+    }
+
+    private static Object sample(String event) {
+        LocalDateTime timestamp = LocalDateTime.of(2024, 5, 1, 12, 30);
+        switch (event) {
+            case "order":
+                OrderEvent order = new OrderEvent("1042", "user-17", "PENDING", "CREATED");
+                order.setTimestamp(timestamp);
+                OrderDto data = new OrderDto();
+                data.setId(1042L);
+                data.setProductName("Teclado mecánico");
+                data.setQuantity(2);
+                order.setData(data);
+                return order;
+            case "product":
+                ProductEvent product = new ProductEvent("p-9", "Teclado mecánico", 64.95, "STOCK_UPDATED");
+                product.setTimestamp(timestamp);
+                ProductDto productData = new ProductDto();
+                productData.setId(9L);
+                productData.setName("Teclado mecánico");
+                productData.setPrice(64.95);
+                product.setData(productData);
+                return product;
+            default:
+                NotificationMessage notification = new NotificationMessage("user-17", "Nueva orden creada: 1042", "ORDER");
+                notification.setTimestamp(timestamp);
+                return notification;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.minishop.messaging.bench;
+
+import com.minishop.messaging.listener.KeyedLaneDispatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput de los carriles con handlers que cuestan ~20 µs de CPU,
+ * según el número de carriles
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LaneDispatchBenchmark {
+
+    private static final int BATCH = 1000;
+
+    @Param({"1", "4", "8"})
+    public int lanes;
+
+    private KeyedLaneDispatcher dispatcher;
+    private String[] keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dispatcher = new KeyedLaneDispatcher("bench", lanes, 1024);
+        keys = new String[256];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = "order-" + i;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        dispatcher.shutdown(Duration.ofSeconds(5));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void dispatchBatch() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            dispatcher.dispatch(keys[i & (keys.length - 1)], () -> {
+                Blackhole.consumeCPU(5_000);
+                done.countDown();
+            });
+        }
+        done.await();
+    }
+}
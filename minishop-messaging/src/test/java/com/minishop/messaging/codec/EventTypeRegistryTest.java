@@ -0,0 +1,80 @@
+package com.minishop.messaging.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.minishop.messaging.MessagingException;
+import com.minishop.messaging.event.OrderDto;
+import com.minishop.messaging.event.OrderEvent;
+import com.minishop.messaging.event.ProductEvent;
+import com.minishop.messaging.event.UntypedPayload;
+import io.nats.client.Message;
+import io.nats.client.impl.Headers;
+import io.nats.client.impl.NatsMessage;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventTypeRegistryTest {
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+
+    @Test
+    void decodesEachSubjectToItsEventTypeWithTypedData() {
+        MessageCodec codec = new MessageCodec(objectMapper, MessageCodec.CBOR);
+        EventTypeRegistry registry = new EventTypeRegistry(codec)
+            .register("orders.created", OrderEvent.class)
+            .register("products.inventory.update", ProductEvent.class);
+        OrderDto order = new OrderDto();
+        order.setId(5L);
+        order.setProductName("Monitor");
+        order.setQuantity(2);
+        OrderEvent orderEvent = new OrderEvent("5", "user-5", "CREATED", "CREATE");
+        orderEvent.setData(order);
+        ProductEvent inventory = new ProductEvent();
+        inventory.setAction("INVENTORY_RESERVED");
+        inventory.setData(orderEvent);
+
+        OrderEvent decodedOrder = (OrderEvent) registry.decode(message("orders.created",
+            registry.encode("orders.created", orderEvent), MessageCodec.CBOR));
+        ProductEvent decodedInventory = (ProductEvent) registry.decode(message("products.inventory.update",
+            registry.encode("products.inventory.update", inventory), MessageCodec.CBOR));
+
+        assertEquals("Monitor", assertInstanceOf(OrderDto.class, decodedOrder.getData()).getProductName());
+        OrderEvent nested = assertInstanceOf(OrderEvent.class, decodedInventory.getData());
+        assertEquals(2, assertInstanceOf(OrderDto.class, nested.getData()).getQuantity());
+    }
+
+    @Test
+    void dataWithoutTypeFromOlderProducersIsKeptUntyped() {
+        EventTypeRegistry registry = new EventTypeRegistry(new MessageCodec(objectMapper))
+            .register("orders.created", OrderEvent.class);
+        String legacy = "{\"orderId\":\"1\",\"data\":{\"id\":1,\"productName\":\"Teclado\",\"quantity\":3}}";
+
+        OrderEvent decoded = (OrderEvent) registry.decode(message("orders.created",
+            legacy.getBytes(StandardCharsets.UTF_8), null));
+
+        UntypedPayload data = assertInstanceOf(UntypedPayload.class, decoded.getData());
+        assertEquals("Teclado", data.getFields().get("productName"));
+    }
+
+    @Test
+    void restPayloadsKeepTheirShapeAndUnknownSubjectsFail() throws Exception {
+        OrderDto order = new OrderDto();
+        order.setId(1L);
+
+        // El "type" solo se añade dentro de data, no al serializar el DTO por sí mismo
+        assertFalse(objectMapper.writeValueAsString(order).contains("\"type\""));
+        assertThrows(MessagingException.class, () -> new EventTypeRegistry(new MessageCodec(objectMapper))
+            .decode(message("unknown.subject", new byte[0], null)));
+    }
+
+    private static Message message(String subject, byte[] data, String contentType) {
+        NatsMessage.Builder builder = NatsMessage.builder().subject(subject).data(data);
+        if (contentType != null) {
+            builder.headers(new Headers().put(MessageCodec.CONTENT_TYPE_HEADER, contentType));
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,112 @@
+package com.minishop.messaging.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.minishop.messaging.MessagingException;
+import com.minishop.messaging.event.NotificationMessage;
+import com.minishop.messaging.event.OrderEvent;
+import com.minishop.messaging.event.ProductEvent;
+import com.minishop.messaging.event.UntypedPayload;
+import io.nats.client.Message;
+import io.nats.client.impl.Headers;
+import io.nats.client.impl.NatsMessage;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageCodecTest {
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+
+    @Test
+    void binaryFormatsRoundTripTheEventsAndAreSmallerThanJson() {
+        OrderEvent order = new OrderEvent("order-1", "user-1", "CREATED", "ORDER_CREATED");
+        ProductEvent product = new ProductEvent("product-1", "Teclado mecánico", 89.99, "PRODUCT_UPDATED");
+        NotificationMessage notification = new NotificationMessage("user-1", "Nueva orden creada: order-1", "ORDER");
+        int orderJson = new MessageCodec(objectMapper).encode(order).length;
+        int productJson = new MessageCodec(objectMapper).encode(product).length;
+        int notificationJson = new MessageCodec(objectMapper).encode(notification).length;
+
+        for (String contentType : new String[] {MessageCodec.CBOR, MessageCodec.SMILE}) {
+            MessageCodec codec = new MessageCodec(objectMapper, contentType);
+
+            byte[] orderBytes = codec.encode(order);
+            OrderEvent decodedOrder = codec.decode(orderBytes, contentType, OrderEvent.class);
+            assertEquals("order-1", decodedOrder.getOrderId());
+            assertEquals(order.getTimestamp(), decodedOrder.getTimestamp());
+            assertTrue(orderBytes.length < orderJson, contentType);
+
+            byte[] productBytes = codec.encode(product);
+            assertEquals(89.99, codec.decode(productBytes, contentType, ProductEvent.class).getPrice());
+            assertTrue(productBytes.length < productJson, contentType);
+
+            byte[] notificationBytes = codec.encode(notification);
+            assertEquals("EMAIL", codec.decode(notificationBytes, contentType, NotificationMessage.class).getChannel());
+            assertTrue(notificationBytes.length < notificationJson, contentType);
+        }
+    }
+
+    @Test
+    void decodesEachMessageByItsContentTypeHeader() {
+        MessageCodec json = new MessageCodec(objectMapper);
+        MessageCodec cbor = new MessageCodec(objectMapper, MessageCodec.CBOR);
+        OrderEvent order = new OrderEvent("order-2", "user-2", "PAID", "PAYMENT_CONFIRMED");
+
+        Message legacy = NatsMessage.builder().subject("orders.created").data(json.encode(order)).build();
+        Message binary = NatsMessage.builder().subject("orders.created")
+            .headers(new Headers().put(MessageCodec.CONTENT_TYPE_HEADER, "application/cbor; v=1"))
+            .data(cbor.encode(order)).build();
+
+        // Un consumidor configurado en JSON también lee CBOR, y al revés
+        assertEquals("order-2", cbor.decode(legacy, OrderEvent.class).getOrderId());
+        assertEquals("order-2", json.decode(binary, OrderEvent.class).getOrderId());
+        assertEquals(json.toText(legacy), json.toText(binary));
+    }
+
+    @Test
+    void compressesOnlyPayloadsAboveTheThreshold() {
+        MessageCodec codec = new MessageCodec(objectMapper, MessageCodec.JSON, new PayloadCompressor(1024, 1));
+        UntypedPayload items = new UntypedPayload();
+        for (int i = 0; i < 100; i++) {
+            items.setField("item-" + i, "Teclado mecánico, cantidad " + i);
+        }
+        OrderEvent large = new OrderEvent("order-3", "user-3", "CREATED", "CREATE");
+        large.setData(items);
+        byte[] small = codec.encode(new OrderEvent("order-4", "user-4", "CREATED", "CREATE"));
+        byte[] encoded = codec.encode(large);
+
+        byte[] compressed = codec.compress(encoded);
+
+        assertSame(small, codec.compress(small));
+        assertTrue(compressed.length < encoded.length / 2);
+        Message message = NatsMessage.builder().subject("orders.created")
+            .headers(new Headers().put(PayloadCompressor.CONTENT_ENCODING_HEADER, PayloadCompressor.DEFLATE))
+            .data(compressed).build();
+        // Un consumidor sin compresión configurada también lo lee
+        OrderEvent decoded = new MessageCodec(objectMapper).decode(message, OrderEvent.class);
+        assertEquals(100, assertInstanceOf(UntypedPayload.class, decoded.getData()).getFields().size());
+    }
+
+    @Test
+    void compressedPayloadsThatInflateBeyondTheLimitAreRejected() {
+        PayloadCompressor compressor = new PayloadCompressor(1, 9, 64 * 1024);
+        // 10 MB de ceros caben en ~10 KB comprimidos
+        byte[] bomb = compressor.compress(new byte[10 * 1024 * 1024]);
+        Message message = NatsMessage.builder().subject("orders.created")
+            .headers(new Headers().put(PayloadCompressor.CONTENT_ENCODING_HEADER, PayloadCompressor.DEFLATE))
+            .data(bomb).build();
+
+        assertTrue(bomb.length < 64 * 1024);
+        MessagingException e = assertThrows(MessagingException.class,
+            () -> new MessageCodec(objectMapper, MessageCodec.JSON, compressor).payload(message));
+        assertTrue(e.getMessage().contains("inflates beyond"), e.getMessage());
+        assertEquals(64 * 1024, compressor.decompress(compressor.compress(new byte[64 * 1024])).length);
+    }
+
+    @Test
+    void rejectsUnknownContentTypes() {
+        assertThrows(MessagingException.class, () -> new MessageCodec(objectMapper, "application/xml"));
+        assertThrows(MessagingException.class,
+            () -> new MessageCodec(objectMapper).decode(new byte[0], "text/plain", OrderEvent.class));
+    }
+}
@@ -0,0 +1,83 @@
+package com.minishop.messaging.config;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.minishop.messaging.codec.MessageCodec;
+import com.minishop.messaging.core.NatsTemplate;
+import com.minishop.messaging.event.OrderEvent;
+import io.nats.client.Connection;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.Resource;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class JfrRecordingEndpointTest {
+
+    private final JfrRecordingEndpoint endpoint = new JfrRecordingEndpoint(new JfrProperties());
+
+    @Test
+    void recordsForTheRequestedTimeAndReturnsTheCustomEvents() throws Exception {
+        NatsTemplate natsTemplate = NatsTemplate.builder(mock(Connection.class),
+            new MessageCodec(JsonMapper.builder().findAndAddModules().build())).requestTimeout(Duration.ofMillis(100)).build();
+        CompletableFuture<WebEndpointResponse<Resource>> recording =
+            CompletableFuture.supplyAsync(() -> endpoint.record(2L, "default"));
+        // Publicar mientras dura la grabación (arrancar JFR la primera vez tarda)
+        while (!recording.isDone()) {
+            natsTemplate.publish("orders.events", new OrderEvent("42", "user-42", "CREATED", "CREATE"));
+            Thread.sleep(20);
+        }
+
+        WebEndpointResponse<Resource> response = recording.get();
+
+        assertEquals(WebEndpointResponse.STATUS_OK, response.getStatus());
+        Path copy = Files.createTempFile("jfr-test-", ".jfr");
+        try (InputStream in = response.getBody().getInputStream()) {
+            Files.copy(in, copy, StandardCopyOption.REPLACE_EXISTING);
+        }
+        try {
+            List<RecordedEvent> events = RecordingFile.readAllEvents(copy);
+            List<RecordedEvent> published = events.stream()
+                .filter(event -> event.getEventType().getName().equals("minishop.EventPublish"))
+                .toList();
+            assertFalse(published.isEmpty());
+            assertEquals("orders.events", published.get(0).getString("subject"));
+            assertEquals("42", published.get(0).getString("key"));
+            assertTrue(published.get(0).getBoolean("success"));
+            // Ni variables de entorno ni propiedades del sistema
+            assertTrue(events.stream().noneMatch(event -> event.getEventType().getName().startsWith("jdk.Initial")));
+        } finally {
+            Files.delete(copy);
+        }
+        // El temporal se borra al terminar de leerlo
+        assertFalse(response.getBody().getFile().exists());
+    }
+
+    @Test
+    void onlyOneRecordingAtATime() throws Exception {
+        CompletableFuture<WebEndpointResponse<Resource>> first =
+            CompletableFuture.supplyAsync(() -> endpoint.record(2L, "default"));
+        Thread.sleep(500);
+
+        assertEquals(WebEndpointResponse.STATUS_TOO_MANY_REQUESTS, endpoint.record(1L, "default").getStatus());
+        WebEndpointResponse<Resource> response = first.get();
+        assertEquals(WebEndpointResponse.STATUS_OK, response.getStatus());
+        response.getBody().getInputStream().close();
+    }
+
+    @Test
+    void onlyTheBuiltInSettingsAreAccepted() {
+        assertEquals(WebEndpointResponse.STATUS_BAD_REQUEST, endpoint.record(1L, "missing").getStatus());
+        assertEquals(WebEndpointResponse.STATUS_BAD_REQUEST, endpoint.record(1L, "/tmp/custom.jfc").getStatus());
+    }
+}
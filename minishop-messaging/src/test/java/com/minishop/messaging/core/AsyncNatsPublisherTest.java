@@ -0,0 +1,254 @@
+package com.minishop.messaging.core;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.minishop.messaging.MessagingException;
+import com.minishop.messaging.codec.MessageCodec;
+import com.minishop.messaging.event.OrderEvent;
+import io.nats.client.Connection;
+import io.nats.client.Message;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class AsyncNatsPublisherTest {
+
+    private static final Duration TIMEOUT = Duration.ofMillis(200);
+
+    private final Connection connection = mock(Connection.class);
+    private final List<String> subjects = new CopyOnWriteArrayList<>();
+    private final CountDownLatch firstPublish = new CountDownLatch(1);
+    private final CountDownLatch gate = new CountDownLatch(1);
+    private AsyncNatsPublisher publisher;
+
+    @AfterEach
+    void tearDown() {
+        gate.countDown();
+        if (publisher != null) {
+            publisher.stop();
+        }
+    }
+
+    @Test
+    void publishesOnTheDrainerAndFlushesEachBatch() throws Exception {
+        doAnswer(invocation -> subjects.add(invocation.getArgument(0)))
+            .when(connection).publish(anyString(), any(byte[].class));
+        publisher = start(10, 4, AsyncNatsPublisher.OverflowPolicy.BLOCK);
+
+        for (int i = 0; i < 10; i++) {
+            publisher.publish("orders." + i, Map.of("i", i));
+        }
+        publisher.stop();
+
+        assertEquals(10, subjects.size());
+        assertEquals("orders.0", subjects.get(0));
+        assertEquals("orders.9", subjects.get(9));
+        assertEquals(0, publisher.getPending());
+        assertTrue(publisher.getBatches() >= 3);
+        verify(connection, atLeast(3)).flushBuffer();
+    }
+
+    @Test
+    void failFastRejectsWhenThePendingLimitIsReached() throws Exception {
+        publisher = startBlocked(2, AsyncNatsPublisher.OverflowPolicy.FAIL_FAST);
+        publisher.publish("orders.1", "b");
+        publisher.publish("orders.2", "c");
+
+        assertThrows(MessagingException.class, () -> publisher.publish("orders.3", "d"));
+
+        gate.countDown();
+        publisher.stop();
+        assertEquals(List.of("orders.0", "orders.1", "orders.2"), subjects);
+        assertEquals(1, publisher.getRejected());
+    }
+
+    @Test
+    void dropOldestMakesRoomForTheNewestMessage() throws Exception {
+        publisher = startBlocked(2, AsyncNatsPublisher.OverflowPolicy.DROP_OLDEST);
+        publisher.publish("orders.1", "b");
+        publisher.publish("orders.2", "c");
+
+        publisher.publish("orders.3", "d");
+
+        gate.countDown();
+        publisher.stop();
+        assertEquals(List.of("orders.0", "orders.2", "orders.3"), subjects);
+        assertEquals(1, publisher.getDropped());
+    }
+
+    @Test
+    void blockWaitsForRoomAndFailsAfterTheProducerTimeout() throws Exception {
+        publisher = startBlocked(1, AsyncNatsPublisher.OverflowPolicy.BLOCK);
+        publisher.publish("orders.1", "b");
+
+        long start = System.nanoTime();
+        assertThrows(MessagingException.class, () -> publisher.publish("orders.2", "c"));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(TIMEOUT.toMillis()));
+        assertEquals(1, publisher.getRejected());
+    }
+
+    @Test
+    void publishesOnTheCallerWhenNotRunning() {
+        publisher = new AsyncNatsPublisher(template(connection), new MessagingThreads(false), 10, 4,
+            AsyncNatsPublisher.OverflowPolicy.BLOCK, TIMEOUT);
+
+        publisher.publish("orders.created", "a");
+
+        verify(connection).publish(eq("orders.created"), any(byte[].class));
+        assertEquals(0, publisher.getBatches());
+    }
+
+    /**
+     * 50k eventos/s durante 5 s desde 4 hilos contra una conexión en memoria:
+     * latencia del llamante publicando en su hilo frente a solo encolar, y
+     * latencia de encolado a publicado.
+     * mvn test -Dtest=AsyncNatsPublisherTest -Dload.test=true
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "load.test", matches = "true")
+    void sustainsFiftyThousandEventsPerSecond() throws Exception {
+        int producers = 4;
+        int eventsPerSecond = 50_000;
+        int seconds = 5;
+        int total = eventsPerSecond * seconds;
+        long[] enqueuedAt = new long[total];
+        long[] publishedAt = new long[total];
+        AtomicLong publishedCount = new AtomicLong();
+        Connection memory = memoryConnection(subject -> {
+            publishedAt[Integer.parseInt(subject.substring(6))] = System.nanoTime();
+            publishedCount.incrementAndGet();
+        });
+        NatsTemplate natsTemplate = template(memory);
+
+        long[] syncLatencies = run(producers, eventsPerSecond, total, (i, event) -> natsTemplate.publish("bench." + i, event));
+        publishedCount.set(0);
+
+        publisher = new AsyncNatsPublisher(natsTemplate, new MessagingThreads(false), 1000, 256,
+            AsyncNatsPublisher.OverflowPolicy.BLOCK, TIMEOUT);
+        publisher.start();
+        long start = System.nanoTime();
+        long[] asyncLatencies = run(producers, eventsPerSecond, total, (i, event) -> {
+            enqueuedAt[i] = System.nanoTime();
+            publisher.publish("bench." + i, event);
+        });
+        publisher.stop();
+        double wallSeconds = (System.nanoTime() - start) / 1e9;
+
+        long[] endToEnd = new long[total];
+        for (int i = 0; i < total; i++) {
+            endToEnd[i] = publishedAt[i] - enqueuedAt[i];
+        }
+        report("sync publish (caller)", syncLatencies);
+        report("async enqueue (caller)", asyncLatencies);
+        report("async enqueue->publish", endToEnd);
+        System.out.printf("[LOAD] async: %,d events in %.2f s (%,.0f events/s), %,d batches (avg %.1f), rejected %d%n",
+            publishedCount.get(), wallSeconds, publishedCount.get() / wallSeconds, publisher.getBatches(),
+            (double) total / publisher.getBatches(), publisher.getRejected());
+
+        assertEquals(total, publishedCount.get());
+        assertEquals(0, publisher.getRejected());
+    }
+
+    private AsyncNatsPublisher start(int maxPending, int batchSize, AsyncNatsPublisher.OverflowPolicy policy) {
+        AsyncNatsPublisher started = new AsyncNatsPublisher(template(connection), new MessagingThreads(false),
+            maxPending, batchSize, policy, TIMEOUT);
+        started.start();
+        return started;
+    }
+
+    /**
+     * Publicador cuyo hilo de vaciado queda retenido publicando "orders.0"
+     * hasta abrir gate: la cola se llena sin que nadie la vacíe
+     */
+    private AsyncNatsPublisher startBlocked(int maxPending, AsyncNatsPublisher.OverflowPolicy policy) throws Exception {
+        doAnswer(invocation -> {
+            subjects.add(invocation.getArgument(0));
+            firstPublish.countDown();
+            gate.await();
+            return null;
+        }).when(connection).publish(anyString(), any(byte[].class));
+        AsyncNatsPublisher started = start(maxPending, 1, policy);
+        started.publish("orders.0", "a");
+        assertTrue(firstPublish.await(1, TimeUnit.SECONDS));
+        return started;
+    }
+
+    private static NatsTemplate template(Connection connection) {
+        return NatsTemplate.builder(connection, new MessageCodec(JsonMapper.builder().findAndAddModules().build()))
+            .requestTimeout(Duration.ofMillis(100)).build();
+    }
+
+    private static long[] run(int producers, int eventsPerSecond, int total, Producer producer) throws InterruptedException {
+        long[] latencies = new long[total];
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) * producers / eventsPerSecond;
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            int first = p;
+            threads[p] = new Thread(() -> {
+                long next = System.nanoTime();
+                for (int i = first; i < total; i += producers) {
+                    // Ritmo fijo: si un envío se retrasa, los siguientes salen seguidos para recuperar
+                    next += intervalNanos;
+                    long wait = next - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    OrderEvent event = new OrderEvent(String.valueOf(i), "user-" + (i % 100), "PENDING", "CREATE");
+                    long start = System.nanoTime();
+                    producer.publish(i, event);
+                    latencies[i] = System.nanoTime() - start;
+                }
+            });
+            threads[p].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return latencies;
+    }
+
+    private static void report(String label, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        System.out.printf("[LOAD] %-24s p50 %,7.1f us  p99 %,9.1f us  p99.9 %,9.1f us  max %,9.1f us%n", label,
+            percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999), sorted[sorted.length - 1] / 1000.0);
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.round(percentile * sorted.length))] / 1000.0;
+    }
+
+    /**
+     * Conexión en memoria sin registrar invocaciones (un mock guardaría las 250k)
+     */
+    private static Connection memoryConnection(Consumer<String> onPublish) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+            (proxy, method, args) -> {
+                if (method.getName().equals("publish")) {
+                    onPublish.accept(args[0] instanceof Message ? ((Message) args[0]).getSubject() : (String) args[0]);
+                }
+                return null;
+            });
+    }
+
+    @FunctionalInterface
+    private interface Producer {
+        void publish(int index, OrderEvent event);
+    }
+}
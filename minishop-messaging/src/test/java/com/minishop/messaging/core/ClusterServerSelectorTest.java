@@ -0,0 +1,153 @@
+package com.minishop.messaging.core;
+
+import com.minishop.messaging.config.NatsProperties;
+import io.nats.client.Connection;
+import io.nats.client.ConnectionListener;
+import io.nats.client.Options;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ClusterServerSelectorTest {
+
+    @Test
+    void serversAreRankedByTimeToInfoAndUnreachableOnesGoLast() throws Exception {
+        try (ServerSocket fast = fakeServer(0); ServerSocket slow = fakeServer(60)) {
+            String unreachable = "nats://127.0.0.1:" + freePort();
+            String fastUrl = "nats://127.0.0.1:" + fast.getLocalPort();
+            String slowUrl = "nats://127.0.0.1:" + slow.getLocalPort();
+            ClusterServerSelector selector = new ClusterServerSelector(Duration.ofMillis(500));
+
+            List<String> ranked = selector.rank(List.of(unreachable, slowUrl, fastUrl));
+
+            assertEquals(List.of(fastUrl, slowUrl, unreachable), ranked);
+            assertTrue(selector.getLastRanking().get(slowUrl) >= 60_000);
+            assertEquals(Long.MAX_VALUE, selector.getLastRanking().get(unreachable));
+        }
+    }
+
+    @Test
+    void aFactoryProbesTheClusterOnceForAllItsConnections() throws Exception {
+        AtomicInteger probes = new AtomicInteger();
+        try (ServerSocket fast = fakeServer(0, probes); ServerSocket slow = fakeServer(30, probes)) {
+            String fastUrl = "nats://127.0.0.1:" + fast.getLocalPort();
+            String slowUrl = "nats://127.0.0.1:" + slow.getLocalPort();
+            NatsProperties properties = new NatsProperties();
+            properties.getCluster().setEnabled(true);
+            properties.getCluster().setServers(new String[]{slowUrl, fastUrl});
+            NatsConnectionFactory factory = new NatsConnectionFactory(properties, "orders-service");
+
+            for (String name : List.of("orders-service", "orders-service-pub-0", "orders-service-pub-1")) {
+                List<String> servers = factory.options(name).getServers().stream().map(URI::toString).toList();
+                assertEquals(List.of(fastUrl, slowUrl), servers);
+            }
+
+            assertEquals(2, probes.get());
+            factory.close();
+        }
+    }
+
+    @Test
+    void aLameDuckServerGoesLastAndItsConnectionsMoveToTheBestRankedOne() throws Exception {
+        try (ServerSocket fast = fakeServer(0); ServerSocket slow = fakeServer(30)) {
+            String fastUrl = "nats://127.0.0.1:" + fast.getLocalPort();
+            String slowUrl = "nats://127.0.0.1:" + slow.getLocalPort();
+            NatsProperties properties = new NatsProperties();
+            properties.getCluster().setEnabled(true);
+            properties.getCluster().setServers(new String[]{slowUrl, fastUrl});
+            NatsConnectionFactory factory = new NatsConnectionFactory(properties, "orders-service");
+            Options options = factory.options();
+            RankedServerPool pool = (RankedServerPool) options.getServerPool();
+            pool.initialize(options);
+            Connection connection = mock(Connection.class);
+            when(connection.getOptions()).thenReturn(options);
+            when(connection.getStatus()).thenReturn(Connection.Status.CONNECTED);
+            when(connection.getConnectedUrl()).thenReturn(fastUrl);
+            when(connection.getServers()).thenReturn(List.of(fastUrl, slowUrl));
+
+            options.getConnectionListener().connectionEvent(connection, ConnectionListener.Events.CONNECTED);
+            options.getConnectionListener().connectionEvent(connection, ConnectionListener.Events.LAME_DUCK);
+
+            verify(connection, timeout(2000)).forceReconnect();
+            assertEquals(List.of(slowUrl, fastUrl), factory.getClusterServers());
+            assertTrue(ClusterServerSelector.sameServer(slowUrl, pool.peekNextServer().toString()));
+            factory.close();
+        }
+    }
+
+    @Test
+    void sameServerIgnoresSchemeAndDefaultPort() {
+        assertTrue(ClusterServerSelector.sameServer("nats://Localhost:4222", "localhost"));
+        assertTrue(ClusterServerSelector.sameServer("localhost:4223", "nats://localhost:4223"));
+        assertFalse(ClusterServerSelector.sameServer("nats://localhost:4222", "nats://localhost:4223"));
+    }
+
+    /**
+     * Contra un cluster local de tres nodos:
+     * ./start-nats-cluster.sh
+     * mvn test -Dtest=ClusterServerSelectorTest -Dnats.cluster.test=true
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "nats.cluster.test", matches = "true")
+    void connectsToTheLowestRttNodeOfALocalCluster() throws Exception {
+        NatsProperties properties = new NatsProperties();
+        properties.getCluster().setEnabled(true);
+        properties.getCluster().setServers(System.getProperty("nats.cluster.servers",
+            "nats://localhost:4222,nats://localhost:4223,nats://localhost:4224").split(","));
+        NatsConnectionFactory factory = new NatsConnectionFactory(properties, "cluster-test");
+
+        try (Connection connection = factory.connect()) {
+            System.out.println("[CLUSTER] " + factory.getClusterServers() + " -> " + connection.getConnectedUrl());
+            assertEquals(Connection.Status.CONNECTED, connection.getStatus());
+            assertTrue(ClusterServerSelector.sameServer(factory.getClusterServers().get(0), connection.getConnectedUrl()));
+            assertTrue(connection.getServers().size() >= 3);
+        } finally {
+            factory.close();
+        }
+    }
+
+    /**
+     * Acepta conexiones y responde con una línea INFO tras delayMillis
+     */
+    private static ServerSocket fakeServer(long delayMillis) throws IOException {
+        return fakeServer(delayMillis, new AtomicInteger());
+    }
+
+    private static ServerSocket fakeServer(long delayMillis, AtomicInteger accepted) throws IOException {
+        ServerSocket server = new ServerSocket(0);
+        Thread thread = new Thread(() -> {
+            while (!server.isClosed()) {
+                try (Socket socket = server.accept()) {
+                    accepted.incrementAndGet();
+                    Thread.sleep(delayMillis);
+                    OutputStream out = socket.getOutputStream();
+                    out.write("INFO {\"server_id\":\"fake\"}\r\n".getBytes(StandardCharsets.US_ASCII));
+                    out.flush();
+                } catch (IOException | InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return server;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
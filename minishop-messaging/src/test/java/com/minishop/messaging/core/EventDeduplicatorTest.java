@@ -0,0 +1,108 @@
+package com.minishop.messaging.core;
+
+import io.nats.client.NUID;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventDeduplicatorTest {
+
+    @Test
+    void anIdIsNewOnlyTheFirstTime() {
+        EventDeduplicator deduplicator = new EventDeduplicator(Duration.ofHours(1), 6, 10_000, 1e-6, 100);
+
+        assertTrue(deduplicator.markSeen("a"));
+        assertFalse(deduplicator.markSeen("a"));
+        assertTrue(deduplicator.markSeen("b"));
+
+        assertEquals(3, deduplicator.getChecked());
+        assertEquals(1, deduplicator.getDuplicates());
+        assertEquals(0, deduplicator.getProbableDuplicates());
+    }
+
+    @Test
+    void containsDoesNotRegisterTheId() {
+        EventDeduplicator deduplicator = new EventDeduplicator(Duration.ofHours(1), 6, 10_000, 1e-6, 100);
+
+        assertFalse(deduplicator.contains("a"));
+        assertFalse(deduplicator.contains("a"));
+        deduplicator.add("a");
+        assertTrue(deduplicator.contains("a"));
+    }
+
+    @Test
+    void idsAreForgottenAfterTheWindow() throws Exception {
+        EventDeduplicator deduplicator = new EventDeduplicator(Duration.ofMillis(60), 3, 1000, 1e-6, 100);
+
+        assertTrue(deduplicator.markSeen("a"));
+        Thread.sleep(100);
+
+        assertTrue(deduplicator.markSeen("a"));
+    }
+
+    @Test
+    void oldIdsOutsideTheExactSetAreStillDuplicates() {
+        EventDeduplicator deduplicator = new EventDeduplicator(Duration.ofHours(1), 6, 10_000, 1e-6, 10);
+        for (int i = 0; i < 100; i++) {
+            deduplicator.markSeen("id-" + i);
+        }
+
+        assertFalse(deduplicator.markSeen("id-0"));
+        assertEquals(1, deduplicator.getProbableDuplicates());
+    }
+
+    @Test
+    void bloomHitsMissingFromTheExactSetAreDeliveredWhileItCoversTheFilters() {
+        // Filtros diminutos con fpp 0.5: muchos aciertos falsos
+        EventDeduplicator deduplicator = new EventDeduplicator(Duration.ofHours(1), 1, 8, 0.5, 1000);
+        for (int i = 0; i < 64; i++) {
+            deduplicator.add("seen-" + i);
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            assertFalse(deduplicator.contains("new-" + i));
+        }
+        assertTrue(deduplicator.contains("seen-0"));
+        assertTrue(deduplicator.getFalsePositives() > 0);
+        assertEquals(0, deduplicator.getProbableDuplicates());
+    }
+
+    @Test
+    void aBucketNewerThanTheOldestExactIdProvesFalsePositives() throws Exception {
+        EventDeduplicator deduplicator = new EventDeduplicator(Duration.ofMillis(300), 3, 24, 0.5, 16);
+        for (int i = 0; i < 16; i++) {
+            deduplicator.add("old-" + i);
+        }
+        // El cubo siguiente empieza después de los ids guardados en el conjunto exacto
+        Thread.sleep(120);
+        deduplicator.add("next-0");
+
+        int delivered = 0;
+        for (int i = 0; i < 1000; i++) {
+            delivered += deduplicator.contains("new-" + i) ? 0 : 1;
+        }
+        // Solo los aciertos del primer cubo (anterior al conjunto) se tratan como duplicados
+        assertTrue(delivered > 0);
+        assertTrue(deduplicator.getFalsePositives() > 0);
+    }
+
+    @Test
+    void aFewBytesPerIdWithoutFalsePositives() {
+        int ids = 600_000;
+        EventDeduplicator deduplicator = new EventDeduplicator(Duration.ofHours(1), 6, ids, 1e-6, 65536);
+        // Lo que llega durante un cubo: cada filtro se dimensiona para su parte de la ventana
+        for (int i = 0; i < ids / 6; i++) {
+            assertTrue(deduplicator.markSeen(NUID.nextGlobal()));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            falsePositives += deduplicator.contains(NUID.nextGlobal()) ? 1 : 0;
+        }
+
+        // ~29 bits por id con fpp 1e-6
+        assertTrue(deduplicator.getFilterBytes() / (double) ids < 4, deduplicator.getFilterBytes() + " bytes");
+        assertTrue(falsePositives <= 2, falsePositives + " false positives");
+    }
+}
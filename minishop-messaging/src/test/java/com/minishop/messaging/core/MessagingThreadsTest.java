@@ -0,0 +1,281 @@
+package com.minishop.messaging.core;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.util.JsonRecyclerPools;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.minishop.messaging.codec.MessageCodec;
+import com.minishop.messaging.config.NatsProperties;
+import io.nats.client.Connection;
+import io.nats.client.Message;
+import io.nats.client.Nats;
+import io.nats.client.impl.NatsMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.condition.JRE;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class MessagingThreadsTest {
+
+    private static final int REQUESTS = 10_000;
+    private static final long REQUEST_MILLIS = 200;
+    // Máximo de hilos por defecto de Tomcat (server.tomcat.threads.max)
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final String SUBJECT = "products.inventory.check";
+
+    @Test
+    void platformModeKeepsDaemonThreadsAndTheDefaultJnatsExecutor() {
+        MessagingThreads threads = new MessagingThreads(false);
+
+        Thread thread = threads.newThread("nats-lane-0", () -> { });
+
+        assertEquals("nats-lane-0", thread.getName());
+        assertTrue(thread.isDaemon());
+        assertNull(threads.newConnectionExecutor());
+    }
+
+    /**
+     * 10k peticiones HTTP simultáneas que esperan cada una un
+     * NatsTemplate.request a un responder que tarda 200 ms, atendidas por el
+     * pool de plataforma de Tomcat y por un hilo virtual por petición. Con
+     * -Dnats.url=nats://localhost:4222 el responder es una suscripción en un
+     * servidor real y el cliente sale de NatsConnectionFactory; sin él, una
+     * conexión simulada responde a los 200 ms.
+     * mvn test -Dtest=MessagingThreadsTest -Dload.test=true (con Java 21)
+     */
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_21)
+    @EnabledIfSystemProperty(named = "load.test", matches = "true")
+    void virtualThreadsServeTenThousandSlowRequestsConcurrently() throws Exception {
+        Result platform = run("platform", new MessagingThreads(false), Executors.newFixedThreadPool(TOMCAT_MAX_THREADS));
+        MessagingThreads virtualThreads = new MessagingThreads(true);
+        Result virtual = run("virtual", virtualThreads, virtualThreads.newConnectionExecutor());
+
+        // Con 200 hilos de plataforma las peticiones esperan en cola: 10k / 200 * 200 ms = 10 s
+        assertTrue(platform.wallMillis >= REQUESTS / TOMCAT_MAX_THREADS * REQUEST_MILLIS);
+        // Con hilos virtuales todas esperan a la vez sobre unos pocos hilos portadores; codificar,
+        // decodificar y crear 10k hilos cuesta en torno a 1,5 s más que los 200 ms de espera
+        assertTrue(virtual.wallMillis < platform.wallMillis / 4,
+            "virtual " + virtual.wallMillis + " ms vs platform " + platform.wallMillis + " ms");
+        assertTrue(virtual.peakPlatformThreads < TOMCAT_MAX_THREADS);
+    }
+
+    /**
+     * Heap de los hilos virtuales que esperan una respuesta, descontando el
+     * estado de las 10k peticiones en curso (futuros, timeouts, cabeceras),
+     * que es el mismo con o sin hilos. Se mide el heap vivo tras un GC con
+     * todas las peticiones retenidas: el pico de heap usado de la prueba
+     * anterior incluye la basura de codificar y decodificar y las 10k
+     * peticiones a la vez (frente a 200 con hilos de plataforma), y no sirve
+     * para comparar. Las pilas de los hilos de plataforma están fuera del
+     * heap; las de los virtuales aparcados, dentro.
+     */
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_21)
+    @EnabledIfSystemProperty(named = "load.test", matches = "true")
+    void aVirtualThreadWaitingForAReplyCostsAFewKilobytesOfHeap() throws Exception {
+        List<CompletableFuture<Message>> held = Collections.synchronizedList(new ArrayList<>());
+        NatsTemplate natsTemplate = NatsTemplate.builder(heldConnection(held), codec())
+            .requestTimeout(Duration.ofSeconds(60)).build();
+
+        // Las mismas peticiones sin ningún hilo esperando
+        List<CompletableFuture<Map>> responses = new ArrayList<>();
+        long before = liveHeap();
+        for (int i = 0; i < REQUESTS; i++) {
+            responses.add(natsTemplate.request(SUBJECT, Map.of("productId", "p-" + i), Map.class));
+        }
+        long requestBytes = liveHeap() - before;
+        release(held);
+        CompletableFuture.allOf(responses.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+        responses.clear();
+
+        MessagingThreads threads = new MessagingThreads(true);
+        ExecutorService executor = threads.newConnectionExecutor();
+        CountDownLatch done = new CountDownLatch(REQUESTS);
+        AtomicInteger failed = new AtomicInteger();
+        before = liveHeap();
+        for (int i = 0; i < REQUESTS; i++) {
+            String productId = "p-" + i;
+            executor.execute(() -> {
+                try {
+                    natsTemplate.request(SUBJECT, Map.of("productId", productId), Map.class).get();
+                } catch (InterruptedException | ExecutionException e) {
+                    failed.incrementAndGet();
+                }
+                done.countDown();
+            });
+        }
+        while (held.size() < REQUESTS) {
+            Thread.sleep(10);
+        }
+        // La última petición enviada aparca su hilo en get() enseguida
+        Thread.sleep(200);
+        long waitingBytes = liveHeap() - before;
+        release(held);
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+        threads.close();
+        assertEquals(0, failed.get());
+
+        long bytesPerThread = (waitingBytes - requestBytes) / REQUESTS;
+        System.out.printf("[LOAD] %,d waiting requests: heap +%,d KB without threads, +%,d KB with virtual threads, %,d bytes per thread%n",
+            REQUESTS, requestBytes / 1024, waitingBytes / 1024, bytesPerThread);
+        // Un hilo virtual aparcado guarda en el heap solo los marcos de su pila
+        assertTrue(bytesPerThread < 8 * 1024, bytesPerThread + " bytes per waiting virtual thread");
+    }
+
+    private Result run(String label, MessagingThreads threads, ExecutorService executor) throws Exception {
+        ScheduledExecutorService responder = Executors.newSingleThreadScheduledExecutor();
+        String url = System.getProperty("nats.url");
+        Connection server = url != null ? slowResponder(url, responder) : null;
+        Connection connection = url != null ? connect(url, threads) : slowConnection(responder);
+        NatsTemplate natsTemplate = NatsTemplate.builder(connection, codec())
+            .requestTimeout(Duration.ofSeconds(30))
+            .responseExecutor(threads.newWorkerExecutor("nats-reply", Runtime.getRuntime().availableProcessors()))
+            .build();
+        AtomicInteger failed = new AtomicInteger();
+
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        threadBean.resetPeakThreadCount();
+
+        CountDownLatch done = new CountDownLatch(REQUESTS);
+        long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            String productId = "p-" + i;
+            // Como un controlador: el hilo de la petición HTTP espera la respuesta
+            executor.execute(() -> {
+                try {
+                    natsTemplate.request(SUBJECT, Map.of("productId", productId), Map.class).get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failed.incrementAndGet();
+                } catch (ExecutionException e) {
+                    failed.incrementAndGet();
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        long wallMillis = (System.nanoTime() - start) / 1_000_000;
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        threads.close();
+        responder.shutdownNow();
+        if (url != null) {
+            connection.close();
+            server.close();
+        }
+        assertEquals(0, failed.get());
+        assertEquals(REQUESTS, natsTemplate.getRequests());
+
+        Result result = new Result(wallMillis, threadBean.getPeakThreadCount());
+        System.out.printf("[LOAD] %-8s %,d requests x %d ms: wall %,d ms, peak platform threads %d%n",
+            label, REQUESTS, REQUEST_MILLIS, result.wallMillis, result.peakPlatformThreads);
+        return result;
+    }
+
+    /**
+     * Jackson guarda por defecto sus buffers en un ThreadLocal: cada hilo
+     * virtual que codifica retendría los suyos (unos 18 KB, medidos con
+     * GC.class_histogram) y se mediría Jackson en lugar del hilo
+     */
+    private static MessageCodec codec() {
+        JsonFactory factory = JsonFactory.builder().recyclerPool(JsonRecyclerPools.sharedConcurrentDequePool()).build();
+        return new MessageCodec(JsonMapper.builder(factory).findAndAddModules().build());
+    }
+
+    /**
+     * Conexión simulada cuyas peticiones se responden a los REQUEST_MILLIS
+     */
+    private static Connection slowConnection(ScheduledExecutorService responder) {
+        Connection connection = mock(Connection.class, withSettings().stubOnly());
+        Message reply = NatsMessage.builder().subject("_INBOX.reply").data("{\"available\":true}").build();
+        when(connection.requestWithTimeout(eq(SUBJECT), any(byte[].class), any(Duration.class))).thenAnswer(invocation -> {
+            CompletableFuture<Message> future = new CompletableFuture<>();
+            responder.schedule(() -> future.complete(reply), REQUEST_MILLIS, TimeUnit.MILLISECONDS);
+            return future;
+        });
+        return connection;
+    }
+
+    /**
+     * Conexión simulada que retiene las peticiones hasta release()
+     */
+    private static Connection heldConnection(List<CompletableFuture<Message>> held) {
+        Connection connection = mock(Connection.class, withSettings().stubOnly());
+        when(connection.requestWithTimeout(eq(SUBJECT), any(byte[].class), any(Duration.class))).thenAnswer(invocation -> {
+            CompletableFuture<Message> future = new CompletableFuture<>();
+            held.add(future);
+            return future;
+        });
+        return connection;
+    }
+
+    private static void release(List<CompletableFuture<Message>> held) {
+        Message reply = NatsMessage.builder().subject("_INBOX.reply").data("{\"available\":true}").build();
+        synchronized (held) {
+            held.forEach(future -> future.complete(reply));
+            held.clear();
+        }
+    }
+
+    /**
+     * Responder en otra conexión: contesta a los REQUEST_MILLIS sin ocupar el hilo del Dispatcher
+     */
+    private static Connection slowResponder(String url, ScheduledExecutorService responder) throws Exception {
+        Connection server = Nats.connect(url);
+        byte[] reply = "{\"available\":true}".getBytes(StandardCharsets.UTF_8);
+        server.createDispatcher(message -> responder.schedule(() -> server.publish(message.getReplyTo(), reply),
+            REQUEST_MILLIS, TimeUnit.MILLISECONDS)).subscribe(SUBJECT);
+        server.flush(Duration.ofSeconds(2));
+        return server;
+    }
+
+    private static Connection connect(String url, MessagingThreads threads) throws Exception {
+        NatsProperties properties = new NatsProperties();
+        properties.setUrl(url);
+        return new NatsConnectionFactory(properties, "load-test", threads).connect();
+    }
+
+    /**
+     * Heap ocupado por objetos alcanzables
+     */
+    private static long liveHeap() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static final class Result {
+        private final long wallMillis;
+        private final int peakPlatformThreads;
+
+        Result(long wallMillis, int peakPlatformThreads) {
+            this.wallMillis = wallMillis;
+            this.peakPlatformThreads = peakPlatformThreads;
+        }
+    }
+}
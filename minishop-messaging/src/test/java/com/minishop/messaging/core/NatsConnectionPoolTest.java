@@ -0,0 +1,172 @@
+package com.minishop.messaging.core;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.minishop.messaging.codec.MessageCodec;
+import com.minishop.messaging.event.OrderEvent;
+import io.nats.client.Connection;
+import io.nats.client.Dispatcher;
+import io.nats.client.Message;
+import io.nats.client.Nats;
+import io.nats.client.Options;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class NatsConnectionPoolTest {
+
+    @Test
+    void aKeyAlwaysMapsToTheSameConnectionAndKeysSpreadOverAll() {
+        List<Connection> connections = List.of(mock(Connection.class), mock(Connection.class), mock(Connection.class));
+        NatsConnectionPool pool = new NatsConnectionPool(connections, true);
+
+        Set<Connection> used = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            Connection connection = pool.connectionFor("order-" + i);
+            assertSame(connection, pool.connectionFor("order-" + i));
+            used.add(connection);
+        }
+
+        assertEquals(3, used.size());
+    }
+
+    @Test
+    void eventsOfAnEntityShareAPublishConnectionAndSubscriptionsStayOnTheirOwn() {
+        Connection subscriptions = mock(Connection.class);
+        when(subscriptions.createDispatcher(any())).thenReturn(mock(Dispatcher.class));
+        List<Connection> publishers = List.of(mock(Connection.class), mock(Connection.class), mock(Connection.class), mock(Connection.class));
+        NatsConnectionPool pool = new NatsConnectionPool(publishers, true);
+        MessageCodec codec = new MessageCodec(JsonMapper.builder().findAndAddModules().build());
+        NatsTemplate natsTemplate = NatsTemplate.builder(subscriptions, codec)
+            .requestTimeout(Duration.ofMillis(100)).publishers(pool).build();
+
+        for (String status : List.of("CREATED", "UPDATED", "CANCELLED")) {
+            natsTemplate.publish("orders.events", new OrderEvent("42", "user-42", status, status));
+        }
+        natsTemplate.subscribe("orders.events", null, message -> { });
+
+        verify(pool.connectionFor("42"), times(3)).publish(any(Message.class));
+        verify(subscriptions, never()).publish(any(Message.class));
+        verify(subscriptions, never()).publish(anyString(), any(byte[].class));
+        verify(subscriptions).createDispatcher(any());
+    }
+
+    /**
+     * Publicación desde 4 hilos con 1, 2, 4 y 8 conexiones. Contra un
+     * servidor de verdad con -Dnats.url=nats://localhost:8422; sin él, contra
+     * un servidor falso que descarta lo recibido (mide solo el cliente).
+     * mvn test -Dtest=NatsConnectionPoolTest -Dload.test=true
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "load.test", matches = "true")
+    void publishThroughputScalesWithConnections() throws Exception {
+        String url = System.getProperty("nats.url");
+        ServerSocket fake = url == null ? fakeServer() : null;
+        if (fake != null) {
+            url = "nats://127.0.0.1:" + fake.getLocalPort();
+        }
+        int producers = 4;
+        int perProducer = 250_000;
+        byte[] payload = new byte[128];
+        double baseline = 0;
+        for (int size : new int[]{1, 2, 4, 8}) {
+            List<Connection> connections = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                connections.add(Nats.connect(new Options.Builder().server(url).connectionName("bench-pub-" + i)
+                    .maxMessagesInOutgoingQueue(65536).build()));
+            }
+            NatsConnectionPool pool = new NatsConnectionPool(connections, true);
+            CountDownLatch done = new CountDownLatch(producers);
+            long start = System.nanoTime();
+            for (int p = 0; p < producers; p++) {
+                int producer = p;
+                new Thread(() -> {
+                    for (int i = 0; i < perProducer; i++) {
+                        pool.connectionFor("key-" + (producer * perProducer + i) % 1024).publish("bench.events", payload);
+                    }
+                    done.countDown();
+                }).start();
+            }
+            done.await();
+            for (Connection connection : connections) {
+                connection.flush(Duration.ofSeconds(30));
+            }
+            double rate = producers * perProducer / ((System.nanoTime() - start) / 1e9);
+            baseline = size == 1 ? rate : baseline;
+            System.out.printf("[LOAD] %d connection(s): %,.0f msgs/s (x%.2f), %d cores%n", size, rate, rate / baseline,
+                Runtime.getRuntime().availableProcessors());
+            pool.close();
+        }
+        if (fake != null) {
+            fake.close();
+        }
+    }
+
+    /**
+     * Lo justo del protocolo NATS para que jnats conecte y publique: INFO al
+     * conectar, PONG a cada PING y el resto se descarta
+     */
+    private static ServerSocket fakeServer() throws IOException {
+        ServerSocket server = new ServerSocket(0);
+        LongAdder received = new LongAdder();
+        Thread acceptor = new Thread(() -> {
+            while (!server.isClosed()) {
+                try {
+                    Socket socket = server.accept();
+                    Thread reader = new Thread(() -> serve(socket, received));
+                    reader.setDaemon(true);
+                    reader.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return server;
+    }
+
+    private static void serve(Socket socket, LongAdder received) {
+        byte[] ping = "PING\r\n".getBytes(StandardCharsets.US_ASCII);
+        try (socket) {
+            OutputStream out = socket.getOutputStream();
+            out.write(("INFO {\"server_id\":\"fake\",\"version\":\"2.10.0\",\"proto\":1,\"headers\":true,"
+                + "\"max_payload\":1048576}\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            InputStream in = socket.getInputStream();
+            byte[] buffer = new byte[64 * 1024];
+            int matched = 0;
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                received.add(read);
+                for (int i = 0; i < read; i++) {
+                    matched = buffer[i] == ping[matched] ? matched + 1 : (buffer[i] == ping[0] ? 1 : 0);
+                    if (matched == ping.length) {
+                        out.write("PONG\r\n".getBytes(StandardCharsets.US_ASCII));
+                        out.flush();
+                        matched = 0;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // Conexión cerrada por el cliente
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.minishop.messaging.core;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.minishop.messaging.MessagingException;
+import com.minishop.messaging.codec.MessageCodec;
+import com.minishop.messaging.codec.PayloadCompressor;
+import com.minishop.messaging.event.OrderEvent;
+import com.minishop.messaging.tracing.TraceContext;
+import com.minishop.messaging.tracing.Tracer;
+import io.nats.client.Connection;
+import io.nats.client.Message;
+import io.nats.client.impl.Headers;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class NatsTemplateTest {
+
+    private final Connection connection = mock(Connection.class);
+    private final NatsTemplate natsTemplate =
+        NatsTemplate.builder(connection, new MessageCodec(JsonMapper.builder().findAndAddModules().build()))
+            .requestTimeout(Duration.ofMillis(100)).build();
+
+    @Test
+    void publishesJsonBytesAndCountsThem() {
+        natsTemplate.publish("orders.created", Map.of("orderId", "1"));
+
+        byte[] expected = "{\"orderId\":\"1\"}".getBytes(StandardCharsets.UTF_8);
+        verify(connection).publish("orders.created", expected);
+        assertEquals(1, natsTemplate.getPublished());
+        assertEquals(expected.length, natsTemplate.getPublishedBytes());
+    }
+
+    @Test
+    void binaryPublishesCarryTheirContentType() {
+        NatsTemplate cborTemplate = NatsTemplate.builder(connection,
+            new MessageCodec(new ObjectMapper(), MessageCodec.CBOR)).requestTimeout(Duration.ofMillis(100)).build();
+
+        cborTemplate.publish("orders.created", Map.of("orderId", "1"));
+
+        ArgumentCaptor<Message> published = ArgumentCaptor.forClass(Message.class);
+        verify(connection).publish(published.capture());
+        assertEquals("orders.created", published.getValue().getSubject());
+        assertEquals(MessageCodec.CBOR, published.getValue().getHeaders().getFirst(MessageCodec.CONTENT_TYPE_HEADER));
+        assertEquals("1", cborTemplate.decode(published.getValue(), Map.class).get("orderId"));
+    }
+
+    @Test
+    void eventsCarryCloudEventsHeaders() {
+        OrderEvent event = new OrderEvent("42", "user-1", "CREATED", "CREATE");
+
+        natsTemplate.publish("orders.created", event);
+
+        ArgumentCaptor<Message> published = ArgumentCaptor.forClass(Message.class);
+        verify(connection).publish(published.capture());
+        Headers headers = published.getValue().getHeaders();
+        assertEquals("1.0", headers.getFirst(EventHeaders.SPEC_VERSION));
+        assertEquals("order.CREATE", headers.getFirst(EventHeaders.TYPE));
+        assertEquals("42", headers.getFirst(EventHeaders.PARTITION_KEY));
+        assertEquals("1", headers.getFirst(EventHeaders.EVENT_VERSION));
+        assertNotNull(headers.getFirst(EventHeaders.ID));
+        assertNotNull(headers.getFirst(EventHeaders.TIME));
+        // JSON: sin Content-Type, los consumidores antiguos leen el cuerpo igual que antes
+        assertNull(headers.getFirst(MessageCodec.CONTENT_TYPE_HEADER));
+    }
+
+    @Test
+    void republishingAnEventKeepsItsId() {
+        OrderEvent event = new OrderEvent("42", "user-1", "CREATED", "CREATE");
+
+        natsTemplate.publish("orders.created", event);
+        natsTemplate.publish("orders.created", event);
+
+        ArgumentCaptor<Message> published = ArgumentCaptor.forClass(Message.class);
+        verify(connection, times(2)).publish(published.capture());
+        String id = published.getAllValues().get(0).getHeaders().getFirst(EventHeaders.ID);
+        assertEquals(event.getEventId(), id);
+        assertEquals(id, published.getAllValues().get(1).getHeaders().getFirst(EventHeaders.ID));
+        assertTrue(new String(published.getAllValues().get(1).getData(), StandardCharsets.UTF_8).contains("\"eventId\":\"" + id + "\""));
+    }
+
+    @Test
+    void largePayloadsAreCompressedAndFlagged() {
+        NatsTemplate compressing = NatsTemplate.builder(connection,
+            new MessageCodec(new ObjectMapper(), MessageCodec.JSON, new PayloadCompressor(512, 1)))
+            .requestTimeout(Duration.ofMillis(100)).build();
+        Map<String, String> payload = new HashMap<>();
+        for (int i = 0; i < 50; i++) {
+            payload.put("field-" + i, "value-" + i);
+        }
+
+        compressing.publish("bulk.subject", payload);
+
+        ArgumentCaptor<Message> published = ArgumentCaptor.forClass(Message.class);
+        verify(connection).publish(published.capture());
+        assertEquals(PayloadCompressor.DEFLATE,
+            published.getValue().getHeaders().getFirst(PayloadCompressor.CONTENT_ENCODING_HEADER));
+        assertEquals(payload, compressing.decode(published.getValue(), Map.class));
+        assertEquals(published.getValue().getData().length, compressing.getPublishedBytes());
+    }
+
+    @Test
+    void decodesTheReplyOfARequest() throws Exception {
+        Message reply = mock(Message.class);
+        when(reply.getData()).thenReturn("{\"status\":\"OK\"}".getBytes(StandardCharsets.UTF_8));
+        when(connection.requestWithTimeout(eq("products.inventory.check"), any(byte[].class), any(Duration.class)))
+            .thenReturn(CompletableFuture.completedFuture(reply));
+
+        Map<?, ?> response = natsTemplate.request("products.inventory.check", Map.of("productId", "p-1"), Map.class).get();
+
+        assertEquals("OK", response.get("status"));
+        assertEquals(0, natsTemplate.getRequestErrors());
+    }
+
+    @Test
+    void failsTheRequestAfterTheProducerTimeout() {
+        when(connection.requestWithTimeout(eq("slow.subject"), any(byte[].class), any(Duration.class))).thenReturn(new CompletableFuture<>());
+
+        ExecutionException error = assertThrows(ExecutionException.class,
+            () -> natsTemplate.request("slow.subject", "ping", String.class).get());
+
+        assertInstanceOf(TimeoutException.class, error.getCause());
+        assertEquals(1, natsTemplate.getRequestErrors());
+    }
+
+    @Test
+    void aPerCallTimeoutOverridesTheProducerTimeout() {
+        when(connection.requestWithTimeout(eq("slow.subject"), any(byte[].class), any(Duration.class)))
+            .thenReturn(new CompletableFuture<>());
+
+        long start = System.nanoTime();
+        ExecutionException error = assertThrows(ExecutionException.class,
+            () -> natsTemplate.request("slow.subject", "ping", String.class, Duration.ofMillis(10)).get());
+
+        assertInstanceOf(TimeoutException.class, error.getCause());
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(100));
+        verify(connection).requestWithTimeout(eq("slow.subject"), any(byte[].class), eq(Duration.ofMillis(10)));
+    }
+
+    @Test
+    void repliesAreDecodedOnTheResponseExecutorAndRequestsHoldNoThreads() throws Exception {
+        MessagingThreads threads = new MessagingThreads(false);
+        NatsTemplate pooled = NatsTemplate.builder(connection, new MessageCodec(new ObjectMapper()))
+            .requestTimeout(Duration.ofSeconds(5)).responseExecutor(threads.newWorkerExecutor("nats-reply", 1)).build();
+        List<CompletableFuture<Message>> replies = new ArrayList<>();
+        when(connection.requestWithTimeout(eq("products.inventory.check"), any(byte[].class), any(Duration.class)))
+            .thenAnswer(invocation -> {
+                CompletableFuture<Message> reply = new CompletableFuture<>();
+                replies.add(reply);
+                return reply;
+            });
+        int threadsBefore = Thread.activeCount();
+
+        List<CompletableFuture<Map>> responses = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            responses.add(pooled.request("products.inventory.check", Map.of("productId", "p-" + i), Map.class));
+        }
+        // 10k peticiones en curso sin un hilo por petición
+        assertTrue(Thread.activeCount() - threadsBefore <= 1);
+
+        Message reply = mock(Message.class);
+        when(reply.getData()).thenReturn("{\"status\":\"OK\"}".getBytes(StandardCharsets.UTF_8));
+        CompletableFuture<String> decodingThread = responses.get(0).thenApply(response -> Thread.currentThread().getName());
+        Thread io = new Thread(() -> replies.forEach(future -> future.complete(reply)), "nats-io");
+        io.start();
+        io.join();
+
+        assertEquals("OK", responses.get(responses.size() - 1).get(5, TimeUnit.SECONDS).get("status"));
+        assertEquals("nats-reply-0", decodingThread.get(5, TimeUnit.SECONDS));
+        threads.close();
+    }
+
+    @Test
+    void requestsInheritTheCurrentDeadline() {
+        when(connection.requestWithTimeout(any(Message.class), any(Duration.class))).thenReturn(new CompletableFuture<>());
+        NatsTemplate slowTemplate = NatsTemplate.builder(connection,
+            new MessageCodec(JsonMapper.builder().findAndAddModules().build())).requestTimeout(Duration.ofSeconds(5)).build();
+
+        Deadline previous = Deadline.enter(Deadline.afterMillis(300));
+        try {
+            slowTemplate.request("products.inventory.check", "ping", String.class);
+        } finally {
+            Deadline.restore(previous);
+        }
+
+        ArgumentCaptor<Message> sent = ArgumentCaptor.forClass(Message.class);
+        ArgumentCaptor<Duration> timeout = ArgumentCaptor.forClass(Duration.class);
+        verify(connection).requestWithTimeout(sent.capture(), timeout.capture());
+        long remaining = Long.parseLong(sent.getValue().getHeaders().getFirst(Deadline.HEADER));
+        assertTrue(remaining > 0 && remaining <= 300);
+        assertTrue(timeout.getValue().toMillis() <= 300);
+    }
+
+    @Test
+    void publishesCarryTheOriginOfTheThread() {
+        EventOrigin origin = EventOrigin.now();
+        EventOrigin previous = EventOrigin.enter(origin);
+        try {
+            natsTemplate.publish("orders.created", Map.of("orderId", "1"));
+        } finally {
+            EventOrigin.restore(previous);
+        }
+
+        ArgumentCaptor<Message> published = ArgumentCaptor.forClass(Message.class);
+        verify(connection).publish(published.capture());
+        assertEquals(origin.getEpochMicros(), EventOrigin.of(published.getValue()).getEpochMicros());
+    }
+
+    @Test
+    void publishesAreChildSpansOfTheCurrentTrace() {
+        NatsTemplate tracing = NatsTemplate.builder(connection, new MessageCodec(JsonMapper.builder().findAndAddModules().build()))
+            .requestTimeout(Duration.ofMillis(100)).tracer(new Tracer("orders-service", null, 1, true)).build();
+        TraceContext trace = TraceContext.parse("00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01");
+        TraceContext previous = TraceContext.enter(trace);
+        try {
+            tracing.publish("orders.created", Map.of("orderId", "1"));
+        } finally {
+            TraceContext.restore(previous);
+        }
+        natsTemplate.publish("orders.created", Map.of("orderId", "2"));
+
+        ArgumentCaptor<Message> published = ArgumentCaptor.forClass(Message.class);
+        verify(connection).publish(published.capture());
+        assertEquals(trace.getTraceId(), TraceContext.of(published.getValue()).getTraceId());
+        // Sin traza en curso no hay cabeceras
+        verify(connection).publish("orders.created", "{\"orderId\":\"2\"}".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void aPayloadThatCannotBeEncodedFailsTheFutureInsteadOfThrowing() {
+        MessagingObserver observer = mock(MessagingObserver.class);
+        NatsTemplate observed = NatsTemplate.builder(connection, new MessageCodec(new ObjectMapper()))
+            .requestTimeout(Duration.ofMillis(100)).observer(observer).build();
+
+        // Jackson no serializa un objeto sin propiedades
+        CompletableFuture<String> response = observed.request("products.inventory.check", new Object(), String.class);
+
+        ExecutionException error = assertThrows(ExecutionException.class, response::get);
+        assertInstanceOf(MessagingException.class, error.getCause());
+        assertEquals(1, observed.getRequestErrors());
+        verify(observer).requested(eq("products.inventory.check"), anyLong(), eq(false));
+        verify(connection, never()).requestWithTimeout(anyString(), any(byte[].class), any(Duration.class));
+    }
+
+    @Test
+    void expiredDeadlinesFailWithoutSending() {
+        Deadline previous = Deadline.enter(Deadline.afterMillis(0));
+        CompletableFuture<String> response;
+        try {
+            response = natsTemplate.request("products.inventory.check", "ping", String.class);
+        } finally {
+            Deadline.restore(previous);
+        }
+
+        ExecutionException error = assertThrows(ExecutionException.class, response::get);
+        assertInstanceOf(TimeoutException.class, error.getCause());
+        assertEquals(1, natsTemplate.getExpiredRequests());
+        verify(connection, never()).requestWithTimeout(anyString(), any(byte[].class), any(Duration.class));
+        verify(connection, never()).requestWithTimeout(any(Message.class), any(Duration.class));
+    }
+}
@@ -0,0 +1,172 @@
+package com.minishop.messaging.core;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.minishop.messaging.codec.MessageCodec;
+import io.nats.client.Connection;
+import io.nats.client.Message;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class OutboxTest {
+
+    @TempDir
+    Path directory;
+
+    private final ObjectMapper mapper = JsonMapper.builder().build();
+    private final List<String> published = new CopyOnWriteArrayList<>();
+    private final Connection connection = connection();
+    private final NatsTemplate natsTemplate = NatsTemplate.builder(connection, new MessageCodec(mapper))
+        .requestTimeout(Duration.ofMillis(100)).build();
+
+    @Test
+    void stateAndEventsAreAppendedTogetherAndRelayedInOrder() throws Exception {
+        Outbox outbox = outbox();
+        outbox.start();
+        for (int i = 0; i < 50; i++) {
+            outbox.append(Map.of("id", i), List.of(new OutboxEvent("orders.created", Map.of("orderId", i)),
+                new OutboxEvent("notifications.send", Map.of("message", "order " + i))));
+        }
+        awaitPublished(100);
+        outbox.stop();
+
+        for (int i = 0; i < 50; i++) {
+            assertEquals("orders.created {\"orderId\":" + i + "}", published.get(2 * i));
+            assertEquals("notifications.send {\"message\":\"order " + i + "\"}", published.get(2 * i + 1));
+        }
+        assertEquals(0, outbox.getLagBytes());
+        List<Integer> ids = new ArrayList<>();
+        assertEquals(50, outbox.replayState(Map.class, state -> ids.add((Integer) state.get("id"))));
+        assertEquals(0, ids.get(0));
+        assertEquals(49, ids.get(49));
+        outbox.close();
+    }
+
+    @Test
+    void aRestartPublishesOnlyWhatWasLeftAndDropsATornRecord() throws Exception {
+        Outbox before = outbox();
+        before.start();
+        before.append(null, List.of(new OutboxEvent("orders.created", Map.of("orderId", 1))));
+        awaitPublished(1);
+        before.stop();
+        // Publicado antes de parar: no se vuelve a publicar
+        before.append(Map.of("id", 2), List.of(new OutboxEvent("orders.created", Map.of("orderId", 2))));
+        before.close();
+        Files.writeString(directory.resolve("outbox.log"), "{\"events\":[{\"subj", StandardOpenOption.APPEND);
+
+        Outbox after = outbox();
+        after.start();
+        awaitPublished(2);
+        after.stop();
+
+        assertEquals(List.of("orders.created {\"orderId\":1}", "orders.created {\"orderId\":2}"), published);
+        assertEquals(1, after.replayState(Map.class, state -> assertEquals(2, state.get("id"))));
+        after.close();
+    }
+
+    @Test
+    void recordsThatCannotBePublishedGoToTheDeadLetterFileWithoutBlockingTheRest() throws Exception {
+        natsTemplate.getEventTypes().register("inventory.counted", Counted.class);
+        Outbox outbox = outbox();
+        outbox.append(null, List.of(new OutboxEvent("inventory.counted", Map.of("count", "many"))));
+        outbox.append(null, List.of(new OutboxEvent("orders.created", Map.of("orderId", 1))));
+        outbox.start();
+        awaitPublished(1);
+        outbox.stop();
+
+        assertEquals(List.of("orders.created {\"orderId\":1}"), published);
+        assertEquals(1, outbox.getDeadLettered());
+        assertEquals(0, outbox.getLagBytes());
+        List<String> dead = Files.readAllLines(directory.resolve("outbox.dead"));
+        assertEquals(1, dead.size());
+        assertTrue(dead.get(0).contains("\"many\""), dead.get(0));
+        outbox.close();
+    }
+
+    @Test
+    void compactionKeepsASnapshotAndThePendingEvents() throws Exception {
+        Outbox before = outbox();
+        before.start();
+        for (int i = 0; i < 50; i++) {
+            before.append(Map.of("id", i), List.of(new OutboxEvent("orders.created", Map.of("orderId", i))));
+        }
+        awaitPublished(50);
+        before.stop();
+        // Sin publicar al compactar
+        before.append(Map.of("id", 50), List.of(new OutboxEvent("orders.created", Map.of("orderId", 50))));
+        before.close();
+
+        Outbox after = outbox();
+        long size = Files.size(directory.resolve("outbox.log"));
+        long compacted = after.compact(List.of(Map.of("id", 49)));
+        after.start();
+        awaitPublished(51);
+        after.stop();
+
+        assertTrue(compacted < size / 10, compacted + " of " + size + " bytes");
+        assertEquals("orders.created {\"orderId\":50}", published.get(50));
+        List<Object> states = new ArrayList<>();
+        assertEquals(2, after.replayState(Map.class, state -> states.add(state.get("id"))));
+        assertEquals(List.of(49, 50), states);
+        assertThrows(IllegalStateException.class, () -> after.compact(List.of()));
+        after.close();
+    }
+
+    @Test
+    void aCompactionInterruptedAfterReplacingTheLogIsFinishedOnOpen() throws Exception {
+        Files.writeString(directory.resolve("outbox.log"), "{\"state\":{\"id\":1}}\n{\"events\":[{\"subject\":\"orders.created\",\"payload\":{\"orderId\":2}}]}\n");
+        Files.writeString(directory.resolve("outbox.checkpoint"), "999");
+        Files.writeString(directory.resolve("outbox.checkpoint.compact"), "19");
+
+        Outbox outbox = outbox();
+        outbox.start();
+        awaitPublished(1);
+        outbox.stop();
+
+        assertEquals(List.of("orders.created {\"orderId\":2}"), published);
+        assertFalse(Files.exists(directory.resolve("outbox.checkpoint.compact")));
+        outbox.close();
+    }
+
+    static class Counted {
+        public int count;
+    }
+
+    private Outbox outbox() {
+        return new Outbox(directory, mapper, natsTemplate, new MessagingThreads(false), 16, false, Duration.ofSeconds(1));
+    }
+
+    private Connection connection() {
+        Connection connection = mock(Connection.class);
+        doAnswer(invocation -> published.add(invocation.getArgument(0) + " "
+            + new String((byte[]) invocation.getArgument(1), StandardCharsets.UTF_8)))
+            .when(connection).publish(any(String.class), any(byte[].class));
+        doAnswer(invocation -> {
+            Message message = invocation.getArgument(0);
+            return published.add(message.getSubject() + " " + new String(message.getData(), StandardCharsets.UTF_8));
+        }).when(connection).publish(any(Message.class));
+        return connection;
+    }
+
+    private void awaitPublished(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (published.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, published.size());
+    }
+}
@@ -0,0 +1,208 @@
+package com.minishop.messaging.core;
+
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.minishop.messaging.MessagingException;
+import com.minishop.messaging.codec.MessageCodec;
+import com.minishop.messaging.event.OrderEvent;
+import io.nats.client.Connection;
+import io.nats.client.ConnectionListener;
+import io.nats.client.Message;
+import io.nats.client.impl.Headers;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class PublishSpoolTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<Message> published = new CopyOnWriteArrayList<>();
+    private final MessagingThreads threads = new MessagingThreads(false);
+
+    @Test
+    void publishesWhileDisconnectedAreReplayedInOrderOnReconnect() throws Exception {
+        Connection connection = connection(Connection.Status.DISCONNECTED);
+        PublishSpool spool = spool(connection, 4096, 1024 * 1024);
+        MessageCodec codec = new MessageCodec(JsonMapper.builder().build());
+        NatsTemplate natsTemplate = NatsTemplate.builder(connection, codec)
+            .requestTimeout(Duration.ofMillis(100)).spools(new PublishSpools(List.of(spool))).build();
+
+        for (int i = 0; i < 100; i++) {
+            natsTemplate.publish("orders.created", Map.of("orderId", String.valueOf(i)));
+        }
+        assertTrue(published.isEmpty());
+        assertEquals(100, spool.getPendingRecords());
+        // 100 mensajes de ~40 bytes no caben en un segmento de 4 KB
+        assertTrue(segments() > 1);
+
+        when(connection.getStatus()).thenReturn(Connection.Status.CONNECTED);
+        spool.connectionEvent(connection, ConnectionListener.Events.RECONNECTED);
+        awaitPublished(100);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals("orders.created", published.get(i).getSubject());
+            assertEquals("{\"orderId\":\"" + i + "\"}", new String(published.get(i).getData(), StandardCharsets.UTF_8));
+        }
+        awaitDrained(spool);
+        assertEquals(0, segments());
+        spool.close();
+    }
+
+    @Test
+    void eachPublishConnectionSpoolsAndReplaysOnItsOwn() throws Exception {
+        Connection down = connection(Connection.Status.DISCONNECTED);
+        Connection up = connection(Connection.Status.CONNECTED);
+        NatsConnectionPool pool = new NatsConnectionPool(List.of(down, up), true);
+        PublishSpools spools = new PublishSpools(List.of(
+            new PublishSpool(directory.resolve("pub-0"), 4096, 1024 * 1024, PublishSpool.FsyncPolicy.NEVER,
+                Duration.ofSeconds(1), 0, down, threads),
+            new PublishSpool(directory.resolve("pub-1"), 4096, 1024 * 1024, PublishSpool.FsyncPolicy.NEVER,
+                Duration.ofSeconds(1), 0, up, threads)));
+        NatsTemplate natsTemplate = NatsTemplate.builder(mock(Connection.class), new MessageCodec(JsonMapper.builder().findAndAddModules().build()))
+            .requestTimeout(Duration.ofMillis(100)).publishers(pool).spools(spools).build();
+        String downKey = keyFor(pool, down);
+        String upKey = keyFor(pool, up);
+
+        for (int i = 0; i < 10; i++) {
+            natsTemplate.publish("orders.events", new OrderEvent(downKey, "user-1", "CREATED", "CREATE"));
+            natsTemplate.publish("orders.events", new OrderEvent(upKey, "user-2", "CREATED", "CREATE"));
+        }
+        assertEquals(10, spools.spoolFor(down).getPendingRecords());
+        assertEquals(0, spools.spoolFor(up).getPendingRecords());
+        assertEquals(10, published.size());
+
+        // La otra conexión reconecta: no es motivo para reenviar lo de esta
+        spools.spoolFor(down).connectionEvent(up, ConnectionListener.Events.RECONNECTED);
+        when(down.getStatus()).thenReturn(Connection.Status.CONNECTED);
+        spools.spoolFor(down).connectionEvent(down, ConnectionListener.Events.RECONNECTED);
+        awaitPublished(20);
+
+        verify(down, times(10)).publish(any(Message.class));
+        verify(up, times(10)).publish(any(Message.class));
+        awaitDrained(spools.spoolFor(down));
+        spools.close();
+    }
+
+    @Test
+    void pendingMessagesSurviveARestart() throws Exception {
+        PublishSpool before = spool(connection(Connection.Status.DISCONNECTED), 4096, 1024 * 1024);
+        Headers headers = new Headers().add("ce-id", "abc");
+        for (int i = 0; i < 10; i++) {
+            before.append("products.updated", headers, new byte[]{(byte) i});
+        }
+        before.close();
+
+        PublishSpool after = spool(connection(Connection.Status.CONNECTED), 4096, 1024 * 1024);
+        awaitPublished(10);
+
+        assertEquals(9, published.get(9).getData()[0]);
+        assertEquals("abc", published.get(0).getHeaders().getFirst("ce-id"));
+        awaitDrained(after);
+        after.close();
+    }
+
+    @Test
+    void aCorruptRecordIsSkippedAndLaterOnesStillReplay() throws Exception {
+        Connection connection = connection(Connection.Status.DISCONNECTED);
+        PublishSpool spool = spool(connection, 4096, 1024 * 1024);
+        for (int i = 0; i < 3; i++) {
+            spool.append("orders.created", null, new byte[]{(byte) i});
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        // Un byte cambiado en los datos del segundo registro: su CRC ya no cuadra
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer length = ByteBuffer.allocate(4);
+            channel.read(length, 8);
+            long second = 8 + 8 + length.flip().getInt();
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0x7f}), second + 8 + 2);
+        }
+
+        when(connection.getStatus()).thenReturn(Connection.Status.CONNECTED);
+        spool.connectionEvent(connection, ConnectionListener.Events.RECONNECTED);
+        awaitPublished(2);
+        awaitDrained(spool);
+
+        assertEquals(0, published.get(0).getData()[0]);
+        assertEquals(2, published.get(1).getData()[0]);
+        assertEquals(1, spool.getCorrupt());
+        assertEquals(0, spool.getPendingRecords());
+        // Lo nuevo ya no se desvía al spool
+        assertFalse(spool.shouldSpool());
+        spool.close();
+    }
+
+    @Test
+    void aFullSpoolRejectsPublishes() {
+        PublishSpool spool = spool(connection(Connection.Status.DISCONNECTED), 1024, 1024);
+        byte[] data = new byte[100];
+
+        assertThrows(MessagingException.class, () -> {
+            for (int i = 0; i < 100; i++) {
+                spool.append("orders.created", null, data);
+            }
+        });
+        assertEquals(1024, spool.getSizeBytes());
+        spool.close();
+    }
+
+    private PublishSpool spool(Connection connection, int segmentSize, long maxSize) {
+        return new PublishSpool(directory, segmentSize, maxSize, PublishSpool.FsyncPolicy.NEVER, Duration.ofSeconds(1),
+            0, connection, threads);
+    }
+
+    private static String keyFor(NatsConnectionPool pool, Connection connection) {
+        for (int i = 0; ; i++) {
+            if (pool.connectionFor("order-" + i) == connection) {
+                return "order-" + i;
+            }
+        }
+    }
+
+    private Connection connection(Connection.Status status) {
+        Connection connection = mock(Connection.class);
+        when(connection.getStatus()).thenReturn(status);
+        doAnswer(invocation -> published.add(invocation.getArgument(0))).when(connection).publish(any(Message.class));
+        return connection;
+    }
+
+    private long segments() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    private void awaitPublished(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (published.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, published.size());
+    }
+
+    private static void awaitDrained(PublishSpool spool) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (spool.isPending() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertFalse(spool.isPending());
+    }
+}
@@ -0,0 +1,159 @@
+package com.minishop.messaging.core;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.minishop.messaging.codec.MessageCodec;
+import io.nats.client.Connection;
+import io.nats.client.Message;
+import io.nats.client.impl.NatsMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestHedgingTest {
+
+    @Test
+    void hedgesOnlyConfiguredSubjectsOnceTheyHaveEnoughSamples() {
+        RequestHedging hedging = new RequestHedging(Set.of("products.inventory.check"), 0.95, 0.05, 20);
+
+        assertFalse(hedging.isHedged("orders.lookup"));
+        assertNull(hedging.hedgeDelay("products.inventory.check"));
+        for (int i = 1; i <= 20; i++) {
+            hedging.record("products.inventory.check", TimeUnit.MILLISECONDS.toNanos(i));
+        }
+
+        assertEquals(Duration.ofMillis(20), hedging.hedgeDelay("products.inventory.check"));
+    }
+
+    @Test
+    void extraLoadIsCappedByTheBudget() {
+        RequestHedging hedging = new RequestHedging(Set.of("products.inventory.check"), 0.95, 0.05, 1);
+        int allowed = 0;
+        for (int i = 0; i < 1000; i++) {
+            hedging.hedgeDelay("products.inventory.check");
+            if (hedging.tryHedge()) {
+                allowed++;
+            }
+        }
+
+        // 5 % de 1000 peticiones
+        assertEquals(50, allowed);
+        assertEquals(950, hedging.getDenied());
+    }
+
+    @Test
+    void theHedgeAnswersWhenTheFirstReplicaStalls() throws Exception {
+        List<CompletableFuture<Message>> attempts = new CopyOnWriteArrayList<>();
+        Connection connection = connection(attempts::add);
+        RequestHedging hedging = new RequestHedging(Set.of("products.inventory.check"), 0.95, 1.0, 1);
+        hedging.record("products.inventory.check", TimeUnit.MILLISECONDS.toNanos(5));
+        NatsTemplate natsTemplate = NatsTemplate.builder(connection, codec())
+            .requestTimeout(Duration.ofSeconds(1)).hedging(hedging).build();
+
+        CompletableFuture<String> response = natsTemplate.request("products.inventory.check", "ping", String.class);
+        while (attempts.size() < 2) {
+            Thread.sleep(1);
+        }
+        attempts.get(1).complete(reply("\"pong\""));
+
+        assertEquals("pong", response.get(1, TimeUnit.SECONDS));
+        assertEquals(1, hedging.getHedged());
+        assertEquals(1, hedging.getWon());
+    }
+
+    /**
+     * Réplicas simuladas: el 97 % de las respuestas tarda 2 ms y el 3 % 80 ms
+     * (una réplica lenta). p99 sin y con cobertura.
+     * mvn test -Dtest=RequestHedgingTest -Dload.test=true
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "load.test", matches = "true")
+    void hedgingCutsTheTailSetBySlowReplicas() throws Exception {
+        ScheduledExecutorService replicas = Executors.newSingleThreadScheduledExecutor();
+        Connection connection = connection(reply -> replicas.schedule(() -> reply.complete(reply("\"pong\"")),
+            ThreadLocalRandom.current().nextInt(100) < 3 ? 80 : 2, TimeUnit.MILLISECONDS));
+
+        long[] plain = run(NatsTemplate.builder(connection, codec()).requestTimeout(Duration.ofSeconds(1)).build());
+        RequestHedging hedging = new RequestHedging(Set.of("products.inventory.check"), 0.95, 0.10, 50);
+        long[] hedged = run(NatsTemplate.builder(connection, codec())
+            .requestTimeout(Duration.ofSeconds(1)).hedging(hedging).build());
+        replicas.shutdown();
+
+        report("plain", plain);
+        report("hedged", hedged);
+        System.out.printf("[LOAD] hedges sent %d (%.1f%% extra load), won %d (%.0f%%), denied by budget %d%n",
+            hedging.getHedged(), 100.0 * hedging.getHedged() / hedged.length, hedging.getWon(),
+            100.0 * hedging.getWon() / Math.max(1, hedging.getHedged()), hedging.getDenied());
+
+        assertTrue(percentile(hedged, 0.99) < percentile(plain, 0.99) / 2);
+        assertTrue(hedging.getHedged() <= hedged.length * 0.10 + 10);
+    }
+
+    private static long[] run(NatsTemplate natsTemplate) throws Exception {
+        int total = 5000;
+        long[] latencies = new long[total];
+        List<CompletableFuture<String>> responses = new ArrayList<>();
+        for (int i = 0; i < total; i++) {
+            long start = System.nanoTime();
+            int index = i;
+            responses.add(natsTemplate.request("products.inventory.check", "ping", String.class)
+                .whenComplete((response, error) -> latencies[index] = System.nanoTime() - start));
+            // ~1000 peticiones/s
+            if (i % 10 == 0) {
+                Thread.sleep(10);
+            }
+        }
+        for (CompletableFuture<String> response : responses) {
+            response.get(5, TimeUnit.SECONDS);
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private static void report(String label, long[] sorted) {
+        System.out.printf("[LOAD] %-7s p50 %6.1f ms  p95 %6.1f ms  p99 %6.1f ms  max %6.1f ms%n", label,
+            percentile(sorted, 0.50) / 1e6, percentile(sorted, 0.95) / 1e6, percentile(sorted, 0.99) / 1e6,
+            sorted[sorted.length - 1] / 1e6);
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.round(percentile * sorted.length))];
+    }
+
+    private static MessageCodec codec() {
+        return new MessageCodec(new ObjectMapper());
+    }
+
+    private static Message reply(String body) {
+        return NatsMessage.builder().subject("_INBOX.reply").data(body).build();
+    }
+
+    /**
+     * Conexión en memoria: cada petición crea un futuro que decide el test
+     */
+    private static Connection connection(Consumer<CompletableFuture<Message>> onRequest) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+            (proxy, method, args) -> {
+                if (method.getName().equals("requestWithTimeout")) {
+                    CompletableFuture<Message> reply = new CompletableFuture<>();
+                    onRequest.accept(reply);
+                    return reply;
+                }
+                return null;
+            });
+    }
+}
@@ -0,0 +1,160 @@
+package com.minishop.messaging.listener;
+
+import com.minishop.messaging.core.MessagingThreads;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveLaneDispatcherTest {
+
+    @Test
+    void keepsOrderPerKeyWhileWorkersChange() throws Exception {
+        int keys = 20;
+        int perKey = 200;
+        AdaptiveLaneDispatcher dispatcher = new AdaptiveLaneDispatcher("test", 1, 8, 64, Duration.ofMillis(1),
+            new MessagingThreads(false));
+        Map<String, List<Integer>> processed = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(keys * perKey);
+
+        for (int seq = 0; seq < perKey; seq++) {
+            for (int k = 0; k < keys; k++) {
+                String key = "order-" + k;
+                int value = seq;
+                dispatcher.dispatch(key, () -> {
+                    processed.computeIfAbsent(key, x -> new CopyOnWriteArrayList<>()).add(value);
+                    done.countDown();
+                });
+            }
+            if (seq % 50 == 0) {
+                dispatcher.adapt(0);
+            }
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        dispatcher.shutdown(Duration.ofSeconds(2));
+        for (List<Integer> values : processed.values()) {
+            for (int i = 0; i < perKey; i++) {
+                assertEquals(i, values.get(i));
+            }
+        }
+    }
+
+    @Test
+    void growsUnderBacklogAndShrinksWhenIdle() throws Exception {
+        AdaptiveLaneDispatcher dispatcher = new AdaptiveLaneDispatcher("test", 1, 8, 1024, Duration.ofMillis(50),
+            new MessagingThreads(false));
+        for (int i = 0; i < 200; i++) {
+            dispatcher.dispatch("order-" + i, () -> sleep(5));
+        }
+        Thread.sleep(20);
+
+        // ~200 tareas de 5 ms con 1 hilo: 1 s de backlog frente a 50 ms
+        assertEquals(2, dispatcher.adapt(0));
+        assertEquals(4, dispatcher.adapt(0));
+
+        while (sum(dispatcher.getQueueDepths()) > 0) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(50);
+        dispatcher.adapt(0);
+        for (int i = 0; i < 3; i++) {
+            Thread.sleep(20);
+            dispatcher.adapt(0);
+        }
+        assertEquals(3, dispatcher.getWorkers());
+        dispatcher.shutdown(Duration.ofSeconds(2));
+    }
+
+    /**
+     * Ráfaga de 3000 mensajes (handlers de 5 ms, p. ej. E/S) a ~2000/s contra
+     * una suscripción con límite de 500 pendientes: un carril fijo frente a
+     * 1-16 hilos adaptativos. Los descartes simulan los de jnats.
+     * mvn test -Dtest=AdaptiveLaneDispatcherTest -Dload.test=true
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "load.test", matches = "true")
+    void adaptiveWorkersAbsorbBurstsThatAFixedLaneDrops() throws Exception {
+        long fixed = burst(new KeyedLaneDispatcher("fixed", 1, 64));
+        AdaptiveLaneDispatcher adaptive = new AdaptiveLaneDispatcher("adaptive", 1, 16, 64, Duration.ofMillis(100),
+            new MessagingThreads(false));
+        long adaptiveDropped = burst(adaptive);
+
+        System.out.printf("[LOAD] dropped of 3000: fixed lane %d, adaptive %d (workers at the end %d)%n",
+            fixed, adaptiveDropped, adaptive.getWorkers());
+        assertTrue(adaptiveDropped < fixed / 10);
+    }
+
+    private static long burst(LaneDispatcher lanes) throws Exception {
+        BlockingQueue<Integer> subscription = new ArrayBlockingQueue<>(500);
+        AtomicLong dropped = new AtomicLong();
+        CountDownLatch finished = new CountDownLatch(1);
+        Thread pump = new Thread(() -> {
+            try {
+                while (true) {
+                    int i = subscription.take();
+                    if (i < 0) {
+                        finished.countDown();
+                        return;
+                    }
+                    lanes.dispatch("order-" + (i % 64), () -> sleep(5));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        pump.start();
+        List<Thread> background = new ArrayList<>();
+        if (lanes instanceof AdaptiveLaneDispatcher adaptive) {
+            Thread control = new Thread(() -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    adaptive.adapt(subscription.size());
+                    sleep(100);
+                }
+            });
+            control.start();
+            background.add(control);
+        }
+        for (int i = 0; i < 3000; i++) {
+            if (!subscription.offer(i)) {
+                dropped.incrementAndGet();
+            }
+            if (i % 20 == 0) {
+                Thread.sleep(10);
+            }
+        }
+        subscription.put(-1);
+        finished.await(30, TimeUnit.SECONDS);
+        lanes.shutdown(Duration.ofSeconds(30));
+        background.forEach(Thread::interrupt);
+        return dropped.get();
+    }
+
+    private static int sum(int[] values) {
+        int total = 0;
+        for (int value : values) {
+            total += value;
+        }
+        return total;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
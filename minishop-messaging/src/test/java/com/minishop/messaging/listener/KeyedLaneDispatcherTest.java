@@ -0,0 +1,151 @@
+package com.minishop.messaging.listener;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyedLaneDispatcherTest {
+
+    @Test
+    void messagesWithTheSameKeyAreProcessedInOrder() throws Exception {
+        int keys = 50;
+        int perKey = 200;
+        KeyedLaneDispatcher dispatcher = new KeyedLaneDispatcher("test", 4, 64);
+        Map<String, List<Integer>> processed = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(keys * perKey);
+
+        for (int seq = 0; seq < perKey; seq++) {
+            for (int k = 0; k < keys; k++) {
+                String key = "order-" + k;
+                int value = seq;
+                dispatcher.dispatch(key, () -> {
+                    processed.computeIfAbsent(key, x -> new CopyOnWriteArrayList<>()).add(value);
+                    done.countDown();
+                });
+            }
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        dispatcher.shutdown(Duration.ofSeconds(2));
+
+        assertEquals(keys, processed.size());
+        for (List<Integer> values : processed.values()) {
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < perKey; i++) {
+                expected.add(i);
+            }
+            assertEquals(expected, values);
+        }
+    }
+
+    @Test
+    void differentKeysRunInParallel() throws Exception {
+        KeyedLaneDispatcher dispatcher = new KeyedLaneDispatcher("test", 4, 16);
+        String slowKey = keyForLane(dispatcher, 0);
+        String otherKey = keyForLane(dispatcher, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch otherDone = new CountDownLatch(1);
+
+        dispatcher.dispatch(slowKey, () -> awaitQuietly(release));
+        dispatcher.dispatch(otherKey, otherDone::countDown);
+
+        // Un handler bloqueado solo retiene su carril
+        assertTrue(otherDone.await(2, TimeUnit.SECONDS));
+        release.countDown();
+        dispatcher.shutdown(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void failingHandlerDoesNotStopTheLane() throws Exception {
+        KeyedLaneDispatcher dispatcher = new KeyedLaneDispatcher("test", 1, 16);
+        AtomicInteger processed = new AtomicInteger();
+
+        dispatcher.dispatch("key", () -> { throw new IllegalStateException("boom"); });
+        dispatcher.dispatch("key", processed::incrementAndGet);
+        dispatcher.shutdown(Duration.ofSeconds(2));
+
+        assertEquals(1, processed.get());
+    }
+
+    @Test
+    void reportsQueueDepthPerLane() throws Exception {
+        KeyedLaneDispatcher dispatcher = new KeyedLaneDispatcher("test", 2, 16);
+        String key = keyForLane(dispatcher, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        dispatcher.dispatch(key, () -> { started.countDown(); awaitQuietly(release); });
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        dispatcher.dispatch(key, () -> { });
+        dispatcher.dispatch(key, () -> { });
+
+        assertArrayEquals(new int[] {0, 2}, dispatcher.getQueueDepths());
+        release.countDown();
+        dispatcher.shutdown(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void shutdownInterruptsALaneThatIsFullUntilTheTimeout() throws Exception {
+        KeyedLaneDispatcher dispatcher = new KeyedLaneDispatcher("test", 1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        AtomicInteger queuedRuns = new AtomicInteger();
+
+        dispatcher.dispatch("key", () -> {
+            started.countDown();
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        });
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        dispatcher.dispatch("key", queuedRuns::incrementAndGet);
+
+        long start = System.nanoTime();
+        dispatcher.shutdown(Duration.ofMillis(200));
+
+        // Sin sitio para la señal de parada, el carril se interrumpe en lugar de bloquear el apagado
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+        assertTrue(interrupted.await(2, TimeUnit.SECONDS));
+        assertEquals(0, queuedRuns.get());
+    }
+
+    @Test
+    void extractsTopLevelKeyFromJson() {
+        byte[] json = "{\"data\":{\"orderId\":\"nested\"},\"orderId\":42,\"userId\":\"u-1\"}".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals("42", MessageKeys.extract(json, "orderId"));
+        assertEquals("u-1", MessageKeys.extract(json, "userId"));
+        assertNull(MessageKeys.extract(json, "productId"));
+        assertNull(MessageKeys.extract("not json".getBytes(StandardCharsets.UTF_8), "orderId"));
+    }
+
+    private static String keyForLane(KeyedLaneDispatcher dispatcher, int lane) {
+        for (int i = 0; ; i++) {
+            String key = "key-" + i;
+            if (dispatcher.laneFor(key) == lane) {
+                return key;
+            }
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.minishop.messaging.listener;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.minishop.messaging.codec.MessageCodec;
+import com.minishop.messaging.core.Deadline;
+import com.minishop.messaging.core.EventDeduplicator;
+import com.minishop.messaging.core.EventHeaders;
+import com.minishop.messaging.core.MessagingObserver;
+import com.minishop.messaging.core.MessagingThreads;
+import com.minishop.messaging.tracing.SpanFileExporter;
+import com.minishop.messaging.tracing.TraceContext;
+import com.minishop.messaging.tracing.Tracer;
+import io.nats.client.Connection;
+import io.nats.client.Dispatcher;
+import io.nats.client.Message;
+import io.nats.client.MessageHandler;
+import io.nats.client.impl.Headers;
+import io.nats.client.impl.NatsMessage;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class NatsListenerContainerTest {
+
+    private final MessageCodec codec = new MessageCodec(new ObjectMapper());
+
+    @Test
+    void decodesTypedPayloadAlongsideTheRawMessage() throws Exception {
+        Handler handler = new Handler();
+        NatsListenerContainer container = container(handler, "onEvent", Event.class, Message.class);
+        Message message = message("{\"orderId\":\"42\",\"status\":\"PAID\"}");
+
+        container.invoke(message);
+
+        assertEquals(1, handler.events.size());
+        assertEquals("42", handler.events.get(0).orderId);
+        assertEquals("PAID", handler.events.get(0).status);
+        assertSame(message, handler.lastMessage);
+        assertEquals(1, container.getProcessed());
+    }
+
+    @Test
+    void handlerFailuresAndUndecodablePayloadsAreIsolated() throws Exception {
+        Handler handler = new Handler();
+        NatsListenerContainer failing = container(handler, "fail", String.class);
+        NatsListenerContainer typed = container(handler, "onEvent", Event.class, Message.class);
+
+        failing.invoke(message("boom"));
+        typed.invoke(message("not json"));
+        typed.invoke(message("{\"orderId\":\"7\"}"));
+
+        assertEquals(1, failing.getErrors());
+        assertEquals(1, typed.getErrors());
+        assertEquals(1, typed.getProcessed());
+        assertEquals("7", handler.events.get(0).orderId);
+    }
+
+    @Test
+    void decodesBinaryPayloadsByContentType() throws Exception {
+        Handler handler = new Handler();
+        NatsListenerContainer container = container(handler, "onEvent", Event.class, Message.class);
+        Event event = new Event();
+        event.orderId = "9";
+        Message message = NatsMessage.builder().subject("test.subject")
+            .headers(new Headers().put(MessageCodec.CONTENT_TYPE_HEADER, MessageCodec.SMILE))
+            .data(new MessageCodec(new ObjectMapper(), MessageCodec.SMILE).encode(event))
+            .build();
+
+        container.invoke(message);
+
+        assertEquals(1, container.getProcessed());
+        assertEquals("9", handler.events.get(0).orderId);
+    }
+
+    @Test
+    void filtersByEventTypeHeaderWithoutReadingTheBody() throws Exception {
+        Handler handler = new Handler();
+        NatsListenerContainer container = container(handler, "onHeaders", Headers.class);
+        Message created = NatsMessage.builder().subject("test.subject")
+            .headers(new Headers().put(EventHeaders.TYPE, "order.CREATE")).data("{}").build();
+        Message updated = NatsMessage.builder().subject("test.subject")
+            .headers(new Headers().put(EventHeaders.TYPE, "order.UPDATE")).data("not json").build();
+
+        assertTrue(container.accepts(created));
+        assertFalse(container.accepts(updated));
+        // Sin cabeceras CloudEvents no se puede filtrar sin decodificar: se entrega
+        assertTrue(container.accepts(message("{\"orderId\":\"1\"}")));
+
+        container.invoke(created);
+        assertEquals("order.CREATE", handler.lastHeaders.getFirst(EventHeaders.TYPE));
+    }
+
+    @Test
+    void repliesToRequestsUnderTheirDeadline() throws Exception {
+        Handler handler = new Handler();
+        Connection connection = connection();
+        NatsListenerContainer container = container(handler, "lookup", Event.class);
+        container.start(connection);
+
+        container.invoke(request("{\"orderId\":\"5\"}", "2000"));
+
+        verify(connection).publish("_INBOX.reply", "{\"orderId\":\"5\",\"status\":\"FOUND\"}".getBytes(StandardCharsets.UTF_8));
+        // El handler ve el plazo en curso: sus propias peticiones NATS lo heredan
+        assertTrue(handler.deadline.remainingMillis() > 1000);
+        assertNull(Deadline.current());
+    }
+
+    @Test
+    void dropsRequestsWhoseDeadlineExpiredWhileQueued() throws Exception {
+        Handler handler = new Handler();
+        Connection connection = connection();
+        KeyedLaneDispatcher lane = new KeyedLaneDispatcher("test", 1, 100);
+        Method method = Handler.class.getDeclaredMethod("slow", Event.class);
+        NatsListenerContainer container = NatsListenerContainer.builder("handler.slow", handler, method).subject("test.subject")
+            .key("orderId").pendingLimits(1000, 1024 * 1024).lanes(lane, true).codec(codec).build();
+        container.start(connection);
+        ArgumentCaptor<MessageHandler> onMessage = ArgumentCaptor.forClass(MessageHandler.class);
+        verify(connection).createDispatcher(onMessage.capture());
+
+        // Sobrecarga: 20 peticiones de 20 ms en un solo carril con 50 ms de plazo
+        for (int i = 0; i < 20; i++) {
+            onMessage.getValue().onMessage(request("{\"orderId\":\"1\"}", "50"));
+        }
+        container.stop(Duration.ofSeconds(5));
+
+        assertEquals(20, container.getProcessed() + container.getExpired());
+        assertTrue(container.getExpired() >= 15, "expired " + container.getExpired());
+        verify(connection, never()).publish(eq("_INBOX.reply"), any(byte[].class));
+    }
+
+    @Test
+    void reportsMessagesDroppedBySlowConsumersOnce() throws Exception {
+        Connection connection = connection();
+        List<Long> reported = new ArrayList<>();
+        Method method = Handler.class.getDeclaredMethod("slow", Event.class);
+        NatsListenerContainer container = NatsListenerContainer.builder("handler.slow", new Handler(), method).subject("test.subject")
+            .key("orderId").pendingLimits(1000, 1024 * 1024).codec(codec).observer(new MessagingObserver() {
+                @Override
+                public void slowConsumer(String listener, String subject, long dropped) {
+                    reported.add(dropped);
+                }
+            }).build();
+        container.start(connection);
+        Dispatcher dispatcher = connection.createDispatcher(null);
+        when(dispatcher.getDroppedCount()).thenReturn(0L, 40L, 40L, 55L);
+
+        for (int i = 0; i < 4; i++) {
+            container.control();
+        }
+
+        assertEquals(List.of(40L, 15L), reported);
+        assertEquals(2, container.getSlowConsumerEvents());
+    }
+
+    @Test
+    void eventsAlreadyProcessedAreDroppedButRequestsAreNot() throws Exception {
+        EventDeduplicator deduplicator = new EventDeduplicator(Duration.ofMinutes(10), 2, 1000, 1e-6, 100);
+        Method method = Handler.class.getDeclaredMethod("onEvent", Event.class, Message.class);
+        NatsListenerContainer container = NatsListenerContainer.builder("handler.onEvent", new Handler(), method).subject("test.subject")
+            .key("orderId").pendingLimits(1000, 1024 * 1024).codec(codec).deduplicator(deduplicator).build();
+        NatsListenerContainer other = NatsListenerContainer.builder("other.onEvent", new Handler(), method).subject("test.subject")
+            .key("orderId").pendingLimits(1000, 1024 * 1024).codec(codec).deduplicator(deduplicator).build();
+        NatsListenerContainer failing = NatsListenerContainer.builder("handler.fail", new Handler(),
+            Handler.class.getDeclaredMethod("fail", String.class)).subject("test.subject")
+            .key("orderId").pendingLimits(1000, 1024 * 1024).codec(codec).deduplicator(deduplicator).build();
+        Message event = NatsMessage.builder().subject("test.subject")
+            .headers(new Headers().put(EventHeaders.ID, "id-1")).data("{}").build();
+        Message request = NatsMessage.builder().subject("test.subject").replyTo("_INBOX.reply")
+            .headers(new Headers().put(EventHeaders.ID, "id-2")).data("{}").build();
+
+        // Recibido pero aún sin procesar: un reenvío no se descarta
+        assertFalse(container.isDuplicate(event));
+        assertFalse(container.isDuplicate(event));
+        container.invoke(event);
+        assertTrue(container.isDuplicate(event));
+        // Cada listener lleva sus propios ids
+        assertFalse(other.isDuplicate(event));
+        // Si el handler falla, el reenvío que lo recupera se entrega
+        failing.invoke(event);
+        assertFalse(failing.isDuplicate(event));
+        container.invoke(request);
+        assertFalse(container.isDuplicate(request));
+        assertFalse(container.isDuplicate(message("{}")));
+    }
+
+    @Test
+    void copiesQueuedInABusyLaneRunTheHandlerOnce() throws Exception {
+        EventDeduplicator deduplicator = new EventDeduplicator(Duration.ofMinutes(10), 2, 1000, 1e-6, 100);
+        Handler handler = new Handler();
+        Connection connection = connection();
+        KeyedLaneDispatcher lane = new KeyedLaneDispatcher("test", 1, 100);
+        NatsListenerContainer container = NatsListenerContainer.builder("handler.gated", handler,
+                Handler.class.getDeclaredMethod("gated", Event.class)).subject("test.subject")
+            .key("orderId").pendingLimits(1000, 1024 * 1024).lanes(lane, true).codec(codec).deduplicator(deduplicator).build();
+        container.start(connection);
+        ArgumentCaptor<MessageHandler> onMessage = ArgumentCaptor.forClass(MessageHandler.class);
+        verify(connection).createDispatcher(onMessage.capture());
+        Message event = NatsMessage.builder().subject("test.subject")
+            .headers(new Headers().put(EventHeaders.ID, "id-1")).data("{\"orderId\":\"1\"}").build();
+
+        // Reenvío del outbox mientras el original sigue en el handler: ambos pasan el filtro de llegada
+        onMessage.getValue().onMessage(event);
+        onMessage.getValue().onMessage(event);
+        handler.release.countDown();
+        container.stop(Duration.ofSeconds(5));
+
+        assertEquals(1, handler.gated.get());
+        assertEquals(1, container.getProcessed());
+        assertEquals(1, container.getDuplicates());
+    }
+
+    @Test
+    void handlersRunInsideAChildSpanOfTheMessageTrace() throws Exception {
+        Handler handler = new Handler();
+        Method method = Handler.class.getDeclaredMethod("traced", Event.class);
+        SpanFileExporter exporter = new SpanFileExporter(Files.createTempDirectory("spans"), 1024 * 1024, 1, 100,
+            new MessagingThreads(false));
+        Tracer tracer = new Tracer("notifications-service", exporter, 0, true);
+        NatsListenerContainer container = NatsListenerContainer.builder("handler.traced", handler, method).subject("orders.*")
+            .key("orderId").pendingLimits(1000, 1024 * 1024).codec(codec).tracer(tracer).build();
+        Message message = NatsMessage.builder().subject("orders.created")
+            .headers(new Headers().put(TraceContext.HEADER, "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01"))
+            .data("{}").build();
+
+        container.invoke(message);
+        tracer.close();
+
+        assertEquals("4bf92f3577b34da6a3ce929d0e0e4736", handler.trace.getTraceId());
+        assertNotEquals("00f067aa0ba902b7", handler.trace.getSpanId());
+        assertNull(TraceContext.current());
+        assertEquals(1, exporter.getExported());
+    }
+
+    @Test
+    void rejectsMoreThanOnePayloadParameter() {
+        assertThrows(IllegalStateException.class,
+            () -> container(new Handler(), "twoPayloads", Event.class, Event.class));
+    }
+
+    private NatsListenerContainer container(Handler handler, String methodName, Class<?>... parameterTypes) throws Exception {
+        Method method = Handler.class.getDeclaredMethod(methodName, parameterTypes);
+        return NatsListenerContainer.builder("handler." + methodName, handler, method).subject("test.subject")
+            .key("orderId").types(Set.of("order.CREATE")).pendingLimits(1000, 1024 * 1024).codec(codec).build();
+    }
+
+    private static Connection connection() throws Exception {
+        Connection connection = mock(Connection.class);
+        Dispatcher dispatcher = mock(Dispatcher.class);
+        when(dispatcher.drain(any())).thenReturn(CompletableFuture.completedFuture(true));
+        when(connection.createDispatcher(any())).thenReturn(dispatcher);
+        return connection;
+    }
+
+    private static Message request(String body, String timeoutMillis) {
+        return NatsMessage.builder().subject("test.subject").replyTo("_INBOX.reply")
+            .headers(new Headers().put(Deadline.HEADER, timeoutMillis)).data(body).build();
+    }
+
+    private static Message message(String body) {
+        Message message = mock(Message.class);
+        when(message.getData()).thenReturn(body.getBytes(StandardCharsets.UTF_8));
+        when(message.getSubject()).thenReturn("test.subject");
+        return message;
+    }
+
+    static class Event {
+        public String orderId;
+        public String status;
+    }
+
+    static class Handler {
+        final List<Event> events = new ArrayList<>();
+        Message lastMessage;
+        Headers lastHeaders;
+        Deadline deadline;
+        TraceContext trace;
+        final AtomicInteger gated = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+
+        void onEvent(Event event, Message message) {
+            events.add(event);
+            lastMessage = message;
+        }
+
+        void onHeaders(Headers headers) {
+            lastHeaders = headers;
+        }
+
+        Event lookup(Event request) {
+            deadline = Deadline.current();
+            request.status = "FOUND";
+            return request;
+        }
+
+        void traced(Event event) {
+            trace = TraceContext.current();
+        }
+
+        void gated(Event event) throws InterruptedException {
+            gated.incrementAndGet();
+            release.await(5, TimeUnit.SECONDS);
+        }
+
+        void slow(Event event) throws InterruptedException {
+            Thread.sleep(20);
+        }
+
+        void fail(String payload) {
+            throw new IllegalStateException(payload);
+        }
+
+        void twoPayloads(Event first, Event second) {
+        }
+    }
+}
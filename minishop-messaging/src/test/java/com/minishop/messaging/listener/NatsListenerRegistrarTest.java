@@ -0,0 +1,92 @@
+package com.minishop.messaging.listener;
+
+import com.minishop.messaging.config.MessagingAutoConfiguration;
+import io.nats.client.Connection;
+import io.nats.client.Dispatcher;
+import io.nats.client.MessageHandler;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class NatsListenerRegistrarTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+        .withConfiguration(AutoConfigurations.of(MessagingAutoConfiguration.class))
+        .withUserConfiguration(ListenerConfiguration.class)
+        .withPropertyValues("messaging.queue-group=test-service", "test.subject=orders.created",
+            "messaging.dispatch.lanes=2");
+
+    @Test
+    void subscribesAnnotatedMethodsWithResolvedSubjectQueueAndLimits() {
+        contextRunner.run(context -> {
+            Dispatcher dispatcher = context.getBean(Dispatcher.class);
+            verify(dispatcher).subscribe("orders.created", "test-service");
+            verify(dispatcher).subscribe("payments.confirmed");
+            verify(dispatcher, never()).subscribe(eq("disabled.subject"), anyString());
+            verify(dispatcher).setPendingLimits(500, 65536);
+
+            assertThat(context.getBean(NatsListenerRegistrar.class).getContainers())
+                .extracting(NatsListenerContainer::getId)
+                .containsExactlyInAnyOrder("listeners.onOrderCreated", "listeners.onPayment");
+            assertThat(context.getBean(KeyedLaneDispatcher.class).getLaneCount()).isEqualTo(2);
+        });
+    }
+
+    @Test
+    void drainsDispatchersWhenTheContextStops() {
+        contextRunner.run(context -> {
+            Dispatcher dispatcher = context.getBean(Dispatcher.class);
+            context.close();
+            verify(dispatcher, times(2)).drain(any(Duration.class));
+        });
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    static class ListenerConfiguration {
+
+        @Bean
+        Dispatcher dispatcher() throws InterruptedException {
+            Dispatcher dispatcher = mock(Dispatcher.class);
+            when(dispatcher.drain(any(Duration.class))).thenReturn(CompletableFuture.completedFuture(true));
+            return dispatcher;
+        }
+
+        @Bean
+        Connection connection(Dispatcher dispatcher) {
+            Connection connection = mock(Connection.class);
+            when(connection.createDispatcher(any(MessageHandler.class))).thenReturn(dispatcher);
+            return connection;
+        }
+
+        @Bean
+        Listeners listeners() {
+            return new Listeners();
+        }
+    }
+
+    static class Listeners {
+
+        @NatsListener(subject = "${test.subject}", key = "orderId")
+        public void onOrderCreated(String payload) {
+        }
+
+        @NatsListener(subject = "payments.confirmed", queue = "", concurrency = "1",
+            pendingMessages = "500", pendingBytes = "65536")
+        public void onPayment(byte[] payload) {
+        }
+
+        @NatsListener(subject = "disabled.subject", enabled = "#{!true}")
+        public void disabled(String payload) {
+        }
+    }
+}
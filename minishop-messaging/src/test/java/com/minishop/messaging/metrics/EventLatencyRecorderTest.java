@@ -0,0 +1,58 @@
+package com.minishop.messaging.metrics;
+
+import com.minishop.messaging.core.EventOrigin;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventLatencyRecorderTest {
+
+    @Test
+    void recordsTheHopAgainstTheOriginOfTheThread() {
+        EventLatencyRecorder recorder = new EventLatencyRecorder(0);
+
+        recorder.record("orders.create-order");
+        assertNull(recorder.snapshot("orders.create-order"));
+
+        EventOrigin previous = EventOrigin.enter(EventOrigin.now());
+        try {
+            recorder.record("orders.create-order");
+        } finally {
+            EventOrigin.restore(previous);
+        }
+
+        assertEquals(1, recorder.snapshot("orders.create-order").getTotalCount());
+        assertNull(EventOrigin.current());
+    }
+
+    @Test
+    void snapshotsAccumulateAcrossReads() {
+        EventLatencyRecorder recorder = new EventLatencyRecorder(0);
+        recorder.record("products.order-created", 1_000);
+        recorder.snapshot("products.order-created");
+        recorder.record("products.order-created", 3_000);
+
+        Histogram total = recorder.snapshot("products.order-created");
+        assertEquals(2, total.getTotalCount());
+        assertEquals(3_000, total.getMaxValue(), 3);
+    }
+
+    @Test
+    void stallsAreBackfilledInTheCorrectedHistogram() {
+        // Un evento cada 10 ms: 99 tardan 1 ms y uno se atasca 1 s
+        EventLatencyRecorder recorder = new EventLatencyRecorder(10);
+        for (int i = 0; i < 99; i++) {
+            recorder.record("notifications.stored", 1_000);
+        }
+        recorder.record("notifications.stored", 1_000_000);
+
+        Histogram raw = recorder.snapshot("notifications.stored");
+        Histogram corrected = recorder.correctedSnapshot("notifications.stored");
+
+        // Sin corregir el atasco apenas se nota; corregido, los ~100 eventos que no llegaron a enviarse cuentan
+        assertEquals(1_000, raw.getValueAtPercentile(99), 1);
+        assertEquals(200, corrected.getTotalCount(), 1);
+        assertTrue(corrected.getValueAtPercentile(90) > 500_000);
+    }
+}
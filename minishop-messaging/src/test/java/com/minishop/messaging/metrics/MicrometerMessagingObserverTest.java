@@ -0,0 +1,82 @@
+package com.minishop.messaging.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.minishop.messaging.codec.MessageCodec;
+import com.minishop.messaging.core.NatsTemplate;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.nats.client.Connection;
+import io.nats.client.Dispatcher;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class MicrometerMessagingObserverTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MicrometerMessagingObserver observer = new MicrometerMessagingObserver(registry);
+
+    @Test
+    void publishesAreTimedPerSubjectAndOutcome() {
+        Connection connection = mock(Connection.class);
+        MessageCodec codec = new MessageCodec(new ObjectMapper());
+        NatsTemplate natsTemplate = NatsTemplate.builder(connection, codec)
+            .requestTimeout(Duration.ofMillis(100)).observer(observer).build();
+
+        natsTemplate.publish("orders.created", Map.of("orderId", "1"));
+        natsTemplate.publish("orders.created", Map.of("orderId", "2"));
+        doThrow(new IllegalStateException("closed")).when(connection).publish(anyString(), any(byte[].class));
+        assertThrows(RuntimeException.class, () -> natsTemplate.publish("orders.cancelled", Map.of("orderId", "3")));
+
+        assertEquals(2, timer("publish", "orders.created", "success").count());
+        assertEquals(1, timer("publish", "orders.cancelled", "error").count());
+        assertEquals(2, registry.get("minishop.messaging.publish.payload").tag("subject", "orders.created")
+            .summary().count());
+    }
+
+    @Test
+    void consumedMessagesSplitDecodeAndHandlerTime() {
+        observer.consumed("OrderListener.onCreated", "orders.created", 1_000, 5_000, true);
+        observer.consumed("OrderListener.onCreated", "orders.created", -1, 7_000, false);
+
+        assertEquals(1, registry.get("minishop.messaging.consume.decode").tag("listener", "OrderListener.onCreated")
+            .timer().count());
+        assertEquals(1, registry.get("minishop.messaging.consume.handler").tag("outcome", "success").timer().count());
+        assertEquals(1, registry.get("minishop.messaging.consume.handler").tag("outcome", "error").timer().count());
+    }
+
+    @Test
+    void subscriptionsExposeTheirPendingMessagesAndBytes() {
+        Dispatcher dispatcher = mock(Dispatcher.class);
+        when(dispatcher.getPendingMessageCount()).thenReturn(42L);
+        when(dispatcher.getPendingByteCount()).thenReturn(4096L);
+
+        observer.subscribed("OrderListener.onCreated", "orders.created", dispatcher);
+
+        assertEquals(42, registry.get("minishop.messaging.subscription.pending.messages")
+            .tag("subject", "orders.created").gauge().value());
+        assertEquals(4096, registry.get("minishop.messaging.subscription.pending.bytes")
+            .tag("subject", "orders.created").gauge().value());
+    }
+
+    @Test
+    void subjectCardinalityIsCapped() {
+        registry.config().meterFilter(MicrometerMessagingObserver.subjectCardinalityLimit());
+        for (int i = 0; i < MicrometerMessagingObserver.MAX_SUBJECTS + 50; i++) {
+            observer.published("orders." + i, 10, 1_000, true);
+        }
+
+        assertEquals(MicrometerMessagingObserver.MAX_SUBJECTS,
+            registry.find("minishop.messaging.publish").timers().size());
+    }
+
+    private Timer timer(String name, String subject, String outcome) {
+        return registry.get("minishop.messaging." + name).tag("subject", subject).tag("outcome", outcome).timer();
+    }
+}
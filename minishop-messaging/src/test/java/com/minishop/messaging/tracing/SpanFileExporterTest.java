@@ -0,0 +1,96 @@
+package com.minishop.messaging.tracing;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.minishop.messaging.core.MessagingThreads;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpanFileExporterTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void sampledSpansAreWrittenAsJsonLinesWithTheirParent() throws Exception {
+        SpanFileExporter exporter = new SpanFileExporter(directory, 1024 * 1024, 3, 100, new MessagingThreads(false));
+        Tracer tracer = new Tracer("orders-service", exporter, 1, true);
+
+        Span server = tracer.start("POST /orders", Span.Kind.SERVER, null);
+        Span publish = tracer.start("publish orders.created", Span.Kind.PRODUCER, server.context());
+        publish.tag("messaging.subject", "orders.created").end();
+        server.error(new IllegalStateException("boom")).end();
+        tracer.close();
+
+        List<String> lines = Files.readAllLines(directory.resolve(SpanFileExporter.FILE));
+        assertEquals(2, lines.size());
+        JsonNode child = mapper.readTree(lines.get(0));
+        JsonNode parent = mapper.readTree(lines.get(1));
+        assertEquals(parent.get("traceId").asText(), child.get("traceId").asText());
+        assertEquals(parent.get("spanId").asText(), child.get("parentSpanId").asText());
+        assertEquals("PRODUCER", child.get("kind").asText());
+        assertEquals("orders-service", child.get("service").asText());
+        assertEquals("orders.created", child.at("/attributes/messaging.subject").asText());
+        assertTrue(child.get("duration").asLong() >= 0);
+        assertFalse(parent.has("parentSpanId"));
+        assertEquals("IllegalStateException: boom", parent.get("error").asText());
+        assertEquals(2, exporter.getExported());
+    }
+
+    @Test
+    void unsampledTracesArePropagatedButNotWritten() throws Exception {
+        SpanFileExporter exporter = new SpanFileExporter(directory, 1024 * 1024, 3, 100, new MessagingThreads(false));
+        Tracer tracer = new Tracer("orders-service", exporter, 0, true);
+        TraceContext sampledParent = TraceContext.parse("00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01");
+
+        Span root = tracer.start("GET /orders", Span.Kind.SERVER, null);
+        Span child = tracer.start("process orders.created", Span.Kind.CONSUMER, sampledParent);
+        root.end();
+        child.end();
+        tracer.close();
+
+        assertNotNull(root.context());
+        assertFalse(root.context().isSampled());
+        // La decisión del padre manda aunque la fracción sea 0
+        assertTrue(child.isRecording());
+        assertEquals(1, Files.readAllLines(directory.resolve(SpanFileExporter.FILE)).size());
+    }
+
+    @Test
+    void theSampleRatioKeepsRoughlyThatFractionOfTraces() {
+        Tracer tracer = new Tracer("test", new SpanFileExporter(directory, 1024 * 1024, 1, 1, new MessagingThreads(false)), 0.25, true);
+        int sampled = 0;
+        for (int i = 0; i < 10_000; i++) {
+            sampled += tracer.start("root", Span.Kind.INTERNAL, null).isRecording() ? 1 : 0;
+        }
+        tracer.close();
+
+        assertTrue(sampled > 2_200 && sampled < 2_800, sampled + " sampled");
+    }
+
+    @Test
+    void filesRollOverAndOnlyMaxFilesAreKept() throws Exception {
+        SpanFileExporter exporter = new SpanFileExporter(directory, 1024, 3, 1000, new MessagingThreads(false));
+        Tracer tracer = new Tracer("test", exporter, 1, true);
+        for (int i = 0; i < 100; i++) {
+            tracer.start("span-" + i, Span.Kind.INTERNAL, null).end();
+        }
+        tracer.close();
+
+        try (var files = Files.list(directory)) {
+            assertEquals(List.of("spans.1.jsonl", "spans.2.jsonl", "spans.jsonl"),
+                files.map(file -> file.getFileName().toString()).sorted().toList());
+        }
+        assertTrue(Files.size(directory.resolve(SpanFileExporter.FILE)) <= 1024);
+        List<String> last = Files.readAllLines(directory.resolve(SpanFileExporter.FILE));
+        assertEquals("span-99", mapper.readTree(last.get(last.size() - 1)).get("name").asText());
+    }
+}
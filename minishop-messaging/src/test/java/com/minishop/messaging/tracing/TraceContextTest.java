@@ -0,0 +1,47 @@
+package com.minishop.messaging.tracing;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TraceContextTest {
+
+    @Test
+    void parsesAndFormatsTraceparent() {
+        String header = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01";
+
+        TraceContext context = TraceContext.parse(header);
+
+        assertEquals("4bf92f3577b34da6a3ce929d0e0e4736", context.getTraceId());
+        assertEquals("00f067aa0ba902b7", context.getSpanId());
+        assertTrue(context.isSampled());
+        assertEquals(header, context.toHeader());
+        assertFalse(TraceContext.parse("00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-00").isSampled());
+    }
+
+    @Test
+    void rejectsInvalidHeaders() {
+        assertNull(TraceContext.parse(null));
+        assertNull(TraceContext.parse("garbage"));
+        assertNull(TraceContext.parse("00-00000000000000000000000000000000-00f067aa0ba902b7-01"));
+        assertNull(TraceContext.parse("00-4bf92f3577b34da6a3ce929d0e0e4736-0000000000000000-01"));
+        assertNull(TraceContext.parse("00-4BF92F3577B34DA6A3CE929D0E0E4736-00f067aa0ba902b7-01"));
+        assertNull(TraceContext.parse("ff-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01"));
+        assertNull(TraceContext.parse("00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01-extra"));
+        // Una versión posterior puede traer más campos
+        assertNotNull(TraceContext.parse("01-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01-extra"));
+    }
+
+    @Test
+    void childSpansKeepTheTraceAndTheSamplingDecision() {
+        Tracer tracer = new Tracer("test", null, 1, true);
+        TraceContext parent = TraceContext.parse("00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-00");
+
+        Span passThrough = tracer.start("publish", Span.Kind.PRODUCER, parent);
+
+        // Sin exportador el contexto pasa tal cual
+        assertSame(parent, passThrough.context());
+        assertFalse(passThrough.isRecording());
+        assertNull(tracer.start("publish", Span.Kind.PRODUCER, null).context());
+    }
+}
@@ -0,0 +1,39 @@
+package com.minishop.messaging.web;
+
+import com.minishop.messaging.core.Deadline;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeadlineFilterTest {
+
+    private final DeadlineFilter filter = new DeadlineFilter();
+
+    @Test
+    void exposesTheRequestDeadlineToTheHandlerThread() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/orders/1");
+        request.addHeader(Deadline.HEADER, "1500");
+        AtomicReference<Deadline> seen = new AtomicReference<>();
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> seen.set(Deadline.current()));
+
+        assertTrue(seen.get().remainingMillis() > 1000);
+        assertNull(Deadline.current());
+    }
+
+    @Test
+    void rejectsRequestsThatArriveExpired() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/orders/1");
+        request.addHeader(Deadline.HEADER, "0");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, res) -> fail("expired request reached the handler"));
+
+        assertEquals(504, response.getStatus());
+        assertEquals(1, filter.getRejected());
+    }
+}
@@ -0,0 +1,43 @@
+package com.minishop.messaging.web;
+
+import com.minishop.messaging.tracing.TraceContext;
+import com.minishop.messaging.tracing.Tracer;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TraceFilterTest {
+
+    private static final String TRACEPARENT = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01";
+
+    @Test
+    void exposesTheRequestTraceToTheHandlerThreadAndTheResponse() throws Exception {
+        TraceFilter filter = new TraceFilter(Tracer.disabled());
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/orders");
+        request.addHeader(TraceContext.HEADER, TRACEPARENT);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicReference<TraceContext> seen = new AtomicReference<>();
+
+        filter.doFilter(request, response, (req, res) -> seen.set(TraceContext.current()));
+
+        assertEquals(TRACEPARENT, seen.get().toHeader());
+        assertEquals(TRACEPARENT, response.getHeader(TraceContext.HEADER));
+        assertNull(TraceContext.current());
+    }
+
+    @Test
+    void actuatorRequestsAreNotTraced() throws Exception {
+        TraceFilter filter = new TraceFilter(new Tracer("orders-service", null, 1, true));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/actuator/prometheus");
+        request.addHeader(TraceContext.HEADER, TRACEPARENT);
+        AtomicReference<TraceContext> seen = new AtomicReference<>();
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> seen.set(TraceContext.current()));
+
+        assertNull(seen.get());
+    }
+}
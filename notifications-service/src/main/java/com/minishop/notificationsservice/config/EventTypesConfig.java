@@ -0,0 +1,25 @@
+package com.minishop.notificationsservice.config;
+
+import com.minishop.messaging.codec.EventTypeRegistryCustomizer;
+import com.minishop.messaging.event.NotificationMessage;
+import com.minishop.messaging.event.OrderEvent;
+import com.minishop.messaging.event.ProductEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Tipo de evento de cada subject que publica o consume este servicio
+ */
+@Configuration
+public class EventTypesConfig {
+    
+    @Bean
+    public EventTypeRegistryCustomizer eventTypes(MessagingProperties messagingProperties) {
+        MessagingProperties.Subjects subjects = messagingProperties.getSubjects();
+        return registry -> registry
+            .register(subjects.getNotifications().getSend(), NotificationMessage.class)
+            .register(subjects.getOrders().getCreated(), OrderEvent.class)
+            .register(subjects.getOrders().getCancelled(), OrderEvent.class)
+            .register(subjects.getProducts().getLowStock(), ProductEvent.class);
+    }
+}
@@ -11,6 +11,8 @@ import org.springframework.stereotype.Component;
 public class NotificationProperties {
     
     private Channels channels = new Channels();
+    private Window window = new Window();
+    private Snapshot snapshot = new Snapshot();
     
     public Channels getChannels() {
         return channels;
@@ -20,6 +22,22 @@ public class NotificationProperties {
         this.channels = channels;
     }
     
+    public Window getWindow() {
+        return window;
+    }
+    
+    public void setWindow(Window window) {
+        this.window = window;
+    }
+    
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+    
+    public void setSnapshot(Snapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+    
     public static class Channels {
         private Email email = new Email();
         private Sms sms = new Sms();
@@ -75,4 +93,30 @@ public class NotificationProperties {
         public String getFirebaseKey() { return firebaseKey; }
         public void setFirebaseKey(String firebaseKey) { this.firebaseKey = firebaseKey; }
     }
+    
+    /**
+     * Ventana en memoria de notificaciones recientes
+     */
+    public static class Window {
+        private int maxSize = 1000;
+        
+        public int getMaxSize() { return maxSize; }
+        public void setMaxSize(int maxSize) { this.maxSize = maxSize; }
+    }
+    
+    /**
+     * Snapshot binario de la ventana en memoria para arranques en caliente
+     */
+    public static class Snapshot {
+        private boolean enabled = true;
+        private String path = "data/notifications.snapshot";
+        private long interval = 60000;
+        
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+        public String getPath() { return path; }
+        public void setPath(String path) { this.path = path; }
+        public long getInterval() { return interval; }
+        public void setInterval(long interval) { this.interval = interval; }
+    }
 }
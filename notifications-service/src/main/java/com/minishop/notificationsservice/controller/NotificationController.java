@@ -121,6 +121,8 @@ public class NotificationController {
         return ResponseEntity.ok(Map.of(
                 "total", allNotifications.size(),
                 "unread", unreadCount,
+                "received", notificationRepository.getReceivedCount(),
+                "evicted", notificationRepository.getEvictedCount(),
                 "byType", typeCount,
                 "bySeverity", severityCount,
                 "lastUpdate", LocalDateTime.now()
@@ -0,0 +1,38 @@
+package com.minishop.notificationsservice.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Envío de una notificación por un canal (email, SMS o push)
+ */
+@Name("minishop.NotificationDeliver")
+@Label("Notification Deliver")
+@Category({"Minishop", "Notifications"})
+@Description("Notification sent through a channel")
+@StackTrace(false)
+public class NotificationDeliverEvent extends Event {
+
+    @Label("Notification Id")
+    String notificationId;
+
+    @Label("Channel")
+    String channel;
+
+    @Label("Type")
+    String type;
+
+    public void record(String notificationId, String channel, String type) {
+        end();
+        if (shouldCommit()) {
+            this.notificationId = notificationId;
+            this.channel = channel;
+            this.type = type;
+            commit();
+        }
+    }
+}
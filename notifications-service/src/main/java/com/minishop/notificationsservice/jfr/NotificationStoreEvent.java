@@ -0,0 +1,34 @@
+package com.minishop.notificationsservice.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Guardado de una notificación en el repositorio
+ */
+@Name("minishop.NotificationStore")
+@Label("Notification Store")
+@Category({"Minishop", "Notifications"})
+@Description("Notification saved to the repository")
+@StackTrace(false)
+public class NotificationStoreEvent extends Event {
+
+    @Label("Notification Id")
+    String notificationId;
+
+    @Label("Type")
+    String type;
+
+    public void record(String notificationId, String type) {
+        end();
+        if (shouldCommit()) {
+            this.notificationId = notificationId;
+            this.type = type;
+            commit();
+        }
+    }
+}
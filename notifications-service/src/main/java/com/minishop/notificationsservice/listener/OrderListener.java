@@ -1,6 +1,6 @@
 package com.minishop.notificationsservice.listener;
 
-import com.minishop.notificationsservice.dto.OrderDto;
+import com.minishop.messaging.event.OrderDto;
 import org.springframework.context.annotation.Bean;
 import org.springframework.stereotype.Service;
 
@@ -28,6 +28,20 @@ public class Notification {
         this.severity = severity;
     }
 
+    /**
+     * Reconstruye una notificación existente (p. ej. al restaurar un snapshot)
+     */
+    public Notification(String id, String type, String title, String message, String severity,
+                        LocalDateTime timestamp, boolean read) {
+        this.id = id;
+        this.type = type;
+        this.title = title;
+        this.message = message;
+        this.severity = severity;
+        this.timestamp = timestamp;
+        this.read = read;
+    }
+
     private String generateId() {
         return System.currentTimeMillis() + "-" + (int)(Math.random() * 1000);
     }
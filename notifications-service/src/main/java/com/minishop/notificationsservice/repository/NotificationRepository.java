@@ -1,11 +1,15 @@
 package com.minishop.notificationsservice.repository;
 
+import com.minishop.notificationsservice.config.NotificationProperties;
 import com.minishop.notificationsservice.model.Notification;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 /**
@@ -13,21 +17,29 @@ import java.util.stream.Collectors;
  */
 @Repository
 public class NotificationRepository {
-    
+
     private final ConcurrentLinkedDeque<Notification> notifications = new ConcurrentLinkedDeque<>();
-    private final int MAX_NOTIFICATIONS = 1000; // Máximo número de notificaciones a mantener
+    // ConcurrentLinkedDeque.size() es O(n); se lleva la cuenta aparte
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong receivedCount = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+    private final AtomicLong modificationCount = new AtomicLong();
+
+    @Autowired
+    private NotificationProperties notificationProperties;
 
     /**
      * Guarda una nueva notificación
      */
     public Notification save(Notification notification) {
         notifications.addFirst(notification);
-        
-        // Mantener solo las últimas MAX_NOTIFICATIONS
-        while (notifications.size() > MAX_NOTIFICATIONS) {
-            notifications.removeLast();
-        }
-        
+        size.incrementAndGet();
+        receivedCount.incrementAndGet();
+        modificationCount.incrementAndGet();
+
+        // Mantener solo las últimas maxSize notificaciones
+        trimToWindow();
+
         return notification;
     }
 
@@ -83,6 +95,7 @@ public class NotificationRepository {
                 .findFirst()
                 .map(n -> {
                     n.setRead(true);
+                    modificationCount.incrementAndGet();
                     return true;
                 })
                 .orElse(false);
@@ -93,6 +106,7 @@ public class NotificationRepository {
      */
     public void markAllAsRead() {
         notifications.forEach(n -> n.setRead(true));
+        modificationCount.incrementAndGet();
     }
 
     /**
@@ -100,11 +114,19 @@ public class NotificationRepository {
      */
     public int cleanupOldNotifications(int daysToKeep) {
         LocalDateTime cutoff = LocalDateTime.now().minusDays(daysToKeep);
-        int initialSize = notifications.size();
-        
-        notifications.removeIf(n -> n.getTimestamp().isBefore(cutoff));
-        
-        return initialSize - notifications.size();
+        int removed = 0;
+
+        Iterator<Notification> iterator = notifications.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getTimestamp().isBefore(cutoff)) {
+                iterator.remove();
+                removed++;
+            }
+        }
+        size.addAndGet(-removed);
+        modificationCount.incrementAndGet();
+
+        return removed;
     }
 
     /**
@@ -115,4 +137,65 @@ public class NotificationRepository {
                 .filter(n -> !n.isRead())
                 .count();
     }
+
+    /**
+     * Número de notificaciones en la ventana en memoria
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Total de notificaciones recibidas desde el primer arranque (incluye las restauradas)
+     */
+    public long getReceivedCount() {
+        return receivedCount.get();
+    }
+
+    /**
+     * Total de notificaciones expulsadas de la ventana por tamaño
+     */
+    public long getEvictedCount() {
+        return evictedCount.get();
+    }
+
+    /**
+     * Contador que cambia con cada modificación de la ventana (altas, lecturas, limpiezas)
+     */
+    public long getModificationCount() {
+        return modificationCount.get();
+    }
+
+    /**
+     * Copia de la ventana y sus contadores para escribir un snapshot
+     */
+    public NotificationSnapshot snapshot() {
+        long received = receivedCount.get();
+        long evicted = evictedCount.get();
+        return new NotificationSnapshot(new ArrayList<>(notifications), received, evicted);
+    }
+
+    /**
+     * Restaura una ventana previa. Las notificaciones restauradas son más antiguas que
+     * cualquiera recibida durante el arranque, así que se añaden al final de la ventana.
+     */
+    public void restore(NotificationSnapshot snapshot) {
+        for (Notification notification : snapshot.getNotifications()) {
+            notifications.addLast(notification);
+        }
+        size.addAndGet(snapshot.getNotifications().size());
+        receivedCount.addAndGet(snapshot.getReceivedCount());
+        evictedCount.addAndGet(snapshot.getEvictedCount());
+        modificationCount.incrementAndGet();
+
+        trimToWindow();
+    }
+
+    private void trimToWindow() {
+        int maxSize = notificationProperties.getWindow().getMaxSize();
+        while (size.get() > maxSize && notifications.pollLast() != null) {
+            size.decrementAndGet();
+            evictedCount.incrementAndGet();
+        }
+    }
 }
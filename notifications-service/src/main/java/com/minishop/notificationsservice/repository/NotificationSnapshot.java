@@ -0,0 +1,33 @@
+package com.minishop.notificationsservice.repository;
+
+import com.minishop.notificationsservice.model.Notification;
+
+import java.util.List;
+
+/**
+ * Estado de la ventana en memoria: notificaciones (más reciente primero) y contadores
+ */
+public class NotificationSnapshot {
+
+    private final List<Notification> notifications;
+    private final long receivedCount;
+    private final long evictedCount;
+
+    public NotificationSnapshot(List<Notification> notifications, long receivedCount, long evictedCount) {
+        this.notifications = notifications;
+        this.receivedCount = receivedCount;
+        this.evictedCount = evictedCount;
+    }
+
+    public List<Notification> getNotifications() {
+        return notifications;
+    }
+
+    public long getReceivedCount() {
+        return receivedCount;
+    }
+
+    public long getEvictedCount() {
+        return evictedCount;
+    }
+}
@@ -0,0 +1,223 @@
+package com.minishop.notificationsservice.repository;
+
+import com.minishop.notificationsservice.model.Notification;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Formato binario del snapshot de la ventana de notificaciones.
+ *
+ * Layout: cabecera (magic, versión, contadores), diccionario de los valores de
+ * baja cardinalidad (tipo, título, severidad), entradas de longitud variable que
+ * referencian el diccionario por índice y un CRC32 final sobre todo lo anterior.
+ * Se escribe a un fichero temporal y se renombra de forma atómica; se lee con un
+ * mapeo en memoria, reutilizando las cadenas del diccionario en cada entrada.
+ */
+public final class NotificationSnapshotStore {
+
+    static final int MAGIC = 0x4E534E50; // "NSNP"
+    static final short VERSION = 1;
+
+    private static final int HEADER_BYTES = 4 + 2 + 8 + 8 + 8 + 4 + 4;
+    private static final int NULL_STRING = -1;
+
+    private NotificationSnapshotStore() {
+    }
+
+    /**
+     * Escribe el snapshot de forma atómica: un lector nunca ve un fichero a medias
+     */
+    public static void write(Path target, NotificationSnapshot snapshot) throws IOException {
+        Path parent = target.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+
+        List<Notification> notifications = snapshot.getNotifications();
+        CRC32 crc = new CRC32();
+        try (FileOutputStream fos = new FileOutputStream(tmp.toFile());
+             DataOutputStream out = new DataOutputStream(
+                     new CheckedOutputStream(new BufferedOutputStream(fos, 1 << 16), crc))) {
+
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeLong(System.currentTimeMillis());
+            out.writeLong(snapshot.getReceivedCount());
+            out.writeLong(snapshot.getEvictedCount());
+
+            Map<String, Integer> dictionary = buildDictionary(notifications);
+            out.writeInt(dictionary.size());
+            for (String value : dictionary.keySet()) {
+                writeString(out, value);
+            }
+
+            out.writeInt(notifications.size());
+            for (Notification n : notifications) {
+                writeString(out, n.getId());
+                out.writeInt(indexOf(dictionary, n.getType()));
+                out.writeInt(indexOf(dictionary, n.getTitle()));
+                writeString(out, n.getMessage());
+                out.writeInt(indexOf(dictionary, n.getSeverity()));
+                LocalDateTime timestamp = n.getTimestamp();
+                out.writeLong(timestamp.toEpochSecond(ZoneOffset.UTC));
+                out.writeInt(timestamp.getNano());
+                out.writeBoolean(n.isRead());
+            }
+
+            // El CRC no se incluye a sí mismo
+            out.writeInt((int) crc.getValue());
+            out.flush();
+            fos.getChannel().force(true);
+        }
+
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Lee un snapshot mapeando el fichero en memoria
+     *
+     * @throws IOException si el fichero está truncado, corrupto o tiene otra versión
+     */
+    public static NotificationSnapshot read(Path source) throws IOException {
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_BYTES + 4) {
+                throw new IOException("Snapshot truncated: " + fileSize + " bytes");
+            }
+            if (fileSize > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large to map: " + fileSize + " bytes");
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            int bodySize = (int) fileSize - 4;
+
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().limit(bodySize));
+            if ((int) crc.getValue() != buffer.getInt(bodySize)) {
+                throw new IOException("Snapshot checksum mismatch");
+            }
+
+            buffer.limit(bodySize);
+            try {
+                return readBody(buffer);
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                throw new IOException("Snapshot corrupted", e);
+            }
+        }
+    }
+
+    private static NotificationSnapshot readBody(ByteBuffer buffer) throws IOException {
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a notification snapshot");
+        }
+        short version = buffer.getShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version: " + version);
+        }
+        buffer.getLong(); // createdAt, informativo
+        long receivedCount = buffer.getLong();
+        long evictedCount = buffer.getLong();
+
+        byte[] scratch = new byte[256];
+        int dictionarySize = buffer.getInt();
+        if (dictionarySize < 0 || dictionarySize > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid dictionary size: " + dictionarySize);
+        }
+        String[] dictionary = new String[dictionarySize];
+        for (int i = 0; i < dictionarySize; i++) {
+            dictionary[i] = readString(buffer, scratch);
+        }
+
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid entry count: " + count);
+        }
+        List<Notification> notifications = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String id = readString(buffer, scratch);
+            String type = lookup(dictionary, buffer.getInt());
+            String title = lookup(dictionary, buffer.getInt());
+            String message = readString(buffer, scratch);
+            String severity = lookup(dictionary, buffer.getInt());
+            LocalDateTime timestamp = LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+            boolean read = buffer.get() != 0;
+            notifications.add(new Notification(id, type, title, message, severity, timestamp, read));
+        }
+
+        return new NotificationSnapshot(notifications, receivedCount, evictedCount);
+    }
+
+    private static Map<String, Integer> buildDictionary(List<Notification> notifications) {
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        for (Notification n : notifications) {
+            addToDictionary(dictionary, n.getType());
+            addToDictionary(dictionary, n.getTitle());
+            addToDictionary(dictionary, n.getSeverity());
+        }
+        return dictionary;
+    }
+
+    private static void addToDictionary(Map<String, Integer> dictionary, String value) {
+        if (value != null) {
+            dictionary.putIfAbsent(value, dictionary.size());
+        }
+    }
+
+    private static int indexOf(Map<String, Integer> dictionary, String value) {
+        return value == null ? NULL_STRING : dictionary.get(value);
+    }
+
+    private static String lookup(String[] dictionary, int index) {
+        if (index == NULL_STRING) {
+            return null;
+        }
+        if (index < 0 || index >= dictionary.length) {
+            throw new IllegalArgumentException("Invalid dictionary index: " + index);
+        }
+        return dictionary[index];
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_STRING);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer, byte[] scratch) {
+        int length = buffer.getInt();
+        if (length == NULL_STRING) {
+            return null;
+        }
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid string length: " + length);
+        }
+        byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        buffer.get(bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,271 @@
+package com.minishop.notificationsservice.service;
+
+import com.minishop.messaging.config.NatsProperties;
+import com.minishop.messaging.core.EventDeduplicator;
+import com.minishop.messaging.core.EventHeaders;
+import com.minishop.messaging.core.EventOrigin;
+import com.minishop.messaging.core.MessagingObserver;
+import com.minishop.messaging.core.MessagingThreads;
+import com.minishop.messaging.jfr.EventConsumeEvent;
+import com.minishop.messaging.tracing.Span;
+import com.minishop.messaging.tracing.TraceContext;
+import com.minishop.messaging.tracing.Tracer;
+import io.nats.client.Connection;
+import io.nats.client.JetStreamApiException;
+import io.nats.client.JetStreamManagement;
+import io.nats.client.JetStreamSubscription;
+import io.nats.client.Message;
+import io.nats.client.MessageHandler;
+import io.nats.client.PullSubscribeOptions;
+import io.nats.client.api.AckPolicy;
+import io.nats.client.api.ConsumerConfiguration;
+import io.nats.client.api.DeliverPolicy;
+import io.nats.client.api.StreamConfiguration;
+import io.nats.client.api.StreamInfo;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Consumo durable de eventos con JetStream (pull consumers con ack explícito).
+ * Cada consumidor retoma desde su último mensaje confirmado: al arrancar vacía
+ * el backlog en lotes a máxima velocidad y después pasa a consumir en vivo.
+ */
+@Service
+public class JetStreamSubscriber {
+
+    // Error de la API de JetStream cuando el stream no existe
+    private static final int STREAM_NOT_FOUND = 10059;
+    private static final Duration CATCH_UP_WAIT = Duration.ofMillis(100);
+
+    private final Connection natsConnection;
+    private final NatsProperties natsProperties;
+    private final MessagingThreads threads;
+    private final MessagingObserver observer;
+    private final EventDeduplicator deduplicator;
+    private final Tracer tracer;
+    private final List<Thread> consumers = new CopyOnWriteArrayList<>();
+    private final List<JetStreamSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    private volatile boolean running = true;
+
+    public JetStreamSubscriber(Connection natsConnection, NatsProperties natsProperties, MessagingThreads threads) {
+        this(natsConnection, natsProperties, threads, MessagingObserver.NOOP, null, Tracer.disabled());
+    }
+
+    @Autowired
+    public JetStreamSubscriber(Connection natsConnection, NatsProperties natsProperties, MessagingThreads threads,
+                               MessagingObserver observer, ObjectProvider<EventDeduplicator> deduplicator,
+                               ObjectProvider<Tracer> tracer) {
+        this(natsConnection, natsProperties, threads, observer, deduplicator.getIfAvailable(),
+            tracer.getIfAvailable(Tracer::disabled));
+    }
+
+    /**
+     * @param deduplicator ids ya procesados (messaging.dedup), o null para procesarlo todo
+     * @param tracer span por mensaje, hijo de su traceparent
+     */
+    public JetStreamSubscriber(Connection natsConnection, NatsProperties natsProperties, MessagingThreads threads,
+                               MessagingObserver observer, EventDeduplicator deduplicator, Tracer tracer) {
+        this.natsConnection = natsConnection;
+        this.natsProperties = natsProperties;
+        this.threads = threads;
+        this.observer = observer;
+        this.deduplicator = deduplicator;
+        this.tracer = tracer;
+    }
+
+    /**
+     * Crea el stream si no existe o le añade los subjects que le falten
+     */
+    public synchronized void ensureStream(Collection<String> subjects) throws IOException, JetStreamApiException {
+        NatsProperties.JetStream config = natsProperties.getJetstream();
+        JetStreamManagement jsm = natsConnection.jetStreamManagement();
+
+        StreamInfo info;
+        try {
+            info = jsm.getStreamInfo(config.getStream());
+        } catch (JetStreamApiException e) {
+            if (e.getApiErrorCode() != STREAM_NOT_FOUND) {
+                throw e;
+            }
+            jsm.addStream(StreamConfiguration.builder()
+                .name(config.getStream())
+                .subjects(subjects)
+                .maxAge(Duration.ofMillis(config.getMaxAge()))
+                .build());
+            System.out.println("[NOTIFICATIONS-SERVICE] Created JetStream stream " + config.getStream() + " for " + subjects);
+            return;
+        }
+
+        Set<String> streamSubjects = new LinkedHashSet<>(info.getConfiguration().getSubjects());
+        if (streamSubjects.addAll(subjects)) {
+            jsm.updateStream(StreamConfiguration.builder(info.getConfiguration())
+                .subjects(streamSubjects)
+                .build());
+            System.out.println("[NOTIFICATIONS-SERVICE] Updated JetStream stream " + config.getStream() + " subjects to " + streamSubjects);
+        }
+    }
+
+    /**
+     * Crea (o reutiliza) un consumidor durable para el subject y empieza a consumirlo
+     */
+    public void subscribe(String subject, MessageHandler handler) throws IOException, JetStreamApiException {
+        NatsProperties.JetStream config = natsProperties.getJetstream();
+        String durable = durableName(subject);
+
+        ConsumerConfiguration consumerConfiguration = ConsumerConfiguration.builder()
+            .durable(durable)
+            .filterSubject(subject)
+            .deliverPolicy(DeliverPolicy.All)
+            .ackPolicy(AckPolicy.Explicit)
+            .ackWait(Duration.ofMillis(natsProperties.getConsumer().getAckWait()))
+            .maxDeliver(natsProperties.getConsumer().getMaxDeliver())
+            .build();
+
+        JetStreamSubscription subscription = natsConnection.jetStream().subscribe(subject,
+            PullSubscribeOptions.builder()
+                .stream(config.getStream())
+                .durable(durable)
+                .configuration(consumerConfiguration)
+                .build());
+        subscriptions.add(subscription);
+        observer.subscribed(durable, subject, subscription);
+
+        // fetch bloquea hasta fetch-wait: con hilos virtuales la espera no ocupa un hilo de plataforma
+        Thread consumer = threads.newThread("jetstream-" + durable, () -> consume(durable, subject, subscription, handler));
+        consumers.add(consumer);
+        consumer.start();
+    }
+
+    private void consume(String durable, String subject, JetStreamSubscription subscription, MessageHandler handler) {
+        int batchSize = natsProperties.getJetstream().getBatchSize();
+        Duration fetchWait = Duration.ofMillis(natsProperties.getJetstream().getFetchWait());
+
+        try {
+            // Puesta al día: lotes completos sin esperar hasta vaciar el backlog
+            long backlog = pendingMessages(subscription);
+            long start = System.nanoTime();
+            long replayed = 0;
+            try {
+                while (running) {
+                    List<Message> batch = subscription.fetch(batchSize, CATCH_UP_WAIT);
+                    replayed += process(durable, subject, batch, handler);
+                    if (batch.size() < batchSize) {
+                        break;
+                    }
+                }
+            } catch (RuntimeException e) {
+                // Lo que quede del backlog se consume en vivo
+                System.err.println("[NOTIFICATIONS-SERVICE] JetStream catch-up failed on " + subject + ": " + e.getMessage());
+            }
+            System.out.println("[NOTIFICATIONS-SERVICE] Caught up " + subject + ": replayed " + replayed
+                + " of " + backlog + " pending in " + (System.nanoTime() - start) / 1_000_000 + " ms, now live");
+
+            while (running) {
+                try {
+                    process(durable, subject, subscription.fetch(batchSize, fetchWait), handler);
+                } catch (RuntimeException e) {
+                    // Conexión cerrada o reconectando, o estado de JetStream inesperado
+                    // (JetStreamStatusException): reintentar tras una pausa sin perder el hilo
+                    System.err.println("[NOTIFICATIONS-SERVICE] JetStream fetch failed on " + subject + ": " + e.getMessage());
+                    Thread.sleep(fetchWait.toMillis());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("[NOTIFICATIONS-SERVICE] JetStream consumer interrupted: " + subject);
+        }
+    }
+
+    private int process(String durable, String subject, List<Message> batch, MessageHandler handler)
+        throws InterruptedException {
+        for (Message message : batch) {
+            // Repetido (reenvío del productor o reentrega tras perder el ack): se confirma sin procesar
+            String dedupKey = dedupKey(durable, message);
+            if (dedupKey != null && deduplicator.contains(dedupKey)) {
+                message.ack();
+                continue;
+            }
+            long start = System.nanoTime();
+            EventOrigin previous = EventOrigin.enter(EventOrigin.of(message));
+            Span span = tracer.start("process " + subject, Span.Kind.CONSUMER, TraceContext.of(message));
+            if (span.isRecording()) {
+                span.tag("messaging.subject", message.getSubject()).tag("messaging.consumer", durable)
+                    .tag("messaging.type", EventHeaders.type(message)).tag("messaging.key", EventHeaders.partitionKey(message));
+            }
+            TraceContext previousTrace = TraceContext.enter(span.context());
+            EventConsumeEvent jfr = new EventConsumeEvent();
+            jfr.begin();
+            boolean success = false;
+            try {
+                handler.onMessage(message);
+                success = true;
+                observer.consumed(durable, subject, -1, System.nanoTime() - start, true);
+                message.ack();
+                if (dedupKey != null) {
+                    // Solo tras procesarlo: si falla, la reentrega no se toma por repetida
+                    deduplicator.add(dedupKey);
+                }
+            } catch (RuntimeException e) {
+                observer.consumed(durable, subject, -1, System.nanoTime() - start, false);
+                span.error(e);
+                // Se reintenta hasta nats.consumer.max-deliver veces
+                System.err.println("[NOTIFICATIONS-SERVICE] Handler failed, message will be redelivered: " + e.getMessage());
+                message.nak();
+            } finally {
+                jfr.record(message, durable, success);
+                span.end();
+                EventOrigin.restore(previous);
+                TraceContext.restore(previousTrace);
+            }
+        }
+        return batch.size();
+    }
+
+    private String dedupKey(String durable, Message message) {
+        String eventId = deduplicator != null ? EventHeaders.id(message) : null;
+        return eventId != null ? durable + "|" + eventId : null;
+    }
+
+    private long pendingMessages(JetStreamSubscription subscription) {
+        try {
+            return subscription.getConsumerInfo().getCalculatedPending();
+        } catch (IOException | JetStreamApiException e) {
+            return -1;
+        }
+    }
+
+    String durableName(String subject) {
+        return natsProperties.getJetstream().getDurablePrefix() + "-" + subject.replaceAll("[.*>]", "-");
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        long joinMillis = natsProperties.getJetstream().getFetchWait() + 1000;
+        for (Thread consumer : consumers) {
+            try {
+                consumer.join(joinMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        // unsubscribe no borra los consumidores durables: el próximo arranque retoma desde aquí
+        for (JetStreamSubscription subscription : subscriptions) {
+            if (subscription.isActive()) {
+                subscription.unsubscribe();
+            }
+        }
+    }
+}
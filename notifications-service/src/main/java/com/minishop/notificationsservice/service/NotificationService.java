@@ -1,18 +1,23 @@
 package com.minishop.notificationsservice.service;
 
+import com.minishop.messaging.codec.MessageCodec;
+import com.minishop.messaging.config.NatsProperties;
+import com.minishop.messaging.listener.NatsListener;
+import com.minishop.messaging.metrics.EventLatencyRecorder;
 import com.minishop.notificationsservice.config.MessagingProperties;
 import com.minishop.notificationsservice.config.NotificationProperties;
+import com.minishop.notificationsservice.jfr.NotificationDeliverEvent;
+import com.minishop.notificationsservice.jfr.NotificationStoreEvent;
 import com.minishop.notificationsservice.model.Notification;
 import com.minishop.notificationsservice.repository.NotificationRepository;
-import io.nats.client.Connection;
+import io.nats.client.JetStreamApiException;
 import io.nats.client.Message;
-import io.nats.client.Subscription;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
-import java.nio.charset.StandardCharsets;
-import java.time.Duration;
+import java.io.IOException;
+import java.util.List;
 
 /**
  * Servicio principal de notificaciones que escucha eventos NATS
@@ -20,8 +25,8 @@ import java.time.Duration;
 @Service
 public class NotificationService {
     
-    @Autowired
-    private Connection natsConnection;
+    // Con JetStream activo los eventos llegan por consumidores durables, no por suscripciones core
+    private static final String CORE_SUBSCRIPTIONS = "#{!${nats.jetstream.enabled:false}}";
     
     @Autowired
     private MessagingProperties messagingProperties;
@@ -32,239 +37,109 @@ public class NotificationService {
     @Autowired
     private NotificationRepository notificationRepository;
     
-    @PostConstruct
-    public void initializeSubscriptions() {
-        System.out.println("[NOTIFICATIONS-SERVICE] Initializing NATS subscriptions...");
-        
-        // Suscribirse a todos los eventos relevantes
-        subscribeToNotificationEvents();
-        subscribeToOrderEvents();
-        subscribeToProductEvents();
-        subscribeToPaymentEvents();
-    }
+    @Autowired
+    private NatsProperties natsProperties;
     
-    /**
-     * Suscribe a eventos de notificaciones directas
-     */
-    private void subscribeToNotificationEvents() {
-        Subscription notificationSub = natsConnection.subscribe(
-            messagingProperties.getSubjects().getNotifications().getSend()
-        );
-        
-        new Thread(() -> {
-            try {
-                while (!notificationSub.isActive()) {
-                    Thread.sleep(100);
-                }
-                
-                System.out.println("[NOTIFICATIONS-SERVICE] Listening to: " + 
-                    messagingProperties.getSubjects().getNotifications().getSend());
-                
-                while (notificationSub.isActive()) {
-                    Message msg = notificationSub.nextMessage(Duration.ofSeconds(1));
-                    if (msg != null) {
-                        handleNotificationRequest(msg);
-                    }
-                }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                System.err.println("[NOTIFICATIONS-SERVICE] Notification subscription interrupted: " + e.getMessage());
-            }
-        }).start();
-    }
+    @Autowired
+    private JetStreamSubscriber jetStreamSubscriber;
     
-    /**
-     * Suscribe a eventos de órdenes
-     */
-    private void subscribeToOrderEvents() {
-        // Órdenes creadas
-        Subscription orderCreatedSub = natsConnection.subscribe(
-            messagingProperties.getSubjects().getOrders().getCreated()
-        );
-        
-        new Thread(() -> {
-            try {
-                while (!orderCreatedSub.isActive()) {
-                    Thread.sleep(100);
-                }
-                
-                System.out.println("[NOTIFICATIONS-SERVICE] Listening to: " + 
-                    messagingProperties.getSubjects().getOrders().getCreated());
-                
-                while (orderCreatedSub.isActive()) {
-                    Message msg = orderCreatedSub.nextMessage(Duration.ofSeconds(1));
-                    if (msg != null) {
-                        handleOrderCreated(msg);
-                    }
-                }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                System.err.println("[NOTIFICATIONS-SERVICE] Order created subscription interrupted: " + e.getMessage());
-            }
-        }).start();
-        
-        // Órdenes canceladas
-        Subscription orderCancelledSub = natsConnection.subscribe(
-            messagingProperties.getSubjects().getOrders().getCancelled()
-        );
-        
-        new Thread(() -> {
-            try {
-                while (!orderCancelledSub.isActive()) {
-                    Thread.sleep(100);
-                }
-                
-                System.out.println("[NOTIFICATIONS-SERVICE] Listening to: " + 
-                    messagingProperties.getSubjects().getOrders().getCancelled());
-                
-                while (orderCancelledSub.isActive()) {
-                    Message msg = orderCancelledSub.nextMessage(Duration.ofSeconds(1));
-                    if (msg != null) {
-                        handleOrderCancelled(msg);
-                    }
-                }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                System.err.println("[NOTIFICATIONS-SERVICE] Order cancelled subscription interrupted: " + e.getMessage());
-            }
-        }).start();
-    }
+    // Convierte a JSON los eventos que llegan en CBOR/Smile
+    @Autowired
+    private MessageCodec messageCodec;
     
-    /**
-     * Suscribe a eventos de productos
-     */
-    private void subscribeToProductEvents() {
-        Subscription lowStockSub = natsConnection.subscribe(
-            messagingProperties.getSubjects().getProducts().getLowStock()
-        );
-        
-        new Thread(() -> {
-            try {
-                while (!lowStockSub.isActive()) {
-                    Thread.sleep(100);
-                }
-                
-                System.out.println("[NOTIFICATIONS-SERVICE] Listening to: " + 
-                    messagingProperties.getSubjects().getProducts().getLowStock());
-                
-                while (lowStockSub.isActive()) {
-                    Message msg = lowStockSub.nextMessage(Duration.ofSeconds(1));
-                    if (msg != null) {
-                        handleLowStock(msg);
-                    }
-                }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                System.err.println("[NOTIFICATIONS-SERVICE] Low stock subscription interrupted: " + e.getMessage());
-            }
-        }).start();
+    @Autowired
+    private EventLatencyRecorder eventLatencyRecorder;
+    
+    @PostConstruct
+    public void initializeSubscriptions() {
+        // Sin JetStream los métodos @NatsListener se suscriben solos al arrancar el contexto
+        if (natsProperties.getJetstream().isEnabled()) {
+            subscribeWithReplay();
+        }
     }
     
     /**
-     * Suscribe a eventos de pagos
+     * Suscribe mediante consumidores durables JetStream: los eventos publicados
+     * mientras el servicio estaba caído se reprocesan antes de consumir en vivo.
+     * Los handlers no capturan sus fallos: el mensaje se rechaza (nak) y se
+     * reentrega hasta nats.consumer.max-deliver veces
      */
-    private void subscribeToPaymentEvents() {
-        // Pagos confirmados
-        Subscription paymentConfirmedSub = natsConnection.subscribe(
-            messagingProperties.getSubjects().getPayments().getConfirmed()
-        );
-        
-        new Thread(() -> {
-            try {
-                while (!paymentConfirmedSub.isActive()) {
-                    Thread.sleep(100);
-                }
-                
-                System.out.println("[NOTIFICATIONS-SERVICE] Listening to: " + 
-                    messagingProperties.getSubjects().getPayments().getConfirmed());
-                
-                while (paymentConfirmedSub.isActive()) {
-                    Message msg = paymentConfirmedSub.nextMessage(Duration.ofSeconds(1));
-                    if (msg != null) {
-                        handlePaymentConfirmed(msg);
-                    }
-                }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                System.err.println("[NOTIFICATIONS-SERVICE] Payment confirmed subscription interrupted: " + e.getMessage());
-            }
-        }).start();
+    private void subscribeWithReplay() {
+        MessagingProperties.Subjects subjects = messagingProperties.getSubjects();
+        try {
+            jetStreamSubscriber.ensureStream(List.of(
+                subjects.getNotifications().getSend(),
+                subjects.getOrders().getCreated(),
+                subjects.getOrders().getCancelled(),
+                subjects.getProducts().getLowStock(),
+                subjects.getPayments().getConfirmed()
+            ));
+            
+            jetStreamSubscriber.subscribe(subjects.getNotifications().getSend(), this::handleNotificationRequest);
+            jetStreamSubscriber.subscribe(subjects.getOrders().getCreated(), this::handleOrderCreated);
+            jetStreamSubscriber.subscribe(subjects.getOrders().getCancelled(), this::handleOrderCancelled);
+            jetStreamSubscriber.subscribe(subjects.getProducts().getLowStock(), this::handleLowStock);
+            jetStreamSubscriber.subscribe(subjects.getPayments().getConfirmed(), this::handlePaymentConfirmed);
+        } catch (IOException | JetStreamApiException e) {
+            throw new IllegalStateException("Unable to create JetStream consumers", e);
+        }
     }
     
     /**
      * Maneja solicitudes directas de notificación
      */
-    private void handleNotificationRequest(Message message) {
-        try {
-            String jsonMessage = new String(message.getData(), StandardCharsets.UTF_8);
-            System.out.println("[NOTIFICATIONS-SERVICE] Notification request received: " + jsonMessage);
-            
-            // Aquí implementarías el envío real de la notificación
-            sendNotification(jsonMessage, "DIRECT");
-            
-        } catch (Exception e) {
-            System.err.println("[NOTIFICATIONS-SERVICE] Error handling notification request: " + e.getMessage());
-        }
+    @NatsListener(subject = "${messaging.subjects.notifications.send:notifications.send}", key = "userId", enabled = CORE_SUBSCRIPTIONS)
+    public void handleNotificationRequest(Message message) {
+        String jsonMessage = messageCodec.toText(message);
+        System.out.println("[NOTIFICATIONS-SERVICE] Notification request received: " + jsonMessage);
+        
+        // Aquí implementarías el envío real de la notificación
+        sendNotification(jsonMessage, "DIRECT");
     }
     
     /**
      * Maneja eventos de órdenes creadas
      */
-    private void handleOrderCreated(Message message) {
-        try {
-            String jsonMessage = new String(message.getData(), StandardCharsets.UTF_8);
-            System.out.println("[NOTIFICATIONS-SERVICE] Order created event received: " + jsonMessage);
-            
-            sendNotification("Nueva orden creada", "ORDER_CREATED");
-            
-        } catch (Exception e) {
-            System.err.println("[NOTIFICATIONS-SERVICE] Error handling order created: " + e.getMessage());
-        }
+    @NatsListener(subject = "${messaging.subjects.orders.created:orders.created}", key = "orderId", enabled = CORE_SUBSCRIPTIONS,
+        concurrency = "1-8")
+    public void handleOrderCreated(Message message) {
+        String jsonMessage = messageCodec.toText(message);
+        System.out.println("[NOTIFICATIONS-SERVICE] Order created event received: " + jsonMessage);
+        
+        sendNotification("Nueva orden creada", "ORDER_CREATED");
     }
     
     /**
      * Maneja eventos de órdenes canceladas
      */
-    private void handleOrderCancelled(Message message) {
-        try {
-            String jsonMessage = new String(message.getData(), StandardCharsets.UTF_8);
-            System.out.println("[NOTIFICATIONS-SERVICE] Order cancelled event received: " + jsonMessage);
-            
-            sendNotification("Orden cancelada", "ORDER_CANCELLED");
-            
-        } catch (Exception e) {
-            System.err.println("[NOTIFICATIONS-SERVICE] Error handling order cancelled: " + e.getMessage());
-        }
+    @NatsListener(subject = "${messaging.subjects.orders.cancelled:orders.cancelled}", key = "orderId", enabled = CORE_SUBSCRIPTIONS)
+    public void handleOrderCancelled(Message message) {
+        String jsonMessage = messageCodec.toText(message);
+        System.out.println("[NOTIFICATIONS-SERVICE] Order cancelled event received: " + jsonMessage);
+        
+        sendNotification("Orden cancelada", "ORDER_CANCELLED");
     }
     
     /**
      * Maneja eventos de stock bajo
      */
-    private void handleLowStock(Message message) {
-        try {
-            String jsonMessage = new String(message.getData(), StandardCharsets.UTF_8);
-            System.out.println("[NOTIFICATIONS-SERVICE] Low stock event received: " + jsonMessage);
-            
-            sendNotification("Stock bajo detectado", "LOW_STOCK");
-            
-        } catch (Exception e) {
-            System.err.println("[NOTIFICATIONS-SERVICE] Error handling low stock: " + e.getMessage());
-        }
+    @NatsListener(subject = "${messaging.subjects.products.low-stock:products.stock.low}", key = "productId", enabled = CORE_SUBSCRIPTIONS)
+    public void handleLowStock(Message message) {
+        String jsonMessage = messageCodec.toText(message);
+        System.out.println("[NOTIFICATIONS-SERVICE] Low stock event received: " + jsonMessage);
+        
+        sendNotification("Stock bajo detectado", "LOW_STOCK");
     }
     
     /**
      * Maneja eventos de pagos confirmados
      */
-    private void handlePaymentConfirmed(Message message) {
-        try {
-            String jsonMessage = new String(message.getData(), StandardCharsets.UTF_8);
-            System.out.println("[NOTIFICATIONS-SERVICE] Payment confirmed event received: " + jsonMessage);
-            
-            sendNotification("Pago confirmado", "PAYMENT_CONFIRMED");
-            
-        } catch (Exception e) {
-            System.err.println("[NOTIFICATIONS-SERVICE] Error handling payment confirmed: " + e.getMessage());
-        }
+    @NatsListener(subject = "${messaging.subjects.payments.confirmed:payments.confirmed}", key = "orderId", enabled = CORE_SUBSCRIPTIONS)
+    public void handlePaymentConfirmed(Message message) {
+        String jsonMessage = messageCodec.toText(message);
+        System.out.println("[NOTIFICATIONS-SERVICE] Payment confirmed event received: " + jsonMessage);
+        
+        sendNotification("Pago confirmado", "PAYMENT_CONFIRMED");
     }
     
     /**
@@ -276,20 +151,34 @@ public class NotificationService {
         System.out.println("  Message: " + message);
         
         // Crear y guardar la notificación en el repositorio
+        NotificationStoreEvent stored = new NotificationStoreEvent();
+        stored.begin();
         Notification notification = createNotificationByType(type, message);
         notificationRepository.save(notification);
+        stored.record(notification.getId(), type);
+        // Desde la acción que originó el evento (p. ej. POST /orders) hasta la notificación guardada
+        eventLatencyRecorder.record("notifications.stored");
         
         // Verificar qué canales están habilitados
         if (notificationProperties.getChannels().getEmail().isEnabled()) {
+            NotificationDeliverEvent delivered = new NotificationDeliverEvent();
+            delivered.begin();
             sendEmailNotification(message, type);
+            delivered.record(notification.getId(), "email", type);
         }
         
         if (notificationProperties.getChannels().getSms().isEnabled()) {
+            NotificationDeliverEvent delivered = new NotificationDeliverEvent();
+            delivered.begin();
             sendSmsNotification(message, type);
+            delivered.record(notification.getId(), "sms", type);
         }
         
         if (notificationProperties.getChannels().getPush().isEnabled()) {
+            NotificationDeliverEvent delivered = new NotificationDeliverEvent();
+            delivered.begin();
             sendPushNotification(message, type);
+            delivered.record(notification.getId(), "push", type);
         }
     }
     
@@ -0,0 +1,98 @@
+package com.minishop.notificationsservice.service;
+
+import com.minishop.notificationsservice.config.NotificationProperties;
+import com.minishop.notificationsservice.repository.NotificationRepository;
+import com.minishop.notificationsservice.repository.NotificationSnapshot;
+import com.minishop.notificationsservice.repository.NotificationSnapshotStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Persiste la ventana en memoria de notificaciones entre reinicios.
+ * Restaura el último snapshot al arrancar, lo reescribe periódicamente
+ * si hubo cambios y una última vez al apagar.
+ */
+@Service
+public class NotificationSnapshotService {
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private NotificationProperties notificationProperties;
+
+    private volatile long lastSnapshotModification = -1;
+
+    @PostConstruct
+    public void restore() {
+        if (!notificationProperties.getSnapshot().isEnabled()) {
+            return;
+        }
+
+        Path path = snapshotPath();
+        if (!Files.exists(path)) {
+            System.out.println("[NOTIFICATIONS-SERVICE] No snapshot found at " + path + ", starting empty");
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            NotificationSnapshot snapshot = NotificationSnapshotStore.read(path);
+            notificationRepository.restore(snapshot);
+            lastSnapshotModification = notificationRepository.getModificationCount();
+            System.out.println("[NOTIFICATIONS-SERVICE] Restored " + snapshot.getNotifications().size()
+                + " notifications from snapshot in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (IOException e) {
+            System.err.println("[NOTIFICATIONS-SERVICE] Ignoring unreadable snapshot " + path + ": " + e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${notification.snapshot.interval:60000}",
+               initialDelayString = "${notification.snapshot.interval:60000}")
+    public void periodicSnapshot() {
+        if (notificationProperties.getSnapshot().isEnabled()) {
+            writeSnapshot();
+        }
+    }
+
+    @PreDestroy
+    public void shutdownSnapshot() {
+        if (notificationProperties.getSnapshot().isEnabled()) {
+            writeSnapshot();
+        }
+    }
+
+    /**
+     * Escribe el snapshot si la ventana cambió desde el último
+     */
+    public synchronized void writeSnapshot() {
+        long modification = notificationRepository.getModificationCount();
+        if (modification == lastSnapshotModification) {
+            return;
+        }
+
+        Path path = snapshotPath();
+        long start = System.nanoTime();
+        try {
+            NotificationSnapshot snapshot = notificationRepository.snapshot();
+            NotificationSnapshotStore.write(path, snapshot);
+            lastSnapshotModification = modification;
+            System.out.println("[NOTIFICATIONS-SERVICE] Snapshot of " + snapshot.getNotifications().size()
+                + " notifications written in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (IOException e) {
+            System.err.println("[NOTIFICATIONS-SERVICE] Error writing snapshot to " + path + ": " + e.getMessage());
+        }
+    }
+
+    private Path snapshotPath() {
+        return Paths.get(notificationProperties.getSnapshot().getPath());
+    }
+}
@@ -0,0 +1,67 @@
+package com.minishop.notificationsservice.repository;
+
+import com.minishop.notificationsservice.model.Notification;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NotificationSnapshotStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void roundTripPreservesOrderReadStateAndCounters() throws IOException {
+        List<Notification> notifications = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            Notification n = new Notification("ORDER_CREATED", "Nueva Orden", "Orden ñ-" + i, "SUCCESS");
+            n.setId("id-" + i);
+            n.setTimestamp(LocalDateTime.of(2024, 1, 1, 12, 0).plusNanos(i * 1_001L));
+            n.setRead(i % 3 == 0);
+            notifications.add(n);
+        }
+        notifications.get(5).setMessage(null);
+
+        Path file = tempDir.resolve("snap/notifications.snapshot");
+        NotificationSnapshotStore.write(file, new NotificationSnapshot(notifications, 12_345, 2_345));
+
+        NotificationSnapshot restored = NotificationSnapshotStore.read(file);
+
+        assertEquals(12_345, restored.getReceivedCount());
+        assertEquals(2_345, restored.getEvictedCount());
+        assertEquals(notifications.size(), restored.getNotifications().size());
+        for (int i = 0; i < notifications.size(); i++) {
+            Notification expected = notifications.get(i);
+            Notification actual = restored.getNotifications().get(i);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getType(), actual.getType());
+            assertEquals(expected.getTitle(), actual.getTitle());
+            assertEquals(expected.getMessage(), actual.getMessage());
+            assertEquals(expected.getSeverity(), actual.getSeverity());
+            assertEquals(expected.getTimestamp(), actual.getTimestamp());
+            assertEquals(expected.isRead(), actual.isRead());
+        }
+        assertFalse(Files.exists(file.resolveSibling("notifications.snapshot.tmp")));
+    }
+
+    @Test
+    void rejectsCorruptedSnapshot() throws IOException {
+        Path file = tempDir.resolve("notifications.snapshot");
+        List<Notification> notifications = List.of(new Notification("LOW_STOCK", "Stock Bajo", "x", "ERROR"));
+        NotificationSnapshotStore.write(file, new NotificationSnapshot(notifications, 1, 0));
+
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x5A;
+        Files.write(file, bytes);
+
+        assertThrows(IOException.class, () -> NotificationSnapshotStore.read(file));
+    }
+}
@@ -0,0 +1,68 @@
+package com.minishop.notificationsservice.service;
+
+import com.minishop.messaging.config.NatsProperties;
+import com.minishop.messaging.core.MessagingThreads;
+import io.nats.client.Connection;
+import io.nats.client.JetStream;
+import io.nats.client.JetStreamSubscription;
+import io.nats.client.Message;
+import io.nats.client.PullSubscribeOptions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Ack y nak de los consumidores JetStream, sin servidor
+ */
+class JetStreamSubscriberAckTest {
+
+    @Test
+    void failedHandlersNakSoTheMessageIsRedeliveredAndFetchErrorsDoNotStopTheConsumer() throws Exception {
+        Message failing = message("bad");
+        Message handled = message("ok");
+        JetStreamSubscription subscription = mock(JetStreamSubscription.class);
+        when(subscription.getConsumerInfo()).thenThrow(new IOException("no server"));
+        when(subscription.fetch(anyInt(), any(Duration.class)))
+            // Puesta al día
+            .thenReturn(List.of(failing))
+            // En vivo: un error de JetStream y después un mensaje
+            .thenThrow(new IllegalArgumentException("409 Consumer Deleted"))
+            .thenReturn(List.of(handled))
+            .thenAnswer(invocation -> {
+                Thread.sleep(10);
+                return List.of();
+            });
+        JetStream jetStream = mock(JetStream.class);
+        when(jetStream.subscribe(anyString(), any(PullSubscribeOptions.class))).thenReturn(subscription);
+        Connection connection = mock(Connection.class);
+        when(connection.jetStream()).thenReturn(jetStream);
+        NatsProperties properties = new NatsProperties();
+        properties.getJetstream().setFetchWait(20);
+
+        JetStreamSubscriber subscriber = new JetStreamSubscriber(connection, properties, new MessagingThreads(false));
+        subscriber.subscribe("orders.created", message -> {
+            if (new String(message.getData()).equals("bad")) {
+                throw new IllegalStateException("handler failed");
+            }
+        });
+
+        verify(handled, timeout(2000)).ack();
+        subscriber.stop();
+        verify(failing).nak();
+        verify(failing, never()).ack();
+    }
+
+    private static Message message(String data) {
+        Message message = mock(Message.class);
+        when(message.getSubject()).thenReturn("orders.created");
+        when(message.getData()).thenReturn(data.getBytes());
+        return message;
+    }
+}
@@ -0,0 +1,95 @@
+package com.minishop.notificationsservice.service;
+
+import com.minishop.messaging.config.NatsProperties;
+import com.minishop.messaging.core.MessagingThreads;
+import io.nats.client.Connection;
+import io.nats.client.NUID;
+import io.nats.client.Nats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Requiere un nats-server local con JetStream:
+ * nats-server -js, y después mvn test -Dnats.test.url=nats://localhost:4222
+ */
+@EnabledIfSystemProperty(named = "nats.test.url", matches = ".+")
+class JetStreamSubscriberTest {
+
+    private Connection connection;
+    private NatsProperties properties;
+    private String subject;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        connection = Nats.connect(System.getProperty("nats.test.url"));
+        String id = NUID.nextGlobal();
+        properties = new NatsProperties();
+        properties.getJetstream().setStream("TEST_REPLAY_" + id);
+        properties.getJetstream().setDurablePrefix("test");
+        properties.getJetstream().setBatchSize(64);
+        properties.getJetstream().setFetchWait(200);
+        subject = "test.replay." + id;
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        connection.jetStreamManagement().deleteStream(properties.getJetstream().getStream());
+        connection.close();
+    }
+
+    @Test
+    void replaysEventsMissedWhileDownAndResumesFromLastAck() throws Exception {
+        List<String> firstRun = new CopyOnWriteArrayList<>();
+        List<String> secondRun = new CopyOnWriteArrayList<>();
+
+        JetStreamSubscriber first = new JetStreamSubscriber(connection, properties, new MessagingThreads(false));
+        first.ensureStream(List.of(subject));
+        publish(0, 500);
+        first.subscribe(subject, msg -> firstRun.add(new String(msg.getData(), StandardCharsets.UTF_8)));
+        awaitSize(firstRun, 500);
+        first.stop();
+        connection.flush(Duration.ofSeconds(2));
+
+        // Eventos publicados con el consumidor parado
+        publish(500, 800);
+
+        JetStreamSubscriber second = new JetStreamSubscriber(connection, properties, new MessagingThreads(false));
+        second.subscribe(subject, msg -> secondRun.add(new String(msg.getData(), StandardCharsets.UTF_8)));
+        awaitSize(secondRun, 300);
+        Thread.sleep(500);
+        second.stop();
+
+        assertEquals(expected(0, 500), firstRun);
+        assertEquals(expected(500, 800), secondRun);
+    }
+
+    private void publish(int from, int to) throws Exception {
+        for (int i = from; i < to; i++) {
+            connection.publish(subject, ("event-" + i).getBytes(StandardCharsets.UTF_8));
+        }
+        connection.flush(Duration.ofSeconds(2));
+    }
+
+    private static List<String> expected(int from, int to) {
+        return IntStream.range(from, to).mapToObj(i -> "event-" + i).collect(Collectors.toList());
+    }
+
+    private static void awaitSize(List<String> received, int size) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (received.size() < size && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(size, received.size());
+    }
+}
@@ -0,0 +1,163 @@
+package com.minishop.notificationsservice.service;
+
+import com.minishop.messaging.config.MessagingAutoConfiguration;
+import com.minishop.messaging.core.NatsTemplate;
+import com.minishop.messaging.listener.NatsListener;
+import com.minishop.messaging.listener.NatsListenerContainer;
+import com.minishop.messaging.listener.NatsListenerRegistrar;
+import com.minishop.notificationsservice.config.MessagingProperties;
+import io.nats.client.Connection;
+import io.nats.client.Dispatcher;
+import io.nats.client.Message;
+import io.nats.client.MessageHandler;
+import io.nats.client.NUID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Réplicas de notifications-service con su configuración (config/application.yml):
+ * cada una es un contexto con la auto-configuración de mensajería y un
+ * listener declarado como los de NotificationService, que se suscribe con
+ * messaging.queue-group.
+ */
+class QueueGroupLoadBalancingTest {
+
+    private static final int REPLICAS = 3;
+    private static final int MESSAGES = 6000;
+
+    @Test
+    void everyReplicaSubscribesWithTheConfiguredQueueGroup() {
+        String subject = "test.queue." + NUID.nextGlobal();
+        List<ConfigurableApplicationContext> replicas = new ArrayList<>();
+        try {
+            for (int i = 0; i < REPLICAS; i++) {
+                replicas.add(startReplica(subject, "nats://localhost:4222", ReplicaConfiguration.class,
+                    MockConnectionConfiguration.class));
+            }
+
+            for (ConfigurableApplicationContext replica : replicas) {
+                String queueGroup = replica.getBean(MessagingProperties.class).getQueueGroup();
+                assertEquals("notifications-service", queueGroup);
+                verify(replica.getBean(Dispatcher.class)).subscribe(subject, queueGroup);
+                assertEquals(List.of(queueGroup), replica.getBean(NatsListenerRegistrar.class).getContainers().stream()
+                    .map(NatsListenerContainer::getQueue).toList());
+            }
+        } finally {
+            replicas.forEach(ConfigurableApplicationContext::close);
+        }
+    }
+
+    /**
+     * Requiere un nats-server local: mvn test -Dnats.test.url=nats://localhost:4222
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "nats.test.url", matches = ".+")
+    void replicasInTheSameQueueGroupSplitTheLoadWithoutDuplicates() throws Exception {
+        String url = System.getProperty("nats.test.url");
+        String subject = "test.queue." + NUID.nextGlobal();
+
+        List<ConfigurableApplicationContext> replicas = new ArrayList<>();
+        try {
+            for (int i = 0; i < REPLICAS; i++) {
+                ConfigurableApplicationContext replica = startReplica(subject, url, ReplicaConfiguration.class);
+                replica.getBean(Connection.class).flush(Duration.ofSeconds(2));
+                replicas.add(replica);
+            }
+
+            NatsTemplate natsTemplate = replicas.get(0).getBean(NatsTemplate.class);
+            for (int i = 0; i < MESSAGES; i++) {
+                natsTemplate.publish(subject, Map.of("orderId", String.valueOf(i)));
+            }
+            replicas.get(0).getBean(Connection.class).flush(Duration.ofSeconds(5));
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (total(replicas) < MESSAGES && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            Thread.sleep(200);
+
+            // Cada mensaje se procesa exactamente una vez entre todas las réplicas
+            assertEquals(MESSAGES, total(replicas));
+            int fairShare = MESSAGES / REPLICAS;
+            List<Integer> received = replicas.stream()
+                .map(replica -> replica.getBean(OrderCounter.class).received.get()).toList();
+            for (int count : received) {
+                assertTrue(Math.abs(count - fairShare) < fairShare * 0.25, "Uneven split: " + received);
+            }
+        } finally {
+            replicas.forEach(ConfigurableApplicationContext::close);
+        }
+    }
+
+    private static ConfigurableApplicationContext startReplica(String subject, String url, Class<?>... sources) {
+        return new SpringApplicationBuilder(sources)
+            .web(WebApplicationType.NONE)
+            .bannerMode(Banner.Mode.OFF)
+            .run("--spring.config.location=file:config/application.yml", "--nats.url=" + url,
+                "--messaging.subjects.orders.created=" + subject, "--messaging.tracing.enabled=false");
+    }
+
+    private static int total(List<ConfigurableApplicationContext> replicas) {
+        return replicas.stream().mapToInt(replica -> replica.getBean(OrderCounter.class).received.get()).sum();
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ImportAutoConfiguration(MessagingAutoConfiguration.class)
+    @EnableConfigurationProperties(MessagingProperties.class)
+    static class ReplicaConfiguration {
+
+        @Bean
+        OrderCounter orderCounter() {
+            return new OrderCounter();
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    static class MockConnectionConfiguration {
+
+        @Bean
+        Dispatcher dispatcher() throws InterruptedException {
+            Dispatcher dispatcher = mock(Dispatcher.class);
+            when(dispatcher.drain(any(Duration.class))).thenReturn(CompletableFuture.completedFuture(true));
+            return dispatcher;
+        }
+
+        @Bean
+        Connection connection(Dispatcher dispatcher) {
+            Connection connection = mock(Connection.class);
+            when(connection.createDispatcher(any(MessageHandler.class))).thenReturn(dispatcher);
+            return connection;
+        }
+    }
+
+    static class OrderCounter {
+
+        private final AtomicInteger received = new AtomicInteger();
+
+        // Misma declaración que NotificationService.handleOrderCreated
+        @NatsListener(subject = "${messaging.subjects.orders.created:orders.created}", key = "orderId",
+            concurrency = "1-8")
+        public void onOrderCreated(Message message) {
+            received.incrementAndGet();
+        }
+    }
+}
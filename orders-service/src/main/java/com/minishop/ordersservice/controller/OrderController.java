@@ -3,15 +3,22 @@ package com.minishop.ordersservice.controller;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.beans.factory.annotation.Autowired;
 
-import com.minishop.ordersservice.dto.OrderDto;
-import com.minishop.ordersservice.dto.OrderEvent;
+import com.minishop.messaging.core.EventOrigin;
+import com.minishop.messaging.event.OrderDto;
+import com.minishop.messaging.event.OrderEvent;
+import com.minishop.messaging.metrics.EventLatencyRecorder;
+import com.minishop.ordersservice.jfr.OrderCreateEvent;
 import com.minishop.ordersservice.service.OrderEventService;
+import com.minishop.ordersservice.service.OrderMutation;
+
+import jakarta.annotation.PostConstruct;
 
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 @RestController
 @RequestMapping("/orders")
@@ -20,9 +27,13 @@ public class OrderController {
     @Autowired
     private OrderEventService orderEventService;
 
+    @Autowired
+    private EventLatencyRecorder eventLatencyRecorder;
+
     // Simulación de base de datos en memoria
     private static final ConcurrentHashMap<Long, OrderDto> orders = new ConcurrentHashMap<>();
-    private static long nextId = 1L;
+    private static final int INITIAL_ORDERS = 3;
+    private static final AtomicLong nextId = new AtomicLong(1L);
 
     // Inicializar datos al cargar la clase
     static {
@@ -30,15 +41,42 @@ public class OrderController {
     }
 
     private static void initializeOrders() {
-        for (int i = 1; i <= 3; i++) {
+        for (int i = 1; i <= INITIAL_ORDERS; i++) {
             OrderDto order = new OrderDto();
             order.setId((long) i);
             order.setProductName("Product-" + i);
             order.setQuantity(i * 2);
 
             orders.put((long) i, order);
-            nextId = i + 1;
+            nextId.set(i + 1);
+        }
+    }
+
+    /**
+     * Con outbox, las órdenes de ejecuciones anteriores se reconstruyen desde
+     * su log, que después se compacta a una instantánea de las órdenes
+     */
+    @PostConstruct
+    void recoverOrders() {
+        orderEventService.recoverOrders(mutation -> {
+            if (mutation.getOrder() == null) {
+                orders.remove(mutation.getOrderId());
+            } else {
+                orders.put(mutation.getOrderId(), mutation.getOrder());
+            }
+            nextId.accumulateAndGet(mutation.getOrderId() + 1, Math::max);
+        });
+        List<OrderMutation> snapshot = new ArrayList<>();
+        // Se conservan los borrados de las órdenes iniciales y del último id:
+        // sin ellos reaparecerían al arrancar o se reutilizaría el id
+        long lastId = nextId.get() - 1;
+        for (long id = 1; id <= lastId; id++) {
+            if (!orders.containsKey(id) && (id <= INITIAL_ORDERS || id == lastId)) {
+                snapshot.add(OrderMutation.delete(id));
+            }
         }
+        orders.values().forEach(order -> snapshot.add(OrderMutation.put(order)));
+        orderEventService.compactOutbox(snapshot);
     }
 
     @GetMapping("/{id}")
@@ -58,28 +96,38 @@ public class OrderController {
 
     @PostMapping
     public ResponseEntity<OrderDto> createOrder(@RequestBody OrderDto orderDto) {
-        orderDto.setId(nextId++);
-
-        orders.put(orderDto.getId(), orderDto);
-
-        // Publicar evento de orden creada usando NATS
-        OrderEvent orderEvent = new OrderEvent(
-            orderDto.getId().toString(), 
-            "user-" + orderDto.getId(), // Simulando user ID
-            "CREATED", 
-            "CREATE"
-        );
-        orderEvent.setData(orderDto);
-        orderEventService.publishOrderCreated(orderEvent);
-
-        return ResponseEntity.status(HttpStatus.CREATED).body(orderDto);
+        // Origen de la cadena orden → inventario → notificación: viaja en ce-origintime
+        EventOrigin previous = EventOrigin.enter(EventOrigin.now());
+        OrderCreateEvent jfr = new OrderCreateEvent();
+        jfr.begin();
+        boolean success = false;
+        try {
+            orderDto.setId(nextId.getAndIncrement());
+
+            // Publicar evento de orden creada usando NATS; con outbox se guarda junto a la orden
+            OrderEvent orderEvent = new OrderEvent(
+                orderDto.getId().toString(), 
+                "user-" + orderDto.getId(), // Simulando user ID
+                "CREATED", 
+                "CREATE"
+            );
+            orderEvent.setData(orderDto);
+            orderEventService.publishOrderCreated(orderEvent, orderDto);
+            orders.put(orderDto.getId(), orderDto);
+            eventLatencyRecorder.record("orders.create-order");
+            success = true;
+
+            return ResponseEntity.status(HttpStatus.CREATED).body(orderDto);
+        } finally {
+            jfr.record(orderDto.getId() != null ? orderDto.getId().toString() : null, "user-" + orderDto.getId(), success);
+            EventOrigin.restore(previous);
+        }
     }
 
     @PutMapping("/{id}")
     public ResponseEntity<OrderDto> updateOrder(@PathVariable Long id, @RequestBody OrderDto orderDto) {
         if (orders.containsKey(id)) {
             orderDto.setId(id);
-            orders.put(id, orderDto);
             
             // Publicar evento de orden actualizada usando NATS
             OrderEvent orderEvent = new OrderEvent(
@@ -89,7 +137,8 @@ public class OrderController {
                 "UPDATE"
             );
             orderEvent.setData(orderDto);
-            orderEventService.publishOrderUpdated(orderEvent);
+            orderEventService.publishOrderUpdated(orderEvent, orderDto);
+            orders.put(id, orderDto);
             
             return ResponseEntity.ok(orderDto);
         } else {
@@ -101,7 +150,6 @@ public class OrderController {
     public ResponseEntity<Void> deleteOrder(@PathVariable Long id) {
         if (orders.containsKey(id)) {
             OrderDto orderDto = orders.get(id);
-            orders.remove(id);
             
             // Publicar evento de orden cancelada usando NATS
             OrderEvent orderEvent = new OrderEvent(
@@ -111,7 +159,8 @@ public class OrderController {
                 "DELETE"
             );
             orderEvent.setData(orderDto);
-            orderEventService.publishOrderCancelled(orderEvent);
+            orderEventService.publishOrderCancelled(orderEvent, id);
+            orders.remove(id);
             
             return ResponseEntity.noContent().build();
         } else {
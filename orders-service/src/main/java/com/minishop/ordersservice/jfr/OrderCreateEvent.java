@@ -0,0 +1,39 @@
+package com.minishop.ordersservice.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Alta de una orden (POST /orders): desde que llega la petición hasta que
+ * el evento está publicado o guardado en el outbox
+ */
+@Name("minishop.OrderCreate")
+@Label("Order Create")
+@Category({"Minishop", "Orders"})
+@Description("Order created through POST /orders")
+@StackTrace(false)
+public class OrderCreateEvent extends Event {
+
+    @Label("Order Id")
+    String orderId;
+
+    @Label("User Id")
+    String userId;
+
+    @Label("Success")
+    boolean success;
+
+    public void record(String orderId, String userId, boolean success) {
+        end();
+        if (shouldCommit()) {
+            this.orderId = orderId;
+            this.userId = userId;
+            this.success = success;
+            commit();
+        }
+    }
+}
@@ -1,14 +1,20 @@
 package com.minishop.ordersservice.service;
 
-import com.minishop.ordersservice.dto.OrderEvent;
-import com.minishop.ordersservice.dto.NotificationMessage;
+import com.minishop.messaging.core.AsyncNatsPublisher;
+import com.minishop.messaging.core.NatsTemplate;
+import com.minishop.messaging.core.Outbox;
+import com.minishop.messaging.core.OutboxEvent;
+import com.minishop.messaging.event.NotificationMessage;
+import com.minishop.messaging.event.OrderDto;
+import com.minishop.messaging.event.OrderEvent;
+import com.minishop.messaging.listener.NatsListener;
+import com.minishop.ordersservice.config.MessagingProperties;
 import io.nats.client.Message;
-import io.nats.client.Subscription;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import jakarta.annotation.PostConstruct;
-import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Servicio que maneja los eventos y mensajería de órdenes usando NATS
@@ -17,129 +23,119 @@ import java.time.Duration;
 public class OrderEventService {
     
     @Autowired
-    private NatsService natsService;
+    private NatsTemplate natsTemplate;
     
-    @PostConstruct
-    public void initializeSubscriptions() {
-        // Suscribirse a respuestas de pagos
-        subscribeToPaymentEvents();
-    }
+    /**
+     * Los eventos se encolan y se publican por lotes fuera del hilo de la petición
+     */
+    @Autowired
+    private AsyncNatsPublisher eventPublisher;
+    
+    @Autowired
+    private MessagingProperties messagingProperties;
+    
+    /**
+     * Con messaging.outbox.enabled, el cambio y sus eventos se guardan juntos y se publican después
+     */
+    @Autowired(required = false)
+    private Outbox outbox;
     
     /**
      * Publica un evento cuando se crea una orden
      */
-    public void publishOrderCreated(OrderEvent orderEvent) {
-        String subject = natsService.getOrdersSubjects().getCreated();
-        natsService.publish(subject, orderEvent);
-        
+    public void publishOrderCreated(OrderEvent orderEvent, OrderDto order) {
+        String subject = messagingProperties.getSubjects().getOrders().getCreated();
         // También enviar notificación
-        sendOrderNotification(orderEvent, "Nueva orden creada: " + orderEvent.getOrderId());
+        publish(OrderMutation.put(order), List.of(
+            new OutboxEvent(subject, orderEvent),
+            orderNotification(orderEvent, "Nueva orden creada: " + orderEvent.getOrderId())));
     }
     
     /**
      * Publica un evento cuando se actualiza una orden
      */
-    public void publishOrderUpdated(OrderEvent orderEvent) {
-        String subject = natsService.getOrdersSubjects().getUpdated();
-        natsService.publish(subject, orderEvent);
+    public void publishOrderUpdated(OrderEvent orderEvent, OrderDto order) {
+        String subject = messagingProperties.getSubjects().getOrders().getUpdated();
+        publish(OrderMutation.put(order), List.of(new OutboxEvent(subject, orderEvent)));
     }
     
     /**
      * Publica un evento cuando se cancela una orden
      */
-    public void publishOrderCancelled(OrderEvent orderEvent) {
-        String subject = natsService.getOrdersSubjects().getCancelled();
-        natsService.publish(subject, orderEvent);
-        
+    public void publishOrderCancelled(OrderEvent orderEvent, Long orderId) {
+        String subject = messagingProperties.getSubjects().getOrders().getCancelled();
         // También enviar notificación
-        sendOrderNotification(orderEvent, "Orden cancelada: " + orderEvent.getOrderId());
+        publish(OrderMutation.delete(orderId), List.of(
+            new OutboxEvent(subject, orderEvent),
+            orderNotification(orderEvent, "Orden cancelada: " + orderEvent.getOrderId())));
     }
     
     /**
      * Publica un evento cuando cambia el estado de una orden
      */
     public void publishOrderStatusChanged(OrderEvent orderEvent) {
-        String subject = natsService.getOrdersSubjects().getStatusChanged();
-        natsService.publish(subject, orderEvent);
+        String subject = messagingProperties.getSubjects().getOrders().getStatusChanged();
+        publish(null, List.of(new OutboxEvent(subject, orderEvent)));
+    }
+    
+    /**
+     * Órdenes guardadas en el outbox, en orden, para reconstruir el estado al arrancar
+     */
+    public void recoverOrders(Consumer<OrderMutation> apply) {
+        if (outbox != null) {
+            int count = outbox.replayState(OrderMutation.class, apply);
+            System.out.println("Recovered " + count + " order changes from the outbox");
+        }
+    }
+    
+    /**
+     * Reescribe el outbox con el estado recién reconstruido, para que no crezca con el historial
+     */
+    public void compactOutbox(List<OrderMutation> snapshot) {
+        if (outbox != null) {
+            outbox.compact(snapshot);
+        }
     }
     
     /**
-     * Envía una notificación usando NATS
+     * Al outbox si está activo (la petición solo paga la escritura local);
+     * si no, al publicador asíncrono
      */
-    private void sendOrderNotification(OrderEvent orderEvent, String message) {
+    private void publish(OrderMutation mutation, List<OutboxEvent> events) {
+        if (outbox != null) {
+            outbox.append(mutation, events);
+            return;
+        }
+        for (OutboxEvent event : events) {
+            eventPublisher.publish(event.getSubject(), event.getPayload());
+        }
+    }
+    
+    /**
+     * Notificación de una orden usando NATS
+     */
+    private OutboxEvent orderNotification(OrderEvent orderEvent, String message) {
         NotificationMessage notification = new NotificationMessage();
         notification.setUserId(orderEvent.getUserId());
         notification.setMessage(message);
         notification.setType("ORDER");
         notification.setTimestamp(orderEvent.getTimestamp());
         
-        String subject = natsService.getNotificationsSubjects().getSend();
-        natsService.publish(subject, notification);
-    }
-    
-    /**
-     * Suscribe a eventos de pagos
-     */
-    private void subscribeToPaymentEvents() {
-        // Suscribirse a confirmaciones de pago
-        Subscription paymentConfirmedSub = natsService.subscribe(
-            natsService.getPaymentsSubjects().getConfirmed()
-        );
-        
-        // Procesar mensajes de pago confirmado en un hilo separado
-        new Thread(() -> {
-            try {
-                while (!paymentConfirmedSub.isActive()) {
-                    Thread.sleep(100);
-                }
-                
-                while (paymentConfirmedSub.isActive()) {
-                    Message msg = paymentConfirmedSub.nextMessage(Duration.ofSeconds(1));
-                    if (msg != null) {
-                        handlePaymentConfirmed(msg);
-                    }
-                }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                System.err.println("Payment subscription interrupted: " + e.getMessage());
-            }
-        }).start();
-        
-        // Suscribirse a fallos de pago
-        Subscription paymentFailedSub = natsService.subscribe(
-            natsService.getPaymentsSubjects().getFailed()
-        );
-        
-        // Procesar mensajes de pago fallido en un hilo separado
-        new Thread(() -> {
-            try {
-                while (!paymentFailedSub.isActive()) {
-                    Thread.sleep(100);
-                }
-                
-                while (paymentFailedSub.isActive()) {
-                    Message msg = paymentFailedSub.nextMessage(Duration.ofSeconds(1));
-                    if (msg != null) {
-                        handlePaymentFailed(msg);
-                    }
-                }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                System.err.println("Payment failed subscription interrupted: " + e.getMessage());
-            }
-        }).start();
+        String subject = messagingProperties.getSubjects().getNotifications().getSend();
+        return new OutboxEvent(subject, notification);
     }
     
     /**
      * Maneja eventos de pago confirmado
      */
-    private void handlePaymentConfirmed(Message message) {
+    @NatsListener(subject = "${messaging.subjects.payments.confirmed:payments.confirmed}", key = "orderId")
+    public void handlePaymentConfirmed(Message message) {
         try {
             // Aquí procesarías el evento de pago confirmado
-            System.out.println("Payment confirmed received: " + new String(message.getData()));
+            System.out.println("Payment confirmed received: " + natsTemplate.getCodec().toText(message));
             
             // Ejemplo: actualizar el estado de la orden
-            // OrderEvent orderEvent = natsService.deserializeMessage(message, OrderEvent.class);
+            // OrderEvent orderEvent = natsTemplate.decode(message, OrderEvent.class);
             // updateOrderStatus(orderEvent.getOrderId(), "PAID");
             
         } catch (Exception e) {
@@ -150,13 +146,14 @@ public class OrderEventService {
     /**
      * Maneja eventos de pago fallido
      */
-    private void handlePaymentFailed(Message message) {
+    @NatsListener(subject = "${messaging.subjects.payments.failed:payments.failed}", key = "orderId")
+    public void handlePaymentFailed(Message message) {
         try {
             // Aquí procesarías el evento de pago fallido
-            System.out.println("Payment failed received: " + new String(message.getData()));
+            System.out.println("Payment failed received: " + natsTemplate.getCodec().toText(message));
             
             // Ejemplo: cancelar la orden o marcarla como pago fallido
-            // OrderEvent orderEvent = natsService.deserializeMessage(message, OrderEvent.class);
+            // OrderEvent orderEvent = natsTemplate.decode(message, OrderEvent.class);
             // updateOrderStatus(orderEvent.getOrderId(), "PAYMENT_FAILED");
             
         } catch (Exception e) {
@@ -0,0 +1,45 @@
+package com.minishop.ordersservice.service;
+
+import com.minishop.messaging.event.OrderDto;
+
+/**
+ * Cambio de una orden tal como se guarda en el outbox: la orden nueva o,
+ * si es null, su borrado
+ */
+public class OrderMutation {
+    
+    private Long orderId;
+    private OrderDto order;
+    
+    public OrderMutation() {
+    }
+    
+    private OrderMutation(Long orderId, OrderDto order) {
+        this.orderId = orderId;
+        this.order = order;
+    }
+    
+    public static OrderMutation put(OrderDto order) {
+        return new OrderMutation(order.getId(), order);
+    }
+    
+    public static OrderMutation delete(Long orderId) {
+        return new OrderMutation(orderId, null);
+    }
+    
+    public Long getOrderId() {
+        return orderId;
+    }
+    
+    public void setOrderId(Long orderId) {
+        this.orderId = orderId;
+    }
+    
+    public OrderDto getOrder() {
+        return order;
+    }
+    
+    public void setOrder(OrderDto order) {
+        this.order = order;
+    }
+}
@@ -11,6 +11,8 @@ import org.springframework.stereotype.Component;
 public class MessagingProperties {
     
     private Subjects subjects = new Subjects();
+    // Grupo de cola: las réplicas del servicio se reparten los mensajes en lugar de duplicarlos
+    private String queueGroup = "products-service";
     
     public Subjects getSubjects() {
         return subjects;
@@ -20,6 +22,14 @@ public class MessagingProperties {
         this.subjects = subjects;
     }
     
+    public String getQueueGroup() {
+        return queueGroup;
+    }
+    
+    public void setQueueGroup(String queueGroup) {
+        this.queueGroup = queueGroup;
+    }
+    
     public static class Subjects {
         private Products products = new Products();
         private Orders orders = new Orders();
@@ -1,7 +1,7 @@
 package com.minishop.productsservice.controller;
 
-import com.minishop.productsservice.dto.ProductDto;
-import com.minishop.productsservice.dto.ProductEvent;
+import com.minishop.messaging.event.ProductDto;
+import com.minishop.messaging.event.ProductEvent;
 import com.minishop.productsservice.service.ProductEventService;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -1,78 +0,0 @@
-package com.minishop.productsservice.dto;
-
-import java.time.LocalDateTime;
-
-/**
- * DTO para eventos de órdenes (para escuchar desde orders-service)
- */
-public class OrderEvent {
-    private String orderId;
-    private String userId;
-    private String status;
-    private String action;
-    private LocalDateTime timestamp;
-    private Object data;
-    
-    public OrderEvent() {
-        this.timestamp = LocalDateTime.now();
-    }
-    
-    public String getOrderId() {
-        return orderId;
-    }
-    
-    public void setOrderId(String orderId) {
-        this.orderId = orderId;
-    }
-    
-    public String getUserId() {
-        return userId;
-    }
-    
-    public void setUserId(String userId) {
-        this.userId = userId;
-    }
-    
-    public String getStatus() {
-        return status;
-    }
-    
-    public void setStatus(String status) {
-        this.status = status;
-    }
-    
-    public String getAction() {
-        return action;
-    }
-    
-    public void setAction(String action) {
-        this.action = action;
-    }
-    
-    public LocalDateTime getTimestamp() {
-        return timestamp;
-    }
-    
-    public void setTimestamp(LocalDateTime timestamp) {
-        this.timestamp = timestamp;
-    }
-    
-    public Object getData() {
-        return data;
-    }
-    
-    public void setData(Object data) {
-        this.data = data;
-    }
-    
-    @Override
-    public String toString() {
-        return "OrderEvent{" +
-                "orderId='" + orderId + '\'' +
-                ", userId='" + userId + '\'' +
-                ", status='" + status + '\'' +
-                ", action='" + action + '\'' +
-                ", timestamp=" + timestamp +
-                '}';
-    }
-}
@@ -1,10 +0,0 @@
-package com.minishop.productsservice.dto;
-
-import lombok.Data;
-
-@Data
-public class ProductDto {
-    private Long id;
-    private String name;
-    private double price;
-}
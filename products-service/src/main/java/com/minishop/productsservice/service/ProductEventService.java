@@ -1,61 +1,63 @@
 package com.minishop.productsservice.service;
 
-import com.minishop.productsservice.dto.ProductEvent;
-import com.minishop.productsservice.dto.OrderEvent;
-import com.minishop.productsservice.dto.NotificationMessage;
-import io.nats.client.Message;
-import io.nats.client.Subscription;
+import com.minishop.messaging.core.AsyncNatsPublisher;
+import com.minishop.messaging.event.NotificationMessage;
+import com.minishop.messaging.event.OrderEvent;
+import com.minishop.messaging.event.ProductEvent;
+import com.minishop.messaging.listener.NatsListener;
+import com.minishop.messaging.metrics.EventLatencyRecorder;
+import com.minishop.productsservice.config.MessagingProperties;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import jakarta.annotation.PostConstruct;
-import java.time.Duration;
-
 /**
  * Servicio que maneja los eventos y mensajería de productos usando NATS
  */
 @Service
 public class ProductEventService {
     
+    /**
+     * Los eventos se encolan y se publican por lotes fuera del hilo de la petición
+     */
     @Autowired
-    private NatsService natsService;
+    private AsyncNatsPublisher eventPublisher;
     
-    @PostConstruct
-    public void initializeSubscriptions() {
-        // Suscribirse a eventos de órdenes para manejar inventario
-        subscribeToOrderEvents();
-    }
+    @Autowired
+    private MessagingProperties messagingProperties;
+    
+    @Autowired
+    private EventLatencyRecorder eventLatencyRecorder;
     
     /**
      * Publica un evento cuando se crea un producto
      */
     public void publishProductCreated(ProductEvent productEvent) {
-        String subject = natsService.getProductsSubjects().getCreated();
-        natsService.publish(subject, productEvent);
+        String subject = messagingProperties.getSubjects().getProducts().getCreated();
+        eventPublisher.publish(subject, productEvent);
     }
     
     /**
      * Publica un evento cuando se actualiza un producto
      */
     public void publishProductUpdated(ProductEvent productEvent) {
-        String subject = natsService.getProductsSubjects().getUpdated();
-        natsService.publish(subject, productEvent);
+        String subject = messagingProperties.getSubjects().getProducts().getUpdated();
+        eventPublisher.publish(subject, productEvent);
     }
     
     /**
      * Publica un evento cuando se elimina un producto
      */
     public void publishProductDeleted(ProductEvent productEvent) {
-        String subject = natsService.getProductsSubjects().getDeleted();
-        natsService.publish(subject, productEvent);
+        String subject = messagingProperties.getSubjects().getProducts().getDeleted();
+        eventPublisher.publish(subject, productEvent);
     }
     
     /**
      * Publica un evento de stock bajo
      */
     public void publishLowStock(ProductEvent productEvent) {
-        String subject = natsService.getProductsSubjects().getLowStock();
-        natsService.publish(subject, productEvent);
+        String subject = messagingProperties.getSubjects().getProducts().getLowStock();
+        eventPublisher.publish(subject, productEvent);
         
         // También enviar notificación a administradores
         sendLowStockNotification(productEvent);
@@ -73,72 +75,22 @@ public class ProductEventService {
             notification.setType("LOW_STOCK");
             notification.setChannel("EMAIL");
             
-            String subject = natsService.getNotificationsSubjects().getSend();
-            natsService.publish(subject, notification);
+            String subject = messagingProperties.getSubjects().getNotifications().getSend();
+            eventPublisher.publish(subject, notification);
         } catch (Exception e) {
             System.err.println("[PRODUCTS-SERVICE] Error enviando notificación de stock bajo: " + e.getMessage());
         }
     }
     
-    /**
-     * Suscribe a eventos de órdenes para manejar inventario
-     */
-    private void subscribeToOrderEvents() {
-        // Suscribirse a órdenes creadas para verificar inventario
-        Subscription orderCreatedSub = natsService.subscribe(
-            natsService.getOrdersSubjects().getCreated()
-        );
-        
-        // Procesar órdenes creadas en un hilo separado
-        new Thread(() -> {
-            try {
-                while (!orderCreatedSub.isActive()) {
-                    Thread.sleep(100);
-                }
-                
-                while (orderCreatedSub.isActive()) {
-                    Message msg = orderCreatedSub.nextMessage(Duration.ofSeconds(1));
-                    if (msg != null) {
-                        handleOrderCreated(msg);
-                    }
-                }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                System.err.println("[PRODUCTS-SERVICE] Order created subscription interrupted: " + e.getMessage());
-            }
-        }).start();
-        
-        // Suscribirse a órdenes canceladas para restaurar inventario
-        Subscription orderCancelledSub = natsService.subscribe(
-            natsService.getOrdersSubjects().getCancelled()
-        );
-        
-        // Procesar órdenes canceladas en un hilo separado
-        new Thread(() -> {
-            try {
-                while (!orderCancelledSub.isActive()) {
-                    Thread.sleep(100);
-                }
-                
-                while (orderCancelledSub.isActive()) {
-                    Message msg = orderCancelledSub.nextMessage(Duration.ofSeconds(1));
-                    if (msg != null) {
-                        handleOrderCancelled(msg);
-                    }
-                }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                System.err.println("[PRODUCTS-SERVICE] Order cancelled subscription interrupted: " + e.getMessage());
-            }
-        }).start();
-    }
-    
     /**
      * Maneja eventos de órdenes creadas
      */
-    private void handleOrderCreated(Message message) {
+    @NatsListener(subject = "${messaging.subjects.orders.created:orders.created}", key = "orderId", types = "order.CREATE",
+        concurrency = "1-8")
+    public void handleOrderCreated(OrderEvent orderEvent) {
         try {
-            OrderEvent orderEvent = natsService.deserializeMessage(message, OrderEvent.class);
+            // Desde POST /orders hasta aquí (ce-origintime)
+            eventLatencyRecorder.record("products.order-created");
             System.out.println("[PRODUCTS-SERVICE] Processing order created: " + orderEvent.getOrderId());
             
             // Aquí implementarías la lógica de verificación de inventario
@@ -154,8 +106,8 @@ public class ProductEventService {
             inventoryEvent.setAction("INVENTORY_RESERVED");
             inventoryEvent.setData(orderEvent);
             
-            String subject = natsService.getProductsSubjects().getInventoryUpdate();
-            natsService.publish(subject, inventoryEvent);
+            String subject = messagingProperties.getSubjects().getProducts().getInventoryUpdate();
+            eventPublisher.publish(subject, inventoryEvent);
             
         } catch (Exception e) {
             System.err.println("[PRODUCTS-SERVICE] Error handling order created: " + e.getMessage());
@@ -165,9 +117,9 @@ public class ProductEventService {
     /**
      * Maneja eventos de órdenes canceladas
      */
-    private void handleOrderCancelled(Message message) {
+    @NatsListener(subject = "${messaging.subjects.orders.cancelled:orders.cancelled}", key = "orderId", types = "order.DELETE")
+    public void handleOrderCancelled(OrderEvent orderEvent) {
         try {
-            OrderEvent orderEvent = natsService.deserializeMessage(message, OrderEvent.class);
             System.out.println("[PRODUCTS-SERVICE] Processing order cancelled: " + orderEvent.getOrderId());
             
             // Aquí implementarías la lógica de restauración de inventario
@@ -182,8 +134,8 @@ public class ProductEventService {
             inventoryEvent.setAction("INVENTORY_RESTORED");
             inventoryEvent.setData(orderEvent);
             
-            String subject = natsService.getProductsSubjects().getInventoryUpdate();
-            natsService.publish(subject, inventoryEvent);
+            String subject = messagingProperties.getSubjects().getProducts().getInventoryUpdate();
+            eventPublisher.publish(subject, inventoryEvent);
             
         } catch (Exception e) {
             System.err.println("[PRODUCTS-SERVICE] Error handling order cancelled: " + e.getMessage());
@@ -0,0 +1,61 @@
+#!/bin/bash
+
+# Script para levantar un cluster NATS local de tres nodos
+# Útil para probar nats.cluster (lista de servidores, RTT, lame duck)
+
+echo "🚀 Iniciando cluster NATS de tres nodos para Mini-Shop"
+echo "====================================================="
+echo ""
+
+# Verificar si Docker está corriendo
+if ! docker info > /dev/null 2>&1; then
+    echo "❌ Docker no está corriendo"
+    exit 1
+fi
+
+# Crear red si no existe
+docker network create mini-shop-cluster-net 2>/dev/null || true
+
+ROUTES="nats://nats-1:6222,nats://nats-2:6222,nats://nats-3:6222"
+
+for i in 1 2 3; do
+    docker rm -f mini-shop-nats-$i 2>/dev/null || true
+    echo "🔄 Iniciando nodo $i en puerto 422$((i + 1))..."
+    docker run -d \
+        --name mini-shop-nats-$i \
+        --hostname nats-$i \
+        --network mini-shop-cluster-net \
+        --network-alias nats-$i \
+        -p 422$((i + 1)):4222 \
+        -p 822$((i + 1)):8222 \
+        nats:2.10-alpine \
+        --http_port 8222 \
+        --server_name mini-shop-nats-$i \
+        --cluster_name mini-shop-cluster \
+        --cluster nats://0.0.0.0:6222 \
+        --routes "$ROUTES" > /dev/null
+done
+
+# Esperar que los nodos formen el cluster
+echo "⏳ Esperando que el cluster esté listo..."
+sleep 5
+
+for i in 1 2 3; do
+    if curl -s http://localhost:822$((i + 1))/healthz > /dev/null; then
+        echo "✅ Nodo $i: nats://localhost:422$((i + 1))"
+    else
+        echo "❌ Nodo $i no está respondiendo (docker logs mini-shop-nats-$i)"
+        exit 1
+    fi
+done
+
+echo ""
+echo "🔧 Para usarlo desde los servicios (nats.cluster en application.yml):"
+echo "  nats.cluster.enabled=true"
+echo "  nats.cluster.servers=nats://localhost:4222,nats://localhost:4223,nats://localhost:4224"
+echo ""
+echo "🧪 Tests contra el cluster:"
+echo "  cd minishop-messaging && mvn test -Dtest=ClusterServerSelectorTest -Dnats.cluster.test=true"
+echo ""
+echo "🛑 Para detenerlo:"
+echo "  docker rm -f mini-shop-nats-1 mini-shop-nats-2 mini-shop-nats-3"